@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.processor;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.List;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+
+/**
+ * Writes the source code of an implementation class of a value interface.
+ *
+ * @see ValueProcessor
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+final class ImplementationWriter {
+
+	private static final String GENERATED_VALUE = "de.haumacher.values.internal.GeneratedValue";
+
+	private static final String LAZY = "de.haumacher.values.annotate.Lazy";
+
+	private static final String DESCRIPTOR_TYPE = "de.haumacher.values.internal.ValueDescriptorImpl<?>";
+
+	private final PrintWriter out;
+	private final String packageName;
+	private final String className;
+	private final TypeElement valueInterface;
+	private final Elements elements;
+	private final List<PropertyModel> properties;
+
+	ImplementationWriter(Writer out, String packageName, String className, TypeElement valueInterface, Elements elements, List<PropertyModel> properties) {
+		this.out = new PrintWriter(out);
+		this.packageName = packageName;
+		this.className = className;
+		this.valueInterface = valueInterface;
+		this.elements = elements;
+		this.properties = properties;
+	}
+
+	void write() {
+		if (packageName.length() > 0) {
+			out.println("package " + packageName + ";");
+			out.println();
+		}
+		out.println("/**");
+		out.println(" * Implementation of {@link " + valueInterface.getQualifiedName() + "}.");
+		out.println(" *");
+		out.println(" * <p>");
+		out.println(" * Generated by " + ValueProcessor.class.getName() + ", do not edit.");
+		out.println(" * </p>");
+		out.println(" */");
+		out.println("@SuppressWarnings(\"unchecked\")");
+		out.println("public final class " + className + " extends " + GENERATED_VALUE + " implements " + valueInterface.getQualifiedName() + " {");
+		out.println();
+
+		writePropertyTable();
+		writeFields();
+		writeConstructor();
+
+		for (PropertyModel property : properties) {
+			for (ExecutableElement method : property.getMethods()) {
+				if (method.getSimpleName().toString().startsWith("set")) {
+					writeSetter(property, method);
+				} else {
+					writeGetter(property, method);
+				}
+			}
+		}
+
+		writeGet();
+		writeSet();
+		writeGetBits();
+		writeSetBits();
+
+		out.println("}");
+		out.flush();
+	}
+
+	private void writePropertyTable() {
+		out.println("\t/**");
+		out.println("\t * Name, declaring interface and getter of each property.");
+		out.println("\t */");
+		out.println("\tpublic static final String[][] PROPERTIES = {");
+		for (PropertyModel property : properties) {
+			TypeElement declaringInterface = (TypeElement) property.getGetter().getEnclosingElement();
+			out.println("\t\t{ " +
+				literal(property.getRawName()) + ", " +
+				literal(elements.getBinaryName(declaringInterface).toString()) + ", " +
+				literal(property.getGetter().getSimpleName().toString()) + " },");
+		}
+		out.println("\t};");
+		out.println();
+	}
+
+	private void writeFields() {
+		for (PropertyModel property : properties) {
+			out.println("\tprivate " + property.getFieldType() + " " + property.getFieldName() + ";");
+		}
+		if (!properties.isEmpty()) {
+			out.println();
+		}
+	}
+
+	private void writeConstructor() {
+		out.println("\t/**");
+		out.println("\t * Creates a new instance with all properties initialized.");
+		out.println("\t */");
+		out.println("\tpublic " + className + "(" + DESCRIPTOR_TYPE + " descriptor) {");
+		out.println("\t\tsuper(descriptor);");
+		out.println("\t}");
+		out.println();
+	}
+
+	private void writeGetter(PropertyModel property, ExecutableElement method) {
+		TypeMirror returnType = method.getReturnType();
+		out.println("\t@Override");
+		out.println("\tpublic " + returnType + " " + method.getSimpleName() + "() {");
+		if (isLazy(property)) {
+			out.println("\t\treturn (" + returnType + ") materialized(" + property.getIndex() + ", " + property.getFieldName() + ");");
+		} else if (returnType.toString().equals(property.getFieldType().toString())) {
+			out.println("\t\treturn " + property.getFieldName() + ";");
+		} else {
+			out.println("\t\treturn (" + returnType + ") " + property.getFieldName() + ";");
+		}
+		out.println("\t}");
+		out.println();
+	}
+
+	/**
+	 * Whether the getter must create the initial value of the given property
+	 * on first access.
+	 * 
+	 * <p>
+	 * Whether the property is actually lazy is decided at runtime, since
+	 * this depends on the initial value of the property.
+	 * </p>
+	 */
+	private boolean isLazy(PropertyModel property) {
+		if (property.isNullable() || property.getFieldType().getKind().isPrimitive()) {
+			return false;
+		}
+		return ValueProcessor.hasAnnotation(valueInterface, LAZY) || ValueProcessor.hasAnnotation(property.getGetter(), LAZY);
+	}
+
+	private void writeSetter(PropertyModel property, ExecutableElement method) {
+		TypeMirror parameterType = method.getParameters().get(0).asType();
+		TypeMirror fieldType = property.getFieldType();
+		out.println("\t@Override");
+		out.println("\tpublic void " + method.getSimpleName() + "(" + parameterType + " value) {");
+		out.println("\t\tbeforeUpdate(" + property.getIndex() + ");");
+		if (property.isNullable() || fieldType.getKind().isPrimitive()) {
+			out.println("\t\t" + property.getFieldName() + " = value;");
+		} else {
+			out.println("\t\t" + property.getFieldName() + " = (" + fieldType + ") nonNull(" + property.getIndex() + ", value);");
+		}
+		out.println("\t\tafterUpdate(" + property.getIndex() + ");");
+		out.println("\t}");
+		out.println();
+	}
+
+	private void writeGet() {
+		out.println("\t@Override");
+		out.println("\tprotected Object get(int index) {");
+		out.println("\t\tswitch (index) {");
+		for (PropertyModel property : properties) {
+			out.println("\t\t\tcase " + property.getIndex() + ": return " + property.getFieldName() + ";");
+		}
+		out.println("\t\t}");
+		out.println("\t\tthrow noSuchProperty(index);");
+		out.println("\t}");
+		out.println();
+	}
+
+	private void writeSet() {
+		out.println("\t@Override");
+		out.println("\tprotected void set(int index, Object value) {");
+		out.println("\t\tswitch (index) {");
+		for (PropertyModel property : properties) {
+			TypeMirror fieldType = property.getFieldType();
+			String castType = fieldType.getKind().isPrimitive() ? wrapper(fieldType.getKind()) : fieldType.toString();
+			out.println("\t\t\tcase " + property.getIndex() + ": " + property.getFieldName() + " = (" + castType + ") value; return;");
+		}
+		out.println("\t\t}");
+		out.println("\t\tthrow noSuchProperty(index);");
+		out.println("\t}");
+		out.println();
+	}
+
+	private void writeGetBits() {
+		out.println("\t@Override");
+		out.println("\tprotected long getBits(int index) {");
+		out.println("\t\tswitch (index) {");
+		for (PropertyModel property : properties) {
+			TypeKind kind = property.getFieldType().getKind();
+			if (!kind.isPrimitive()) {
+				continue;
+			}
+			String field = property.getFieldName();
+			String bits;
+			switch (kind) {
+				case BOOLEAN:
+					bits = field + " ? 1L : 0L";
+					break;
+				case FLOAT:
+					bits = "Float.floatToRawIntBits(" + field + ")";
+					break;
+				case DOUBLE:
+					bits = "Double.doubleToRawLongBits(" + field + ")";
+					break;
+				default:
+					bits = field;
+			}
+			out.println("\t\t\tcase " + property.getIndex() + ": return " + bits + ";");
+		}
+		out.println("\t\t}");
+		out.println("\t\tthrow noSuchProperty(index);");
+		out.println("\t}");
+		out.println();
+	}
+
+	private void writeSetBits() {
+		out.println("\t@Override");
+		out.println("\tprotected void setBits(int index, long bits) {");
+		out.println("\t\tswitch (index) {");
+		for (PropertyModel property : properties) {
+			TypeKind kind = property.getFieldType().getKind();
+			if (!kind.isPrimitive()) {
+				continue;
+			}
+			String value;
+			switch (kind) {
+				case BOOLEAN:
+					value = "bits != 0";
+					break;
+				case FLOAT:
+					value = "Float.intBitsToFloat((int) bits)";
+					break;
+				case DOUBLE:
+					value = "Double.longBitsToDouble(bits)";
+					break;
+				case LONG:
+					value = "bits";
+					break;
+				default:
+					value = "(" + property.getFieldType() + ") bits";
+			}
+			out.println("\t\t\tcase " + property.getIndex() + ": " + property.getFieldName() + " = " + value + "; return;");
+		}
+		out.println("\t\t}");
+		out.println("\t\tthrow noSuchProperty(index);");
+		out.println("\t}");
+		out.println();
+	}
+
+	private static String wrapper(TypeKind kind) {
+		switch (kind) {
+			case BOOLEAN:
+				return "Boolean";
+			case BYTE:
+				return "Byte";
+			case CHAR:
+				return "Character";
+			case SHORT:
+				return "Short";
+			case INT:
+				return "Integer";
+			case LONG:
+				return "Long";
+			case FLOAT:
+				return "Float";
+			case DOUBLE:
+				return "Double";
+			default:
+				throw new IllegalArgumentException("Not a primitive type: " + kind);
+		}
+	}
+
+	private static String literal(String value) {
+		return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Compile time description of a property of a value interface.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+final class PropertyModel {
+
+	private final String rawName;
+	private final int index;
+
+	private ExecutableElement getter;
+	private final List<ExecutableElement> methods = new ArrayList<ExecutableElement>();
+	private final List<TypeMirror> accessTypes = new ArrayList<TypeMirror>();
+
+	private TypeMirror fieldType;
+	private boolean nullable;
+
+	PropertyModel(String rawName, int index) {
+		this.rawName = rawName;
+		this.index = index;
+	}
+
+	/**
+	 * The property name derived from the names of its accessor methods.
+	 */
+	String getRawName() {
+		return rawName;
+	}
+
+	/**
+	 * The storage index of this property.
+	 */
+	int getIndex() {
+		return index;
+	}
+
+	/**
+	 * The getter declared on the most general interface.
+	 */
+	ExecutableElement getGetter() {
+		return getter;
+	}
+
+	void setGetter(ExecutableElement getter) {
+		this.getter = getter;
+	}
+
+	/**
+	 * The getters and setters of this property to implement.
+	 * 
+	 * <p>
+	 * Of methods with the same signature, only the one with the most specific
+	 * return type is implemented, the others are bridged by the compiler.
+	 * </p>
+	 */
+	List<ExecutableElement> getMethods() {
+		return methods;
+	}
+
+	/**
+	 * The return types of all getters and the parameter types of all setters
+	 * of this property.
+	 */
+	List<TypeMirror> getAccessTypes() {
+		return accessTypes;
+	}
+
+	void addAccessType(TypeMirror accessType) {
+		accessTypes.add(accessType);
+	}
+
+	/**
+	 * The type of the field storing the property value.
+	 */
+	TypeMirror getFieldType() {
+		return fieldType;
+	}
+
+	void setFieldType(TypeMirror fieldType) {
+		this.fieldType = fieldType;
+	}
+
+	/**
+	 * Whether <code>null</code> is stored as is, instead of being replaced
+	 * with the property's initial value.
+	 */
+	boolean isNullable() {
+		return nullable;
+	}
+
+	void setNullable(boolean nullable) {
+		this.nullable = nullable;
+	}
+
+	/**
+	 * The name of the field storing the property value.
+	 */
+	String getFieldName() {
+		return "f" + index;
+	}
+
+}
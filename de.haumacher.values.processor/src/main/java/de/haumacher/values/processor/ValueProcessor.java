@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Annotation processor generating implementation classes for value interfaces
+ * annotated with <code>de.haumacher.values.annotate.Compiled</code>.
+ *
+ * <p>
+ * For each such interface, an implementation class with one field per
+ * property is generated into the package of the interface. Besides getters
+ * and setters, the generated class contains the property table of the
+ * interface. At runtime, the value factory picks up the generated class
+ * instead of analyzing the interface reflectively.
+ * </p>
+ *
+ * <p>
+ * Interfaces that cannot be implemented at compile time (e.g. properties of
+ * primitive type with a custom parser) are reported with a warning and
+ * analyzed at runtime as before.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version Since 0.3.0
+ */
+@SupportedAnnotationTypes(ValueProcessor.COMPILED_ANNOTATION)
+public class ValueProcessor extends AbstractProcessor {
+
+	/**
+	 * Name of the annotation requesting a generated implementation.
+	 */
+	static final String COMPILED_ANNOTATION = "de.haumacher.values.annotate.Compiled";
+
+	private static final String VALUE_INTERFACE = "de.haumacher.values.Value";
+
+	private static final String VALUE_PARSER_ANNOTATION = "de.haumacher.values.annotate.ValueParser";
+
+	private static final String REFERENCE_ANNOTATION = "de.haumacher.values.annotate.Reference";
+
+	/**
+	 * Suffix of generated implementation class names, must match the suffix
+	 * expected by the runtime.
+	 */
+	static final String COMPILED_SUFFIX = "_Impl";
+
+	private static final String[] GETTER_PREFIXES = { "get", "is", "has", "can", "must" };
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		TypeElement compiledAnnotation = processingEnv.getElementUtils().getTypeElement(COMPILED_ANNOTATION);
+		if (compiledAnnotation == null) {
+			return false;
+		}
+
+		for (Element element : roundEnv.getElementsAnnotatedWith(compiledAnnotation)) {
+			if (element.getKind() != ElementKind.INTERFACE) {
+				error(element, "Only value interfaces can be compiled.");
+				continue;
+			}
+
+			TypeElement valueInterface = (TypeElement) element;
+			List<PropertyModel> properties = analyze(valueInterface);
+			if (properties != null) {
+				write(valueInterface, properties);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Analyzes the given value interface.
+	 *
+	 * @return The properties of the given interface in storage index order,
+	 *         or <code>null</code>, if no implementation can be generated.
+	 */
+	private List<PropertyModel> analyze(TypeElement valueInterface) {
+		if (!valueInterface.getTypeParameters().isEmpty()) {
+			warning(valueInterface, "No implementation generated for value interface with type parameters.");
+			return null;
+		}
+		for (Element current = valueInterface; current instanceof TypeElement; current = current.getEnclosingElement()) {
+			if (current.getModifiers().contains(Modifier.PRIVATE)) {
+				warning(valueInterface, "No implementation generated for private value interface.");
+				return null;
+			}
+		}
+
+		List<ExecutableElement> methods = new ArrayList<ExecutableElement>();
+		collectMethods(methods, new HashSet<TypeElement>(), valueInterface);
+
+		Map<String, PropertyModel> propertyByRawName = new LinkedHashMap<String, PropertyModel>();
+		Map<String, ExecutableElement> methodBySignature = new LinkedHashMap<String, ExecutableElement>();
+		Map<ExecutableElement, PropertyModel> propertyByMethod = new LinkedHashMap<ExecutableElement, PropertyModel>();
+		boolean valid = true;
+		for (ExecutableElement method : methods) {
+			String rawName = rawName(method);
+			if (rawName == null) {
+				valid = false;
+				continue;
+			}
+
+			PropertyModel property = propertyByRawName.get(rawName);
+			if (property == null) {
+				property = new PropertyModel(rawName, propertyByRawName.size());
+				propertyByRawName.put(rawName, property);
+			}
+
+			if (isGetter(method)) {
+				property.addAccessType(method.getReturnType());
+			} else {
+				property.addAccessType(method.getParameters().get(0).asType());
+			}
+
+			String signature = signature(method);
+			ExecutableElement clash = methodBySignature.get(signature);
+			if (clash == null || isMoreSpecific(method, clash)) {
+				methodBySignature.put(signature, method);
+			}
+			propertyByMethod.put(method, property);
+		}
+		if (!valid) {
+			return null;
+		}
+
+		for (ExecutableElement method : methodBySignature.values()) {
+			PropertyModel property = propertyByMethod.get(method);
+			property.getMethods().add(method);
+
+			if (isGetter(method)) {
+				// Note: Like in runtime analysis, getters overridden with a
+				// covariant return type are not considered.
+				ExecutableElement getter = property.getGetter();
+				if (getter == null || !isSubtype(method.getEnclosingElement(), getter.getEnclosingElement())) {
+					// Find a getter declared on a most general type.
+					property.setGetter(method);
+				}
+			}
+		}
+
+		Types types = processingEnv.getTypeUtils();
+		for (PropertyModel property : propertyByRawName.values()) {
+			if (property.getGetter() == null) {
+				warning(valueInterface, "No implementation generated, property '" + property.getRawName() + "' has no getter.");
+				return null;
+			}
+
+			TypeMirror fieldType = mostGeneralType(types, property.getAccessTypes());
+			if (fieldType == null) {
+				warning(valueInterface, "No implementation generated, property '" + property.getRawName() + "' has inconsistent types.");
+				return null;
+			}
+			property.setFieldType(fieldType);
+
+			boolean nullable = hasAnnotation(property.getGetter(), VALUE_PARSER_ANNOTATION) || hasAnnotation(property.getGetter(), REFERENCE_ANNOTATION);
+			if (nullable && fieldType.getKind().isPrimitive()) {
+				// A custom parser may provide null as initial value.
+				warning(valueInterface, "No implementation generated, primitive property '" + property.getRawName() + "' has a custom parser.");
+				return null;
+			}
+			property.setNullable(nullable);
+		}
+
+		return new ArrayList<PropertyModel>(propertyByRawName.values());
+	}
+
+	private void collectMethods(List<ExecutableElement> result, Set<TypeElement> visited, TypeElement type) {
+		if (!visited.add(type)) {
+			return;
+		}
+		if (type.getQualifiedName().contentEquals(VALUE_INTERFACE)) {
+			// Implemented by the generic base class.
+			return;
+		}
+
+		for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+			if (!method.getModifiers().contains(Modifier.ABSTRACT)) {
+				continue;
+			}
+			result.add(method);
+		}
+		for (TypeMirror superInterface : type.getInterfaces()) {
+			collectMethods(result, visited, (TypeElement) ((DeclaredType) superInterface).asElement());
+		}
+	}
+
+	/**
+	 * The property name accessed by the given method, or <code>null</code>, if
+	 * the method is not a valid property accessor.
+	 */
+	private String rawName(ExecutableElement method) {
+		String methodName = method.getSimpleName().toString();
+		boolean isGetter = isGetter(method);
+		String prefix = isGetter ? getterPrefix(methodName) : "set";
+		if (prefix == null) {
+			error(method, "Invalid method prefix.");
+			return null;
+		}
+
+		if (!method.getThrownTypes().isEmpty()) {
+			error(method, "Method must not declare exceptions.");
+			return null;
+		}
+
+		if (isGetter) {
+			if (!method.getParameters().isEmpty()) {
+				error(method, "Getter must not have parameters.");
+				return null;
+			}
+
+			TypeMirror type = method.getReturnType();
+			if (type.getKind() == TypeKind.VOID) {
+				error(method, "Getter must not have void return type.");
+				return null;
+			}
+
+			boolean isBoolean = type.getKind() == TypeKind.BOOLEAN || type.toString().equals("java.lang.Boolean");
+			if (!prefix.equals("get") && !isBoolean) {
+				error(method, "Non boolean getters must have 'get' prefix.");
+				return null;
+			}
+		} else {
+			if (method.getParameters().size() != 1) {
+				error(method, "Setter must have exactly one argument.");
+				return null;
+			}
+
+			if (method.getReturnType().getKind() != TypeKind.VOID) {
+				error(method, "Setter must have void return type.");
+				return null;
+			}
+		}
+
+		String postfix = methodName.substring(prefix.length());
+		if (postfix.length() == 0 || Character.isLowerCase(postfix.charAt(0))) {
+			error(method, "Expected upper case letter after method prefix.");
+			return null;
+		}
+
+		return Character.toLowerCase(postfix.charAt(0)) + postfix.substring(1);
+	}
+
+	private static boolean isGetter(ExecutableElement method) {
+		return !method.getSimpleName().toString().startsWith("set");
+	}
+
+	private static String getterPrefix(String methodName) {
+		for (String prefix : GETTER_PREFIXES) {
+			if (methodName.startsWith(prefix)) {
+				return prefix;
+			}
+		}
+		return null;
+	}
+
+	private String signature(ExecutableElement method) {
+		Types types = processingEnv.getTypeUtils();
+		StringBuilder result = new StringBuilder(method.getSimpleName());
+		result.append('(');
+		for (Element parameter : method.getParameters()) {
+			result.append(types.erasure(parameter.asType()));
+			result.append(';');
+		}
+		result.append(')');
+		return result.toString();
+	}
+
+	private boolean isMoreSpecific(ExecutableElement method, ExecutableElement other) {
+		Types types = processingEnv.getTypeUtils();
+		TypeMirror returnType = method.getReturnType();
+		TypeMirror otherReturnType = other.getReturnType();
+		return !types.isSameType(returnType, otherReturnType) && types.isAssignable(returnType, otherReturnType);
+	}
+
+	private boolean isSubtype(Element type, Element superType) {
+		Types types = processingEnv.getTypeUtils();
+		return types.isSubtype(types.erasure(type.asType()), types.erasure(superType.asType()));
+	}
+
+	private static TypeMirror mostGeneralType(Types types, List<TypeMirror> accessTypes) {
+		TypeMirror result = accessTypes.get(0);
+		for (TypeMirror type : accessTypes) {
+			if (type.getKind().isPrimitive() || result.getKind().isPrimitive()) {
+				if (!types.isSameType(type, result)) {
+					return null;
+				}
+			} else if (types.isAssignable(result, type)) {
+				result = type;
+			} else if (!types.isAssignable(type, result)) {
+				return null;
+			}
+		}
+		return result;
+	}
+
+	static boolean hasAnnotation(Element element, String annotationName) {
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+			if (annotationType.getQualifiedName().contentEquals(annotationName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void write(TypeElement valueInterface, List<PropertyModel> properties) {
+		Elements elements = processingEnv.getElementUtils();
+		String packageName = elements.getPackageOf(valueInterface).getQualifiedName().toString();
+		String binaryName = elements.getBinaryName(valueInterface).toString();
+		String className = binaryName.replace('$', '_') + COMPILED_SUFFIX;
+		String simpleName = packageName.length() == 0 ? className : className.substring(packageName.length() + 1);
+
+		try {
+			JavaFileObject file = processingEnv.getFiler().createSourceFile(className, valueInterface);
+			Writer out = file.openWriter();
+			try {
+				new ImplementationWriter(out, packageName, simpleName, valueInterface, elements, properties).write();
+			} finally {
+				out.close();
+			}
+		} catch (IOException ex) {
+			error(valueInterface, "Cannot write implementation class '" + className + "': " + ex.getMessage());
+		}
+	}
+
+	private void error(Element element, String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+
+	private void warning(Element element, String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, message, element);
+	}
+
+}
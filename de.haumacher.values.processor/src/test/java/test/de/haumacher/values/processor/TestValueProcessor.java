@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package test.de.haumacher.values.processor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueFactory;
+import de.haumacher.values.processor.ValueProcessor;
+import junit.framework.TestCase;
+
+/**
+ * Test case for {@link ValueProcessor}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@SuppressWarnings("javadoc")
+public class TestValueProcessor extends TestCase {
+
+	private static final String BASE =
+		"package test.gen;\n" +
+		"public interface Base extends de.haumacher.values.Value {\n" +
+		"	Object getContent();\n" +
+		"	void setContent(Object value);\n" +
+		"}\n";
+
+	private static final String POINT =
+		"package test.gen;\n" +
+		"import de.haumacher.values.annotate.*;\n" +
+		"@Compiled\n" +
+		"public interface Point extends Base {\n" +
+		"	@Override String getContent();\n" +
+		"	int getX();\n" +
+		"	void setX(int value);\n" +
+		"	boolean isVisible();\n" +
+		"	void setVisible(boolean value);\n" +
+		"	@DefaultValue(doubleValue = 1.5) double getScale();\n" +
+		"	void setScale(double value);\n" +
+		"	@DefaultValue(stringValue = \"origin\") String getName();\n" +
+		"	void setName(String value);\n" +
+		"	@Reference Point getParent();\n" +
+		"	void setParent(Point value);\n" +
+		"	@Lazy java.util.List<Point> getChildren();\n" +
+		"	@IndexProperty(\"name\") java.util.Map<String, Point> getIndex();\n" +
+		"	@Compiled interface Nested extends de.haumacher.values.Value {\n" +
+		"		char getC();\n" +
+		"		void setC(char value);\n" +
+		"	}\n" +
+		"}\n";
+
+	private static final String INVALID =
+		"package test.gen;\n" +
+		"@de.haumacher.values.annotate.Compiled\n" +
+		"public interface Invalid extends de.haumacher.values.Value {\n" +
+		"	int compute();\n" +
+		"}\n";
+
+	private static final String PARSED =
+		"package test.gen;\n" +
+		"import de.haumacher.values.annotate.*;\n" +
+		"@Compiled\n" +
+		"public interface Parsed extends de.haumacher.values.Value {\n" +
+		"	@ValueParser(test.de.haumacher.values.processor.TestValueProcessor.IntParser.class) int getX();\n" +
+		"}\n";
+
+	/**
+	 * Parser that is not supported for primitive properties at compile time.
+	 */
+	public static class IntParser extends de.haumacher.values.format.ObjectParser<Integer> {
+		@Override
+		public Integer parse(String text) {
+			return Integer.valueOf(text);
+		}
+
+		@Override
+		public String unparse(Integer value) {
+			return String.valueOf(value);
+		}
+	}
+
+	private File dir;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		dir = File.createTempFile("processor", "");
+		assertTrue(dir.delete());
+		assertTrue(dir.mkdir());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		delete(dir);
+		super.tearDown();
+	}
+
+	public void testGeneratedImplementation() throws Exception {
+		ClassLoader loader = compile(true, source("Base", BASE), source("Point", POINT));
+		assertTrue(new File(dir, "test/gen/Point_Impl.java").exists());
+		assertTrue(new File(dir, "test/gen/Point_Nested_Impl.java").exists());
+
+		Class<?> pointInterface = loader.loadClass("test.gen.Point");
+		Value point = (Value) ValueFactory.newInstance(pointInterface);
+		assertEquals("test.gen.Point_Impl", point.getClass().getName());
+
+		Map<String, Property> properties = point.descriptor().getProperties();
+		assertEquals(Arrays.asList("children", "content", "index", "name", "parent", "scale", "visible", "x"),
+			sorted(properties.keySet()));
+		assertEquals(0, point.getInt(properties.get("x")));
+		assertEquals(1.5D, point.getDouble(properties.get("scale")));
+		assertEquals("origin", point.value(properties.get("name")));
+		assertNull(point.value(properties.get("parent")));
+		assertEquals(0, ((List<?>) point.value(properties.get("children"))).size());
+
+		invoke(point, "setX", int.class, 42);
+		assertEquals(42, invoke(point, "getX"));
+		point.putBoolean(properties.get("visible"), true);
+		assertEquals(Boolean.TRUE, invoke(point, "isVisible"));
+		invoke(point, "setName", String.class, null);
+		assertEquals("origin", invoke(point, "getName"));
+		invoke(point, "setContent", Object.class, "foo");
+		assertEquals("foo", invoke(point, "getContent"));
+		assertEquals("foo", loader.loadClass("test.gen.Base").getMethod("getContent").invoke(point));
+
+		Value child = (Value) ValueFactory.newInstance(pointInterface);
+		invoke(child, "setParent", pointInterface, point);
+		assertSame(point, invoke(child, "getParent"));
+		invoke(child, "setParent", pointInterface, null);
+		assertNull(invoke(child, "getParent"));
+
+		Value copy = (Value) ValueFactory.newInstance(pointInterface);
+		for (Property property : properties.values()) {
+			copy.putValue(property, point.value(property));
+		}
+		assertEquals(point, copy);
+		assertEquals(point.hashCode(), copy.hashCode());
+
+		Value nested = (Value) ValueFactory.newInstance(loader.loadClass("test.gen.Point$Nested"));
+		assertEquals("test.gen.Point_Nested_Impl", nested.getClass().getName());
+		nested.putChar(nested.descriptor().getProperties().get("c"), 'x');
+		assertEquals('x', invoke(nested, "getC"));
+	}
+
+	public void testInvalidInterface() throws Exception {
+		compile(false, source("Invalid", INVALID));
+	}
+
+	public void testFallback() throws Exception {
+		ClassLoader loader = compile(true, source("Parsed", PARSED));
+		assertFalse(new File(dir, "test/gen/Parsed_Impl.java").exists());
+
+		Object parsed = ValueFactory.newInstance(loader.loadClass("test.gen.Parsed"));
+		assertTrue(Proxy.isProxyClass(parsed.getClass()));
+	}
+
+	private ClassLoader compile(boolean expectSuccess, File... sources) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+		try {
+			Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjects(sources);
+			List<String> options = Arrays.asList(
+				"-d", dir.getPath(),
+				"-s", dir.getPath(),
+				"-classpath", System.getProperty("java.class.path"));
+			StringWriter messages = new StringWriter();
+			JavaCompiler.CompilationTask task = compiler.getTask(messages, fileManager, null, options, null, units);
+			task.setProcessors(Arrays.asList(new ValueProcessor()));
+			boolean success = task.call().booleanValue();
+			assertEquals(messages.toString(), expectSuccess, success);
+		} finally {
+			fileManager.close();
+		}
+		return new URLClassLoader(new URL[] { dir.toURI().toURL() }, getClass().getClassLoader());
+	}
+
+	private File source(String name, String content) throws IOException {
+		File file = new File(dir, "test/gen/" + name + ".java");
+		file.getParentFile().mkdirs();
+		Writer out = new OutputStreamWriter(new FileOutputStream(file), "utf-8");
+		try {
+			out.write(content);
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	private static Object invoke(Object self, String name) throws Exception {
+		return self.getClass().getMethod(name).invoke(self);
+	}
+
+	private static Object invoke(Object self, String name, Class<?> type, Object arg) throws Exception {
+		Method method = self.getClass().getMethod(name, type);
+		return method.invoke(self, arg);
+	}
+
+	private static List<String> sorted(java.util.Collection<String> values) {
+		String[] result = values.toArray(new String[values.size()]);
+		Arrays.sort(result);
+		return Arrays.asList(result);
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+}
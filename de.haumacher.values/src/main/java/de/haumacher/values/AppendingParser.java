@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values;
+
+import java.io.IOException;
+
+import de.haumacher.values.format.UnparseUtil;
+
+/**
+ * {@link Parser} that can write the string representation of a value
+ * directly to an {@link Appendable}.
+ * 
+ * <p>
+ * Writing to an {@link Appendable} avoids creating an intermediate
+ * {@link String} for each value. The written text must be the same as the
+ * result of {@link #unparse(Object)}.
+ * </p>
+ * 
+ * <p>
+ * All built-in parsers implement this interface. For an arbitrary
+ * {@link Parser}, use {@link UnparseUtil#unparse(Parser, Object, Appendable)}.
+ * </p>
+ * 
+ * @param <T>
+ *        The {@link Property#getType() content type} of the using
+ *        {@link Property}.
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version Since 0.3.0
+ */
+public interface AppendingParser<T> extends Parser<T> {
+
+	/**
+	 * Writes the string representation of the {@link Property properties}
+	 * value to the given {@link Appendable}.
+	 * 
+	 * @param value
+	 *        The application value.
+	 * @param out
+	 *        The {@link Appendable} to write the serialized form to.
+	 * @throws IOException
+	 *         If writing to the given {@link Appendable} fails.
+	 * 
+	 * @see #unparse(Object)
+	 */
+	void unparse(T value, Appendable out) throws IOException;
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values;
+
+import de.haumacher.values.format.ParseUtil;
+
+/**
+ * {@link Parser} that can read a value directly from a range of characters.
+ * 
+ * <p>
+ * Parsing from a range avoids creating an intermediate {@link String} for
+ * the text of each value. A reader can pass its input buffer together with
+ * the boundaries of the current value. The result must be the same as for
+ * {@link #parse(String)} with the text of the given range.
+ * </p>
+ * 
+ * <p>
+ * All built-in parsers implement this interface. For an arbitrary
+ * {@link Parser}, use {@link ParseUtil#parse(Parser, CharSequence, int, int)}.
+ * </p>
+ * 
+ * @param <T>
+ *        The {@link Property#getType() content type} of the using
+ *        {@link Property}.
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version Since 0.3.0
+ */
+public interface RangeParser<T> extends Parser<T> {
+
+	/**
+	 * Loads the {@link Property properties} value from a range of characters.
+	 * 
+	 * @param text
+	 *        The text containing the serialized form of the {@link Property}
+	 *        value.
+	 * @param start
+	 *        The index of the first character of the value in the given text.
+	 * @param end
+	 *        The index after the last character of the value in the given
+	 *        text.
+	 * @return The parsed value used in the application.
+	 * 
+	 * @see #parse(String)
+	 */
+	T parse(CharSequence text, int start, int end);
+
+}
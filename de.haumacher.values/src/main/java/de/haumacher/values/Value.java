@@ -35,7 +35,9 @@ package de.haumacher.values;
  * 
  * <p>
  * The {@link Value} interface provides generic access to all properties of the
- * concrete value type.
+ * concrete value type. Properties of Java primitive types can additionally be
+ * accessed without boxing through methods like {@link #getInt(Property)} and
+ * {@link #putInt(Property, int)}.
  * </p>
  * 
  * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
@@ -49,6 +51,38 @@ public interface Value {
 	 */
 	ValueDescriptor<?> descriptor();
 
+	/**
+	 * Makes this value immutable.
+	 * 
+	 * <p>
+	 * Freezing is recursive: All values contained in properties of kind
+	 * {@link Kind#VALUE}, {@link Kind#LIST}, and {@link Kind#INDEX} are frozen
+	 * as well, and lists and indices become unmodifiable. Values referenced
+	 * by properties of kind {@link Kind#REFERENCE} are not frozen.
+	 * </p>
+	 * 
+	 * <p>
+	 * Any attempt to update a property of a frozen value fails with an
+	 * {@link UnsupportedOperationException}. Since the value can no longer
+	 * change, its {@link #hashCode()} is computed once during freezing.
+	 * Freezing an already frozen value has no effect.
+	 * </p>
+	 * 
+	 * <p>
+	 * A value must not be modified concurrently while being frozen. After
+	 * freezing, the value may be shared between threads without further
+	 * synchronization.
+	 * </p>
+	 * 
+	 * @see #isFrozen()
+	 */
+	void freeze();
+
+	/**
+	 * Whether this value has been made immutable by {@link #freeze()}.
+	 */
+	boolean isFrozen();
+
 	/**
 	 * The value of the given {@link Property} of this instance.
 	 * 
@@ -69,5 +103,181 @@ public interface Value {
 	 *        The new value to set for the given property.
 	 */
 	void putValue(Property property, Object value);
-	
+
+	/**
+	 * The value of the given {@link Property} of type <code>boolean</code>
+	 * without boxing.
+	 * 
+	 * @throws IllegalArgumentException
+	 *         If the given {@link Property} is not of type <code>boolean</code>.
+	 * 
+	 * @see #value(Property)
+	 */
+	boolean getBoolean(Property property);
+
+	/**
+	 * Updates the value of the given {@link Property} of type
+	 * <code>boolean</code> without boxing.
+	 * 
+	 * @throws IllegalArgumentException
+	 *         If the given {@link Property} is not of type <code>boolean</code>.
+	 * 
+	 * @see #putValue(Property, Object)
+	 */
+	void putBoolean(Property property, boolean value);
+
+	/**
+	 * The value of the given {@link Property} of type <code>byte</code>
+	 * without boxing.
+	 * 
+	 * @throws IllegalArgumentException
+	 *         If the given {@link Property} is not of type <code>byte</code>.
+	 * 
+	 * @see #value(Property)
+	 */
+	byte getByte(Property property);
+
+	/**
+	 * Updates the value of the given {@link Property} of type
+	 * <code>byte</code> without boxing.
+	 * 
+	 * @throws IllegalArgumentException
+	 *         If the given {@link Property} is not of type <code>byte</code>.
+	 * 
+	 * @see #putValue(Property, Object)
+	 */
+	void putByte(Property property, byte value);
+
+	/**
+	 * The value of the given {@link Property} of type <code>char</code>
+	 * without boxing.
+	 * 
+	 * @throws IllegalArgumentException
+	 *         If the given {@link Property} is not of type <code>char</code>.
+	 * 
+	 * @see #value(Property)
+	 */
+	char getChar(Property property);
+
+	/**
+	 * Updates the value of the given {@link Property} of type
+	 * <code>char</code> without boxing.
+	 * 
+	 * @throws IllegalArgumentException
+	 *         If the given {@link Property} is not of type <code>char</code>.
+	 * 
+	 * @see #putValue(Property, Object)
+	 */
+	void putChar(Property property, char value);
+
+	/**
+	 * The value of the given {@link Property} of type <code>short</code>
+	 * without boxing.
+	 * 
+	 * @throws IllegalArgumentException
+	 *         If the given {@link Property} is not of type <code>short</code>.
+	 * 
+	 * @see #value(Property)
+	 */
+	short getShort(Property property);
+
+	/**
+	 * Updates the value of the given {@link Property} of type
+	 * <code>short</code> without boxing.
+	 * 
+	 * @throws IllegalArgumentException
+	 *         If the given {@link Property} is not of type <code>short</code>.
+	 * 
+	 * @see #putValue(Property, Object)
+	 */
+	void putShort(Property property, short value);
+
+	/**
+	 * The value of the given {@link Property} of type <code>int</code>
+	 * without boxing.
+	 * 
+	 * @throws IllegalArgumentException
+	 *         If the given {@link Property} is not of type <code>int</code>.
+	 * 
+	 * @see #value(Property)
+	 */
+	int getInt(Property property);
+
+	/**
+	 * Updates the value of the given {@link Property} of type
+	 * <code>int</code> without boxing.
+	 * 
+	 * @throws IllegalArgumentException
+	 *         If the given {@link Property} is not of type <code>int</code>.
+	 * 
+	 * @see #putValue(Property, Object)
+	 */
+	void putInt(Property property, int value);
+
+	/**
+	 * The value of the given {@link Property} of type <code>long</code>
+	 * without boxing.
+	 * 
+	 * @throws IllegalArgumentException
+	 *         If the given {@link Property} is not of type <code>long</code>.
+	 * 
+	 * @see #value(Property)
+	 */
+	long getLong(Property property);
+
+	/**
+	 * Updates the value of the given {@link Property} of type
+	 * <code>long</code> without boxing.
+	 * 
+	 * @throws IllegalArgumentException
+	 *         If the given {@link Property} is not of type <code>long</code>.
+	 * 
+	 * @see #putValue(Property, Object)
+	 */
+	void putLong(Property property, long value);
+
+	/**
+	 * The value of the given {@link Property} of type <code>float</code>
+	 * without boxing.
+	 * 
+	 * @throws IllegalArgumentException
+	 *         If the given {@link Property} is not of type <code>float</code>.
+	 * 
+	 * @see #value(Property)
+	 */
+	float getFloat(Property property);
+
+	/**
+	 * Updates the value of the given {@link Property} of type
+	 * <code>float</code> without boxing.
+	 * 
+	 * @throws IllegalArgumentException
+	 *         If the given {@link Property} is not of type <code>float</code>.
+	 * 
+	 * @see #putValue(Property, Object)
+	 */
+	void putFloat(Property property, float value);
+
+	/**
+	 * The value of the given {@link Property} of type <code>double</code>
+	 * without boxing.
+	 * 
+	 * @throws IllegalArgumentException
+	 *         If the given {@link Property} is not of type <code>double</code>.
+	 * 
+	 * @see #value(Property)
+	 */
+	double getDouble(Property property);
+
+	/**
+	 * Updates the value of the given {@link Property} of type
+	 * <code>double</code> without boxing.
+	 * 
+	 * @throws IllegalArgumentException
+	 *         If the given {@link Property} is not of type <code>double</code>.
+	 * 
+	 * @see #putValue(Property, Object)
+	 */
+	void putDouble(Property property, double value);
+
 }
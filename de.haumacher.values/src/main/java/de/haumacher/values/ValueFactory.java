@@ -19,6 +19,9 @@
  */
 package de.haumacher.values;
 
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -33,8 +36,40 @@ import de.haumacher.values.internal.ValueDescriptorImpl;
  */
 public class ValueFactory {
 
+	/**
+	 * Completely analyzed descriptors.
+	 * 
+	 * <p>
+	 * Only descriptors that are fully initialized are entered, therefore, a
+	 * successful lookup requires no further synchronization.
+	 * </p>
+	 */
 	private static final ConcurrentMap<Class<?>, ValueDescriptor<?>> DESCRIPTORS_BY_CLASS = new ConcurrentHashMap<Class<?>, ValueDescriptor<?>>();
 
+	/**
+	 * Lock guarding the analysis of new {@link Value} types.
+	 */
+	private static final Object ANALYSIS_LOCK = new Object();
+
+	/**
+	 * Descriptors currently being analyzed by the thread holding
+	 * {@link #ANALYSIS_LOCK}.
+	 * 
+	 * <p>
+	 * A recursive value type requests its own descriptor during its analysis.
+	 * Such request is answered with the pending descriptor. All pending
+	 * descriptors are published together when the outermost analysis
+	 * completes.
+	 * </p>
+	 */
+	private static final Map<Class<?>, ValueDescriptorImpl<?>> PENDING_DESCRIPTORS = new HashMap<Class<?>, ValueDescriptorImpl<?>>();
+
+	/**
+	 * The nesting depth of analyses in the thread holding
+	 * {@link #ANALYSIS_LOCK}.
+	 */
+	private static int analysisDepth;
+
 	/**
 	 * Creates a {@link Factory} for the {@link Value} interface.
 	 * 
@@ -46,7 +81,7 @@ public class ValueFactory {
 	 * @return A {@link Factory} for the given {@link Value} interface.
 	 */
 
-	public static synchronized <T> Factory<T> newFactory(final Class<T> valueInterface) {
+	public static <T> Factory<T> newFactory(final Class<T> valueInterface) {
 		final ValueDescriptor<T> descriptor = ValueFactory.getDescriptor(valueInterface);
 		return new Factory<T>() {
 			@Override
@@ -69,37 +104,93 @@ public class ValueFactory {
 	 * @return A new instance of the given type also implicitly implementing
 	 *         {@link Value}.
 	 */
-	public static synchronized <T> T newInstance(Class<T> valueInterface) {
+	public static <T> T newInstance(Class<T> valueInterface) {
 		return getDescriptor(valueInterface).newInstance();
 	}
 	
+	/**
+	 * Writes the string representation of the given value to the given
+	 * {@link Appendable}.
+	 * 
+	 * <p>
+	 * The written text is the same as the result of the value's
+	 * {@link Object#toString()} method. In contrast, the string
+	 * representations of nested values, lists and indices are written
+	 * directly without creating intermediate strings. This allows dumping
+	 * large value graphs, e.g. to a {@link java.io.Writer}.
+	 * </p>
+	 * 
+	 * @param out
+	 *        The {@link Appendable} to write to.
+	 * @param value
+	 *        The value to write.
+	 * @throws IOException
+	 *         If writing fails.
+	 */
+	public static void appendTo(Appendable out, Object value) throws IOException {
+		ValueDescriptorImpl.appendValue(out, value);
+	}
+
 	/**
 	 * Looks up the {@link ValueDescriptor} for the given {@link Value}
 	 * interface.
 	 * 
+	 * <p>
+	 * Looking up the descriptor of an already analyzed interface does not
+	 * lock.
+	 * </p>
+	 * 
 	 * @param valueInterface
 	 *        The value interface to be analyzed.
 	 * @return The {@link ValueDescriptor} providing access to the
 	 *         {@link Property properties} defined be the given interface.
 	 */
-	public static synchronized <T> ValueDescriptor<T> getDescriptor(Class<T> valueInterface) {
+	public static <T> ValueDescriptor<T> getDescriptor(Class<T> valueInterface) {
 		@SuppressWarnings("unchecked")
 		ValueDescriptor<T> existingDescriptor = (ValueDescriptor<T>) DESCRIPTORS_BY_CLASS.get(valueInterface);
 		if (existingDescriptor != null) {
 			return existingDescriptor;
 		}
 
-		ValueDescriptorImpl<T> newDescriptor = new ValueDescriptorImpl<T>(valueInterface);
-		@SuppressWarnings("unchecked")
-		ValueDescriptor<T> clash = (ValueDescriptor<T>) DESCRIPTORS_BY_CLASS
-				.putIfAbsent(valueInterface, newDescriptor);
-		if (clash != null) {
-			return clash;
-		}
+		return analyze(valueInterface);
+	}
 
-		// Prevent stack overflow in mutable recursive structures.
-		newDescriptor.init();
-		return newDescriptor;
+	private static <T> ValueDescriptor<T> analyze(Class<T> valueInterface) {
+		// Note: A single lock for all analyses prevents dead-locks between
+		// threads concurrently analyzing mutually recursive types.
+		synchronized (ANALYSIS_LOCK) {
+			@SuppressWarnings("unchecked")
+			ValueDescriptor<T> existingDescriptor = (ValueDescriptor<T>) DESCRIPTORS_BY_CLASS.get(valueInterface);
+			if (existingDescriptor != null) {
+				return existingDescriptor;
+			}
+
+			@SuppressWarnings("unchecked")
+			ValueDescriptor<T> pendingDescriptor = (ValueDescriptor<T>) PENDING_DESCRIPTORS.get(valueInterface);
+			if (pendingDescriptor != null) {
+				// Prevent stack overflow in mutable recursive structures.
+				return pendingDescriptor;
+			}
+
+			ValueDescriptorImpl<T> newDescriptor = new ValueDescriptorImpl<T>(valueInterface);
+			PENDING_DESCRIPTORS.put(valueInterface, newDescriptor);
+
+			boolean success = false;
+			analysisDepth++;
+			try {
+				newDescriptor.init();
+				success = true;
+			} finally {
+				analysisDepth--;
+				if (analysisDepth == 0) {
+					if (success) {
+						DESCRIPTORS_BY_CLASS.putAll(PENDING_DESCRIPTORS);
+					}
+					PENDING_DESCRIPTORS.clear();
+				}
+			}
+			return newDescriptor;
+		}
 	}
 
 }
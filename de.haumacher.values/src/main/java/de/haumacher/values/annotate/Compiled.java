@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.annotate;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueDescriptor;
+
+/**
+ * Requests a generated implementation class for the annotated {@link Value}
+ * interface.
+ *
+ * <p>
+ * By default, instances of a {@link Value} interface are dynamic proxies. For an
+ * interface with this annotation, an implementation class with one field per
+ * property is generated when its {@link ValueDescriptor} is created. Getters
+ * and setters of such instances are plain field accesses.
+ * </p>
+ *
+ * <p>
+ * Generated implementations can be requested for all value interfaces by
+ * setting the system property <code>de.haumacher.values.engine</code> to
+ * <code>generated</code>. Interfaces that cannot be implemented by a generated
+ * class (e.g. non-public interfaces) silently fall back to dynamic proxies.
+ * </p>
+ *
+ * <p>
+ * If the annotation processor from the <code>de.haumacher.values.processor</code>
+ * module is active during compilation, the implementation class is generated
+ * at compile time together with the property table of the interface. Such
+ * interfaces are not analyzed reflectively at runtime.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version Since 0.3.0
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Compiled {
+
+	// Marker annotation.
+
+}
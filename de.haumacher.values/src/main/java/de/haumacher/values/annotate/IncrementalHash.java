@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.annotate;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import de.haumacher.values.Kind;
+import de.haumacher.values.Property;
+
+/**
+ * Requests that instances of the annotated value interface maintain their
+ * hash code while being modified.
+ * 
+ * <p>
+ * Each instance keeps a running hash over all {@link Kind#PRIMITIVE}
+ * properties with immutable types, e.g. numbers, strings, and enums. The
+ * running hash is adjusted with each update of such a {@link Property}.
+ * Computing the hash code only needs to visit the remaining properties. These
+ * are not cached, since the nested values, lists, and indices they contain
+ * can be modified without notice. Instead, their hash codes are requested
+ * each time, which is cheap, if the nested value types are annotated as well.
+ * </p>
+ * 
+ * <p>
+ * The annotation makes sense for values that are hashed much more often than
+ * they are modified. Each update of a primitive property becomes slightly
+ * more expensive.
+ * </p>
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version Since 0.3.0
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface IncrementalHash {
+
+	// Marker annotation.
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.annotate;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import de.haumacher.values.Kind;
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+
+/**
+ * Requests lazy creation of the initial value of {@link Kind#VALUE},
+ * {@link Kind#LIST} and {@link Kind#INDEX} properties.
+ * 
+ * <p>
+ * By default, a new instance creates the nested value, list, or index of each
+ * such {@link Property} immediately. With this annotation, the initial value
+ * is created on first access through its getter or through
+ * {@link Value#value(Property)}. Equality, hash code and string
+ * representation of a value treat a property not yet accessed as if it had
+ * its initial value.
+ * </p>
+ * 
+ * <p>
+ * The annotation applies to a single property, if the getter is annotated,
+ * or to all properties of a value interface, if the interface is annotated.
+ * Properties with a custom {@link DefaultValue#initializer()} are never
+ * initialized lazily.
+ * </p>
+ * 
+ * <p>
+ * Lazy initialization also allows value types that contain themselves as
+ * {@link Kind#VALUE} property.
+ * </p>
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version Since 0.3.0
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface Lazy {
+
+	// Marker annotation.
+
+}
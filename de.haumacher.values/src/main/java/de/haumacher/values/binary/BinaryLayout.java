@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.binary;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import de.haumacher.values.Kind;
+import de.haumacher.values.Property;
+import de.haumacher.values.ValueDescriptor;
+import de.haumacher.values.ValueFactory;
+import de.haumacher.values.internal.ValueDescriptorImpl;
+
+/**
+ * The binary representation of the {@link Property properties} of a
+ * {@link ValueDescriptor}.
+ * 
+ * <p>
+ * Properties are numbered in the order of their names. The fingerprint
+ * identifies the structure of the described type including all types
+ * reachable from it.
+ * </p>
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+final class BinaryLayout {
+
+	private static final ConcurrentMap<ValueDescriptor<?>, BinaryLayout> LAYOUTS = new ConcurrentHashMap<ValueDescriptor<?>, BinaryLayout>();
+
+	private static final Comparator<Property> BY_NAME = new Comparator<Property>() {
+		@Override
+		public int compare(Property p1, Property p2) {
+			return p1.getName().compareTo(p2.getName());
+		}
+	};
+
+	private static final Object NO_DEFAULT = new Object();
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final Property[] properties;
+
+	private final PrimitiveCodec[] codecs;
+
+	/**
+	 * The constant initial values of the {@link Kind#PRIMITIVE} properties,
+	 * {@link #NO_DEFAULT} for properties without constant initial value.
+	 */
+	private final Object[] defaults;
+
+	private final long fingerprint;
+
+	private BinaryLayout(ValueDescriptor<?> descriptor) {
+		properties = sortedProperties(descriptor);
+		codecs = new PrimitiveCodec[properties.length];
+		defaults = new Object[properties.length];
+		for (int n = 0; n < properties.length; n++) {
+			Property property = properties[n];
+			if (property.getKind() == Kind.PRIMITIVE) {
+				codecs[n] = PrimitiveCodec.forProperty(property);
+				defaults[n] = ValueDescriptorImpl.hasConstantInitializer(property) ? property.getInitializer().init() : NO_DEFAULT;
+			}
+		}
+		this.fingerprint = fingerprint(descriptor);
+	}
+
+	/**
+	 * The {@link BinaryLayout} for the given {@link ValueDescriptor}.
+	 */
+	static BinaryLayout getLayout(ValueDescriptor<?> descriptor) {
+		BinaryLayout layout = LAYOUTS.get(descriptor);
+		if (layout == null) {
+			BinaryLayout newLayout = new BinaryLayout(descriptor);
+			layout = LAYOUTS.putIfAbsent(descriptor, newLayout);
+			if (layout == null) {
+				layout = newLayout;
+			}
+		}
+		return layout;
+	}
+
+	/**
+	 * All properties in the order of their binary index.
+	 */
+	Property[] getProperties() {
+		return properties;
+	}
+
+	/**
+	 * The codec of the {@link Kind#PRIMITIVE} property with the given index.
+	 */
+	PrimitiveCodec getCodec(int index) {
+		return codecs[index];
+	}
+
+	/**
+	 * Whether the given value of the {@link Kind#PRIMITIVE} property with the
+	 * given index is its constant initial value.
+	 * 
+	 * <p>
+	 * A property whose initializer may produce different values never has
+	 * its initial value, since a new instance created for reading could
+	 * receive another one.
+	 * </p>
+	 */
+	boolean isDefault(int index, Object value) {
+		Object defaultValue = defaults[index];
+		if (defaultValue == NO_DEFAULT) {
+			return false;
+		}
+		return properties[index].getParser().equals(defaultValue, value);
+	}
+
+	/**
+	 * Identification of the structure of the described type.
+	 */
+	long getFingerprint() {
+		return fingerprint;
+	}
+
+	private static Property[] sortedProperties(ValueDescriptor<?> descriptor) {
+		Property[] result = descriptor.getProperties().values().toArray(new Property[0]);
+		Arrays.sort(result, BY_NAME);
+		return result;
+	}
+
+	private static long fingerprint(ValueDescriptor<?> descriptor) {
+		StringBuilder buffer = new StringBuilder();
+		describe(buffer, descriptor, new HashMap<ValueDescriptor<?>, Integer>());
+
+		long hash = FNV_OFFSET;
+		for (int n = 0, cnt = buffer.length(); n < cnt; n++) {
+			char ch = buffer.charAt(n);
+			hash = (hash ^ (ch & 0xFF)) * FNV_PRIME;
+			hash = (hash ^ (ch >>> 8)) * FNV_PRIME;
+		}
+		return hash;
+	}
+
+	private static void describe(StringBuilder buffer, ValueDescriptor<?> descriptor, Map<ValueDescriptor<?>, Integer> visited) {
+		Integer id = visited.get(descriptor);
+		if (id != null) {
+			buffer.append('#');
+			buffer.append(id.intValue());
+			return;
+		}
+		visited.put(descriptor, Integer.valueOf(visited.size()));
+
+		buffer.append('{');
+		for (Property property : sortedProperties(descriptor)) {
+			buffer.append(property.getName());
+			buffer.append(':');
+			buffer.append(property.getKind().name());
+			buffer.append(':');
+			switch (property.getKind()) {
+			case PRIMITIVE:
+			case REFERENCE:
+				buffer.append(property.getType().getName());
+				break;
+			case INDEX:
+				buffer.append(property.getIndexProperty().getName());
+				buffer.append(':');
+				describe(buffer, ValueFactory.getDescriptor(property.getType()), visited);
+				break;
+			case VALUE:
+			case LIST:
+				describe(buffer, ValueFactory.getDescriptor(property.getType()), visited);
+				break;
+			}
+			buffer.append(';');
+		}
+		buffer.append('}');
+	}
+
+}
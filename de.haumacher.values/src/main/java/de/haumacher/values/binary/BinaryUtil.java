@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.binary;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import de.haumacher.values.Kind;
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueDescriptor;
+import de.haumacher.values.ValueFactory;
+import de.haumacher.values.internal.ValueDescriptorImpl;
+import de.haumacher.values.properties.PropertiesUtil;
+
+/**
+ * Utility methods to write/read {@link Value} types to/from a compact binary
+ * format.
+ * 
+ * <p>
+ * In contrast to the {@link Properties} format of {@link PropertiesUtil},
+ * properties are identified by their index in the {@link ValueDescriptor}
+ * instead of by name. Primitive values are written in binary form, lengths and
+ * integers as variable length numbers. Properties with their initial value are
+ * not written at all.
+ * </p>
+ * 
+ * <p>
+ * Each stream starts with a fingerprint of the written type. A stream can only
+ * be read with a type of the same structure.
+ * </p>
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version Since 0.3.0
+ */
+public class BinaryUtil {
+
+	private static final int END_TAG = 0;
+
+	/**
+	 * Writes the given {@link Value} together with the fingerprint of its type.
+	 * 
+	 * @param out
+	 *        The output to write to.
+	 * @param obj
+	 *        The {@link Value} to write.
+	 * @throws IOException
+	 *         If writing fails.
+	 * 
+	 * @see #read(DataInput, Class)
+	 */
+	public static void write(DataOutput out, Value obj) throws IOException {
+		out.writeLong(BinaryLayout.getLayout(obj.descriptor()).getFingerprint());
+		writeValue(out, obj);
+	}
+
+	/**
+	 * Reads a {@link Value} written by {@link #write(DataOutput, Value)}.
+	 * 
+	 * @param in
+	 *        The input to read from.
+	 * @param type
+	 *        The {@link Value} type to instantiate.
+	 * @return A new instance of the given type with the properties read.
+	 * @throws IOException
+	 *         If reading fails, or the input was written for a type with a
+	 *         different structure.
+	 */
+	public static <T extends Value> T read(DataInput in, Class<T> type) throws IOException {
+		ValueDescriptor<T> descriptor = ValueFactory.getDescriptor(type);
+		checkFingerprint(in, descriptor);
+		T result = descriptor.newInstance();
+		readValue(in, result);
+		return result;
+	}
+
+	/**
+	 * Writes a sequence of {@link Value}s of the same type with a single
+	 * fingerprint.
+	 * 
+	 * @param out
+	 *        The output to write to.
+	 * @param type
+	 *        The type of all given values.
+	 * @param values
+	 *        The values to write.
+	 * @throws IOException
+	 *         If writing fails.
+	 * 
+	 * @see #readAll(DataInput, Class)
+	 */
+	public static <T extends Value> void writeAll(DataOutput out, Class<T> type, Collection<? extends T> values) throws IOException {
+		out.writeLong(BinaryLayout.getLayout(ValueFactory.getDescriptor(type)).getFingerprint());
+		PrimitiveCodec.writeVarInt(out, values.size());
+		for (T value : values) {
+			writeValue(out, value);
+		}
+	}
+
+	/**
+	 * Reads all {@link Value}s written by
+	 * {@link #writeAll(DataOutput, Class, Collection)}.
+	 * 
+	 * @param in
+	 *        The input to read from.
+	 * @param type
+	 *        The {@link Value} type to instantiate.
+	 * @return The values read.
+	 * @throws IOException
+	 *         If reading fails, or the input was written for a type with a
+	 *         different structure.
+	 */
+	public static <T extends Value> List<T> readAll(DataInput in, Class<T> type) throws IOException {
+		ValueDescriptor<T> descriptor = ValueFactory.getDescriptor(type);
+		checkFingerprint(in, descriptor);
+		int size = PrimitiveCodec.readLength(in);
+		List<T> result = new ArrayList<T>(size);
+		for (int n = 0; n < size; n++) {
+			T value = descriptor.newInstance();
+			readValue(in, value);
+			result.add(value);
+		}
+		return result;
+	}
+
+	private static void checkFingerprint(DataInput in, ValueDescriptor<?> descriptor) throws IOException {
+		long expected = BinaryLayout.getLayout(descriptor).getFingerprint();
+		long fingerprint = in.readLong();
+		if (fingerprint != expected) {
+			throw new IOException("Data was not written for type '" + descriptor.getValueInterface().getName() + "'.");
+		}
+	}
+
+	private static void writeValue(DataOutput out, Value obj) throws IOException {
+		BinaryLayout layout = BinaryLayout.getLayout(obj.descriptor());
+		Property[] properties = layout.getProperties();
+		for (int n = 0; n < properties.length; n++) {
+			Property property = properties[n];
+			if (property.getKind() != Kind.PRIMITIVE && !ValueDescriptorImpl.hasValue(obj, property)) {
+				// See ValueDescriptorImpl#hasValue(Value, Property).
+				continue;
+			}
+
+			switch (property.getKind()) {
+			case PRIMITIVE: {
+				Object value = obj.value(property);
+				if (layout.isDefault(n, value)) {
+					break;
+				}
+				writeTag(out, n);
+				layout.getCodec(n).write(out, value);
+				break;
+			}
+
+			case VALUE: {
+				writeTag(out, n);
+				writeNullableValue(out, (Value) obj.value(property));
+				break;
+			}
+
+			case LIST: {
+				List<?> list = (List<?>) obj.value(property);
+				if (list.isEmpty()) {
+					break;
+				}
+				writeTag(out, n);
+				PrimitiveCodec.writeVarInt(out, list.size());
+				for (Object entry : list) {
+					writeNullableValue(out, (Value) entry);
+				}
+				break;
+			}
+
+			case INDEX: {
+				Map<?, ?> map = (Map<?, ?>) obj.value(property);
+				if (map.isEmpty()) {
+					break;
+				}
+				writeTag(out, n);
+				PrimitiveCodec.writeVarInt(out, map.size());
+				for (Object entry : map.values()) {
+					writeNullableValue(out, (Value) entry);
+				}
+				break;
+			}
+
+			case REFERENCE: {
+				break;
+			}
+			}
+		}
+		PrimitiveCodec.writeVarInt(out, END_TAG);
+	}
+
+	private static void writeTag(DataOutput out, int index) throws IOException {
+		PrimitiveCodec.writeVarInt(out, index + 1);
+	}
+
+	private static void writeNullableValue(DataOutput out, Value value) throws IOException {
+		if (value == null) {
+			out.writeBoolean(false);
+		} else {
+			out.writeBoolean(true);
+			writeValue(out, value);
+		}
+	}
+
+	private static void readValue(DataInput in, Value obj) throws IOException {
+		BinaryLayout layout = BinaryLayout.getLayout(obj.descriptor());
+		Property[] properties = layout.getProperties();
+		while (true) {
+			int tag = PrimitiveCodec.readVarInt(in);
+			if (tag == END_TAG) {
+				break;
+			}
+			int index = tag - 1;
+			if (index < 0 || index >= properties.length) {
+				throw new IOException("Invalid property index: " + index);
+			}
+			Property property = properties[index];
+
+			switch (property.getKind()) {
+			case PRIMITIVE: {
+				obj.putValue(property, layout.getCodec(index).read(in));
+				break;
+			}
+
+			case VALUE: {
+				if (in.readBoolean()) {
+					Value value = (Value) obj.value(property);
+					if (value == null) {
+						value = newContent(property);
+						obj.putValue(property, value);
+					}
+					readValue(in, value);
+				} else {
+					obj.putValue(property, null);
+				}
+				break;
+			}
+
+			case LIST: {
+				@SuppressWarnings("unchecked")
+				List<Value> list = (List<Value>) obj.value(property);
+				for (int n = 0, cnt = PrimitiveCodec.readLength(in); n < cnt; n++) {
+					list.add(readNullableValue(in, property));
+				}
+				break;
+			}
+
+			case INDEX: {
+				@SuppressWarnings("unchecked")
+				Map<Object, Value> map = (Map<Object, Value>) obj.value(property);
+				Property indexProperty = property.getIndexProperty();
+				for (int n = 0, cnt = PrimitiveCodec.readLength(in); n < cnt; n++) {
+					Value entry = readNullableValue(in, property);
+					if (entry == null) {
+						throw new IOException("Missing entry in index '" + property.getName() + "'.");
+					}
+					map.put(entry.value(indexProperty), entry);
+				}
+				break;
+			}
+
+			case REFERENCE: {
+				throw new IOException("Unexpected reference property '" + property.getName() + "'.");
+			}
+			}
+		}
+	}
+
+	private static Value readNullableValue(DataInput in, Property property) throws IOException {
+		if (!in.readBoolean()) {
+			return null;
+		}
+		Value result = newContent(property);
+		readValue(in, result);
+		return result;
+	}
+
+	private static Value newContent(Property property) {
+		return (Value) ValueFactory.getDescriptor(property.getType()).newInstance();
+	}
+
+}
@@ -0,0 +1,611 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.binary;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.haumacher.values.Kind;
+import de.haumacher.values.Parser;
+import de.haumacher.values.Property;
+
+/**
+ * Binary encoding of the values of a {@link Kind#PRIMITIVE} {@link Property}.
+ * 
+ * <p>
+ * Java primitive types are written raw or as variable length integers.
+ * Nullable types are prefixed with a marker byte. Types without a built-in
+ * encoding are written as text produced by the property's {@link Parser}.
+ * </p>
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+abstract class PrimitiveCodec {
+
+	private static final Map<Class<?>, PrimitiveCodec> CODECS = new HashMap<Class<?>, PrimitiveCodec>();
+
+	/**
+	 * Writes the given value.
+	 */
+	abstract void write(DataOutput out, Object value) throws IOException;
+
+	/**
+	 * Reads a value written by {@link #write(DataOutput, Object)}.
+	 */
+	abstract Object read(DataInput in) throws IOException;
+
+	/**
+	 * The {@link PrimitiveCodec} for values of the given property.
+	 */
+	static PrimitiveCodec forProperty(Property property) {
+		PrimitiveCodec codec = CODECS.get(property.getType());
+		if (codec != null) {
+			return codec;
+		}
+		return new NullableCodec(new TextCodec(property.getParser()));
+	}
+
+	/**
+	 * Writes a non-negative <code>int</code> in 7-bit groups, least significant
+	 * group first.
+	 */
+	static void writeVarInt(DataOutput out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte(value);
+	}
+
+	/**
+	 * Reads an <code>int</code> written by {@link #writeVarInt(DataOutput, int)}.
+	 */
+	static int readVarInt(DataInput in) throws IOException {
+		int result = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readByte();
+			result |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return result;
+			}
+		}
+		throw new IOException("Malformed variable length integer.");
+	}
+
+	/**
+	 * Writes a non-negative <code>long</code> in 7-bit groups.
+	 * 
+	 * @see #writeVarInt(DataOutput, int)
+	 */
+	static void writeVarLong(DataOutput out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte(((int) value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	/**
+	 * Reads a <code>long</code> written by
+	 * {@link #writeVarLong(DataOutput, long)}.
+	 */
+	static long readVarLong(DataInput in) throws IOException {
+		long result = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readByte();
+			result |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return result;
+			}
+		}
+		throw new IOException("Malformed variable length integer.");
+	}
+
+	/**
+	 * Writes a signed <code>int</code> with small absolute values in few bytes.
+	 */
+	static void writeSignedVarInt(DataOutput out, int value) throws IOException {
+		writeVarInt(out, (value << 1) ^ (value >> 31));
+	}
+
+	/**
+	 * Reads an <code>int</code> written by
+	 * {@link #writeSignedVarInt(DataOutput, int)}.
+	 */
+	static int readSignedVarInt(DataInput in) throws IOException {
+		int value = readVarInt(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Writes a signed <code>long</code> with small absolute values in few
+	 * bytes.
+	 */
+	static void writeSignedVarLong(DataOutput out, long value) throws IOException {
+		writeVarLong(out, (value << 1) ^ (value >> 63));
+	}
+
+	/**
+	 * Reads a <code>long</code> written by
+	 * {@link #writeSignedVarLong(DataOutput, long)}.
+	 */
+	static long readSignedVarLong(DataInput in) throws IOException {
+		long value = readVarLong(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Writes the length of the given string followed by its characters.
+	 */
+	static void writeString(DataOutput out, String value) throws IOException {
+		int length = value.length();
+		writeVarInt(out, length);
+		for (int n = 0; n < length; n++) {
+			writeVarInt(out, value.charAt(n));
+		}
+	}
+
+	/**
+	 * Reads a {@link String} written by {@link #writeString(DataOutput, String)}.
+	 */
+	static String readString(DataInput in) throws IOException {
+		int length = readLength(in);
+		char[] chars = new char[length];
+		for (int n = 0; n < length; n++) {
+			chars[n] = (char) readVarInt(in);
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Reads a length written by {@link #writeVarInt(DataOutput, int)}.
+	 */
+	static int readLength(DataInput in) throws IOException {
+		int length = readVarInt(in);
+		if (length < 0) {
+			throw new IOException("Invalid length: " + length);
+		}
+		return length;
+	}
+
+	static final PrimitiveCodec BOOLEAN = new PrimitiveCodec() {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			out.writeBoolean(((Boolean) value).booleanValue());
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			return Boolean.valueOf(in.readBoolean());
+		}
+	};
+
+	static final PrimitiveCodec BYTE = new PrimitiveCodec() {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			out.writeByte(((Byte) value).byteValue());
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			return Byte.valueOf(in.readByte());
+		}
+	};
+
+	static final PrimitiveCodec SHORT = new PrimitiveCodec() {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			out.writeShort(((Short) value).shortValue());
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			return Short.valueOf(in.readShort());
+		}
+	};
+
+	static final PrimitiveCodec CHAR = new PrimitiveCodec() {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			out.writeChar(((Character) value).charValue());
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			return Character.valueOf(in.readChar());
+		}
+	};
+
+	static final PrimitiveCodec INT = new PrimitiveCodec() {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			writeSignedVarInt(out, ((Integer) value).intValue());
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			return Integer.valueOf(readSignedVarInt(in));
+		}
+	};
+
+	static final PrimitiveCodec LONG = new PrimitiveCodec() {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			writeSignedVarLong(out, ((Long) value).longValue());
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			return Long.valueOf(readSignedVarLong(in));
+		}
+	};
+
+	static final PrimitiveCodec FLOAT = new PrimitiveCodec() {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			out.writeFloat(((Float) value).floatValue());
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			return Float.valueOf(in.readFloat());
+		}
+	};
+
+	static final PrimitiveCodec DOUBLE = new PrimitiveCodec() {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			out.writeDouble(((Double) value).doubleValue());
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			return Double.valueOf(in.readDouble());
+		}
+	};
+
+	static final PrimitiveCodec STRING = new PrimitiveCodec() {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			writeString(out, (String) value);
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			return readString(in);
+		}
+	};
+
+	static final PrimitiveCodec FILE = new PrimitiveCodec() {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			writeString(out, ((File) value).getPath());
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			return new File(readString(in));
+		}
+	};
+
+	static final PrimitiveCodec DATE = new PrimitiveCodec() {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			writeSignedVarLong(out, ((Date) value).getTime());
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			return new Date(readSignedVarLong(in));
+		}
+	};
+
+	static final PrimitiveCodec BOOLEAN_ARRAY = new PrimitiveCodec() {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			boolean[] array = (boolean[]) value;
+			writeVarInt(out, array.length);
+			for (int n = 0; n < array.length; n++) {
+				out.writeBoolean(array[n]);
+			}
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			boolean[] array = new boolean[readLength(in)];
+			for (int n = 0; n < array.length; n++) {
+				array[n] = in.readBoolean();
+			}
+			return array;
+		}
+	};
+
+	static final PrimitiveCodec BYTE_ARRAY = new PrimitiveCodec() {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			byte[] array = (byte[]) value;
+			writeVarInt(out, array.length);
+			out.write(array);
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			byte[] array = new byte[readLength(in)];
+			in.readFully(array);
+			return array;
+		}
+	};
+
+	static final PrimitiveCodec SHORT_ARRAY = new PrimitiveCodec() {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			short[] array = (short[]) value;
+			writeVarInt(out, array.length);
+			for (int n = 0; n < array.length; n++) {
+				out.writeShort(array[n]);
+			}
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			short[] array = new short[readLength(in)];
+			for (int n = 0; n < array.length; n++) {
+				array[n] = in.readShort();
+			}
+			return array;
+		}
+	};
+
+	static final PrimitiveCodec CHAR_ARRAY = new PrimitiveCodec() {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			char[] array = (char[]) value;
+			writeVarInt(out, array.length);
+			for (int n = 0; n < array.length; n++) {
+				out.writeChar(array[n]);
+			}
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			char[] array = new char[readLength(in)];
+			for (int n = 0; n < array.length; n++) {
+				array[n] = in.readChar();
+			}
+			return array;
+		}
+	};
+
+	static final PrimitiveCodec INT_ARRAY = new PrimitiveCodec() {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			int[] array = (int[]) value;
+			writeVarInt(out, array.length);
+			for (int n = 0; n < array.length; n++) {
+				writeSignedVarInt(out, array[n]);
+			}
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			int[] array = new int[readLength(in)];
+			for (int n = 0; n < array.length; n++) {
+				array[n] = readSignedVarInt(in);
+			}
+			return array;
+		}
+	};
+
+	static final PrimitiveCodec LONG_ARRAY = new PrimitiveCodec() {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			long[] array = (long[]) value;
+			writeVarInt(out, array.length);
+			for (int n = 0; n < array.length; n++) {
+				writeSignedVarLong(out, array[n]);
+			}
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			long[] array = new long[readLength(in)];
+			for (int n = 0; n < array.length; n++) {
+				array[n] = readSignedVarLong(in);
+			}
+			return array;
+		}
+	};
+
+	static final PrimitiveCodec FLOAT_ARRAY = new PrimitiveCodec() {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			float[] array = (float[]) value;
+			writeVarInt(out, array.length);
+			for (int n = 0; n < array.length; n++) {
+				out.writeFloat(array[n]);
+			}
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			float[] array = new float[readLength(in)];
+			for (int n = 0; n < array.length; n++) {
+				array[n] = in.readFloat();
+			}
+			return array;
+		}
+	};
+
+	static final PrimitiveCodec DOUBLE_ARRAY = new PrimitiveCodec() {
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			double[] array = (double[]) value;
+			writeVarInt(out, array.length);
+			for (int n = 0; n < array.length; n++) {
+				out.writeDouble(array[n]);
+			}
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			double[] array = new double[readLength(in)];
+			for (int n = 0; n < array.length; n++) {
+				array[n] = in.readDouble();
+			}
+			return array;
+		}
+	};
+
+	/**
+	 * Prefixes values of another {@link PrimitiveCodec} with a marker byte to
+	 * allow <code>null</code> values.
+	 */
+	static final class NullableCodec extends PrimitiveCodec {
+
+		private final PrimitiveCodec inner;
+
+		NullableCodec(PrimitiveCodec inner) {
+			this.inner = inner;
+		}
+
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			if (value == null) {
+				out.writeBoolean(false);
+			} else {
+				out.writeBoolean(true);
+				inner.write(out, value);
+			}
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			if (in.readBoolean()) {
+				return inner.read(in);
+			} else {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Writes arrays of reference types element by element.
+	 */
+	static final class ObjectArrayCodec extends PrimitiveCodec {
+
+		private final Class<?> elementType;
+
+		private final PrimitiveCodec elementCodec;
+
+		ObjectArrayCodec(Class<?> elementType, PrimitiveCodec elementCodec) {
+			this.elementType = elementType;
+			this.elementCodec = new NullableCodec(elementCodec);
+		}
+
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			Object[] array = (Object[]) value;
+			writeVarInt(out, array.length);
+			for (int n = 0; n < array.length; n++) {
+				elementCodec.write(out, array[n]);
+			}
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			Object[] array = (Object[]) Array.newInstance(elementType, readLength(in));
+			for (int n = 0; n < array.length; n++) {
+				array[n] = elementCodec.read(in);
+			}
+			return array;
+		}
+	}
+
+	/**
+	 * Writes values in their text form defined by a {@link Parser}.
+	 */
+	static final class TextCodec extends PrimitiveCodec {
+
+		private final Parser<Object> parser;
+
+		TextCodec(Parser<Object> parser) {
+			this.parser = parser;
+		}
+
+		@Override
+		void write(DataOutput out, Object value) throws IOException {
+			writeString(out, parser.unparse(value));
+		}
+
+		@Override
+		Object read(DataInput in) throws IOException {
+			try {
+				return parser.parse(readString(in));
+			} catch (IllegalArgumentException ex) {
+				throw (IOException) new IOException("Invalid value: " + ex.getMessage()).initCause(ex);
+			}
+		}
+	}
+
+	static {
+		CODECS.put(boolean.class, BOOLEAN);
+		CODECS.put(byte.class, BYTE);
+		CODECS.put(short.class, SHORT);
+		CODECS.put(char.class, CHAR);
+		CODECS.put(int.class, INT);
+		CODECS.put(long.class, LONG);
+		CODECS.put(float.class, FLOAT);
+		CODECS.put(double.class, DOUBLE);
+
+		CODECS.put(boolean[].class, new NullableCodec(BOOLEAN_ARRAY));
+		CODECS.put(byte[].class, new NullableCodec(BYTE_ARRAY));
+		CODECS.put(short[].class, new NullableCodec(SHORT_ARRAY));
+		CODECS.put(char[].class, new NullableCodec(CHAR_ARRAY));
+		CODECS.put(int[].class, new NullableCodec(INT_ARRAY));
+		CODECS.put(long[].class, new NullableCodec(LONG_ARRAY));
+		CODECS.put(float[].class, new NullableCodec(FLOAT_ARRAY));
+		CODECS.put(double[].class, new NullableCodec(DOUBLE_ARRAY));
+
+		registerReference(Boolean.class, BOOLEAN);
+		registerReference(Byte.class, BYTE);
+		registerReference(Short.class, SHORT);
+		registerReference(Character.class, CHAR);
+		registerReference(Integer.class, INT);
+		registerReference(Long.class, LONG);
+		registerReference(Float.class, FLOAT);
+		registerReference(Double.class, DOUBLE);
+		registerReference(String.class, STRING);
+		registerReference(File.class, FILE);
+		registerReference(Date.class, DATE);
+	}
+
+	private static void registerReference(Class<?> type, PrimitiveCodec codec) {
+		CODECS.put(type, new NullableCodec(codec));
+		Class<?> arrayType = Array.newInstance(type, 0).getClass();
+		CODECS.put(arrayType, new NullableCodec(new ObjectArrayCodec(type, codec)));
+	}
+
+}
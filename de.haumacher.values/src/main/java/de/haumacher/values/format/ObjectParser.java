@@ -19,16 +19,38 @@
  */
 package de.haumacher.values.format;
 
+import java.io.IOException;
+
+import de.haumacher.values.AppendingParser;
 import de.haumacher.values.Initializer;
 import de.haumacher.values.Parser;
+import de.haumacher.values.RangeParser;
 
 /**
  * Base class for custom {@link Parser} implementations.
  * 
+ * <p>
+ * By default, parsing from a range of characters converts the range to a
+ * {@link String} and calls {@link #parse(String)}. Subclasses may override
+ * {@link #parse(CharSequence, int, int)} to avoid this. The same applies to
+ * {@link #unparse(Object, Appendable)}, which appends the result of
+ * {@link #unparse(Object)} by default.
+ * </p>
+ * 
  * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
  * @version Since 0.2.0
  */
-public abstract class ObjectParser<T> implements Parser<T>, Initializer<T> {
+public abstract class ObjectParser<T> implements RangeParser<T>, AppendingParser<T>, Initializer<T> {
+	
+	@Override
+	public T parse(CharSequence text, int start, int end) {
+		return parse(text.subSequence(start, end).toString());
+	}
+	
+	@Override
+	public void unparse(T value, Appendable out) throws IOException {
+		out.append(unparse(value));
+	}
 	
 	@Override
 	public Initializer<T> getDefaultInitializer() {
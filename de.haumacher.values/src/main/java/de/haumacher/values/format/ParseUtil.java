@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.format;
+
+import de.haumacher.values.Parser;
+import de.haumacher.values.RangeParser;
+
+/**
+ * Utility methods for parsing values from ranges of characters without
+ * creating intermediate {@link String}s.
+ * 
+ * <p>
+ * The methods for Java primitive types accept exactly the same input as their
+ * counterparts in the wrapper classes, e.g. {@link #parseInt(CharSequence, int, int)}
+ * accepts the same input as {@link Integer#parseInt(String)}.
+ * </p>
+ * 
+ * @see RangeParser
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version Since 0.3.0
+ */
+public class ParseUtil {
+
+	/**
+	 * Powers of ten that are exactly representable as <code>double</code>.
+	 */
+	private static final double[] DOUBLE_POWERS = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 
+		1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 
+	};
+
+	/**
+	 * Powers of ten that are exactly representable as <code>float</code>.
+	 */
+	private static final float[] FLOAT_POWERS = {
+		1e0F, 1e1F, 1e2F, 1e3F, 1e4F, 1e5F, 1e6F, 1e7F, 1e8F, 1e9F, 1e10F 
+	};
+
+	/**
+	 * Maximum number of significant decimal digits that are exactly
+	 * representable as <code>double</code>.
+	 */
+	private static final int DOUBLE_DIGITS = 15;
+
+	/**
+	 * Maximum number of significant decimal digits that are exactly
+	 * representable as <code>float</code>.
+	 */
+	private static final int FLOAT_DIGITS = 7;
+
+	/**
+	 * Bias added to the decimal exponent in the result of
+	 * {@link #scanDecimal(CharSequence, int, int, int)}.
+	 */
+	private static final int EXPONENT_BIAS = 1024;
+
+	/**
+	 * Number of bits reserved for the biased exponent in the result of
+	 * {@link #scanDecimal(CharSequence, int, int, int)}.
+	 */
+	private static final int EXPONENT_BITS = 11;
+
+	/**
+	 * Parses a value from a range of characters with the given {@link Parser}.
+	 * 
+	 * <p>
+	 * If the given {@link Parser} is not a {@link RangeParser}, the text of
+	 * the range is converted to a {@link String} and passed to
+	 * {@link Parser#parse(String)}.
+	 * </p>
+	 * 
+	 * @see RangeParser#parse(CharSequence, int, int)
+	 */
+	public static <T> T parse(Parser<T> parser, CharSequence text, int start, int end) {
+		if (parser instanceof RangeParser<?>) {
+			return ((RangeParser<T>) parser).parse(text, start, end);
+		}
+		return parser.parse(text.subSequence(start, end).toString());
+	}
+
+	/**
+	 * Parses a <code>boolean</code> value like {@link Boolean#parseBoolean(String)}.
+	 */
+	public static boolean parseBoolean(CharSequence text, int start, int end) {
+		if (end - start != 4) {
+			return false;
+		}
+		return 
+			Character.toLowerCase(text.charAt(start)) == 't' && 
+			Character.toLowerCase(text.charAt(start + 1)) == 'r' && 
+			Character.toLowerCase(text.charAt(start + 2)) == 'u' && 
+			Character.toLowerCase(text.charAt(start + 3)) == 'e';
+	}
+
+	/**
+	 * Parses a <code>byte</code> value like {@link Byte#parseByte(String)}.
+	 */
+	public static byte parseByte(CharSequence text, int start, int end) {
+		return (byte) parseInRange(text, start, end, Byte.MIN_VALUE, Byte.MAX_VALUE);
+	}
+
+	/**
+	 * Parses a <code>short</code> value like {@link Short#parseShort(String)}.
+	 */
+	public static short parseShort(CharSequence text, int start, int end) {
+		return (short) parseInRange(text, start, end, Short.MIN_VALUE, Short.MAX_VALUE);
+	}
+
+	/**
+	 * Parses an <code>int</code> value like {@link Integer#parseInt(String)}.
+	 */
+	public static int parseInt(CharSequence text, int start, int end) {
+		return (int) parseInRange(text, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	private static long parseInRange(CharSequence text, int start, int end, long min, long max) {
+		long result = parseLong(text, start, end);
+		if (result < min || result > max) {
+			throw invalidNumber(text, start, end);
+		}
+		return result;
+	}
+
+	/**
+	 * Parses a <code>long</code> value like {@link Long#parseLong(String)}.
+	 */
+	public static long parseLong(CharSequence text, int start, int end) {
+		if (start >= end) {
+			throw invalidNumber(text, start, end);
+		}
+		
+		int index = start;
+		boolean negative = false;
+		long limit = -Long.MAX_VALUE;
+		char first = text.charAt(index);
+		if (first < '0') {
+			if (first == '-') {
+				negative = true;
+				limit = Long.MIN_VALUE;
+			} else if (first != '+') {
+				throw invalidNumber(text, start, end);
+			}
+			index++;
+			if (index == end) {
+				throw invalidNumber(text, start, end);
+			}
+		}
+		
+		// Note: The result is accumulated negatively to be able to represent
+		// Long.MIN_VALUE.
+		long minBeforeMultiply = limit / 10;
+		long result = 0;
+		while (index < end) {
+			int digit = Character.digit(text.charAt(index++), 10);
+			if (digit < 0 || result < minBeforeMultiply) {
+				throw invalidNumber(text, start, end);
+			}
+			result *= 10;
+			if (result < limit + digit) {
+				throw invalidNumber(text, start, end);
+			}
+			result -= digit;
+		}
+		return negative ? result : -result;
+	}
+
+	/**
+	 * Parses a <code>float</code> value like {@link Float#parseFloat(String)}.
+	 */
+	public static float parseFloat(CharSequence text, int start, int end) {
+		long decimal = scanDecimal(text, start, end, FLOAT_DIGITS);
+		if (decimal >= 0) {
+			long mantissa = decimal >>> EXPONENT_BITS;
+			int exponent = (int) (decimal & ((1 << EXPONENT_BITS) - 1)) - EXPONENT_BIAS;
+			boolean negative = text.charAt(start) == '-';
+			if (mantissa == 0) {
+				return negative ? -0.0F : 0.0F;
+			}
+			if (exponent >= -FLOAT_POWERS.length + 1 && exponent < FLOAT_POWERS.length) {
+				// Both operands are exact, the result is correctly rounded.
+				float result = exponent < 0 ? mantissa / FLOAT_POWERS[-exponent] : mantissa * FLOAT_POWERS[exponent];
+				return negative ? -result : result;
+			}
+		}
+		return Float.parseFloat(text.subSequence(start, end).toString());
+	}
+
+	/**
+	 * Parses a <code>double</code> value like {@link Double#parseDouble(String)}.
+	 */
+	public static double parseDouble(CharSequence text, int start, int end) {
+		long decimal = scanDecimal(text, start, end, DOUBLE_DIGITS);
+		if (decimal >= 0) {
+			long mantissa = decimal >>> EXPONENT_BITS;
+			int exponent = (int) (decimal & ((1 << EXPONENT_BITS) - 1)) - EXPONENT_BIAS;
+			boolean negative = text.charAt(start) == '-';
+			if (mantissa == 0) {
+				return negative ? -0.0D : 0.0D;
+			}
+			if (exponent >= -DOUBLE_POWERS.length + 1 && exponent < DOUBLE_POWERS.length) {
+				// Both operands are exact, the result is correctly rounded.
+				double result = exponent < 0 ? mantissa / DOUBLE_POWERS[-exponent] : mantissa * DOUBLE_POWERS[exponent];
+				return negative ? -result : result;
+			}
+		}
+		return Double.parseDouble(text.subSequence(start, end).toString());
+	}
+
+	/**
+	 * Scans a plain decimal number with an optional sign, fraction and
+	 * exponent.
+	 * 
+	 * @return The mantissa shifted left by {@link #EXPONENT_BITS} combined
+	 *         with the decimal exponent offset by {@link #EXPONENT_BIAS}, or
+	 *         <code>-1</code>, if the text is not a plain decimal number
+	 *         with at most the given number of significant digits.
+	 */
+	private static long scanDecimal(CharSequence text, int start, int end, int maxDigits) {
+		int index = start;
+		if (index < end) {
+			char sign = text.charAt(index);
+			if (sign == '-' || sign == '+') {
+				index++;
+			}
+		}
+		
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean hasDigits = false;
+		boolean fraction = false;
+		for (; index < end; index++) {
+			char ch = text.charAt(index);
+			if (ch >= '0' && ch <= '9') {
+				hasDigits = true;
+				if (mantissa > 0 || ch > '0') {
+					if (++digits > maxDigits) {
+						return -1;
+					}
+					mantissa = 10 * mantissa + (ch - '0');
+				}
+				if (fraction) {
+					exponent--;
+				}
+			} else if (ch == '.' && !fraction) {
+				fraction = true;
+			} else {
+				break;
+			}
+		}
+		if (!hasDigits) {
+			return -1;
+		}
+		
+		if (index < end) {
+			char ch = text.charAt(index++);
+			if (ch != 'e' && ch != 'E') {
+				return -1;
+			}
+			boolean negative = false;
+			if (index < end) {
+				char sign = text.charAt(index);
+				if (sign == '-' || sign == '+') {
+					negative = sign == '-';
+					index++;
+				}
+			}
+			if (index == end) {
+				return -1;
+			}
+			int explicitExponent = 0;
+			for (; index < end; index++) {
+				char digit = text.charAt(index);
+				if (digit < '0' || digit > '9') {
+					return -1;
+				}
+				explicitExponent = 10 * explicitExponent + (digit - '0');
+				if (explicitExponent > EXPONENT_BIAS / 2) {
+					return -1;
+				}
+			}
+			exponent += negative ? -explicitExponent : explicitExponent;
+		}
+		if (exponent <= -EXPONENT_BIAS || exponent >= EXPONENT_BIAS) {
+			return -1;
+		}
+		
+		return (mantissa << EXPONENT_BITS) | (exponent + EXPONENT_BIAS);
+	}
+
+	private static NumberFormatException invalidNumber(CharSequence text, int start, int end) {
+		return new NumberFormatException("For input string: \"" + text.subSequence(start, end) + "\"");
+	}
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.format;
+
+import java.io.IOException;
+
+import de.haumacher.values.AppendingParser;
+import de.haumacher.values.Parser;
+
+/**
+ * Utility methods for writing string representations of values to an
+ * {@link Appendable} without creating intermediate {@link String}s.
+ * 
+ * <p>
+ * The methods for Java primitive types write the same text as the
+ * corresponding <code>toString()</code> methods of the wrapper classes.
+ * </p>
+ * 
+ * @see AppendingParser
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version Since 0.3.0
+ */
+public class UnparseUtil {
+
+	/**
+	 * Buffer for formatting floating point numbers for an {@link Appendable}
+	 * that is not a {@link StringBuilder}.
+	 */
+	private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+		@Override
+		protected StringBuilder initialValue() {
+			return new StringBuilder(32);
+		}
+	};
+
+	/**
+	 * Writes the string representation of the given value created by the
+	 * given {@link Parser} to the given {@link Appendable}.
+	 * 
+	 * <p>
+	 * If the given {@link Parser} is not an {@link AppendingParser}, the
+	 * result of {@link Parser#unparse(Object)} is appended.
+	 * </p>
+	 * 
+	 * @see AppendingParser#unparse(Object, Appendable)
+	 */
+	public static <T> void unparse(Parser<T> parser, T value, Appendable out) throws IOException {
+		if (parser instanceof AppendingParser<?>) {
+			((AppendingParser<T>) parser).unparse(value, out);
+		} else {
+			out.append(parser.unparse(value));
+		}
+	}
+
+	/**
+	 * Writes a <code>boolean</code> value like {@link Boolean#toString(boolean)}.
+	 */
+	public static void appendBoolean(Appendable out, boolean value) throws IOException {
+		out.append(value ? "true" : "false");
+	}
+
+	/**
+	 * Writes an <code>int</code> value like {@link Integer#toString(int)}.
+	 */
+	public static void appendInt(Appendable out, int value) throws IOException {
+		if (out instanceof StringBuilder) {
+			((StringBuilder) out).append(value);
+		} else {
+			appendLong(out, value);
+		}
+	}
+
+	/**
+	 * Writes a <code>long</code> value like {@link Long#toString(long)}.
+	 */
+	public static void appendLong(Appendable out, long value) throws IOException {
+		if (out instanceof StringBuilder) {
+			((StringBuilder) out).append(value);
+		} else if (value < 0) {
+			out.append('-');
+			appendNegative(out, value);
+		} else {
+			appendNegative(out, -value);
+		}
+	}
+
+	/**
+	 * Writes the digits of the given non-positive value.
+	 * 
+	 * <p>
+	 * Note: The digits are computed from the negative value to be able to
+	 * represent {@link Long#MIN_VALUE}.
+	 * </p>
+	 */
+	private static void appendNegative(Appendable out, long value) throws IOException {
+		long quotient = value / 10;
+		if (quotient != 0) {
+			appendNegative(out, quotient);
+		}
+		out.append((char) ('0' - (value - 10 * quotient)));
+	}
+
+	/**
+	 * Writes a <code>float</code> value like {@link Float#toString(float)}.
+	 */
+	public static void appendFloat(Appendable out, float value) throws IOException {
+		if (out instanceof StringBuilder) {
+			((StringBuilder) out).append(value);
+		} else {
+			StringBuilder buffer = buffer();
+			buffer.append(value);
+			copy(out, buffer);
+		}
+	}
+
+	/**
+	 * Writes a <code>double</code> value like {@link Double#toString(double)}.
+	 */
+	public static void appendDouble(Appendable out, double value) throws IOException {
+		if (out instanceof StringBuilder) {
+			((StringBuilder) out).append(value);
+		} else {
+			StringBuilder buffer = buffer();
+			buffer.append(value);
+			copy(out, buffer);
+		}
+	}
+
+	private static StringBuilder buffer() {
+		StringBuilder buffer = BUFFER.get();
+		buffer.setLength(0);
+		return buffer;
+	}
+
+	private static void copy(Appendable out, StringBuilder buffer) throws IOException {
+		for (int n = 0, cnt = buffer.length(); n < cnt; n++) {
+			out.append(buffer.charAt(n));
+		}
+	}
+
+}
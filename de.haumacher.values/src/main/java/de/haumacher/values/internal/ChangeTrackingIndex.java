@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.internal;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link Map} of a {@link de.haumacher.values.Kind#INDEX} property
+ * implementing {@link ChangeTracking}.
+ * 
+ * <p>
+ * The entries are stored in a {@link HashMap}. All modifications, including
+ * those through the collection views, are routed through this class.
+ * </p>
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+final class ChangeTrackingIndex extends AbstractMap<Object, Object> implements ChangeTracking {
+
+	private final HashMap<Object, Object> map = new HashMap<Object, Object>();
+
+	private boolean changed;
+
+	private Set<Entry<Object, Object>> entrySet;
+
+	private Set<Object> keySet;
+
+	private Collection<Object> values;
+
+	@Override
+	public boolean isChanged() {
+		return changed;
+	}
+
+	@Override
+	public void clearChanged() {
+		changed = false;
+	}
+
+	@Override
+	public int size() {
+		return map.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return map.isEmpty();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return map.containsKey(key);
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		return map.containsValue(value);
+	}
+
+	@Override
+	public Object get(Object key) {
+		return map.get(key);
+	}
+
+	@Override
+	public Object put(Object key, Object value) {
+		changed = true;
+		return map.put(key, value);
+	}
+
+	@Override
+	public void putAll(Map<? extends Object, ? extends Object> m) {
+		if (!m.isEmpty()) {
+			changed = true;
+			map.putAll(m);
+		}
+	}
+
+	@Override
+	public Object remove(Object key) {
+		if (!map.containsKey(key)) {
+			return null;
+		}
+		changed = true;
+		return map.remove(key);
+	}
+
+	@Override
+	public void clear() {
+		if (!map.isEmpty()) {
+			changed = true;
+			map.clear();
+		}
+	}
+
+	@Override
+	public Set<Entry<Object, Object>> entrySet() {
+		if (entrySet == null) {
+			entrySet = new AbstractSet<Entry<Object, Object>>() {
+				@Override
+				public Iterator<Entry<Object, Object>> iterator() {
+					return new TrackingIterator<Entry<Object, Object>>(map.entrySet().iterator()) {
+						@Override
+						public Entry<Object, Object> next() {
+							return new TrackingEntry(super.next());
+						}
+					};
+				}
+
+				@Override
+				public boolean contains(Object o) {
+					return map.entrySet().contains(o);
+				}
+
+				@Override
+				public int size() {
+					return map.size();
+				}
+			};
+		}
+		return entrySet;
+	}
+
+	@Override
+	public Set<Object> keySet() {
+		if (keySet == null) {
+			keySet = new AbstractSet<Object>() {
+				@Override
+				public Iterator<Object> iterator() {
+					return new TrackingIterator<Object>(map.keySet().iterator());
+				}
+
+				@Override
+				public boolean contains(Object o) {
+					return map.containsKey(o);
+				}
+
+				@Override
+				public int size() {
+					return map.size();
+				}
+			};
+		}
+		return keySet;
+	}
+
+	@Override
+	public Collection<Object> values() {
+		if (values == null) {
+			values = new AbstractCollection<Object>() {
+				@Override
+				public Iterator<Object> iterator() {
+					return new TrackingIterator<Object>(map.values().iterator());
+				}
+
+				@Override
+				public boolean contains(Object o) {
+					return map.containsValue(o);
+				}
+
+				@Override
+				public int size() {
+					return map.size();
+				}
+			};
+		}
+		return values;
+	}
+
+	/**
+	 * {@link Iterator} of a collection view recording removals.
+	 */
+	private class TrackingIterator<E> implements Iterator<E> {
+
+		private final Iterator<E> inner;
+
+		TrackingIterator(Iterator<E> inner) {
+			this.inner = inner;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return inner.hasNext();
+		}
+
+		@Override
+		public E next() {
+			return inner.next();
+		}
+
+		@Override
+		public void remove() {
+			inner.remove();
+			changed = true;
+		}
+
+	}
+
+	/**
+	 * {@link java.util.Map.Entry} recording value updates.
+	 */
+	private final class TrackingEntry implements Entry<Object, Object> {
+
+		private final Entry<Object, Object> inner;
+
+		TrackingEntry(Entry<Object, Object> inner) {
+			this.inner = inner;
+		}
+
+		@Override
+		public Object getKey() {
+			return inner.getKey();
+		}
+
+		@Override
+		public Object getValue() {
+			return inner.getValue();
+		}
+
+		@Override
+		public Object setValue(Object value) {
+			changed = true;
+			return inner.setValue(value);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return inner.equals(obj);
+		}
+
+		@Override
+		public int hashCode() {
+			return inner.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return inner.toString();
+		}
+
+	}
+
+}
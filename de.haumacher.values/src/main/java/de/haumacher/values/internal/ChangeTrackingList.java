@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.internal;
+
+import java.util.ArrayList;
+
+/**
+ * {@link ArrayList} of a {@link de.haumacher.values.Kind#LIST} property
+ * implementing {@link ChangeTracking}.
+ * 
+ * <p>
+ * All structural modifications of an {@link ArrayList} increment its
+ * modification count. Replacing an element is not a structural modification
+ * and is tracked separately, since iterators must not fail on
+ * {@link java.util.ListIterator#set(Object)}.
+ * </p>
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+final class ChangeTrackingList extends ArrayList<Object> implements ChangeTracking {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The modification count at the last call to {@link #clearChanged()}.
+	 */
+	private int cleanModCount;
+
+	/**
+	 * Whether an element was replaced since the last call to
+	 * {@link #clearChanged()}.
+	 */
+	private boolean replaced;
+
+	@Override
+	public Object set(int index, Object element) {
+		Object result = super.set(index, element);
+		replaced = true;
+		return result;
+	}
+
+	@Override
+	public boolean isChanged() {
+		return replaced || modCount != cleanModCount;
+	}
+
+	@Override
+	public void clearChanged() {
+		cleanModCount = modCount;
+		replaced = false;
+	}
+
+}
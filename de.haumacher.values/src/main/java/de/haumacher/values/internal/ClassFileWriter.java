@@ -0,0 +1,485 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal writer for Java class files.
+ *
+ * <p>
+ * Only the subset of the class file format required for generating
+ * {@link GeneratedValue} implementations is supported. Classes are written in
+ * version 49 of the class file format, which is verified by type inference and
+ * therefore requires no stack map frames.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+final class ClassFileWriter {
+
+	static final int ACC_PUBLIC = 0x0001;
+	static final int ACC_PRIVATE = 0x0002;
+	static final int ACC_PROTECTED = 0x0004;
+	static final int ACC_FINAL = 0x0010;
+	static final int ACC_SUPER = 0x0020;
+
+	static final int ICONST_0 = 0x03;
+	static final int BIPUSH = 0x10;
+	static final int SIPUSH = 0x11;
+	static final int LDC_W = 0x13;
+	static final int ILOAD = 0x15;
+	static final int LLOAD = 0x16;
+	static final int FLOAD = 0x17;
+	static final int DLOAD = 0x18;
+	static final int ALOAD = 0x19;
+	static final int I2L = 0x85;
+	static final int L2I = 0x88;
+	static final int I2B = 0x91;
+	static final int I2C = 0x92;
+	static final int I2S = 0x93;
+	static final int TABLESWITCH = 0xaa;
+	static final int IRETURN = 0xac;
+	static final int LRETURN = 0xad;
+	static final int FRETURN = 0xae;
+	static final int DRETURN = 0xaf;
+	static final int ARETURN = 0xb0;
+	static final int RETURN = 0xb1;
+	static final int GETFIELD = 0xb4;
+	static final int PUTFIELD = 0xb5;
+	static final int INVOKEVIRTUAL = 0xb6;
+	static final int INVOKESPECIAL = 0xb7;
+	static final int INVOKESTATIC = 0xb8;
+	static final int ATHROW = 0xbf;
+	static final int CHECKCAST = 0xc0;
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+	private final ByteArrayOutputStream constantBytes = new ByteArrayOutputStream();
+	private final DataOutputStream constants = new DataOutputStream(constantBytes);
+	private final Map<String, Integer> constantIndex = new HashMap<String, Integer>();
+	private int nextConstant = 1;
+
+	private final int access;
+	private final int thisClass;
+	private final int superClass;
+	private final int[] interfaces;
+
+	private final List<byte[]> fields = new ArrayList<byte[]>();
+	private final List<Code> methods = new ArrayList<Code>();
+	private final int codeAttribute;
+
+	/**
+	 * Creates a {@link ClassFileWriter}.
+	 *
+	 * @param access
+	 *        The access flags of the class.
+	 * @param className
+	 *        The internal name of the class to create.
+	 * @param superName
+	 *        The internal name of the super class.
+	 * @param interfaceNames
+	 *        The internal names of the implemented interfaces.
+	 */
+	public ClassFileWriter(int access, String className, String superName, String... interfaceNames) {
+		this.access = access;
+		this.thisClass = classConstant(className);
+		this.superClass = classConstant(superName);
+		this.interfaces = new int[interfaceNames.length];
+		for (int n = 0, cnt = interfaceNames.length; n < cnt; n++) {
+			interfaces[n] = classConstant(interfaceNames[n]);
+		}
+		this.codeAttribute = utf8Constant("Code");
+	}
+
+	/**
+	 * Adds a field declaration.
+	 */
+	public void addField(int fieldAccess, String name, String descriptor) {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(buffer);
+		try {
+			out.writeShort(fieldAccess);
+			out.writeShort(utf8Constant(name));
+			out.writeShort(utf8Constant(descriptor));
+			out.writeShort(0);
+		} catch (IOException ex) {
+			throw (AssertionError) new AssertionError().initCause(ex);
+		}
+		fields.add(buffer.toByteArray());
+	}
+
+	/**
+	 * Adds a method declaration.
+	 *
+	 * @return The {@link Code} builder for the method body.
+	 */
+	public Code addMethod(int methodAccess, String name, String descriptor) {
+		Code result = new Code(methodAccess, utf8Constant(name), utf8Constant(descriptor));
+		methods.add(result);
+		return result;
+	}
+
+	/**
+	 * The complete class file.
+	 */
+	public byte[] toByteArray() {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(buffer);
+		try {
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(49);
+			out.writeShort(nextConstant);
+			out.write(constantBytes.toByteArray());
+			out.writeShort(access);
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(interfaces.length);
+			for (int i : interfaces) {
+				out.writeShort(i);
+			}
+			out.writeShort(fields.size());
+			for (byte[] field : fields) {
+				out.write(field);
+			}
+			out.writeShort(methods.size());
+			for (Code method : methods) {
+				method.writeTo(out);
+			}
+			out.writeShort(0);
+		} catch (IOException ex) {
+			throw (AssertionError) new AssertionError().initCause(ex);
+		}
+		return buffer.toByteArray();
+	}
+
+	int utf8Constant(String value) {
+		String key = "U" + value;
+		Integer existing = constantIndex.get(key);
+		if (existing != null) {
+			return existing.intValue();
+		}
+		try {
+			constants.writeByte(CONSTANT_UTF8);
+			constants.writeUTF(value);
+		} catch (IOException ex) {
+			throw (AssertionError) new AssertionError().initCause(ex);
+		}
+		return register(key, 1);
+	}
+
+	int classConstant(String internalName) {
+		String key = "C" + internalName;
+		Integer existing = constantIndex.get(key);
+		if (existing != null) {
+			return existing.intValue();
+		}
+		int name = utf8Constant(internalName);
+		writeConstant(CONSTANT_CLASS, name);
+		return register(key, 1);
+	}
+
+	int intConstant(int value) {
+		String key = "I" + value;
+		Integer existing = constantIndex.get(key);
+		if (existing != null) {
+			return existing.intValue();
+		}
+		try {
+			constants.writeByte(CONSTANT_INTEGER);
+			constants.writeInt(value);
+		} catch (IOException ex) {
+			throw (AssertionError) new AssertionError().initCause(ex);
+		}
+		return register(key, 1);
+	}
+
+	int fieldConstant(String owner, String name, String descriptor) {
+		return memberConstant(CONSTANT_FIELDREF, owner, name, descriptor);
+	}
+
+	int methodConstant(String owner, String name, String descriptor) {
+		return memberConstant(CONSTANT_METHODREF, owner, name, descriptor);
+	}
+
+	private int memberConstant(int tag, String owner, String name, String descriptor) {
+		String key = "M" + tag + owner + '.' + name + descriptor;
+		Integer existing = constantIndex.get(key);
+		if (existing != null) {
+			return existing.intValue();
+		}
+		int ownerIndex = classConstant(owner);
+		int nameAndType = nameAndTypeConstant(name, descriptor);
+		try {
+			constants.writeByte(tag);
+			constants.writeShort(ownerIndex);
+			constants.writeShort(nameAndType);
+		} catch (IOException ex) {
+			throw (AssertionError) new AssertionError().initCause(ex);
+		}
+		return register(key, 1);
+	}
+
+	private int nameAndTypeConstant(String name, String descriptor) {
+		String key = "N" + name + ':' + descriptor;
+		Integer existing = constantIndex.get(key);
+		if (existing != null) {
+			return existing.intValue();
+		}
+		int nameIndex = utf8Constant(name);
+		int descriptorIndex = utf8Constant(descriptor);
+		try {
+			constants.writeByte(CONSTANT_NAME_AND_TYPE);
+			constants.writeShort(nameIndex);
+			constants.writeShort(descriptorIndex);
+		} catch (IOException ex) {
+			throw (AssertionError) new AssertionError().initCause(ex);
+		}
+		return register(key, 1);
+	}
+
+	private void writeConstant(int tag, int reference) {
+		try {
+			constants.writeByte(tag);
+			constants.writeShort(reference);
+		} catch (IOException ex) {
+			throw (AssertionError) new AssertionError().initCause(ex);
+		}
+	}
+
+	private int register(String key, int size) {
+		int result = nextConstant;
+		constantIndex.put(key, result);
+		nextConstant += size;
+		return result;
+	}
+
+	/**
+	 * Builder for the byte code of a single method.
+	 */
+	final class Code {
+
+		private final int methodAccess;
+		private final int name;
+		private final int descriptor;
+
+		private byte[] code = new byte[64];
+		private int length;
+
+		private int maxStack;
+		private int maxLocals;
+
+		Code(int methodAccess, int name, int descriptor) {
+			this.methodAccess = methodAccess;
+			this.name = name;
+			this.descriptor = descriptor;
+		}
+
+		/**
+		 * Sets the maximum operand stack size and local variable count.
+		 */
+		public Code maxs(int stack, int locals) {
+			this.maxStack = stack;
+			this.maxLocals = locals;
+			return this;
+		}
+
+		/**
+		 * Appends an instruction without operands.
+		 */
+		public Code op(int opcode) {
+			u1(opcode);
+			return this;
+		}
+
+		/**
+		 * Appends an instruction accessing a local variable.
+		 */
+		public Code local(int opcode, int index) {
+			u1(opcode);
+			u1(index);
+			return this;
+		}
+
+		/**
+		 * Appends an instruction pushing the given integer constant.
+		 */
+		public Code pushInt(int value) {
+			if (value >= -1 && value <= 5) {
+				u1(ICONST_0 + value);
+			} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+				u1(BIPUSH);
+				u1(value);
+			} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+				u1(SIPUSH);
+				u2(value);
+			} else {
+				u1(LDC_W);
+				u2(intConstant(value));
+			}
+			return this;
+		}
+
+		/**
+		 * Appends an instruction referencing a class.
+		 */
+		public Code type(int opcode, String internalName) {
+			u1(opcode);
+			u2(classConstant(internalName));
+			return this;
+		}
+
+		/**
+		 * Appends a field access instruction.
+		 */
+		public Code field(int opcode, String owner, String fieldName, String fieldDescriptor) {
+			u1(opcode);
+			u2(fieldConstant(owner, fieldName, fieldDescriptor));
+			return this;
+		}
+
+		/**
+		 * Appends a method invocation instruction.
+		 */
+		public Code invoke(int opcode, String owner, String methodName, String methodDescriptor) {
+			u1(opcode);
+			u2(methodConstant(owner, methodName, methodDescriptor));
+			return this;
+		}
+
+		/**
+		 * Appends a <code>tableswitch</code> instruction for the keys
+		 * <code>0</code> to <code>size - 1</code>.
+		 *
+		 * @return The {@link Switch} to bind the jump targets with.
+		 */
+		public Switch tableSwitch(int size) {
+			int start = length;
+			u1(TABLESWITCH);
+			while (length % 4 != 0) {
+				u1(0);
+			}
+			int defaultOffset = length;
+			u4(0);
+			u4(0);
+			u4(size - 1);
+			int caseOffset = length;
+			for (int n = 0; n < size; n++) {
+				u4(0);
+			}
+			return new Switch(start, defaultOffset, caseOffset, size);
+		}
+
+		void writeTo(DataOutputStream out) throws IOException {
+			out.writeShort(methodAccess);
+			out.writeShort(name);
+			out.writeShort(descriptor);
+			out.writeShort(1);
+			out.writeShort(codeAttribute);
+			out.writeInt(12 + length);
+			out.writeShort(maxStack);
+			out.writeShort(maxLocals);
+			out.writeInt(length);
+			out.write(code, 0, length);
+			out.writeShort(0);
+			out.writeShort(0);
+		}
+
+		private void u1(int value) {
+			if (length == code.length) {
+				byte[] newCode = new byte[code.length * 2];
+				System.arraycopy(code, 0, newCode, 0, length);
+				code = newCode;
+			}
+			code[length++] = (byte) value;
+		}
+
+		private void u2(int value) {
+			u1(value >>> 8);
+			u1(value);
+		}
+
+		private void u4(int value) {
+			u2(value >>> 16);
+			u2(value);
+		}
+
+		private void patch(int offset, int value) {
+			code[offset] = (byte) (value >>> 24);
+			code[offset + 1] = (byte) (value >>> 16);
+			code[offset + 2] = (byte) (value >>> 8);
+			code[offset + 3] = (byte) value;
+		}
+
+		/**
+		 * Jump targets of a <code>tableswitch</code> instruction.
+		 */
+		final class Switch {
+			private final int start;
+			private final int defaultOffset;
+			private final int caseOffset;
+			private final int size;
+
+			Switch(int start, int defaultOffset, int caseOffset, int size) {
+				this.start = start;
+				this.defaultOffset = defaultOffset;
+				this.caseOffset = caseOffset;
+				this.size = size;
+			}
+
+			/**
+			 * Binds the given case to the current code position.
+			 */
+			public void bindCase(int key) {
+				patch(caseOffset + 4 * key, length - start);
+			}
+
+			/**
+			 * Binds the default case and all cases not yet bound to the current
+			 * code position.
+			 */
+			public void bindDefault() {
+				int target = length - start;
+				patch(defaultOffset, target);
+				for (int key = 0; key < size; key++) {
+					int offset = caseOffset + 4 * key;
+					if (code[offset] == 0 && code[offset + 1] == 0 && code[offset + 2] == 0 && code[offset + 3] == 0) {
+						// Note: Offset zero would jump to the switch itself.
+						patch(offset, target);
+					}
+				}
+			}
+		}
+
+	}
+
+}
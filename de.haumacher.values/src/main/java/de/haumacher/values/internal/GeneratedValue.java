@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.internal;
+
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueDescriptor;
+
+/**
+ * Base class for implementation classes generated for a concrete {@link Value}
+ * interface.
+ *
+ * <p>
+ * A generated implementation stores each property in a field of its own and
+ * implements getters and setters by direct field access. The generic
+ * {@link Value} methods and the {@link Object} methods are implemented here
+ * with the same semantics as for dynamic proxy instances.
+ * </p>
+ *
+ * <p>
+ * Implementation classes are either generated at runtime, or at compile time
+ * by the annotation processor from the <code>de.haumacher.values.processor</code>
+ * module. A class generated at compile time is named after the value
+ * interface, see {@link #compiledImplementationName(String)}, and provides its
+ * property table in a static field named {@link #PROPERTY_TABLE}.
+ * </p>
+ *
+ * @see ImplementationGenerator
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version Since 0.3.0
+ */
+public abstract class GeneratedValue extends ValueState implements Value, Cloneable {
+
+	/**
+	 * Name of the public static field of type <code>String[][]</code> in an
+	 * implementation class generated at compile time that describes the
+	 * properties of the value interface.
+	 * 
+	 * <p>
+	 * Each entry describes the property with the entry's index as storage
+	 * index. An entry consists of the property name derived from its method
+	 * names, the binary name of the interface declaring the property's
+	 * getter, and the name of the getter method.
+	 * </p>
+	 */
+	public static final String PROPERTY_TABLE = "PROPERTIES";
+
+	/**
+	 * Suffix appended to the name of a value interface to build the name of
+	 * its implementation class generated at compile time.
+	 */
+	public static final String COMPILED_SUFFIX = "_Impl";
+
+	/**
+	 * The name of the implementation class generated at compile time for the
+	 * value interface with the given binary name.
+	 * 
+	 * <p>
+	 * The implementation class resides in the same package as the value
+	 * interface. For nested interfaces, the names of all enclosing types are
+	 * joined with an underscore.
+	 * </p>
+	 */
+	public static String compiledImplementationName(String interfaceName) {
+		return interfaceName.replace('$', '_') + COMPILED_SUFFIX;
+	}
+
+	/**
+	 * Creates a {@link GeneratedValue} and initializes all its properties.
+	 *
+	 * @param descriptor
+	 *        The descriptor of the value type.
+	 */
+	protected GeneratedValue(ValueDescriptorImpl<?> descriptor) {
+		super(descriptor);
+
+		for (PropertyImpl property : descriptor.internalGetProperties()) {
+			if (property.isLazy()) {
+				// Created on first access.
+				continue;
+			}
+			set(property.getIndex(), property.getInitializer().init());
+		}
+		initRunningHash();
+	}
+
+	/**
+	 * Creates a new instance of the same type as this one.
+	 * 
+	 * <p>
+	 * The new instance is a field-by-field copy of this instance, in which only
+	 * properties without constant initial value are initialized again. This
+	 * instance must therefore not have been modified since its construction.
+	 * </p>
+	 * 
+	 * @see ValueDescriptorImpl#getMutableProperties()
+	 */
+	final GeneratedValue copy() {
+		GeneratedValue result;
+		try {
+			result = (GeneratedValue) clone();
+		} catch (CloneNotSupportedException ex) {
+			throw (AssertionError) new AssertionError("Generated values are cloneable.").initCause(ex);
+		}
+		for (PropertyImpl property : descriptor.getMutableProperties()) {
+			result.set(property.getIndex(), property.getInitializer().init());
+		}
+		result.initRunningHash();
+		return result;
+	}
+
+	/**
+	 * Replaces a <code>null</code> value with the initial value of the
+	 * property with the given storage index.
+	 */
+	protected final Object nonNull(int index, Object value) {
+		if (value == null) {
+			return descriptor.getProperty(index).getInitializer().init();
+		}
+		return value;
+	}
+
+	/**
+	 * Creates the initial value of a lazy property with the given storage
+	 * index, if the given current value of the property is <code>null</code>.
+	 * 
+	 * @see PropertyImpl#isLazy()
+	 */
+	protected final Object materialized(int index, Object value) {
+		if (value == null) {
+			PropertyImpl property = descriptor.getProperty(index);
+			if (property.isLazy()) {
+				value = materialize(property);
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Creates the exception reporting an invalid storage index.
+	 */
+	protected final RuntimeException noSuchProperty(int index) {
+		return new IndexOutOfBoundsException("No property with index " + index + " in '" + descriptor.getValueInterface().getName() + "'.");
+	}
+
+	@Override
+	public final ValueDescriptor<?> descriptor() {
+		return descriptor;
+	}
+
+	@Override
+	public final Object value(Property property) {
+		return ValueDescriptorImpl.VALUE_IMPL.handlePropertyAccess(this, this, property);
+	}
+
+	@Override
+	public final void putValue(Property property, Object value) {
+		ValueDescriptorImpl.PUT_VALUE_IMPL.handlePropertyAccess(this, this, property, value);
+	}
+
+	@Override
+	public final void freeze() {
+		ValueDescriptorImpl.FREEZE_IMPL.handlePropertyAccess(this, this);
+	}
+
+	@Override
+	public final boolean isFrozen() {
+		return frozen;
+	}
+
+	/**
+	 * Updates the primitive property with the given storage index.
+	 * 
+	 * @see #setBits(int, long)
+	 */
+	private void putBits(int index, long bits) {
+		beforeUpdate(index);
+		setBits(index, bits);
+		afterUpdate(index);
+	}
+
+	@Override
+	public final boolean getBoolean(Property property) {
+		return getBits(primitiveIndex(property, boolean.class)) != 0;
+	}
+
+	@Override
+	public final void putBoolean(Property property, boolean value) {
+		putBits(primitiveIndex(property, boolean.class), value ? 1 : 0);
+	}
+
+	@Override
+	public final byte getByte(Property property) {
+		return (byte) getBits(primitiveIndex(property, byte.class));
+	}
+
+	@Override
+	public final void putByte(Property property, byte value) {
+		putBits(primitiveIndex(property, byte.class), value);
+	}
+
+	@Override
+	public final char getChar(Property property) {
+		return (char) getBits(primitiveIndex(property, char.class));
+	}
+
+	@Override
+	public final void putChar(Property property, char value) {
+		putBits(primitiveIndex(property, char.class), value);
+	}
+
+	@Override
+	public final short getShort(Property property) {
+		return (short) getBits(primitiveIndex(property, short.class));
+	}
+
+	@Override
+	public final void putShort(Property property, short value) {
+		putBits(primitiveIndex(property, short.class), value);
+	}
+
+	@Override
+	public final int getInt(Property property) {
+		return (int) getBits(primitiveIndex(property, int.class));
+	}
+
+	@Override
+	public final void putInt(Property property, int value) {
+		putBits(primitiveIndex(property, int.class), value);
+	}
+
+	@Override
+	public final long getLong(Property property) {
+		return getBits(primitiveIndex(property, long.class));
+	}
+
+	@Override
+	public final void putLong(Property property, long value) {
+		putBits(primitiveIndex(property, long.class), value);
+	}
+
+	@Override
+	public final float getFloat(Property property) {
+		return Float.intBitsToFloat((int) getBits(primitiveIndex(property, float.class)));
+	}
+
+	@Override
+	public final void putFloat(Property property, float value) {
+		putBits(primitiveIndex(property, float.class), Float.floatToRawIntBits(value));
+	}
+
+	@Override
+	public final double getDouble(Property property) {
+		return Double.longBitsToDouble(getBits(primitiveIndex(property, double.class)));
+	}
+
+	@Override
+	public final void putDouble(Property property, double value) {
+		putBits(primitiveIndex(property, double.class), Double.doubleToRawLongBits(value));
+	}
+
+	@Override
+	public final boolean equals(Object other) {
+		return ((Boolean) ValueDescriptorImpl.EQUALS_IMPL.handlePropertyAccess(this, this, other)).booleanValue();
+	}
+
+	@Override
+	public final int hashCode() {
+		return ((Integer) ValueDescriptorImpl.HASH_CODE_IMPL.handlePropertyAccess(this, this)).intValue();
+	}
+
+	@Override
+	public final String toString() {
+		return (String) ValueDescriptorImpl.TO_STRING_IMPL.handlePropertyAccess(this, this);
+	}
+
+}
@@ -19,9 +19,6 @@
  */
 package de.haumacher.values.internal;
 
-
-import de.haumacher.values.internal.ValueDescriptorImpl.ValueImpl;
-
 /**
  * {@link MethodHandler} for implementing a property getter.
  * 
@@ -34,8 +31,8 @@ class GetHandler extends PropertyHandler {
 	}
 
 	@Override
-	public Object handlePropertyAccess(Object self, ValueImpl impl, Object... args) {
-		return impl.values[index];
+	public Object handlePropertyAccess(Object self, ValueState impl, Object... args) {
+		return impl.get(index);
 	}
 
 }
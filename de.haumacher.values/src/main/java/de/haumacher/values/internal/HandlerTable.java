@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.internal;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Identity-keyed lookup of the {@link MethodHandler} for a {@link Method}
+ * invoked on a dynamic proxy.
+ * 
+ * <p>
+ * The {@link Method} objects passed to a proxy's invocation handler are
+ * created once per proxy class, but are not identical to the {@link Method}
+ * objects found during analysis of the value interface. Therefore, the table
+ * is filled lazily: A method not yet known by identity is resolved once
+ * through {@link Method#equals(Object)} and then entered into an open
+ * addressing table keyed by object identity. Each subsequent call is
+ * dispatched without computing hash codes of or comparing {@link Method}s.
+ * </p>
+ * 
+ * <p>
+ * Lookups do not lock. The table is replaced by an extended copy whenever a
+ * new method is entered.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+final class HandlerTable {
+
+	private final Map<Method, MethodHandler> handlerByMethod;
+
+	/**
+	 * Alternating {@link Method} keys and {@link MethodHandler} values.
+	 */
+	private volatile Object[] table;
+
+	private int size;
+
+	/**
+	 * Creates a {@link HandlerTable}.
+	 * 
+	 * @param handlerByMethod
+	 *        The handlers of all methods of the value interface. The map must
+	 *        not be modified afterwards.
+	 */
+	HandlerTable(Map<Method, MethodHandler> handlerByMethod) {
+		this.handlerByMethod = handlerByMethod;
+
+		Object[] initialTable = new Object[2 * capacity(2 * handlerByMethod.size())];
+		for (Entry<Method, MethodHandler> entry : handlerByMethod.entrySet()) {
+			insert(initialTable, entry.getKey(), entry.getValue());
+		}
+		this.size = handlerByMethod.size();
+		this.table = initialTable;
+	}
+
+	/**
+	 * The {@link MethodHandler} of the given method, or <code>null</code>, if
+	 * the method is not part of the value interface.
+	 */
+	MethodHandler get(Method method) {
+		Object[] currentTable = table;
+		int mask = currentTable.length - 1;
+		int index = hash(method) & mask;
+		while (true) {
+			Object key = currentTable[index];
+			if (key == method) {
+				return (MethodHandler) currentTable[index + 1];
+			}
+			if (key == null) {
+				return enter(method);
+			}
+			index = (index + 2) & mask;
+		}
+	}
+
+	private synchronized MethodHandler enter(Method method) {
+		MethodHandler handler = handlerByMethod.get(method);
+		if (handler == null) {
+			return null;
+		}
+
+		Object[] currentTable = table;
+		int capacity = currentTable.length / 2;
+		Object[] newTable;
+		if (2 * (size + 1) > capacity) {
+			newTable = new Object[2 * capacity(2 * (size + 1))];
+			for (int index = 0, cnt = currentTable.length; index < cnt; index += 2) {
+				Object key = currentTable[index];
+				if (key != null) {
+					insert(newTable, (Method) key, (MethodHandler) currentTable[index + 1]);
+				}
+			}
+		} else {
+			newTable = currentTable.clone();
+		}
+
+		if (insert(newTable, method, handler)) {
+			size++;
+		}
+		table = newTable;
+		return handler;
+	}
+
+	private static boolean insert(Object[] table, Method method, MethodHandler handler) {
+		int mask = table.length - 1;
+		int index = hash(method) & mask;
+		while (true) {
+			Object key = table[index];
+			if (key == method) {
+				return false;
+			}
+			if (key == null) {
+				table[index] = method;
+				table[index + 1] = handler;
+				return true;
+			}
+			index = (index + 2) & mask;
+		}
+	}
+
+	/**
+	 * The index of the key slot for the given method in a table with an
+	 * (always even) index mask.
+	 */
+	private static int hash(Method method) {
+		int hash = System.identityHashCode(method);
+		return (hash ^ (hash >>> 16)) << 1;
+	}
+
+	/**
+	 * The smallest power of two that is not smaller than the given number of
+	 * entries (at least 8).
+	 */
+	private static int capacity(int entries) {
+		int result = 8;
+		while (result < entries) {
+			result <<= 1;
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,548 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.internal;
+
+import static de.haumacher.values.internal.ClassFileWriter.*;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import de.haumacher.values.Value;
+import de.haumacher.values.annotate.Compiled;
+
+/**
+ * Generator for {@link GeneratedValue} implementation classes of {@link Value}
+ * interfaces.
+ *
+ * @see Compiled
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+final class ImplementationGenerator {
+
+	/**
+	 * System property selecting the implementation engine for all
+	 * {@link Value} interfaces.
+	 */
+	static final String ENGINE_PROPERTY = "de.haumacher.values.engine";
+
+	/**
+	 * Value of {@link #ENGINE_PROPERTY} requesting generated implementations.
+	 */
+	static final String ENGINE_GENERATED = "generated";
+
+	private static final boolean GENERATE_ALL = ENGINE_GENERATED.equals(System.getProperty(ENGINE_PROPERTY));
+
+	private static final String GENERATED_VALUE = internalName(GeneratedValue.class);
+
+	private static final String DESCRIPTOR_TYPE = typeDescriptor(ValueDescriptorImpl.class);
+
+	private static final Map<Class<?>, Class<?>> WRAPPERS = new HashMap<Class<?>, Class<?>>();
+	static {
+		WRAPPERS.put(boolean.class, Boolean.class);
+		WRAPPERS.put(byte.class, Byte.class);
+		WRAPPERS.put(char.class, Character.class);
+		WRAPPERS.put(short.class, Short.class);
+		WRAPPERS.put(int.class, Integer.class);
+		WRAPPERS.put(long.class, Long.class);
+		WRAPPERS.put(float.class, Float.class);
+		WRAPPERS.put(double.class, Double.class);
+	}
+
+	private final ValueDescriptorImpl<?> descriptor;
+	private final String className;
+
+	private final Map<String, PropertyImpl> propertyByMethodName = new HashMap<String, PropertyImpl>();
+	private final Map<String, Method> methodBySignature = new HashMap<String, Method>();
+	private final Map<PropertyImpl, Class<?>> fieldTypes = new HashMap<PropertyImpl, Class<?>>();
+
+	private ImplementationGenerator(ValueDescriptorImpl<?> descriptor, Map<Method, PropertyImpl> propertyByMethod) {
+		this.descriptor = descriptor;
+		this.className = internalName(descriptor.getValueInterface()) + "$$Impl";
+		for (Entry<Method, PropertyImpl> entry : propertyByMethod.entrySet()) {
+			propertyByMethodName.put(entry.getKey().getName(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Whether a generated implementation is requested for the given
+	 * {@link Value} interface.
+	 */
+	static boolean isRequested(Class<?> valueInterface) {
+		return GENERATE_ALL || valueInterface.getAnnotation(Compiled.class) != null;
+	}
+
+	/**
+	 * Generates an implementation class for the given descriptor.
+	 *
+	 * @param descriptor
+	 *        The analyzed {@link Value} type.
+	 * @param propertyByMethod
+	 *        The {@link PropertyImpl} accessed by each method of the value
+	 *        interface.
+	 * @return The generated class, or <code>null</code>, if the interface
+	 *         cannot be implemented by a generated class.
+	 */
+	static Class<? extends GeneratedValue> generate(ValueDescriptorImpl<?> descriptor, Map<Method, PropertyImpl> propertyByMethod) {
+		ImplementationGenerator generator = new ImplementationGenerator(descriptor, propertyByMethod);
+		if (!generator.analyze()) {
+			return null;
+		}
+		return generator.define(generator.createClassFile());
+	}
+
+	private boolean analyze() {
+		Class<?> valueInterface = descriptor.getValueInterface();
+		if (!isAccessible(valueInterface)) {
+			return false;
+		}
+
+		// Note: Class.getMethods() hides methods overridden with a covariant
+		// return type in a sub-interface. Nevertheless, the generated class must
+		// implement all of them.
+		collectMethods(valueInterface);
+
+		Map<PropertyImpl, List<Class<?>>> accessTypes = new HashMap<PropertyImpl, List<Class<?>>>();
+		for (Method method : methodBySignature.values()) {
+			PropertyImpl property = propertyByMethodName.get(method.getName());
+			if (property == null || property.getGetter() == null) {
+				// Property without getter.
+				return false;
+			}
+
+			Class<?> accessType = isSetter(method) ? method.getParameterTypes()[0] : method.getReturnType();
+			if (!isAccessible(accessType)) {
+				return false;
+			}
+
+			List<Class<?>> types = accessTypes.get(property);
+			if (types == null) {
+				types = new ArrayList<Class<?>>();
+				accessTypes.put(property, types);
+			}
+			types.add(accessType);
+		}
+
+		for (Entry<PropertyImpl, List<Class<?>>> entry : accessTypes.entrySet()) {
+			PropertyImpl property = entry.getKey();
+			Class<?> fieldType = mostGeneralType(entry.getValue());
+			if (fieldType == null) {
+				return false;
+			}
+			if (fieldType.isPrimitive() && !(property.getSetHandler() instanceof NonNullSetHandler)) {
+				// A custom parser may provide null as initial value.
+				return false;
+			}
+			fieldTypes.put(property, fieldType);
+		}
+		return fieldTypes.size() == descriptor.getSize();
+	}
+
+	private void collectMethods(Class<?> type) {
+		for (Method method : type.getDeclaredMethods()) {
+			if (Modifier.isStatic(method.getModifiers()) || Modifier.isPrivate(method.getModifiers())) {
+				continue;
+			}
+			String signature = method.getName() + methodDescriptor(method);
+			if (!methodBySignature.containsKey(signature)) {
+				methodBySignature.put(signature, method);
+			}
+		}
+		for (Class<?> superInterface : type.getInterfaces()) {
+			if (superInterface == Value.class) {
+				// Implemented by the generic base class.
+				continue;
+			}
+			collectMethods(superInterface);
+		}
+	}
+
+	private static Class<?> mostGeneralType(List<Class<?>> types) {
+		Class<?> result = types.get(0);
+		for (Class<?> type : types) {
+			if (type.isPrimitive() || result.isPrimitive()) {
+				if (type != result) {
+					return null;
+				}
+			} else if (type.isAssignableFrom(result)) {
+				result = type;
+			} else if (!result.isAssignableFrom(type)) {
+				return null;
+			}
+		}
+		return result;
+	}
+
+	private byte[] createClassFile() {
+		ClassFileWriter out = new ClassFileWriter(ACC_PUBLIC | ACC_FINAL | ACC_SUPER, className, GENERATED_VALUE,
+			internalName(descriptor.getValueInterface()));
+
+		for (PropertyImpl property : descriptor.internalGetProperties()) {
+			out.addField(ACC_PRIVATE, fieldName(property), typeDescriptor(fieldType(property)));
+		}
+
+		out.addMethod(ACC_PUBLIC, "<init>", "(" + DESCRIPTOR_TYPE + ")V")
+			.local(ALOAD, 0)
+			.local(ALOAD, 1)
+			.invoke(INVOKESPECIAL, GENERATED_VALUE, "<init>", "(" + DESCRIPTOR_TYPE + ")V")
+			.op(RETURN)
+			.maxs(2, 2);
+
+		for (Method method : methodBySignature.values()) {
+			PropertyImpl property = propertyByMethodName.get(method.getName());
+			if (isSetter(method)) {
+				addSetter(out, method, property);
+			} else {
+				addGetter(out, method, property);
+			}
+		}
+
+		addGet(out);
+		addSet(out);
+		addGetBits(out);
+		addSetBits(out);
+
+		return out.toByteArray();
+	}
+
+	private void addGetter(ClassFileWriter out, Method method, PropertyImpl property) {
+		Class<?> fieldType = fieldType(property);
+		Class<?> returnType = method.getReturnType();
+		ClassFileWriter.Code code = out.addMethod(ACC_PUBLIC, method.getName(), methodDescriptor(method));
+		if (property.isLazy()) {
+			code.local(ALOAD, 0);
+			code.pushInt(property.getIndex());
+			code.local(ALOAD, 0);
+			code.field(GETFIELD, className, fieldName(property), typeDescriptor(fieldType));
+			code.invoke(INVOKEVIRTUAL, GENERATED_VALUE, "materialized", "(ILjava/lang/Object;)Ljava/lang/Object;");
+			if (returnType != Object.class) {
+				code.type(CHECKCAST, internalName(returnType));
+			}
+			code.op(ARETURN);
+			code.maxs(3, 1);
+			return;
+		}
+		code.local(ALOAD, 0);
+		code.field(GETFIELD, className, fieldName(property), typeDescriptor(fieldType));
+		if (returnType != fieldType) {
+			code.type(CHECKCAST, internalName(returnType));
+		}
+		code.op(returnOp(returnType));
+		code.maxs(size(fieldType), 1);
+	}
+
+	private void addSetter(ClassFileWriter out, Method method, PropertyImpl property) {
+		Class<?> fieldType = fieldType(property);
+		Class<?> parameterType = method.getParameterTypes()[0];
+		ClassFileWriter.Code code = out.addMethod(ACC_PUBLIC, method.getName(), methodDescriptor(method));
+		addUpdateNotification(code, "beforeUpdate", property);
+		code.local(ALOAD, 0);
+		if (!fieldType.isPrimitive() && property.getSetHandler() instanceof NonNullSetHandler) {
+			code.local(ALOAD, 0);
+			code.pushInt(property.getIndex());
+			code.local(ALOAD, 1);
+			code.invoke(INVOKEVIRTUAL, GENERATED_VALUE, "nonNull", "(ILjava/lang/Object;)Ljava/lang/Object;");
+			code.type(CHECKCAST, internalName(fieldType));
+			code.field(PUTFIELD, className, fieldName(property), typeDescriptor(fieldType));
+			addUpdateNotification(code, "afterUpdate", property);
+			code.op(RETURN);
+			code.maxs(4, 2);
+		} else {
+			code.local(loadOp(parameterType), 1);
+			code.field(PUTFIELD, className, fieldName(property), typeDescriptor(fieldType));
+			addUpdateNotification(code, "afterUpdate", property);
+			code.op(RETURN);
+			code.maxs(1 + size(parameterType), 1 + size(parameterType));
+		}
+	}
+
+	private void addUpdateNotification(ClassFileWriter.Code code, String methodName, PropertyImpl property) {
+		code.local(ALOAD, 0);
+		code.pushInt(property.getIndex());
+		code.invoke(INVOKEVIRTUAL, GENERATED_VALUE, methodName, "(I)V");
+	}
+
+	private void addGet(ClassFileWriter out) {
+		ClassFileWriter.Code code = out.addMethod(ACC_PROTECTED, "get", "(I)Ljava/lang/Object;");
+		int size = descriptor.getSize();
+		if (size > 0) {
+			code.local(ILOAD, 1);
+			ClassFileWriter.Code.Switch cases = code.tableSwitch(size);
+			for (PropertyImpl property : descriptor.internalGetProperties()) {
+				Class<?> fieldType = fieldType(property);
+				cases.bindCase(property.getIndex());
+				code.local(ALOAD, 0);
+				code.field(GETFIELD, className, fieldName(property), typeDescriptor(fieldType));
+				if (fieldType.isPrimitive()) {
+					Class<?> wrapper = WRAPPERS.get(fieldType);
+					code.invoke(INVOKESTATIC, internalName(wrapper), "valueOf",
+						"(" + typeDescriptor(fieldType) + ")" + typeDescriptor(wrapper));
+				}
+				code.op(ARETURN);
+			}
+			cases.bindDefault();
+		}
+		addNoSuchProperty(code);
+		code.maxs(2, 2);
+	}
+
+	private void addSet(ClassFileWriter out) {
+		ClassFileWriter.Code code = out.addMethod(ACC_PROTECTED, "set", "(ILjava/lang/Object;)V");
+		int size = descriptor.getSize();
+		if (size > 0) {
+			code.local(ILOAD, 1);
+			ClassFileWriter.Code.Switch cases = code.tableSwitch(size);
+			for (PropertyImpl property : descriptor.internalGetProperties()) {
+				Class<?> fieldType = fieldType(property);
+				cases.bindCase(property.getIndex());
+				code.local(ALOAD, 0);
+				code.local(ALOAD, 2);
+				if (fieldType.isPrimitive()) {
+					Class<?> wrapper = WRAPPERS.get(fieldType);
+					code.type(CHECKCAST, internalName(wrapper));
+					code.invoke(INVOKEVIRTUAL, internalName(wrapper), fieldType.getName() + "Value",
+						"()" + typeDescriptor(fieldType));
+				} else if (fieldType != Object.class) {
+					code.type(CHECKCAST, internalName(fieldType));
+				}
+				code.field(PUTFIELD, className, fieldName(property), typeDescriptor(fieldType));
+				code.op(RETURN);
+			}
+			cases.bindDefault();
+		}
+		addNoSuchProperty(code);
+		code.maxs(3, 3);
+	}
+
+	private void addGetBits(ClassFileWriter out) {
+		ClassFileWriter.Code code = out.addMethod(ACC_PROTECTED, "getBits", "(I)J");
+		int size = descriptor.getSize();
+		if (size > 0) {
+			code.local(ILOAD, 1);
+			ClassFileWriter.Code.Switch cases = code.tableSwitch(size);
+			for (PropertyImpl property : descriptor.internalGetProperties()) {
+				Class<?> fieldType = fieldType(property);
+				if (!fieldType.isPrimitive()) {
+					continue;
+				}
+				cases.bindCase(property.getIndex());
+				code.local(ALOAD, 0);
+				code.field(GETFIELD, className, fieldName(property), typeDescriptor(fieldType));
+				if (fieldType == float.class) {
+					code.invoke(INVOKESTATIC, "java/lang/Float", "floatToRawIntBits", "(F)I");
+					code.op(I2L);
+				} else if (fieldType == double.class) {
+					code.invoke(INVOKESTATIC, "java/lang/Double", "doubleToRawLongBits", "(D)J");
+				} else if (fieldType != long.class) {
+					code.op(I2L);
+				}
+				code.op(LRETURN);
+			}
+			cases.bindDefault();
+		}
+		addNoSuchProperty(code);
+		code.maxs(2, 2);
+	}
+
+	private void addSetBits(ClassFileWriter out) {
+		ClassFileWriter.Code code = out.addMethod(ACC_PROTECTED, "setBits", "(IJ)V");
+		int size = descriptor.getSize();
+		if (size > 0) {
+			code.local(ILOAD, 1);
+			ClassFileWriter.Code.Switch cases = code.tableSwitch(size);
+			for (PropertyImpl property : descriptor.internalGetProperties()) {
+				Class<?> fieldType = fieldType(property);
+				if (!fieldType.isPrimitive()) {
+					continue;
+				}
+				cases.bindCase(property.getIndex());
+				code.local(ALOAD, 0);
+				code.local(LLOAD, 2);
+				if (fieldType == double.class) {
+					code.invoke(INVOKESTATIC, "java/lang/Double", "longBitsToDouble", "(J)D");
+				} else if (fieldType != long.class) {
+					code.op(L2I);
+					if (fieldType == byte.class) {
+						code.op(I2B);
+					} else if (fieldType == char.class) {
+						code.op(I2C);
+					} else if (fieldType == short.class) {
+						code.op(I2S);
+					} else if (fieldType == float.class) {
+						code.invoke(INVOKESTATIC, "java/lang/Float", "intBitsToFloat", "(I)F");
+					}
+				}
+				code.field(PUTFIELD, className, fieldName(property), typeDescriptor(fieldType));
+				code.op(RETURN);
+			}
+			cases.bindDefault();
+		}
+		addNoSuchProperty(code);
+		code.maxs(3, 4);
+	}
+
+	private void addNoSuchProperty(ClassFileWriter.Code code) {
+		code.local(ALOAD, 0);
+		code.local(ILOAD, 1);
+		code.invoke(INVOKEVIRTUAL, GENERATED_VALUE, "noSuchProperty", "(I)Ljava/lang/RuntimeException;");
+		code.op(ATHROW);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Class<? extends GeneratedValue> define(byte[] classFile) {
+		GeneratedClassLoader loader = new GeneratedClassLoader(descriptor.getValueInterface().getClassLoader());
+		return (Class<? extends GeneratedValue>) loader.define(className.replace('/', '.'), classFile);
+	}
+
+	private static boolean isSetter(Method method) {
+		return method.getName().startsWith("set");
+	}
+
+	private Class<?> fieldType(PropertyImpl property) {
+		return fieldTypes.get(property);
+	}
+
+	private static String fieldName(PropertyImpl property) {
+		return "f" + property.getIndex();
+	}
+
+	private static boolean isAccessible(Class<?> type) {
+		while (type.isArray()) {
+			type = type.getComponentType();
+		}
+		if (type.isPrimitive()) {
+			return true;
+		}
+		for (Class<?> current = type; current != null; current = current.getEnclosingClass()) {
+			if (!Modifier.isPublic(current.getModifiers())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String internalName(Class<?> type) {
+		if (type.isArray()) {
+			return typeDescriptor(type);
+		}
+		return type.getName().replace('.', '/');
+	}
+
+	private static String methodDescriptor(Method method) {
+		StringBuilder result = new StringBuilder();
+		result.append('(');
+		for (Class<?> parameterType : method.getParameterTypes()) {
+			result.append(typeDescriptor(parameterType));
+		}
+		result.append(')');
+		result.append(typeDescriptor(method.getReturnType()));
+		return result.toString();
+	}
+
+	private static String typeDescriptor(Class<?> type) {
+		if (type == boolean.class) {
+			return "Z";
+		} else if (type == byte.class) {
+			return "B";
+		} else if (type == char.class) {
+			return "C";
+		} else if (type == short.class) {
+			return "S";
+		} else if (type == int.class) {
+			return "I";
+		} else if (type == long.class) {
+			return "J";
+		} else if (type == float.class) {
+			return "F";
+		} else if (type == double.class) {
+			return "D";
+		} else if (type == void.class) {
+			return "V";
+		} else if (type.isArray()) {
+			return type.getName().replace('.', '/');
+		} else {
+			return "L" + internalName(type) + ";";
+		}
+	}
+
+	private static int size(Class<?> type) {
+		return (type == long.class || type == double.class) ? 2 : 1;
+	}
+
+	private static int loadOp(Class<?> type) {
+		if (type == long.class) {
+			return LLOAD;
+		} else if (type == float.class) {
+			return FLOAD;
+		} else if (type == double.class) {
+			return DLOAD;
+		} else if (type.isPrimitive()) {
+			return ILOAD;
+		} else {
+			return ALOAD;
+		}
+	}
+
+	private static int returnOp(Class<?> type) {
+		if (type == long.class) {
+			return LRETURN;
+		} else if (type == float.class) {
+			return FRETURN;
+		} else if (type == double.class) {
+			return DRETURN;
+		} else if (type.isPrimitive()) {
+			return IRETURN;
+		} else {
+			return ARETURN;
+		}
+	}
+
+	/**
+	 * {@link ClassLoader} for a single generated class.
+	 *
+	 * <p>
+	 * Resolves the value interface through the interface's own class loader
+	 * and the implementation base classes through the class loader of this
+	 * library.
+	 * </p>
+	 */
+	static final class GeneratedClassLoader extends ClassLoader {
+
+		GeneratedClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		Class<?> define(String name, byte[] classFile) {
+			return defineClass(name, classFile, 0, classFile.length);
+		}
+
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException {
+			return GeneratedValue.class.getClassLoader().loadClass(name);
+		}
+
+	}
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.internal;
+
+import de.haumacher.values.annotate.Lazy;
+
+/**
+ * {@link GetHandler} that creates the initial value of a {@link Lazy}
+ * property on first access.
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+class LazyGetHandler extends GetHandler {
+
+	public LazyGetHandler(int index) {
+		super(index);
+	}
+
+	@Override
+	public Object handlePropertyAccess(Object self, ValueState impl, Object... args) {
+		Object value = impl.get(index);
+		if (value == null) {
+			value = impl.materialize(impl.descriptor.getProperty(index));
+		}
+		return value;
+	}
+
+}
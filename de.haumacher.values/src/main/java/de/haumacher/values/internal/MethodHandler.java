@@ -22,7 +22,6 @@ package de.haumacher.values.internal;
 import java.lang.reflect.InvocationHandler;
 
 import de.haumacher.values.Value;
-import de.haumacher.values.internal.ValueDescriptorImpl.ValueImpl;
 
 /**
  * Implementation of a single method of a {@link Value} instance.
@@ -34,16 +33,17 @@ interface MethodHandler {
 	/**
 	 * Handles the invocation of a single method within an
 	 * {@link InvocationHandler} for a generic proxy implementation of a
-	 * {@link Value} type.
+	 * {@link Value} type, or on behalf of a {@link GeneratedValue}.
 	 * 
 	 * @param self
-	 *        The proxy implementing the concrete {@link Value} instance.
+	 *        The proxy or {@link GeneratedValue} implementing the concrete
+	 *        {@link Value} instance.
 	 * @param impl
 	 *        The internal object providing the state an method implementations.
 	 * @param args
 	 *        The method arguments
 	 * @return The result of the implemented method.
 	 */
-	Object handlePropertyAccess(Object self, ValueImpl impl, Object...args);
+	Object handlePropertyAccess(Object self, ValueState impl, Object...args);
 
 }
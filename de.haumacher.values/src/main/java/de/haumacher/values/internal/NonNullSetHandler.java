@@ -20,7 +20,6 @@
 package de.haumacher.values.internal;
 
 import de.haumacher.values.Initializer;
-import de.haumacher.values.internal.ValueDescriptorImpl.ValueImpl;
 
 /**
  * {@link SetHandler} that replaces a <code>null</code> value with the
@@ -39,7 +38,7 @@ class NonNullSetHandler extends SetHandler {
 	}
 
 	@Override
-	public Object handlePropertyAccess(Object self, ValueImpl impl, Object... args) {
+	public Object handlePropertyAccess(Object self, ValueState impl, Object... args) {
 		if (args[0] == null) {
 			args[0] = initializer.init();
 		}
@@ -20,7 +20,6 @@
 package de.haumacher.values.internal;
 
 import de.haumacher.values.Property;
-import de.haumacher.values.internal.ValueDescriptorImpl.ValueImpl;
 
 /**
  * {@link MethodHandler} for a certain {@link Property}.
@@ -32,7 +31,7 @@ abstract class PropertyHandler implements MethodHandler {
 	/**
 	 * The storage index of the property's value.
 	 * 
-	 * @see ValueImpl#values
+	 * @see ValueState#get(int)
 	 */
 	protected final int index;
 
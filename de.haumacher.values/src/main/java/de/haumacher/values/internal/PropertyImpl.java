@@ -20,30 +20,43 @@
 package de.haumacher.values.internal;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Array;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Date;
+import java.util.GregorianCalendar;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import de.haumacher.values.AppendingParser;
 import de.haumacher.values.Initializer;
 import de.haumacher.values.Kind;
 import de.haumacher.values.Parser;
 import de.haumacher.values.Property;
+import de.haumacher.values.RangeParser;
 import de.haumacher.values.ValueDescriptor;
 import de.haumacher.values.ValueFactory;
 import de.haumacher.values.annotate.DefaultValue;
+import de.haumacher.values.annotate.IncrementalHash;
 import de.haumacher.values.annotate.IndexProperty;
+import de.haumacher.values.annotate.Lazy;
 import de.haumacher.values.annotate.Name;
 import de.haumacher.values.annotate.Reference;
 import de.haumacher.values.annotate.ValueParser;
 import de.haumacher.values.format.ObjectParser;
+import de.haumacher.values.format.ParseUtil;
+import de.haumacher.values.format.UnparseUtil;
 
 /**
  * Internal implementation of a {@link Property}.
@@ -65,6 +78,24 @@ class PropertyImpl implements Property {
 		
 		protected abstract T parseNonEmpty(String text);
 
+		@Override
+		public final T parse(CharSequence text, int start, int end) {
+			if (start == end) {
+				return init();
+			} else {
+				return parseNonEmpty(text, start, end);
+			}
+		}
+
+		/**
+		 * Parses a non-empty range of characters.
+		 * 
+		 * @see #parseNonEmpty(String)
+		 */
+		protected T parseNonEmpty(CharSequence text, int start, int end) {
+			return parseNonEmpty(text.subSequence(start, end).toString());
+		}
+
 		@Override
 		public String unparse(T value) {
 			if (value == null) {
@@ -72,9 +103,28 @@ class PropertyImpl implements Property {
 			}
 			return value.toString();
 		}
+
+		@Override
+		public final void unparse(T value, Appendable out) throws IOException {
+			if (value == null) {
+				return;
+			}
+			unparseNonNull(value, out);
+		}
+
+		/**
+		 * Writes the string representation of a non-<code>null</code> value.
+		 * 
+		 * @see #unparse(Object)
+		 */
+		protected void unparseNonNull(T value, Appendable out) throws IOException {
+			out.append(value.toString());
+		}
 	}
 
-	static abstract class ArrayParser implements Parser<Object>, Initializer<Object> {
+	static abstract class ArrayParser implements RangeParser<Object>, AppendingParser<Object>, Initializer<Object> {
+
+		private static final int INITIAL_CAPACITY = 16;
 
 		@Override
 		public Initializer<Object> getDefaultInitializer() {
@@ -88,92 +138,200 @@ class PropertyImpl implements Property {
 		
 		@Override
 		public Object parse(String text) {
-			String trimmedText = text.trim();
-			if (trimmedText.isEmpty()) {
+			return parse(text, 0, text.length());
+		}
+
+		/**
+		 * Splits the given range at separator characters and parses each token
+		 * directly into the resulting array.
+		 * 
+		 * <p>
+		 * The text is scanned only once. The result is compatible with
+		 * {@link String#trim()} followed by {@link String#split(String)}: Trailing
+		 * empty tokens are dropped.
+		 * </p>
+		 */
+		@Override
+		public Object parse(CharSequence text, int start, int end) {
+			while (start < end && text.charAt(start) <= ' ') {
+				start++;
+			}
+			while (end > start && text.charAt(end - 1) <= ' ') {
+				end--;
+			}
+
+			char separator = getSeparatorChar();
+			boolean trimTokens = isTrimTokens();
+			while (end > start && (text.charAt(end - 1) == separator || (trimTokens && isSpace(text.charAt(end - 1))))) {
+				end--;
+			}
+			if (start == end) {
 				return init();
 			}
-			String[] tokens = trimmedText.split(getSeparatorRegexpr());
-			Object result = createArray(tokens.length);
-			int n = 0;
-			for (String token : tokens) {
-				Array.set(result, n++, parseElement(token));
+
+			int capacity = Math.min(INITIAL_CAPACITY, end - start);
+			Object result = createArray(capacity);
+			int size = 0;
+			int tokenStart = start;
+			while (true) {
+				int separatorPos = tokenStart;
+				while (separatorPos < end && text.charAt(separatorPos) != separator) {
+					separatorPos++;
+				}
+
+				int tokenEnd = separatorPos;
+				if (trimTokens) {
+					while (tokenEnd > tokenStart && isSpace(text.charAt(tokenEnd - 1))) {
+						tokenEnd--;
+					}
+				}
+
+				if (size == capacity) {
+					capacity = 2 * capacity;
+					result = copyArray(result, size, capacity);
+				}
+				parseElement(result, size++, text, tokenStart, tokenEnd);
+
+				if (separatorPos == end) {
+					break;
+				}
+
+				tokenStart = separatorPos + 1;
+				if (trimTokens) {
+					while (tokenStart < end && isSpace(text.charAt(tokenStart))) {
+						tokenStart++;
+					}
+				}
+			}
+
+			if (size < capacity) {
+				result = copyArray(result, size, size);
+			}
+			return result;
+		}
+
+		/**
+		 * Parses a single character element.
+		 */
+		protected static char charElement(CharSequence text, int start, int end) {
+			if (start == end) {
+				throw new IllegalArgumentException("Empty character element.");
 			}
+			return text.charAt(start);
+		}
+
+		private Object copyArray(Object array, int size, int length) {
+			Object result = createArray(length);
+			System.arraycopy(array, 0, result, 0, size);
 			return result;
 		}
 
+		/**
+		 * Whether the given character is matched by <code>\s</code> in a regular
+		 * expression.
+		 */
+		private static boolean isSpace(char ch) {
+			switch (ch) {
+			case ' ':
+			case '\t':
+			case '\n':
+			case '\u000B':
+			case '\f':
+			case '\r':
+				return true;
+			default:
+				return false;
+			}
+		}
+
 		@Override
 		public String unparse(Object value) {
 			StringBuilder buffer = new StringBuilder();
+			try {
+				unparse(value, buffer);
+			} catch (IOException ex) {
+				throw (AssertionError) new AssertionError("Cannot fail on a buffer.").initCause(ex);
+			}
+			return buffer.toString();
+		}
+
+		@Override
+		public void unparse(Object value, Appendable out) throws IOException {
+			String separator = getSeparator();
 			for (int n = 0, cnt = Array.getLength(value); n < cnt; n++) {
 				if (n > 0) {
-					buffer.append(getSeparator());
+					out.append(separator);
 				}
-				Object element = Array.get(value, n);
-				buffer.append(unparseElement(element));
+				unparseElement(value, n, out);
 			}
+		}
 
-			return buffer.toString();
+		/**
+		 * The character that separates array elements.
+		 */
+		protected char getSeparatorChar() {
+			return ',';
 		}
 
-		protected String getSeparatorRegexpr() {
-			return "\\s*,\\s*";
+		/**
+		 * Whether white space around separators is ignored.
+		 */
+		protected boolean isTrimTokens() {
+			return true;
 		}
 
 		protected String getSeparator() {
 			return ", ";
 		}
 
-		protected abstract Object parseElement(String token);
+		/**
+		 * Parses the given range of characters and stores the result at the given
+		 * index of the given array.
+		 */
+		protected abstract void parseElement(Object array, int index, CharSequence text, int start, int end);
 
-		protected abstract String unparseElement(Object element);
+		/**
+		 * Writes the string representation of the element at the given index of
+		 * the given array.
+		 */
+		protected abstract void unparseElement(Object array, int index, Appendable out) throws IOException;
 
 		protected abstract Object createArray(int length);
 
+	}
+
+	static abstract class ObjectArrayParser extends ArrayParser {
+
 		@Override
-		public boolean equals(Object value1, Object value2) {
-			if (value1 == value2) {
-				return true;
-			}
-			if (value1 == null || value2 == null) {
-				return false;
-			}
+		protected void parseElement(Object array, int index, CharSequence text, int start, int end) {
+			((Object[]) array)[index] = parseElement(text, start, end);
+		}
 
-			int length = Array.getLength(value1);
-			if (Array.getLength(value2) != length) {
-				return false;
-			}
+		protected abstract Object parseElement(CharSequence text, int start, int end);
 
-			for (int i = 0; i < length; i++) {
-				Object o1 = Array.get(value1, i);
-				Object o2 = Array.get(value2, i);
-				if (!(o1 == null ? o2 == null : o1.equals(o2))) {
-					return false;
-				}
+		@Override
+		protected void unparseElement(Object array, int index, Appendable out) throws IOException {
+			Object element = ((Object[]) array)[index];
+			if (element == null) {
+				out.append("null");
+			} else {
+				unparseElement(element, out);
 			}
-
-			return true;
 		}
 
+		/**
+		 * Writes the string representation of a non-<code>null</code> element.
+		 */
+		protected abstract void unparseElement(Object element, Appendable out) throws IOException;
+
 		@Override
-		public int hashCode(Object value) {
-			if (value == null) {
-				return 0;
-			}
-			
-			int result = 1;
-			for (int n = 0, cnt = Array.getLength(value); n < cnt; n++) {
-				Object element = Array.get(value, n);
-				result = 31 * result + (element == null ? 0 : element.hashCode());
-			}
-			
-			return result;
+		public boolean equals(Object value1, Object value2) {
+			return Arrays.equals((Object[]) value1, (Object[]) value2);
 		}
-	}
 
-	static abstract class PrimitiveArrayParser extends ArrayParser {
 		@Override
-		protected String unparseElement(Object element) {
-			return "" + element;
+		public int hashCode(Object value) {
+			return Arrays.hashCode((Object[]) value);
 		}
 	}
 
@@ -184,19 +342,44 @@ class PropertyImpl implements Property {
 		}
 	}
 
-	static class BooleanArrayParser extends PrimitiveArrayParser {
+	static final class BooleanArrayParser extends ArrayParser {
+		@Override
+		protected void parseElement(Object array, int index, CharSequence text, int start, int end) {
+			((boolean[]) array)[index] = ParseUtil.parseBoolean(text, start, end);
+		}
+
 		@Override
-		protected Object parseElement(String token) {
-			return Boolean.valueOf(token);
+		protected void unparseElement(Object array, int index, Appendable out) throws IOException {
+			UnparseUtil.appendBoolean(out, ((boolean[]) array)[index]);
 		}
 
 		@Override
 		protected Object createArray(int length) {
 			return new boolean[length];
 		}
+
+		@Override
+		public boolean equals(Object value1, Object value2) {
+			return Arrays.equals((boolean[]) value1, (boolean[]) value2);
+		}
+
+		@Override
+		public int hashCode(Object value) {
+			return Arrays.hashCode((boolean[]) value);
+		}
 	}
 
-	static final class BooleanWrapperArrayParser extends BooleanArrayParser {
+	static final class BooleanWrapperArrayParser extends ObjectArrayParser {
+		@Override
+		protected Object parseElement(CharSequence text, int start, int end) {
+			return ParseUtil.parseBoolean(text, start, end);
+		}
+
+		@Override
+		protected void unparseElement(Object element, Appendable out) throws IOException {
+			UnparseUtil.appendBoolean(out, ((Boolean) element).booleanValue());
+		}
+
 		@Override
 		protected Object createArray(int length) {
 			return new Boolean[length];
@@ -210,19 +393,44 @@ class PropertyImpl implements Property {
 		}
 	}
 
-	static class ByteArrayParser extends PrimitiveArrayParser {
+	static final class ByteArrayParser extends ArrayParser {
+		@Override
+		protected void parseElement(Object array, int index, CharSequence text, int start, int end) {
+			((byte[]) array)[index] = ParseUtil.parseByte(text, start, end);
+		}
+
 		@Override
-		protected Object parseElement(String token) {
-			return Byte.valueOf(token);
+		protected void unparseElement(Object array, int index, Appendable out) throws IOException {
+			UnparseUtil.appendInt(out, ((byte[]) array)[index]);
 		}
 
 		@Override
 		protected Object createArray(int length) {
 			return new byte[length];
 		}
+
+		@Override
+		public boolean equals(Object value1, Object value2) {
+			return Arrays.equals((byte[]) value1, (byte[]) value2);
+		}
+
+		@Override
+		public int hashCode(Object value) {
+			return Arrays.hashCode((byte[]) value);
+		}
 	}
 
-	static final class ByteWrapperArrayParser extends ByteArrayParser {
+	static final class ByteWrapperArrayParser extends ObjectArrayParser {
+		@Override
+		protected Object parseElement(CharSequence text, int start, int end) {
+			return ParseUtil.parseByte(text, start, end);
+		}
+
+		@Override
+		protected void unparseElement(Object element, Appendable out) throws IOException {
+			UnparseUtil.appendInt(out, ((Byte) element).byteValue());
+		}
+
 		@Override
 		protected Object createArray(int length) {
 			return new Byte[length];
@@ -236,19 +444,44 @@ class PropertyImpl implements Property {
 		}
 	}
 
-	static class CharArrayParser extends PrimitiveArrayParser {
+	static final class CharArrayParser extends ArrayParser {
+		@Override
+		protected void parseElement(Object array, int index, CharSequence text, int start, int end) {
+			((char[]) array)[index] = charElement(text, start, end);
+		}
+
 		@Override
-		protected Object parseElement(String token) {
-			return token.charAt(0);
+		protected void unparseElement(Object array, int index, Appendable out) throws IOException {
+			out.append(((char[]) array)[index]);
 		}
 
 		@Override
 		protected Object createArray(int length) {
 			return new char[length];
 		}
+
+		@Override
+		public boolean equals(Object value1, Object value2) {
+			return Arrays.equals((char[]) value1, (char[]) value2);
+		}
+
+		@Override
+		public int hashCode(Object value) {
+			return Arrays.hashCode((char[]) value);
+		}
 	}
 
-	static final class CharWrapperArrayParser extends CharArrayParser {
+	static final class CharWrapperArrayParser extends ObjectArrayParser {
+		@Override
+		protected Object parseElement(CharSequence text, int start, int end) {
+			return charElement(text, start, end);
+		}
+
+		@Override
+		protected void unparseElement(Object element, Appendable out) throws IOException {
+			out.append(((Character) element).charValue());
+		}
+
 		@Override
 		protected Object createArray(int length) {
 			return new Character[length];
@@ -262,19 +495,44 @@ class PropertyImpl implements Property {
 		}
 	}
 
-	static class ShortArrayParser extends PrimitiveArrayParser {
+	static final class ShortArrayParser extends ArrayParser {
+		@Override
+		protected void parseElement(Object array, int index, CharSequence text, int start, int end) {
+			((short[]) array)[index] = ParseUtil.parseShort(text, start, end);
+		}
+
 		@Override
-		protected Object parseElement(String token) {
-			return Short.valueOf(token);
+		protected void unparseElement(Object array, int index, Appendable out) throws IOException {
+			UnparseUtil.appendInt(out, ((short[]) array)[index]);
 		}
 
 		@Override
 		protected Object createArray(int length) {
 			return new short[length];
 		}
+
+		@Override
+		public boolean equals(Object value1, Object value2) {
+			return Arrays.equals((short[]) value1, (short[]) value2);
+		}
+
+		@Override
+		public int hashCode(Object value) {
+			return Arrays.hashCode((short[]) value);
+		}
 	}
 
-	static final class ShortWrapperArrayParser extends ShortArrayParser {
+	static final class ShortWrapperArrayParser extends ObjectArrayParser {
+		@Override
+		protected Object parseElement(CharSequence text, int start, int end) {
+			return ParseUtil.parseShort(text, start, end);
+		}
+
+		@Override
+		protected void unparseElement(Object element, Appendable out) throws IOException {
+			UnparseUtil.appendInt(out, ((Short) element).shortValue());
+		}
+
 		@Override
 		protected Object createArray(int length) {
 			return new Short[length];
@@ -288,19 +546,44 @@ class PropertyImpl implements Property {
 		}
 	}
 
-	static class IntegerArrayParser extends PrimitiveArrayParser {
+	static final class IntegerArrayParser extends ArrayParser {
+		@Override
+		protected void parseElement(Object array, int index, CharSequence text, int start, int end) {
+			((int[]) array)[index] = ParseUtil.parseInt(text, start, end);
+		}
+
 		@Override
-		protected Object parseElement(String token) {
-			return Integer.valueOf(token);
+		protected void unparseElement(Object array, int index, Appendable out) throws IOException {
+			UnparseUtil.appendInt(out, ((int[]) array)[index]);
 		}
 
 		@Override
 		protected Object createArray(int length) {
 			return new int[length];
 		}
+
+		@Override
+		public boolean equals(Object value1, Object value2) {
+			return Arrays.equals((int[]) value1, (int[]) value2);
+		}
+
+		@Override
+		public int hashCode(Object value) {
+			return Arrays.hashCode((int[]) value);
+		}
 	}
 
-	static final class IntegerWrapperArrayParser extends IntegerArrayParser {
+	static final class IntegerWrapperArrayParser extends ObjectArrayParser {
+		@Override
+		protected Object parseElement(CharSequence text, int start, int end) {
+			return ParseUtil.parseInt(text, start, end);
+		}
+
+		@Override
+		protected void unparseElement(Object element, Appendable out) throws IOException {
+			UnparseUtil.appendInt(out, ((Integer) element).intValue());
+		}
+
 		@Override
 		protected Object createArray(int length) {
 			return new Integer[length];
@@ -313,20 +596,45 @@ class PropertyImpl implements Property {
 			return 0L;
 		}
 	}
-	
-	static class LongArrayParser extends PrimitiveArrayParser {
+
+	static final class LongArrayParser extends ArrayParser {
 		@Override
-		protected Object parseElement(String token) {
-			return Long.valueOf(token);
+		protected void parseElement(Object array, int index, CharSequence text, int start, int end) {
+			((long[]) array)[index] = ParseUtil.parseLong(text, start, end);
+		}
+
+		@Override
+		protected void unparseElement(Object array, int index, Appendable out) throws IOException {
+			UnparseUtil.appendLong(out, ((long[]) array)[index]);
 		}
 
 		@Override
 		protected Object createArray(int length) {
 			return new long[length];
 		}
+
+		@Override
+		public boolean equals(Object value1, Object value2) {
+			return Arrays.equals((long[]) value1, (long[]) value2);
+		}
+
+		@Override
+		public int hashCode(Object value) {
+			return Arrays.hashCode((long[]) value);
+		}
 	}
 
-	static final class LongWrapperArrayParser extends LongArrayParser {
+	static final class LongWrapperArrayParser extends ObjectArrayParser {
+		@Override
+		protected Object parseElement(CharSequence text, int start, int end) {
+			return ParseUtil.parseLong(text, start, end);
+		}
+
+		@Override
+		protected void unparseElement(Object element, Appendable out) throws IOException {
+			UnparseUtil.appendLong(out, ((Long) element).longValue());
+		}
+
 		@Override
 		protected Object createArray(int length) {
 			return new Long[length];
@@ -340,19 +648,44 @@ class PropertyImpl implements Property {
 		}
 	}
 
-	static class FloatArrayParser extends PrimitiveArrayParser {
+	static final class FloatArrayParser extends ArrayParser {
 		@Override
-		protected Object parseElement(String token) {
-			return Float.valueOf(token);
+		protected void parseElement(Object array, int index, CharSequence text, int start, int end) {
+			((float[]) array)[index] = ParseUtil.parseFloat(text, start, end);
+		}
+
+		@Override
+		protected void unparseElement(Object array, int index, Appendable out) throws IOException {
+			UnparseUtil.appendFloat(out, ((float[]) array)[index]);
 		}
 
 		@Override
 		protected Object createArray(int length) {
 			return new float[length];
 		}
+
+		@Override
+		public boolean equals(Object value1, Object value2) {
+			return Arrays.equals((float[]) value1, (float[]) value2);
+		}
+
+		@Override
+		public int hashCode(Object value) {
+			return Arrays.hashCode((float[]) value);
+		}
 	}
 
-	static final class FloatWrapperArrayParser extends FloatArrayParser {
+	static final class FloatWrapperArrayParser extends ObjectArrayParser {
+		@Override
+		protected Object parseElement(CharSequence text, int start, int end) {
+			return ParseUtil.parseFloat(text, start, end);
+		}
+
+		@Override
+		protected void unparseElement(Object element, Appendable out) throws IOException {
+			UnparseUtil.appendFloat(out, ((Float) element).floatValue());
+		}
+
 		@Override
 		protected Object createArray(int length) {
 			return new Float[length];
@@ -366,19 +699,44 @@ class PropertyImpl implements Property {
 		}
 	}
 
-	static class DoubleArrayParser extends PrimitiveArrayParser {
+	static final class DoubleArrayParser extends ArrayParser {
 		@Override
-		protected Object parseElement(String token) {
-			return Double.valueOf(token);
+		protected void parseElement(Object array, int index, CharSequence text, int start, int end) {
+			((double[]) array)[index] = ParseUtil.parseDouble(text, start, end);
+		}
+
+		@Override
+		protected void unparseElement(Object array, int index, Appendable out) throws IOException {
+			UnparseUtil.appendDouble(out, ((double[]) array)[index]);
 		}
 
 		@Override
 		protected Object createArray(int length) {
 			return new double[length];
 		}
+
+		@Override
+		public boolean equals(Object value1, Object value2) {
+			return Arrays.equals((double[]) value1, (double[]) value2);
+		}
+
+		@Override
+		public int hashCode(Object value) {
+			return Arrays.hashCode((double[]) value);
+		}
 	}
 
-	static final class DoubleWrapperArrayParser extends DoubleArrayParser {
+	static final class DoubleWrapperArrayParser extends ObjectArrayParser {
+		@Override
+		protected Object parseElement(CharSequence text, int start, int end) {
+			return ParseUtil.parseDouble(text, start, end);
+		}
+
+		@Override
+		protected void unparseElement(Object element, Appendable out) throws IOException {
+			UnparseUtil.appendDouble(out, ((Double) element).doubleValue());
+		}
+
 		@Override
 		protected Object createArray(int length) {
 			return new Double[length];
@@ -390,6 +748,16 @@ class PropertyImpl implements Property {
 		protected Boolean parseNonEmpty(String text) {
 			return Boolean.valueOf(text);
 		}
+
+		@Override
+		protected Boolean parseNonEmpty(CharSequence text, int start, int end) {
+			return ParseUtil.parseBoolean(text, start, end);
+		}
+
+		@Override
+		protected void unparseNonNull(Boolean value, Appendable out) throws IOException {
+			UnparseUtil.appendBoolean(out, value.booleanValue());
+		}
 	}
 
 	static class ByteWrapperParser extends PrimitiveParser<Byte> {
@@ -397,6 +765,16 @@ class PropertyImpl implements Property {
 		protected Byte parseNonEmpty(String text) {
 			return Byte.valueOf(text);
 		}
+
+		@Override
+		protected Byte parseNonEmpty(CharSequence text, int start, int end) {
+			return ParseUtil.parseByte(text, start, end);
+		}
+
+		@Override
+		protected void unparseNonNull(Byte value, Appendable out) throws IOException {
+			UnparseUtil.appendInt(out, value.byteValue());
+		}
 	}
 
 	static class CharWrapperParser extends PrimitiveParser<Character> {
@@ -404,6 +782,16 @@ class PropertyImpl implements Property {
 		protected Character parseNonEmpty(String text) {
 			return text.charAt(0);
 		}
+
+		@Override
+		protected Character parseNonEmpty(CharSequence text, int start, int end) {
+			return text.charAt(start);
+		}
+
+		@Override
+		protected void unparseNonNull(Character value, Appendable out) throws IOException {
+			out.append(value.charValue());
+		}
 	}
 
 	static class ShortWrapperParser extends PrimitiveParser<Short> {
@@ -411,6 +799,16 @@ class PropertyImpl implements Property {
 		protected Short parseNonEmpty(String text) {
 			return Short.valueOf(text);
 		}
+
+		@Override
+		protected Short parseNonEmpty(CharSequence text, int start, int end) {
+			return ParseUtil.parseShort(text, start, end);
+		}
+
+		@Override
+		protected void unparseNonNull(Short value, Appendable out) throws IOException {
+			UnparseUtil.appendInt(out, value.shortValue());
+		}
 	}
 
 	static class IntegerWrapperParser extends PrimitiveParser<Integer> {
@@ -418,6 +816,16 @@ class PropertyImpl implements Property {
 		protected Integer parseNonEmpty(String text) {
 			return Integer.valueOf(text);
 		}
+
+		@Override
+		protected Integer parseNonEmpty(CharSequence text, int start, int end) {
+			return ParseUtil.parseInt(text, start, end);
+		}
+
+		@Override
+		protected void unparseNonNull(Integer value, Appendable out) throws IOException {
+			UnparseUtil.appendInt(out, value.intValue());
+		}
 	}
 
 	static class LongWrapperParser extends PrimitiveParser<Long> {
@@ -425,6 +833,16 @@ class PropertyImpl implements Property {
 		protected Long parseNonEmpty(String text) {
 			return Long.valueOf(text);
 		}
+
+		@Override
+		protected Long parseNonEmpty(CharSequence text, int start, int end) {
+			return ParseUtil.parseLong(text, start, end);
+		}
+
+		@Override
+		protected void unparseNonNull(Long value, Appendable out) throws IOException {
+			UnparseUtil.appendLong(out, value.longValue());
+		}
 	}
 	
 	static class FloatWrapperParser extends PrimitiveParser<Float> {
@@ -432,6 +850,16 @@ class PropertyImpl implements Property {
 		protected Float parseNonEmpty(String text) {
 			return Float.valueOf(text);
 		}
+
+		@Override
+		protected Float parseNonEmpty(CharSequence text, int start, int end) {
+			return ParseUtil.parseFloat(text, start, end);
+		}
+
+		@Override
+		protected void unparseNonNull(Float value, Appendable out) throws IOException {
+			UnparseUtil.appendFloat(out, value.floatValue());
+		}
 	}
 
 	static class DoubleWrapperParser extends PrimitiveParser<Double> {
@@ -439,6 +867,16 @@ class PropertyImpl implements Property {
 		protected Double parseNonEmpty(String text) {
 			return Double.valueOf(text);
 		}
+
+		@Override
+		protected Double parseNonEmpty(CharSequence text, int start, int end) {
+			return ParseUtil.parseDouble(text, start, end);
+		}
+
+		@Override
+		protected void unparseNonNull(Double value, Appendable out) throws IOException {
+			UnparseUtil.appendDouble(out, value.doubleValue());
+		}
 	}
 
 	static final class StringParser extends PrimitiveParser<String> {
@@ -451,12 +889,22 @@ class PropertyImpl implements Property {
 		protected String parseNonEmpty(String text) {
 			return text;
 		}
+
+		@Override
+		protected void unparseNonNull(String value, Appendable out) throws IOException {
+			out.append(value);
+		}
 	}
 
-	static final class StringArrayParser extends PrimitiveArrayParser {
+	static final class StringArrayParser extends ObjectArrayParser {
+		@Override
+		protected Object parseElement(CharSequence text, int start, int end) {
+			return text.subSequence(start, end).toString();
+		}
+
 		@Override
-		protected Object parseElement(String token) {
-			return token;
+		protected void unparseElement(Object element, Appendable out) throws IOException {
+			out.append((String) element);
 		}
 
 		@Override
@@ -481,12 +929,25 @@ class PropertyImpl implements Property {
 			}
 			return value.getPath();
 		}
+
+		@Override
+		public void unparse(File value, Appendable out) throws IOException {
+			if (value == null) {
+				return;
+			}
+			out.append(value.getPath());
+		}
 	}
 
-	static final class FileArrayParser extends ArrayParser {
+	static final class FileArrayParser extends ObjectArrayParser {
 		@Override
-		protected String getSeparatorRegexpr() {
-			return File.pathSeparator;
+		protected char getSeparatorChar() {
+			return File.pathSeparatorChar;
+		}
+
+		@Override
+		protected boolean isTrimTokens() {
+			return false;
 		}
 		
 		@Override
@@ -495,13 +956,13 @@ class PropertyImpl implements Property {
 		}
 
 		@Override
-		protected Object parseElement(String token) {
-			return new File(token);
+		protected Object parseElement(CharSequence text, int start, int end) {
+			return new File(text.subSequence(start, end).toString());
 		}
 
 		@Override
-		protected String unparseElement(Object element) {
-			return ((File) element).getPath();
+		protected void unparseElement(Object element, Appendable out) throws IOException {
+			out.append(((File) element).getPath());
 		}
 
 		@Override
@@ -511,16 +972,47 @@ class PropertyImpl implements Property {
 
 	}
 
+	/**
+	 * Parser for {@link Date} values in the format {@value TimestampFormat#PATTERN}
+	 * in the default time zone.
+	 * 
+	 * <p>
+	 * Text in exactly the default format is converted with a {@link Calendar}
+	 * instead of a {@link SimpleDateFormat}, which is expensive to create. The
+	 * calendar is created for each conversion, so that a change of the default
+	 * time zone takes effect immediately.
+	 * </p>
+	 */
 	static final class DateParser extends ObjectParser<Date> {
+
 		@Override
 		public Date parse(String text) {
-			if (text.isEmpty()) {
+			return parse(text, 0, text.length());
+		}
+
+		@Override
+		public Date parse(CharSequence text, int start, int end) {
+			if (start == end) {
 				return init();
 			}
+			Calendar calendar = Calendar.getInstance();
+			if (calendar instanceof GregorianCalendar && TimestampFormat.matches(text, start, end)) {
+				calendar.clear();
+				calendar.set(
+					TimestampFormat.year(text, start),
+					TimestampFormat.month(text, start) - 1,
+					TimestampFormat.day(text, start),
+					TimestampFormat.hour(text, start),
+					TimestampFormat.minute(text, start),
+					TimestampFormat.second(text, start));
+				calendar.set(Calendar.MILLISECOND, TimestampFormat.millis(text, start));
+				return calendar.getTime();
+			}
+			String source = text.subSequence(start, end).toString();
 			try {
-				return getFormat().parse(text);
+				return new SimpleDateFormat(TimestampFormat.PATTERN).parse(source);
 			} catch (ParseException ex) {
-				throw new IllegalArgumentException("Invalid date format: " + text, ex);
+				throw new IllegalArgumentException("Invalid date format: " + source, ex);
 			}
 		}
 
@@ -529,16 +1021,37 @@ class PropertyImpl implements Property {
 			if (value == null) {
 				return "";
 			}
-			return getFormat().format(value);
+			StringBuilder buffer = new StringBuilder();
+			try {
+				unparse(value, buffer);
+			} catch (IOException ex) {
+				throw (AssertionError) new AssertionError("Cannot fail on a buffer.").initCause(ex);
+			}
+			return buffer.toString();
 		}
-		
-		private SimpleDateFormat getFormat() {
-			return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+
+		@Override
+		public void unparse(Date value, Appendable out) throws IOException {
+			if (value == null) {
+				return;
+			}
+			Calendar calendar = Calendar.getInstance();
+			if (calendar instanceof GregorianCalendar) {
+				calendar.setTime(value);
+				int year = calendar.get(Calendar.YEAR);
+				if (calendar.get(Calendar.ERA) == GregorianCalendar.AD && year <= 9999) {
+					TimestampFormat.append(out, year, calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH),
+						calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE), calendar.get(Calendar.SECOND),
+						calendar.get(Calendar.MILLISECOND));
+					return;
+				}
+			}
+			out.append(new SimpleDateFormat(TimestampFormat.PATTERN).format(value));
 		}
 
 	}
 
-	static final class GenericArrayParser<T> extends ArrayParser {
+	static final class GenericArrayParser<T> extends ObjectArrayParser {
 		private final Class<T> elementType;
 		private final Parser<T> elementParser;
 
@@ -548,14 +1061,20 @@ class PropertyImpl implements Property {
 		}
 
 		@Override
-		protected Object parseElement(String token) {
-			return elementParser.parse(token);
+		protected Object parseElement(CharSequence text, int start, int end) {
+			return ParseUtil.parse(elementParser, text, start, end);
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		protected void unparseElement(Object array, int index, Appendable out) throws IOException {
+			UnparseUtil.unparse(elementParser, (T) ((Object[]) array)[index], out);
 		}
 
 		@SuppressWarnings("unchecked")
 		@Override
-		protected String unparseElement(Object element) {
-			return elementParser.unparse((T) element);
+		protected void unparseElement(Object element, Appendable out) throws IOException {
+			UnparseUtil.unparse(elementParser, (T) element, out);
 		}
 
 		@Override
@@ -593,6 +1112,37 @@ class PropertyImpl implements Property {
 		}
 	}
 
+	/**
+	 * Types of primitive properties whose values cannot be modified in place.
+	 */
+	private static final Set<Class<?>> immutableTypes = new HashSet<Class<?>>();
+	static {
+		immutableTypes.add(Boolean.class);
+		immutableTypes.add(Byte.class);
+		immutableTypes.add(Character.class);
+		immutableTypes.add(Short.class);
+		immutableTypes.add(Integer.class);
+		immutableTypes.add(Long.class);
+		immutableTypes.add(Float.class);
+		immutableTypes.add(Double.class);
+		immutableTypes.add(String.class);
+		immutableTypes.add(File.class);
+		immutableTypes.add(BigInteger.class);
+		immutableTypes.add(BigDecimal.class);
+	}
+
+	/**
+	 * Whether values of the given type cannot be modified in place.
+	 * 
+	 * <p>
+	 * Only properties of such types keep a running hash, since the modification
+	 * of e.g. an array element does not pass the setter.
+	 * </p>
+	 */
+	static boolean isImmutable(Class<?> type) {
+		return type.isPrimitive() || type.isEnum() || immutableTypes.contains(type);
+	}
+
 	private static final Map<Class<?>, Object> nullValue = new HashMap<Class<?>, Object>();
 	static {
 		nullValue.put(boolean.class, false);
@@ -670,26 +1220,28 @@ class PropertyImpl implements Property {
 		parsers.put(File[].class, new FileArrayParser());
 		parsers.put(Date.class, new DateParser());
 		parsers.put(Date[].class, new GenericArrayParser<Date>(Date.class, new DateParser()));
+
+		try {
+			Class.forName("java.time.Instant");
+			TimeParsers.register(parsers, immutableTypes);
+		} catch (ClassNotFoundException ex) {
+			// No java.time before Java 8.
+		}
 	}
 	
-	private static final Initializer<Object> NULL = new Initializer<Object>() {
-		@Override
-		public Object init() {
-			return null;
-		}
-	};
+	private static final Initializer<Object> NULL = new ConstantInitializer(null);
 	
 	private static final Initializer<Object> NEW_LIST = new Initializer<Object>() {
 		@Override
 		public Object init() {
-			return new ArrayList<Object>();
+			return new ChangeTrackingList();
 		}
 	};
 	
 	private static final Initializer<Object> NEW_INDEX = new Initializer<Object>() {
 		@Override
 		public Object init() {
-			return new HashMap<Object, Object>();
+			return new ChangeTrackingIndex();
 		}
 	};
 
@@ -720,6 +1272,11 @@ class PropertyImpl implements Property {
 	private Property indexProperty;
 	private Initializer<Object> initializer;
 	private Parser<Object> parser;
+	private boolean lazy;
+	private boolean incrementalHash;
+	private boolean unboxed;
+	private volatile Object defaultValue;
+	private volatile Object frozenDefaultValue;
 
 	private final ValueDescriptorImpl<?> descriptor;
 
@@ -777,6 +1334,10 @@ class PropertyImpl implements Property {
 		
 		Class<?> accessType = proposedGetter.getReturnType();
 		Type genericType = proposedGetter.getGenericReturnType();
+		boolean lazyRequested = 
+			proposedGetter.getAnnotation(Lazy.class) != null || 
+			descriptor.getValueInterface().getAnnotation(Lazy.class) != null;
+		this.lazy = false;
 
 		Name nameAnnotation = proposedGetter.getAnnotation(Name.class);
 		if (nameAnnotation != null) {
@@ -875,7 +1436,8 @@ class PropertyImpl implements Property {
 				this.initializer = NEW_LIST;
 			}
 			
-			this.getHandler = new GetHandler(index);
+			this.lazy = lazyRequested && initializer == NEW_LIST;
+			this.getHandler = createGetHandler();
 			this.setHandler = new NonNullSetHandler(index, initializer);
 			
 			this.parser = NO_PARSER;
@@ -887,7 +1449,8 @@ class PropertyImpl implements Property {
 				this.initializer = NEW_INDEX;
 			}
 			
-			this.getHandler = new GetHandler(index);
+			this.lazy = lazyRequested && initializer == NEW_INDEX;
+			this.getHandler = createGetHandler();
 			this.setHandler = new NonNullSetHandler(index, initializer);
 			
 			IndexProperty indexAnnotation = proposedGetter.getAnnotation(IndexProperty.class);
@@ -914,14 +1477,18 @@ class PropertyImpl implements Property {
 		else {
 			this.kind = Kind.VALUE;
 			this.type = accessType;
-			this.getHandler = new GetHandler(index);
 			if (initializer == null) {
 				this.initializer = new ValueInitializer(ValueFactory.getDescriptor(type));
 			}
+			this.lazy = lazyRequested && initializer instanceof ValueInitializer;
+			this.getHandler = createGetHandler();
 			this.setHandler = new NonNullSetHandler(index, initializer);
 			this.parser = NO_PARSER;
 		}
 		
+		this.unboxed = kind == Kind.PRIMITIVE && type.isPrimitive() && parser == parsers.get(type);
+		this.incrementalHash = kind == Kind.PRIMITIVE && isImmutable(type) && 
+			descriptor.getValueInterface().getAnnotation(IncrementalHash.class) != null;
 		this.getter = proposedGetter;
 	}
 	
@@ -930,6 +1497,99 @@ class PropertyImpl implements Property {
 		return initializer;
 	}
 
+	private MethodHandler createGetHandler() {
+		if (lazy) {
+			return new LazyGetHandler(index);
+		} else {
+			return new GetHandler(index);
+		}
+	}
+
+	/**
+	 * Whether this property has a Java primitive type and the built-in
+	 * {@link Parser} for this type.
+	 * 
+	 * <p>
+	 * Values of such a property are equal, if their bit patterns are equal,
+	 * see {@link ValueState#equalBits(Class, long, long)}.
+	 * </p>
+	 */
+	boolean isUnboxed() {
+		return unboxed;
+	}
+
+	/**
+	 * Whether this property is part of the running hash of its value.
+	 * 
+	 * @see IncrementalHash
+	 */
+	boolean hasIncrementalHash() {
+		return incrementalHash;
+	}
+
+	/**
+	 * Whether the initial value of this property is created on first access.
+	 * 
+	 * <p>
+	 * The storage slot of a lazy property is <code>null</code> until its
+	 * value is accessed.
+	 * </p>
+	 * 
+	 * @see Lazy
+	 */
+	boolean isLazy() {
+		return lazy;
+	}
+
+	/**
+	 * The initial value of a {@link #isLazy()} property that is used as
+	 * replacement for a value not yet created.
+	 * 
+	 * <p>
+	 * The result is shared and must not be modified.
+	 * </p>
+	 */
+	Object getDefaultValue() {
+		Object result = defaultValue;
+		if (result == null) {
+			result = initializer.init();
+			defaultValue = result;
+		}
+		return result;
+	}
+
+	/**
+	 * The frozen initial value of a {@link #isLazy()} property that is
+	 * returned by frozen values in which the value was not yet created.
+	 * 
+	 * <p>
+	 * The result is created once, so that all threads reading a frozen value
+	 * observe the same instance. Freezing the result does not create lazy
+	 * values, which would not terminate for recursive types.
+	 * </p>
+	 */
+	Object getFrozenDefaultValue() {
+		Object result = frozenDefaultValue;
+		if (result == null) {
+			synchronized (this) {
+				result = frozenDefaultValue;
+				if (result == null) {
+					result = ValueDescriptorImpl.frozen(this, initializer.init());
+					frozenDefaultValue = result;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Whether the {@link #getInitializer()} provides the same immutable
+	 * value for each new instance.
+	 */
+	boolean hasConstantInitializer() {
+		return initializer instanceof ConstantInitializer;
+	}
+
 	MethodHandler getGetHandler() {
 		return getHandler;
 	}
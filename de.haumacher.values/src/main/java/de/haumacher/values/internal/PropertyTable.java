@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.internal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import de.haumacher.values.Property;
+import de.haumacher.values.ValueDescriptor;
+
+/**
+ * Hash table resolving {@link Property} names given as character sequences.
+ * 
+ * <p>
+ * In contrast to {@link ValueDescriptor#getProperties()}, a lookup does not
+ * require the name as {@link String}.
+ * </p>
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+public final class PropertyTable {
+
+	private static final ConcurrentMap<ValueDescriptor<?>, PropertyTable> TABLES = new ConcurrentHashMap<ValueDescriptor<?>, PropertyTable>();
+
+	private final String[] names;
+
+	private final Property[] properties;
+
+	private final int mask;
+
+	private PropertyTable(ValueDescriptor<?> descriptor) {
+		int size = descriptor.getProperties().size();
+		int capacity = Integer.highestOneBit(Math.max(1, size) * 2) * 2;
+		names = new String[capacity];
+		properties = new Property[capacity];
+		mask = capacity - 1;
+
+		for (Property property : descriptor.getProperties().values()) {
+			String name = property.getName();
+			int index = name.hashCode() & mask;
+			while (names[index] != null) {
+				index = (index + 1) & mask;
+			}
+			names[index] = name;
+			properties[index] = property;
+		}
+	}
+
+	/**
+	 * The {@link PropertyTable} for the given {@link ValueDescriptor}.
+	 */
+	public static PropertyTable getTable(ValueDescriptor<?> descriptor) {
+		PropertyTable table = TABLES.get(descriptor);
+		if (table == null) {
+			PropertyTable newTable = new PropertyTable(descriptor);
+			table = TABLES.putIfAbsent(descriptor, newTable);
+			if (table == null) {
+				table = newTable;
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * The {@link Property} with the given name, or <code>null</code>, if there
+	 * is no such property.
+	 */
+	public Property lookup(CharSequence name) {
+		return lookup(name, 0, name.length());
+	}
+
+	/**
+	 * The {@link Property} whose name is the given range of characters, or
+	 * <code>null</code>, if there is no such property.
+	 */
+	public Property lookup(CharSequence text, int start, int end) {
+		int hash = 0;
+		for (int n = start; n < end; n++) {
+			hash = 31 * hash + text.charAt(n);
+		}
+
+		int length = end - start;
+		int index = hash & mask;
+		while (true) {
+			String candidate = names[index];
+			if (candidate == null) {
+				return null;
+			}
+			if (candidate.length() == length && regionEquals(candidate, text, start)) {
+				return properties[index];
+			}
+			index = (index + 1) & mask;
+		}
+	}
+
+	private static boolean regionEquals(String name, CharSequence text, int start) {
+		for (int n = 0, cnt = name.length(); n < cnt; n++) {
+			if (name.charAt(n) != text.charAt(start + n)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -20,7 +20,6 @@
 package de.haumacher.values.internal;
 
 import de.haumacher.values.Property;
-import de.haumacher.values.internal.ValueDescriptorImpl.ValueImpl;
 
 
 /**
@@ -35,8 +34,10 @@ class SetHandler extends PropertyHandler {
 	}
 
 	@Override
-	public Object handlePropertyAccess(Object self, ValueImpl impl, Object... args) {
-		impl.values[index] = args[0];
+	public Object handlePropertyAccess(Object self, ValueState impl, Object... args) {
+		impl.beforeUpdate(index);
+		impl.set(index, args[0]);
+		impl.afterUpdate(index);
 		return null;
 	}
 
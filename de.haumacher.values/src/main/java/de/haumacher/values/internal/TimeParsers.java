@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.internal;
+
+import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.util.Map;
+import java.util.Set;
+
+import de.haumacher.values.Parser;
+import de.haumacher.values.format.ObjectParser;
+import de.haumacher.values.internal.PropertyImpl.GenericArrayParser;
+
+/**
+ * {@link Parser}s for the <code>java.time</code> types.
+ * 
+ * <p>
+ * This class must only be loaded, if <code>java.time</code> is available.
+ * </p>
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+final class TimeParsers {
+
+	private TimeParsers() {
+		// Static utilities.
+	}
+
+	/**
+	 * Adds the parsers for {@link Instant}, {@link LocalDateTime},
+	 * {@link Duration} and arrays of these types to the given table, and the
+	 * immutable types among them to the given set.
+	 */
+	static void register(Map<Class<?>, Parser<?>> parsers, Set<Class<?>> immutableTypes) {
+		parsers.put(Instant.class, new InstantParser());
+		parsers.put(Instant[].class, new GenericArrayParser<Instant>(Instant.class, new InstantParser()));
+		parsers.put(LocalDateTime.class, new LocalDateTimeParser());
+		parsers.put(LocalDateTime[].class, new GenericArrayParser<LocalDateTime>(LocalDateTime.class, new LocalDateTimeParser()));
+		parsers.put(Duration.class, new DurationParser());
+		parsers.put(Duration[].class, new GenericArrayParser<Duration>(Duration.class, new DurationParser()));
+
+		immutableTypes.add(Instant.class);
+		immutableTypes.add(LocalDateTime.class);
+		immutableTypes.add(Duration.class);
+	}
+
+	/**
+	 * Parser for {@link Instant} values in ISO-8601 format, e.g.
+	 * <code>2015-03-01T12:00:00Z</code>.
+	 */
+	static final class InstantParser extends ObjectParser<Instant> {
+		@Override
+		public Instant parse(String text) {
+			if (text.isEmpty()) {
+				return init();
+			}
+			try {
+				return Instant.parse(text);
+			} catch (DateTimeException ex) {
+				throw new IllegalArgumentException("Invalid instant format: " + text, ex);
+			}
+		}
+
+		@Override
+		public String unparse(Instant value) {
+			if (value == null) {
+				return "";
+			}
+			return value.toString();
+		}
+	}
+
+	/**
+	 * Parser for {@link LocalDateTime} values in the same format as
+	 * {@link java.util.Date} values, {@value TimestampFormat#PATTERN}.
+	 * 
+	 * <p>
+	 * Fractions of a second with more than millisecond precision are written
+	 * with up to nine digits.
+	 * </p>
+	 */
+	static final class LocalDateTimeParser extends ObjectParser<LocalDateTime> {
+
+		private static final DateTimeFormatter FORMAT = new DateTimeFormatterBuilder()
+			.appendPattern("uuuu-MM-dd HH:mm:ss")
+			.appendFraction(ChronoField.NANO_OF_SECOND, 3, 9, true)
+			.toFormatter();
+
+		private static final int NANOS_PER_MILLI = 1000000;
+
+		@Override
+		public LocalDateTime parse(String text) {
+			return parse(text, 0, text.length());
+		}
+
+		@Override
+		public LocalDateTime parse(CharSequence text, int start, int end) {
+			if (start == end) {
+				return init();
+			}
+			if (TimestampFormat.matches(text, start, end)) {
+				try {
+					return LocalDateTime.of(
+						TimestampFormat.year(text, start),
+						TimestampFormat.month(text, start),
+						TimestampFormat.day(text, start),
+						TimestampFormat.hour(text, start),
+						TimestampFormat.minute(text, start),
+						TimestampFormat.second(text, start),
+						TimestampFormat.millis(text, start) * NANOS_PER_MILLI);
+				} catch (DateTimeException ex) {
+					// Out of range fields, let the formatter decide.
+				}
+			}
+			CharSequence source = text.subSequence(start, end);
+			try {
+				return LocalDateTime.parse(source, FORMAT);
+			} catch (DateTimeException ex) {
+				throw new IllegalArgumentException("Invalid date format: " + source, ex);
+			}
+		}
+
+		@Override
+		public String unparse(LocalDateTime value) {
+			if (value == null) {
+				return "";
+			}
+			StringBuilder buffer = new StringBuilder();
+			try {
+				unparse(value, buffer);
+			} catch (IOException ex) {
+				throw (AssertionError) new AssertionError("Cannot fail on a buffer.").initCause(ex);
+			}
+			return buffer.toString();
+		}
+
+		@Override
+		public void unparse(LocalDateTime value, Appendable out) throws IOException {
+			if (value == null) {
+				return;
+			}
+			int year = value.getYear();
+			int nanos = value.getNano();
+			if (year >= 0 && year <= 9999 && nanos % NANOS_PER_MILLI == 0) {
+				TimestampFormat.append(out, year, value.getMonthValue(), value.getDayOfMonth(), 
+					value.getHour(), value.getMinute(), value.getSecond(), nanos / NANOS_PER_MILLI);
+			} else {
+				FORMAT.formatTo(value, out);
+			}
+		}
+	}
+
+	/**
+	 * Parser for {@link Duration} values in ISO-8601 format, e.g.
+	 * <code>PT1H30M</code>.
+	 */
+	static final class DurationParser extends ObjectParser<Duration> {
+		@Override
+		public Duration parse(String text) {
+			if (text.isEmpty()) {
+				return init();
+			}
+			try {
+				return Duration.parse(text);
+			} catch (DateTimeException ex) {
+				throw new IllegalArgumentException("Invalid duration format: " + text, ex);
+			}
+		}
+
+		@Override
+		public String unparse(Duration value) {
+			if (value == null) {
+				return "";
+			}
+			return value.toString();
+		}
+	}
+
+}
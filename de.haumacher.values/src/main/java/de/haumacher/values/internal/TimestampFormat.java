@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.internal;
+
+import java.io.IOException;
+
+/**
+ * Hand-written codec for the default timestamp pattern {@value #PATTERN}.
+ * 
+ * <p>
+ * Only text of exactly this shape is handled here. All other text is left to
+ * the general formatters.
+ * </p>
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+final class TimestampFormat {
+
+	/**
+	 * The default pattern for timestamp properties.
+	 */
+	static final String PATTERN = "yyyy-MM-dd HH:mm:ss.SSS";
+
+	private static final int LENGTH = PATTERN.length();
+
+	private TimestampFormat() {
+		// Static utilities.
+	}
+
+	/**
+	 * Whether the given range consists of digits and separators exactly as
+	 * described by {@link #PATTERN}.
+	 */
+	static boolean matches(CharSequence text, int start, int end) {
+		if (end - start != LENGTH) {
+			return false;
+		}
+		for (int n = 0; n < LENGTH; n++) {
+			char ch = text.charAt(start + n);
+			char expected = PATTERN.charAt(n);
+			if (Character.isLetter(expected)) {
+				if (ch < '0' || ch > '9') {
+					return false;
+				}
+			} else if (ch != expected) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static int year(CharSequence text, int start) {
+		return digits(text, start, 4);
+	}
+
+	static int month(CharSequence text, int start) {
+		return digits(text, start + 5, 2);
+	}
+
+	static int day(CharSequence text, int start) {
+		return digits(text, start + 8, 2);
+	}
+
+	static int hour(CharSequence text, int start) {
+		return digits(text, start + 11, 2);
+	}
+
+	static int minute(CharSequence text, int start) {
+		return digits(text, start + 14, 2);
+	}
+
+	static int second(CharSequence text, int start) {
+		return digits(text, start + 17, 2);
+	}
+
+	static int millis(CharSequence text, int start) {
+		return digits(text, start + 20, 3);
+	}
+
+	private static int digits(CharSequence text, int start, int count) {
+		int result = 0;
+		for (int n = start, end = start + count; n < end; n++) {
+			result = 10 * result + (text.charAt(n) - '0');
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the given fields in the format {@link #PATTERN}.
+	 * 
+	 * @param year
+	 *        The year in the range 0 to 9999.
+	 * @param month
+	 *        The month starting with 1 for January.
+	 */
+	static void append(Appendable out, int year, int month, int day, int hour, int minute, int second, int millis)
+			throws IOException {
+		appendDigits(out, year, 1000);
+		out.append('-');
+		appendDigits(out, month, 10);
+		out.append('-');
+		appendDigits(out, day, 10);
+		out.append(' ');
+		appendDigits(out, hour, 10);
+		out.append(':');
+		appendDigits(out, minute, 10);
+		out.append(':');
+		appendDigits(out, second, 10);
+		out.append('.');
+		appendDigits(out, millis, 100);
+	}
+
+	private static void appendDigits(Appendable out, int value, int divisor) throws IOException {
+		for (; divisor > 0; divisor /= 10) {
+			out.append((char) ('0' + value / divisor % 10));
+		}
+	}
+
+}
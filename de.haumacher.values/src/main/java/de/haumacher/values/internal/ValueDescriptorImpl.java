@@ -19,21 +19,29 @@
  */
 package de.haumacher.values.internal;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import de.haumacher.values.Factory;
 import de.haumacher.values.Kind;
 import de.haumacher.values.Property;
 import de.haumacher.values.Value;
 import de.haumacher.values.ValueDescriptor;
+import de.haumacher.values.format.UnparseUtil;
 
 /**
  * Internal implementation of {@link ValueDescriptor}.
@@ -43,23 +51,42 @@ import de.haumacher.values.ValueDescriptor;
  */
 public class ValueDescriptorImpl<T> implements ValueDescriptor<T> {
 
-	static final class ValueImpl implements InvocationHandler {
-		final ValueDescriptorImpl<?> descriptor;
+	static final class ValueImpl extends ValueState implements InvocationHandler {
 		final Object[] values;
 		
 		public ValueImpl(ValueDescriptorImpl<?> descriptor) {
-			this.descriptor = descriptor;
-			this.values = new Object[descriptor.getSize()];
-			Collection<PropertyImpl> properties = descriptor.internalGetProperties();
-			for (PropertyImpl property : properties) {
+			super(descriptor);
+			this.values = descriptor.template.clone();
+			for (PropertyImpl property : descriptor.mutableProperties) {
 				values[property.getIndex()] = property.getInitializer().init();
 			}
+			initRunningHash();
 		}
 
 		@Override
 		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
 			return descriptor.getHandler(method).handlePropertyAccess(proxy, this, args);
 		}
+
+		@Override
+		protected Object get(int index) {
+			return values[index];
+		}
+
+		@Override
+		protected void set(int index, Object value) {
+			values[index] = value;
+		}
+
+		@Override
+		protected long getBits(int index) {
+			return toBits(values[index]);
+		}
+
+		@Override
+		protected void setBits(int index, long bits) {
+			values[index] = fromBits(descriptor.getProperty(index).getType(), bits);
+		}
 	}
 
 	private static final Method EQUALS_METHOD;
@@ -68,6 +95,8 @@ public class ValueDescriptorImpl<T> implements ValueDescriptor<T> {
 	private static final Method DESCRIPTOR_METHOD;
 	private static final Method VALUE_METHOD;
 	private static final Method PUT_VALUE_METHOD;
+	private static final Method FREEZE_METHOD;
+	private static final Method IS_FROZEN_METHOD;
 	static {
 		try {
 			Method equalsMethod = Object.class.getMethod("equals", Object.class);
@@ -76,6 +105,8 @@ public class ValueDescriptorImpl<T> implements ValueDescriptor<T> {
 			Method descriptorMethod = Value.class.getMethod("descriptor");
 			Method valueMethod = Value.class.getMethod("value", Property.class);
 			Method putValueMethod = Value.class.getMethod("putValue", Property.class, Object.class);
+			Method freezeMethod = Value.class.getMethod("freeze");
+			Method isFrozenMethod = Value.class.getMethod("isFrozen");
 			
 			EQUALS_METHOD = equalsMethod;
 			TO_STRING_METHOD = toStringMethod;
@@ -83,6 +114,8 @@ public class ValueDescriptorImpl<T> implements ValueDescriptor<T> {
 			DESCRIPTOR_METHOD = descriptorMethod;
 			VALUE_METHOD = valueMethod;
 			PUT_VALUE_METHOD = putValueMethod;
+			FREEZE_METHOD = freezeMethod;
+			IS_FROZEN_METHOD = isFrozenMethod;
 		} catch (SecurityException e) {
 			throw (AssertionError) new AssertionError().initCause(e);
 		} catch (NoSuchMethodException e) {
@@ -90,9 +123,9 @@ public class ValueDescriptorImpl<T> implements ValueDescriptor<T> {
 		}
 	}
 	
-	private static final MethodHandler EQUALS_IMPL = new MethodHandler() {
+	static final MethodHandler EQUALS_IMPL = new MethodHandler() {
 		@Override
-		public Object handlePropertyAccess(Object self, ValueImpl impl, Object... args) {
+		public Object handlePropertyAccess(Object self, ValueState impl, Object... args) {
 			Object other = args[0];
 			if (other == self) {
 				return true;
@@ -103,9 +136,14 @@ public class ValueDescriptorImpl<T> implements ValueDescriptor<T> {
 				return false;
 			}
 			
+			ValueState otherImpl = stateOf(other);
+			if (otherImpl != null && otherImpl.descriptor == descriptor) {
+				return equalState(self, impl, other, otherImpl);
+			}
+			
 			try {
 				for (PropertyImpl property : descriptor.internalGetProperties()) {
-					Object selfValue = property.getGetHandler().handlePropertyAccess(self, impl);
+					Object selfValue = currentValue(self, impl, property);
 					Object otherValue = property.getGetter().invoke(other);
 					if (!property.getParser().equals(selfValue, otherValue)) {
 						return false;
@@ -128,68 +166,480 @@ public class ValueDescriptorImpl<T> implements ValueDescriptor<T> {
 		}
 	};
 	
-	private static final MethodHandler HASH_CODE_IMPL = new MethodHandler() {
+	/**
+	 * Compares two values of the same type implemented by this library
+	 * directly through their storage.
+	 */
+	static boolean equalState(Object self, ValueState impl, Object other, ValueState otherImpl) {
+		// Note: The running hash is always up to date, since it only covers
+		// properties with immutable types, see PropertyImpl#isImmutable(Class).
+		if (impl.runningHash != otherImpl.runningHash) {
+			return false;
+		}
+		if (impl.frozen && otherImpl.frozen && impl.frozenHashCode != otherImpl.frozenHashCode) {
+			return false;
+		}
+		
+		for (PropertyImpl property : impl.descriptor.getComparisonOrder()) {
+			int index = property.getIndex();
+			if (property.isUnboxed()) {
+				if (!ValueState.equalBits(property.getType(), impl.getBits(index), otherImpl.getBits(index))) {
+					return false;
+				}
+				continue;
+			}
+			
+			Object selfValue = impl.get(index);
+			Object otherValue = otherImpl.get(index);
+			if (selfValue == otherValue) {
+				// Also covers two lazy values not yet created.
+				continue;
+			}
+			if (property.isLazy()) {
+				selfValue = currentValue(self, impl, property);
+				otherValue = currentValue(other, otherImpl, property);
+			}
+			if (!property.getParser().equals(selfValue, otherValue)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	static final MethodHandler HASH_CODE_IMPL = new MethodHandler() {
 		@Override
-		public Object handlePropertyAccess(Object self, ValueImpl impl, Object... args) {
-			ValueDescriptorImpl<?> descriptor = impl.descriptor;
+		public Object handlePropertyAccess(Object self, ValueState impl, Object... args) {
+			if (impl.frozen) {
+				return impl.frozenHashCode;
+			}
+			return computeHashCode(self, impl);
+		}
+	};
+	
+	/**
+	 * Computes the hash code of the given value from its property values.
+	 */
+	static int computeHashCode(Object self, ValueState impl) {
+		ValueDescriptorImpl<?> descriptor = impl.descriptor;
+		
+		int result = impl.runningHash;
+		for (PropertyImpl property : descriptor.internalGetProperties()) {
+			if (property.hasIncrementalHash()) {
+				continue;
+			}
 			
-			int result = 0;
-			for (PropertyImpl property : descriptor.internalGetProperties()) {
+			int hashCode;
+			if (property.isLazy()) {
+				Object value = impl.get(property.getIndex());
+				if (value == null) {
+					value = property.getDefaultValue();
+				}
+				if (property.getKind() == Kind.VALUE) {
+					// Note: A nested value equal to its initial value must not
+					// contribute, since computing the hash code of the initial
+					// value would not terminate for recursive types.
+					Object defaultValue = property.getDefaultValue();
+					hashCode = value == defaultValue || value.equals(defaultValue) ? 0 : value.hashCode();
+				} else {
+					hashCode = property.getParser().hashCode(value);
+				}
+			} else {
 				Object value = property.getGetHandler().handlePropertyAccess(self, impl);
-				result += (property.getIndex() + 1) * property.getParser().hashCode(value);
+				hashCode = property.getParser().hashCode(value);
 			}
-			return result;
+			result += (property.getIndex() + 1) * hashCode;
 		}
-	};
+		return result;
+	}
 	
-	private static final MethodHandler TO_STRING_IMPL = new MethodHandler() {
+	static final MethodHandler FREEZE_IMPL = new MethodHandler() {
 		@Override
-		public Object handlePropertyAccess(Object self, ValueImpl impl, Object... args) {
-			ValueDescriptorImpl<?> descriptor = impl.descriptor;
+		public Object handlePropertyAccess(Object self, ValueState impl, Object... args) {
+			if (impl.frozen) {
+				return null;
+			}
 			
+			for (PropertyImpl property : impl.descriptor.internalGetProperties()) {
+				if (property.getKind() == Kind.PRIMITIVE || property.getKind() == Kind.REFERENCE) {
+					continue;
+				}
+				
+				Object value = impl.get(property.getIndex());
+				if (value == null) {
+					// Stays empty, see ValueState#materialize(PropertyImpl).
+					continue;
+				}
+				if (value instanceof ChangeTracking && ((ChangeTracking) value).isChanged()) {
+					// The container is no longer visible after freezing.
+					impl.markChanged(property.getIndex());
+				}
+				impl.set(property.getIndex(), frozen(property, value));
+			}
+			
+			impl.frozenHashCode = computeHashCode(self, impl);
+			impl.frozen = true;
+			return null;
+		}
+	};
+	
+	private static final MethodHandler IS_FROZEN_IMPL = new MethodHandler() {
+		@Override
+		public Object handlePropertyAccess(Object self, ValueState impl, Object... args) {
+			return impl.frozen;
+		}
+	};
+	
+	/**
+	 * Freezes the given value of the given property of kind
+	 * {@link Kind#VALUE}, {@link Kind#LIST}, or {@link Kind#INDEX}.
+	 * 
+	 * @return The value to store in the frozen value.
+	 */
+	static Object frozen(PropertyImpl property, Object value) {
+		switch (property.getKind()) {
+			case VALUE: {
+				freezeContent(value);
+				return value;
+			}
+			case LIST: {
+				List<?> list = (List<?>) value;
+				for (Object element : list) {
+					freezeContent(element);
+				}
+				return Collections.unmodifiableList(list);
+			}
+			case INDEX: {
+				Map<?, ?> index = (Map<?, ?>) value;
+				for (Object element : index.values()) {
+					freezeContent(element);
+				}
+				return Collections.unmodifiableMap(index);
+			}
+			default: {
+				return value;
+			}
+		}
+	}
+
+	private static void freezeContent(Object value) {
+		if (value instanceof Value) {
+			((Value) value).freeze();
+		}
+	}
+	
+	/**
+	 * The values currently being converted to string in the current thread.
+	 */
+	private static final ThreadLocal<Map<Object, Boolean>> TO_STRING_ACTIVE = new ThreadLocal<Map<Object, Boolean>>() {
+		@Override
+		protected Map<Object, Boolean> initialValue() {
+			return new IdentityHashMap<Object, Boolean>();
+		}
+	};
+
+	static final MethodHandler TO_STRING_IMPL = new MethodHandler() {
+		@Override
+		public Object handlePropertyAccess(Object self, ValueState impl, Object... args) {
+			StringBuilder result = new StringBuilder();
+			try {
+				appendState(result, self, impl);
+			} catch (IOException ex) {
+				throw (AssertionError) new AssertionError("Cannot fail on a buffer.").initCause(ex);
+			}
+			return result.toString();
+		}
+	};
+	
+	/**
+	 * Writes the string representation of the given object to the given
+	 * {@link Appendable}.
+	 * 
+	 * <p>
+	 * Values, lists and maps are written recursively without creating
+	 * intermediate strings. The result is the same as
+	 * {@link Object#toString()} of the given object.
+	 * </p>
+	 */
+	public static void appendValue(Appendable out, Object value) throws IOException {
+		ValueState state = stateOf(value);
+		if (state != null) {
+			appendState(out, value, state);
+		} else if (value instanceof List<?>) {
+			out.append('[');
+			boolean first = true;
+			for (Object element : (List<?>) value) {
+				if (first) {
+					first = false;
+				} else {
+					out.append(", ");
+				}
+				if (element == value) {
+					out.append("(this Collection)");
+				} else {
+					appendValue(out, element);
+				}
+			}
+			out.append(']');
+		} else if (value instanceof Map<?, ?>) {
+			out.append('{');
+			boolean first = true;
+			for (Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				if (first) {
+					first = false;
+				} else {
+					out.append(", ");
+				}
+				Object key = entry.getKey();
+				if (key == value) {
+					out.append("(this Map)");
+				} else {
+					appendValue(out, key);
+				}
+				out.append('=');
+				Object entryValue = entry.getValue();
+				if (entryValue == value) {
+					out.append("(this Map)");
+				} else {
+					appendValue(out, entryValue);
+				}
+			}
+			out.append('}');
+		} else {
+			out.append(String.valueOf(value));
+		}
+	}
+
+	private static void appendState(Appendable out, Object self, ValueState impl) throws IOException {
+		ValueDescriptorImpl<?> descriptor = impl.descriptor;
+		
+		out.append(descriptor.getValueInterface().getName());
+		Map<Object, Boolean> active = TO_STRING_ACTIVE.get();
+		if (active.put(self, Boolean.TRUE) != null) {
+			// Initial values of recursive lazy types.
+			out.append("{...}");
+			return;
+		}
+		try {
 			boolean first = true;
-			StringBuilder result = new StringBuilder(descriptor.getValueInterface().getName());
-			result.append('{');
+			out.append('{');
 			for (PropertyImpl property : descriptor.internalGetProperties()) {
-				Object selfValue = property.getGetHandler().handlePropertyAccess(self, impl);
+				Object selfValue = currentValue(self, impl, property);
 				
 				if (first) {
 					first = false;
 				} else {
-					result.append("; ");
+					out.append("; ");
 				}
-				result.append(property.getName());
-				result.append(": ");
+				out.append(property.getName());
+				out.append(": ");
 				if (property.getKind() == Kind.PRIMITIVE) {
-					result.append(property.getParser().unparse(selfValue));
+					UnparseUtil.unparse(property.getParser(), selfValue, out);
 				} else {
-					result.append(selfValue);
+					appendValue(out, selfValue);
 				}
 			}
-			result.append('}');
-			
-			return result.toString();
+			out.append('}');
+		} finally {
+			active.remove(self);
 		}
-	};
+	}
+	
+	/**
+	 * The value of the given property without creating the initial value of
+	 * a {@link PropertyImpl#isLazy()} property.
+	 */
+	static Object currentValue(Object self, ValueState impl, PropertyImpl property) {
+		if (property.isLazy()) {
+			Object value = impl.get(property.getIndex());
+			if (value == null) {
+				return property.getDefaultValue();
+			}
+			return value;
+		}
+		return property.getGetHandler().handlePropertyAccess(self, impl);
+	}
+	
+	/**
+	 * Whether the value of the given property has been created.
+	 * 
+	 * <p>
+	 * This is only <code>false</code> for a lazy property that has not yet been
+	 * accessed. In contrast to {@link Value#value(Property)}, this method does
+	 * not create a lazy value.
+	 * </p>
+	 * 
+	 * <p>
+	 * Serializers skip a property without value: After reading, the lazy
+	 * value is created on first access, just like in the original. Writing it
+	 * instead would create the value, and would not terminate for a recursive
+	 * type.
+	 * </p>
+	 */
+	public static boolean hasValue(Value obj, Property property) {
+		if (property instanceof PropertyImpl && ((PropertyImpl) property).isLazy()) {
+			ValueState impl = stateOf(obj);
+			if (impl != null) {
+				return impl.get(((PropertyImpl) property).getIndex()) != null;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Whether each new value receives the same immutable initial value for
+	 * the given {@link Kind#PRIMITIVE} property.
+	 * 
+	 * <p>
+	 * Only for such properties, a value equal to the initial value can be
+	 * omitted when storing, since it is restored when a new value is created
+	 * for loading.
+	 * </p>
+	 */
+	public static boolean hasConstantInitializer(Property property) {
+		return property instanceof PropertyImpl && ((PropertyImpl) property).hasConstantInitializer();
+	}
+
+	/**
+	 * Whether the given property of the given value was updated since the
+	 * last call to {@link #clearChanges(Value)}.
+	 * 
+	 * <p>
+	 * A {@link Kind#LIST} or {@link Kind#INDEX} property is also changed, if
+	 * entries were added, removed, or replaced in its container. Updates of
+	 * the properties of a nested value are not reported for the property
+	 * holding the nested value. A value not implemented by this library
+	 * reports all its properties as changed.
+	 * </p>
+	 */
+	public static boolean isChanged(Value obj, Property property) {
+		ValueState impl = stateOf(obj);
+		if (impl == null) {
+			return true;
+		}
+		int index = ((PropertyImpl) property).getIndex();
+		if (impl.isChanged(index)) {
+			return true;
+		}
+		switch (property.getKind()) {
+			case LIST:
+			case INDEX: {
+				Object value = impl.get(index);
+				if (value instanceof ChangeTracking) {
+					return ((ChangeTracking) value).isChanged();
+				}
+				// A container not created by this library cannot be observed.
+				return value != null && !impl.frozen;
+			}
+			default: {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Marks the given property of the given value as updated.
+	 * 
+	 * @see #isChanged(Value, Property)
+	 */
+	public static void markChanged(Value obj, Property property) {
+		ValueState impl = stateOf(obj);
+		if (impl != null) {
+			impl.markChanged(((PropertyImpl) property).getIndex());
+		}
+	}
+
+	/**
+	 * Marks the given value and all values reachable from it as unchanged.
+	 * 
+	 * @see #isChanged(Value, Property)
+	 */
+	public static void clearChanges(Value obj) {
+		ValueState impl = stateOf(obj);
+		if (impl == null) {
+			return;
+		}
+		impl.clearChanges();
+		for (PropertyImpl property : impl.descriptor.internalGetProperties()) {
+			switch (property.getKind()) {
+				case VALUE: {
+					Object value = impl.get(property.getIndex());
+					if (value instanceof Value) {
+						clearChanges((Value) value);
+					}
+					break;
+				}
+				case LIST: {
+					Object value = impl.get(property.getIndex());
+					if (value != null) {
+						for (Object entry : (List<?>) value) {
+							if (entry instanceof Value) {
+								clearChanges((Value) entry);
+							}
+						}
+						clearContainer(value);
+					}
+					break;
+				}
+				case INDEX: {
+					Object value = impl.get(property.getIndex());
+					if (value != null) {
+						for (Object entry : ((Map<?, ?>) value).values()) {
+							if (entry instanceof Value) {
+								clearChanges((Value) entry);
+							}
+						}
+						clearContainer(value);
+					}
+					break;
+				}
+				default: {
+					break;
+				}
+			}
+		}
+	}
+
+	private static void clearContainer(Object value) {
+		if (value instanceof ChangeTracking) {
+			((ChangeTracking) value).clearChanged();
+		}
+	}
+
+	/**
+	 * The internal state of the given value, or <code>null</code>, if the given
+	 * object is not implemented by this library.
+	 */
+	static ValueState stateOf(Object value) {
+		if (value instanceof ValueState) {
+			return (ValueState) value;
+		}
+		if (value != null && Proxy.isProxyClass(value.getClass())) {
+			InvocationHandler handler = Proxy.getInvocationHandler(value);
+			if (handler instanceof ValueImpl) {
+				return (ValueImpl) handler;
+			}
+		}
+		return null;
+	}
 	
 	private static final MethodHandler DESCRIPTOR_IMPL = new MethodHandler() {
 		@Override
-		public Object handlePropertyAccess(Object self, ValueImpl impl, Object... args) {
+		public Object handlePropertyAccess(Object self, ValueState impl, Object... args) {
 			return impl.descriptor;
 		}
 	};
 	
-	private static final MethodHandler VALUE_IMPL = new MethodHandler() {
+	static final MethodHandler VALUE_IMPL = new MethodHandler() {
 		@Override
-		public Object handlePropertyAccess(Object self, ValueImpl impl, Object... args) {
+		public Object handlePropertyAccess(Object self, ValueState impl, Object... args) {
 			PropertyImpl property = (PropertyImpl) args[0];
 			return property.getGetHandler().handlePropertyAccess(self, impl);
 		}
 	};
 	
-	private static final MethodHandler PUT_VALUE_IMPL = new MethodHandler() {
+	static final MethodHandler PUT_VALUE_IMPL = new MethodHandler() {
 		@Override
-		public Object handlePropertyAccess(Object self, ValueImpl impl, Object... args) {
+		public Object handlePropertyAccess(Object self, ValueState impl, Object... args) {
 			PropertyImpl property = (PropertyImpl) args[0];
 			Object value = args[1];
 			if (value == null) {
@@ -198,6 +648,63 @@ public class ValueDescriptorImpl<T> implements ValueDescriptor<T> {
 			return property.getSetHandler().handlePropertyAccess(self, impl, value);
 		}
 	};
+
+	/**
+	 * Handlers for the unboxed accessors of {@link Value}, e.g.
+	 * {@link Value#getInt(Property)}, in dynamic proxy instances.
+	 */
+	private static final Map<Method, MethodHandler> PRIMITIVE_ACCESS_IMPLS = new HashMap<Method, MethodHandler>();
+	static {
+		Class<?>[] primitiveTypes = { 
+			boolean.class, byte.class, char.class, short.class, 
+			int.class, long.class, float.class, double.class 
+		};
+		try {
+			for (Class<?> type : primitiveTypes) {
+				String suffix = Character.toUpperCase(type.getName().charAt(0)) + type.getName().substring(1);
+				PRIMITIVE_ACCESS_IMPLS.put(Value.class.getMethod("get" + suffix, Property.class), new PrimitiveGetImpl(type));
+				PRIMITIVE_ACCESS_IMPLS.put(Value.class.getMethod("put" + suffix, Property.class, type), new PrimitivePutImpl(type));
+			}
+		} catch (NoSuchMethodException e) {
+			throw (AssertionError) new AssertionError().initCause(e);
+		}
+	}
+
+	/**
+	 * Implementation of the unboxed getters of {@link Value}.
+	 */
+	private static final class PrimitiveGetImpl implements MethodHandler {
+		private final Class<?> type;
+
+		PrimitiveGetImpl(Class<?> type) {
+			this.type = type;
+		}
+
+		@Override
+		public Object handlePropertyAccess(Object self, ValueState impl, Object... args) {
+			PropertyImpl property = (PropertyImpl) args[0];
+			ValueState.primitiveIndex(property, type);
+			return property.getGetHandler().handlePropertyAccess(self, impl);
+		}
+	}
+
+	/**
+	 * Implementation of the unboxed setters of {@link Value}.
+	 */
+	private static final class PrimitivePutImpl implements MethodHandler {
+		private final Class<?> type;
+
+		PrimitivePutImpl(Class<?> type) {
+			this.type = type;
+		}
+
+		@Override
+		public Object handlePropertyAccess(Object self, ValueState impl, Object... args) {
+			PropertyImpl property = (PropertyImpl) args[0];
+			ValueState.primitiveIndex(property, type);
+			return property.getSetHandler().handlePropertyAccess(self, impl, args[1]);
+		}
+	}
 	
 	
 	private final Class<T> valueInterface;
@@ -206,8 +713,37 @@ public class ValueDescriptorImpl<T> implements ValueDescriptor<T> {
 	private Map<String, PropertyImpl> properties = new HashMap<String, PropertyImpl>();
 	private Map<String, Property> propertiesView = Collections.<String, Property>unmodifiableMap(properties);
 	
+	private PropertyImpl[] propertyByIndex;
+	
+	/**
+	 * The initial values of all properties with constant initial values.
+	 */
+	private Object[] template;
+	
+	/**
+	 * The properties that require a fresh initial value in each new instance.
+	 */
+	private PropertyImpl[] mutableProperties;
+	
+	/**
+	 * The properties contributing to the running hash of an instance.
+	 * 
+	 * @see PropertyImpl#hasIncrementalHash()
+	 */
+	private PropertyImpl[] incrementalHashProperties;
+	
+	/**
+	 * All properties in the order in which they are compared in
+	 * {@link Object#equals(Object)}.
+	 */
+	private PropertyImpl[] comparisonOrder;
+	
 	private Map<Method, MethodHandler> handlerByMethod = new HashMap<Method, MethodHandler>();
 	
+	private HandlerTable handlerTable;
+	
+	private Factory<T> factory;
+	
 	/**
 	 * Creates a {@link ValueDescriptorImpl}.
 	 *
@@ -226,8 +762,75 @@ public class ValueDescriptorImpl<T> implements ValueDescriptor<T> {
 
 	/**
 	 * Completes the analysis of the {@link #getValueInterface()}.
+	 * 
+	 * <p>
+	 * If an implementation class was generated for the value interface at
+	 * compile time, its property table is used instead of analyzing all
+	 * methods of the interface.
+	 * </p>
+	 * 
+	 * @see GeneratedValue#PROPERTY_TABLE
 	 */
 	public void init() {
+		Class<? extends GeneratedValue> compiledClass = findCompiledImplementation();
+		if (compiledClass != null) {
+			initCompiled(compiledClass);
+		} else {
+			initReflective();
+		}
+	}
+
+	private Class<? extends GeneratedValue> findCompiledImplementation() {
+		ClassLoader loader = valueInterface.getClassLoader();
+		if (loader == null) {
+			return null;
+		}
+		
+		Class<?> compiledClass;
+		try {
+			compiledClass = Class.forName(GeneratedValue.compiledImplementationName(valueInterface.getName()), false, loader);
+		} catch (ClassNotFoundException ex) {
+			return null;
+		}
+		
+		if (!GeneratedValue.class.isAssignableFrom(compiledClass) || !valueInterface.isAssignableFrom(compiledClass)) {
+			return null;
+		}
+		return compiledClass.asSubclass(GeneratedValue.class);
+	}
+
+	private void initCompiled(Class<? extends GeneratedValue> compiledClass) {
+		String[][] propertyTable;
+		try {
+			propertyTable = (String[][]) compiledClass.getField(GeneratedValue.PROPERTY_TABLE).get(null);
+		} catch (NoSuchFieldException ex) {
+			throw (AssertionError) new AssertionError("Invalid compiled implementation: " + compiledClass.getName()).initCause(ex);
+		} catch (IllegalAccessException ex) {
+			throw (AssertionError) new AssertionError("Invalid compiled implementation: " + compiledClass.getName()).initCause(ex);
+		}
+		
+		ClassLoader loader = valueInterface.getClassLoader();
+		PropertyImpl[] compiledProperties = new PropertyImpl[propertyTable.length];
+		for (int index = 0, cnt = propertyTable.length; index < cnt; index++) {
+			String[] entry = propertyTable[index];
+			PropertyImpl property = new PropertyImpl(this, entry[0], index);
+			try {
+				Class<?> declaringInterface = Class.forName(entry[1], false, loader);
+				property.initGetter(declaringInterface.getMethod(entry[2]));
+			} catch (ClassNotFoundException ex) {
+				throw (AssertionError) new AssertionError("Invalid compiled implementation: " + compiledClass.getName()).initCause(ex);
+			} catch (NoSuchMethodException ex) {
+				throw (AssertionError) new AssertionError("Invalid compiled implementation: " + compiledClass.getName()).initCause(ex);
+			}
+			compiledProperties[index] = property;
+		}
+		
+		initProperties(Arrays.asList(compiledProperties));
+		
+		factory = new GeneratedFactory<T>(this, compiledClass);
+	}
+
+	private void initReflective() {
 		Map<String, PropertyImpl> propertyByRawName = new HashMap<String, PropertyImpl>();
 		Map<Method, PropertyImpl> propertyByMethod = new HashMap<Method, PropertyImpl>();
 		for (Method method : valueInterface.getMethods()) {
@@ -326,12 +929,7 @@ public class ValueDescriptorImpl<T> implements ValueDescriptor<T> {
 			propertyByMethod.put(method, property);
 		}
 		
-		for (PropertyImpl property : propertyByRawName.values()) {
-			PropertyImpl clash = properties.put(property.getName(), property);
-			if (clash != null) {
-				throw new IllegalArgumentException("Properties must have unique names in interface '" + valueInterface.getName() + "': " + clash.getName());
-			}
-		}
+		initProperties(propertyByRawName.values());
 		
 		for (Entry<Method, PropertyImpl> entry : propertyByMethod.entrySet()) {
 			Method method = entry.getKey();
@@ -349,6 +947,81 @@ public class ValueDescriptorImpl<T> implements ValueDescriptor<T> {
 		handlerByMethod.put(DESCRIPTOR_METHOD, DESCRIPTOR_IMPL);
 		handlerByMethod.put(VALUE_METHOD, VALUE_IMPL);
 		handlerByMethod.put(PUT_VALUE_METHOD, PUT_VALUE_IMPL);
+		handlerByMethod.put(FREEZE_METHOD, FREEZE_IMPL);
+		handlerByMethod.put(IS_FROZEN_METHOD, IS_FROZEN_IMPL);
+		handlerByMethod.putAll(PRIMITIVE_ACCESS_IMPLS);
+		
+		handlerTable = new HandlerTable(handlerByMethod);
+		
+		factory = createFactory(propertyByMethod);
+	}
+
+	private void initProperties(Collection<PropertyImpl> allProperties) {
+		propertyByIndex = new PropertyImpl[allProperties.size()];
+		for (PropertyImpl property : allProperties) {
+			PropertyImpl clash = properties.put(property.getName(), property);
+			if (clash != null) {
+				throw new IllegalArgumentException("Properties must have unique names in interface '" + valueInterface.getName() + "': " + clash.getName());
+			}
+			propertyByIndex[property.getIndex()] = property;
+		}
+		
+		template = new Object[propertyByIndex.length];
+		List<PropertyImpl> mutable = new ArrayList<PropertyImpl>();
+		List<PropertyImpl> incrementalHash = new ArrayList<PropertyImpl>();
+		for (PropertyImpl property : propertyByIndex) {
+			if (property.hasIncrementalHash()) {
+				incrementalHash.add(property);
+			}
+
+			if (property.isLazy()) {
+				// Created on first access.
+				continue;
+			}
+			if (property.hasConstantInitializer()) {
+				template[property.getIndex()] = property.getInitializer().init();
+			} else {
+				mutable.add(property);
+			}
+		}
+		mutableProperties = mutable.toArray(new PropertyImpl[mutable.size()]);
+		incrementalHashProperties = incrementalHash.toArray(new PropertyImpl[incrementalHash.size()]);
+		
+		comparisonOrder = propertyByIndex.clone();
+		Arrays.sort(comparisonOrder, new Comparator<PropertyImpl>() {
+			@Override
+			public int compare(PropertyImpl p1, PropertyImpl p2) {
+				return comparisonRank(p1) - comparisonRank(p2);
+			}
+		});
+	}
+
+	/**
+	 * Properties that are cheap to compare are compared first.
+	 */
+	static int comparisonRank(PropertyImpl property) {
+		if (property.isUnboxed()) {
+			return 0;
+		}
+		switch (property.getKind()) {
+			case PRIMITIVE:
+				return 1;
+			case REFERENCE:
+				return 2;
+			default:
+				return 3;
+		}
+	}
+
+	private Factory<T> createFactory(Map<Method, PropertyImpl> propertyByMethod) {
+		if (ImplementationGenerator.isRequested(valueInterface)) {
+			Class<? extends GeneratedValue> implementationClass = 
+				ImplementationGenerator.generate(this, propertyByMethod);
+			if (implementationClass != null) {
+				return new GeneratedFactory<T>(this, implementationClass);
+			}
+		}
+		return new ProxyFactory<T>(this);
 	}
 
 	Collection<PropertyImpl> internalGetProperties() {
@@ -361,19 +1034,125 @@ public class ValueDescriptorImpl<T> implements ValueDescriptor<T> {
 	}
 	
 	MethodHandler getHandler(Method method) {
-		return handlerByMethod.get(method);
+		return handlerTable.get(method);
+	}
+
+	/**
+	 * The properties that require a fresh initial value in each new instance.
+	 */
+	PropertyImpl[] getMutableProperties() {
+		return mutableProperties;
+	}
+
+	/**
+	 * The properties contributing to the running hash of an instance.
+	 * 
+	 * @see PropertyImpl#hasIncrementalHash()
+	 */
+	PropertyImpl[] getIncrementalHashProperties() {
+		return incrementalHashProperties;
+	}
+
+	/**
+	 * All properties, the ones that are cheap to compare first.
+	 */
+	PropertyImpl[] getComparisonOrder() {
+		return comparisonOrder;
 	}
 
+	PropertyImpl getProperty(int index) {
+		return propertyByIndex[index];
+	}
+	
 	int getSize() {
 		return properties.size();
 	}
 
 	@Override
 	public T newInstance() {
-		@SuppressWarnings("unchecked")
-		T result = (T) Proxy.newProxyInstance(valueInterface.getClassLoader(), implInterfaces, new ValueImpl(this));
-		
-		return result;
+		return factory.newInstance();
 	}
 	
+	/**
+	 * {@link Factory} creating dynamic proxy instances.
+	 */
+	static final class ProxyFactory<T> implements Factory<T> {
+		private final ValueDescriptorImpl<T> descriptor;
+
+		ProxyFactory(ValueDescriptorImpl<T> descriptor) {
+			this.descriptor = descriptor;
+		}
+
+		@Override
+		public T newInstance() {
+			@SuppressWarnings("unchecked")
+			T result = (T) Proxy.newProxyInstance(descriptor.valueInterface.getClassLoader(),
+				descriptor.implInterfaces, new ValueImpl(descriptor));
+			
+			return result;
+		}
+	}
+
+	/**
+	 * {@link Factory} creating instances of a generated implementation class.
+	 * 
+	 * <p>
+	 * The first instance is created reflectively and kept as prototype. All
+	 * further instances are copies of the prototype, see
+	 * {@link GeneratedValue#copy()}.
+	 * </p>
+	 * 
+	 * <p>
+	 * The prototype is not created in the constructor, since the factory is
+	 * created while analyzing the value type, when the initializers of
+	 * recursively referenced types are not yet available. It is published
+	 * through a volatile field, so that other threads never copy a partially
+	 * initialized prototype. Creating the prototype concurrently in multiple
+	 * threads is harmless.
+	 * </p>
+	 */
+	static final class GeneratedFactory<T> implements Factory<T> {
+		private final ValueDescriptorImpl<T> descriptor;
+		private final Class<? extends GeneratedValue> implementationClass;
+		private volatile GeneratedValue prototype;
+
+		GeneratedFactory(ValueDescriptorImpl<T> descriptor, Class<? extends GeneratedValue> implementationClass) {
+			this.descriptor = descriptor;
+			this.implementationClass = implementationClass;
+		}
+
+		@Override
+		public T newInstance() {
+			GeneratedValue template = prototype;
+			if (template == null) {
+				template = createPrototype();
+				prototype = template;
+			}
+			@SuppressWarnings("unchecked")
+			T result = (T) template.copy();
+			return result;
+		}
+
+		private GeneratedValue createPrototype() {
+			try {
+				return implementationClass.getConstructor(ValueDescriptorImpl.class).newInstance(descriptor);
+			} catch (InstantiationException ex) {
+				throw (AssertionError) new AssertionError("Cannot instantiate generated class.").initCause(ex);
+			} catch (IllegalAccessException ex) {
+				throw (AssertionError) new AssertionError("Cannot instantiate generated class.").initCause(ex);
+			} catch (NoSuchMethodException ex) {
+				throw (AssertionError) new AssertionError("Cannot instantiate generated class.").initCause(ex);
+			} catch (InvocationTargetException ex) {
+				Throwable cause = ex.getCause();
+				if (cause instanceof RuntimeException) {
+					throw ((RuntimeException) cause);
+				}
+				if (cause instanceof Error) {
+					throw ((Error) cause);
+				}
+				throw (AssertionError) new AssertionError("Cannot instantiate generated class.").initCause(ex);
+			}
+		}
+	}
+
 }
@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.internal;
+
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+
+/**
+ * Common base class of the internal state of a {@link Value} instance.
+ * 
+ * <p>
+ * The state of a value is either kept in a {@link ValueDescriptorImpl.ValueImpl}
+ * backing a dynamic proxy, or directly in the fields of a
+ * {@link GeneratedValue} implementation class. Both provide access to their
+ * property values through the storage index of the property. Values of
+ * properties with a Java primitive type can additionally be accessed without
+ * boxing.
+ * </p>
+ * 
+ * @see PropertyImpl#getIndex()
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version Since 0.3.0
+ */
+public abstract class ValueState {
+
+	/**
+	 * The descriptor of the value type.
+	 */
+	protected final ValueDescriptorImpl<?> descriptor;
+
+	/**
+	 * Creates a {@link ValueState}.
+	 * 
+	 * @param descriptor
+	 *        The descriptor of the value type.
+	 */
+	protected ValueState(ValueDescriptorImpl<?> descriptor) {
+		this.descriptor = descriptor;
+	}
+
+	/**
+	 * Whether this value is immutable.
+	 * 
+	 * @see Value#freeze()
+	 */
+	volatile boolean frozen;
+
+	/**
+	 * The hash code of a frozen value.
+	 * 
+	 * <p>
+	 * Computed before {@link #frozen} is set, and only valid afterwards.
+	 * </p>
+	 */
+	int frozenHashCode;
+
+	/**
+	 * The sum of the hash code contributions of all properties with
+	 * {@link PropertyImpl#hasIncrementalHash()}.
+	 */
+	int runningHash;
+
+	/**
+	 * Bit set of the storage indices of all properties updated since the last
+	 * call to {@link #clearChanges()}, or <code>null</code>, if there are no
+	 * such properties.
+	 */
+	private long[] changes;
+
+	/**
+	 * Initializes the {@link #runningHash} from the current property values.
+	 */
+	final void initRunningHash() {
+		runningHash = 0;
+		for (PropertyImpl property : descriptor.getIncrementalHashProperties()) {
+			runningHash += hashContribution(property);
+		}
+	}
+
+	/**
+	 * The contribution of the current value of the given property to the hash
+	 * code of this value.
+	 */
+	final int hashContribution(PropertyImpl property) {
+		return (property.getIndex() + 1) * property.getParser().hashCode(get(property.getIndex()));
+	}
+
+	/**
+	 * Must be called before the property with the given storage index is
+	 * updated.
+	 * 
+	 * @throws UnsupportedOperationException
+	 *         If this value is frozen.
+	 * 
+	 * @see #afterUpdate(int)
+	 */
+	protected final void beforeUpdate(int index) {
+		checkModifiable();
+		PropertyImpl property = descriptor.getProperty(index);
+		if (property.hasIncrementalHash()) {
+			runningHash -= hashContribution(property);
+		}
+	}
+
+	/**
+	 * Must be called after the property with the given storage index has
+	 * been updated.
+	 * 
+	 * @see #beforeUpdate(int)
+	 */
+	protected final void afterUpdate(int index) {
+		PropertyImpl property = descriptor.getProperty(index);
+		if (property.hasIncrementalHash()) {
+			runningHash += hashContribution(property);
+		}
+		markChanged(index);
+	}
+
+	/**
+	 * Records an update of the property with the given storage index.
+	 */
+	final void markChanged(int index) {
+		long[] bits = changes;
+		if (bits == null) {
+			bits = new long[(descriptor.getSize() + 63) >>> 6];
+			changes = bits;
+		}
+		bits[index >>> 6] |= 1L << index;
+	}
+
+	/**
+	 * Whether the property with the given storage index was updated since the
+	 * last call to {@link #clearChanges()}.
+	 */
+	final boolean isChanged(int index) {
+		long[] bits = changes;
+		return bits != null && (bits[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Whether any property was updated since the last call to
+	 * {@link #clearChanges()}.
+	 */
+	final boolean hasChanges() {
+		return changes != null;
+	}
+
+	/**
+	 * Forgets about all updates.
+	 */
+	final void clearChanges() {
+		changes = null;
+	}
+
+	/**
+	 * Makes sure that this value can be updated.
+	 * 
+	 * @throws UnsupportedOperationException
+	 *         If this value is frozen.
+	 * 
+	 * @see Value#freeze()
+	 */
+	private void checkModifiable() {
+		if (frozen) {
+			throw new UnsupportedOperationException("Cannot modify a frozen '" + descriptor.getValueInterface().getName() + "'.");
+		}
+	}
+
+	/**
+	 * Creates and stores the initial value of the given lazy property.
+	 * 
+	 * <p>
+	 * A frozen value is not modified, since it may be shared between threads.
+	 * Instead, the frozen initial value shared by all frozen values is
+	 * returned.
+	 * </p>
+	 * 
+	 * @see PropertyImpl#isLazy()
+	 * @see PropertyImpl#getFrozenDefaultValue()
+	 */
+	final Object materialize(PropertyImpl property) {
+		if (frozen) {
+			return property.getFrozenDefaultValue();
+		}
+		Object value = property.getInitializer().init();
+		set(property.getIndex(), value);
+		return value;
+	}
+
+	/**
+	 * Reads the value of the property with the given storage index.
+	 * 
+	 * @param index
+	 *        The storage index of the property.
+	 * @return The current value of the property.
+	 */
+	protected abstract Object get(int index);
+
+	/**
+	 * Updates the value of the property with the given storage index.
+	 * 
+	 * <p>
+	 * No <code>null</code> replacement is done by this method.
+	 * </p>
+	 * 
+	 * @param index
+	 *        The storage index of the property.
+	 * @param value
+	 *        The new value of the property.
+	 */
+	protected abstract void set(int index, Object value);
+
+	/**
+	 * Reads the value of the property with the given storage index that has a
+	 * Java primitive type.
+	 * 
+	 * <p>
+	 * The result is the raw bit pattern of the value: Integral values and
+	 * characters are sign or zero extended, <code>boolean</code> values are
+	 * represented as <code>0</code> and <code>1</code>, <code>float</code>
+	 * values as {@link Float#floatToRawIntBits(float)}, and
+	 * <code>double</code> values as {@link Double#doubleToRawLongBits(double)}.
+	 * </p>
+	 * 
+	 * @param index
+	 *        The storage index of the property.
+	 * @return The bit pattern of the property's value.
+	 */
+	protected abstract long getBits(int index);
+
+	/**
+	 * Updates the value of the property with the given storage index that has
+	 * a Java primitive type.
+	 * 
+	 * @param index
+	 *        The storage index of the property.
+	 * @param bits
+	 *        The bit pattern of the new value, see {@link #getBits(int)}.
+	 */
+	protected abstract void setBits(int index, long bits);
+
+	/**
+	 * The storage index of the given {@link Property} that must have the
+	 * given primitive type.
+	 */
+	static int primitiveIndex(Property property, Class<?> type) {
+		if (property.getType() != type) {
+			throw new IllegalArgumentException("Property '" + property.getName() + "' is not of type '" + type.getName() + "'.");
+		}
+		return ((PropertyImpl) property).getIndex();
+	}
+
+	/**
+	 * Whether the given bit patterns of values of the given primitive type
+	 * represent equal values in the sense of the wrapper type's
+	 * {@link Object#equals(Object)} method.
+	 * 
+	 * @see #getBits(int)
+	 */
+	static boolean equalBits(Class<?> type, long bits1, long bits2) {
+		if (bits1 == bits2) {
+			return true;
+		}
+		if (type == float.class) {
+			// Note: All NaN values are equal.
+			return Float.floatToIntBits(Float.intBitsToFloat((int) bits1)) == Float.floatToIntBits(Float.intBitsToFloat((int) bits2));
+		} else if (type == double.class) {
+			return Double.doubleToLongBits(Double.longBitsToDouble(bits1)) == Double.doubleToLongBits(Double.longBitsToDouble(bits2));
+		} else {
+			return false;
+		}
+	}
+
+	/**
+	 * Converts a boxed primitive value to its bit pattern.
+	 * 
+	 * @see #getBits(int)
+	 */
+	static long toBits(Object value) {
+		if (value instanceof Boolean) {
+			return ((Boolean) value).booleanValue() ? 1 : 0;
+		} else if (value instanceof Character) {
+			return ((Character) value).charValue();
+		} else if (value instanceof Float) {
+			return Float.floatToRawIntBits(((Float) value).floatValue());
+		} else if (value instanceof Double) {
+			return Double.doubleToRawLongBits(((Double) value).doubleValue());
+		} else {
+			return ((Number) value).longValue();
+		}
+	}
+
+	/**
+	 * Converts a bit pattern to a boxed value of the given primitive type.
+	 * 
+	 * @see #getBits(int)
+	 */
+	static Object fromBits(Class<?> type, long bits) {
+		if (type == boolean.class) {
+			return Boolean.valueOf(bits != 0);
+		} else if (type == byte.class) {
+			return Byte.valueOf((byte) bits);
+		} else if (type == char.class) {
+			return Character.valueOf((char) bits);
+		} else if (type == short.class) {
+			return Short.valueOf((short) bits);
+		} else if (type == int.class) {
+			return Integer.valueOf((int) bits);
+		} else if (type == long.class) {
+			return Long.valueOf(bits);
+		} else if (type == float.class) {
+			return Float.valueOf(Float.intBitsToFloat((int) bits));
+		} else if (type == double.class) {
+			return Double.valueOf(Double.longBitsToDouble(bits));
+		} else {
+			throw new IllegalArgumentException("Not a primitive type: " + type.getName());
+		}
+	}
+
+}
@@ -0,0 +1,452 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+
+import de.haumacher.values.Parser;
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueFactory;
+import de.haumacher.values.format.ParseUtil;
+import de.haumacher.values.internal.PropertyTable;
+
+/**
+ * Streaming JSON parser that directly fills {@link Value} instances.
+ * 
+ * <p>
+ * The input is consumed in chunks. Only the text of the current token is
+ * buffered, and it is passed to the property's {@link Parser} as a range
+ * without creating a {@link String}.
+ * </p>
+ * 
+ * @see JsonWriter
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+final class JsonReader {
+
+	private static final int EOF = -1;
+
+	private final Reader in;
+
+	private final char[] buffer = new char[8192];
+
+	private int pos;
+
+	private int limit;
+
+	/**
+	 * The number of characters consumed before the current buffer contents.
+	 */
+	private long offset;
+
+	/**
+	 * The text of the last string or number token.
+	 */
+	private final StringBuilder token = new StringBuilder();
+
+	JsonReader(Reader in) {
+		this.in = in;
+	}
+
+	/**
+	 * Reads a JSON object into the given {@link Value}.
+	 */
+	void readValue(Value obj) throws IOException {
+		expect('{');
+		if (consume('}')) {
+			return;
+		}
+
+		PropertyTable table = PropertyTable.getTable(obj.descriptor());
+		do {
+			if (skipWhitespace() != '"') {
+				throw error("Property name expected");
+			}
+			readString();
+			Property property = table.lookup(token);
+			expect(':');
+			if (property == null) {
+				skipJson();
+			} else {
+				readProperty(obj, property);
+			}
+		} while (consume(','));
+		expect('}');
+	}
+
+	/**
+	 * Makes sure that there is no more input except white space.
+	 */
+	void readEnd() throws IOException {
+		if (skipWhitespace() != EOF) {
+			throw error("End of input expected");
+		}
+	}
+
+	private void readProperty(Value obj, Property property) throws IOException {
+		switch (property.getKind()) {
+		case PRIMITIVE: {
+			obj.putValue(property, readPrimitive(property));
+			break;
+		}
+
+		case VALUE: {
+			if (consumeNull()) {
+				obj.putValue(property, null);
+			} else {
+				Value value = (Value) obj.value(property);
+				if (value == null) {
+					value = newContent(property);
+					obj.putValue(property, value);
+				}
+				readValue(value);
+			}
+			break;
+		}
+
+		case LIST: {
+			@SuppressWarnings("unchecked")
+			List<Value> list = (List<Value>) obj.value(property);
+			list.clear();
+			if (consumeNull()) {
+				break;
+			}
+			expect('[');
+			if (consume(']')) {
+				break;
+			}
+			do {
+				list.add(readContent(property));
+			} while (consume(','));
+			expect(']');
+			break;
+		}
+
+		case INDEX: {
+			@SuppressWarnings("unchecked")
+			Map<Object, Value> map = (Map<Object, Value>) obj.value(property);
+			map.clear();
+			if (consumeNull()) {
+				break;
+			}
+			Property indexProperty = property.getIndexProperty();
+			if (skipWhitespace() == '{') {
+				// Entries keyed by the text of their index property.
+				expect('{');
+				if (consume('}')) {
+					break;
+				}
+				do {
+					if (skipWhitespace() != '"') {
+						throw error("Index key expected");
+					}
+					readString();
+					Value entry = newContent(property);
+					entry.putValue(indexProperty, ParseUtil.parse(indexProperty.getParser(), token, 0, token.length()));
+					expect(':');
+					readValue(entry);
+					map.put(entry.value(indexProperty), entry);
+				} while (consume(','));
+				expect('}');
+			} else {
+				expect('[');
+				if (consume(']')) {
+					break;
+				}
+				do {
+					Value entry = newContent(property);
+					readValue(entry);
+					map.put(entry.value(indexProperty), entry);
+				} while (consume(','));
+				expect(']');
+			}
+			break;
+		}
+
+		case REFERENCE: {
+			skipJson();
+			break;
+		}
+		}
+	}
+
+	private Value readContent(Property property) throws IOException {
+		if (consumeNull()) {
+			return null;
+		}
+		Value result = newContent(property);
+		readValue(result);
+		return result;
+	}
+
+	private static Value newContent(Property property) {
+		return (Value) ValueFactory.getDescriptor(property.getType()).newInstance();
+	}
+
+	private Object readPrimitive(Property property) throws IOException {
+		int ch = skipWhitespace();
+		switch (ch) {
+		case '"':
+			readString();
+			break;
+		case 'n':
+			readLiteral("null");
+			if (property.getType().isPrimitive()) {
+				return property.getInitializer().init();
+			}
+			return null;
+		case 't':
+			readLiteral("true");
+			break;
+		case 'f':
+			readLiteral("false");
+			break;
+		case '{':
+		case '[':
+		case EOF:
+			throw error("Value of '" + property.getName() + "' expected");
+		default:
+			readNumber();
+			break;
+		}
+
+		try {
+			return ParseUtil.parse(property.getParser(), token, 0, token.length());
+		} catch (IllegalArgumentException ex) {
+			throw (IOException) error("Invalid value of '" + property.getName() + "'").initCause(ex);
+		}
+	}
+
+	/**
+	 * Reads a string token into {@link #token}.
+	 */
+	private void readString() throws IOException {
+		expect('"');
+		token.setLength(0);
+		while (true) {
+			int ch = next();
+			switch (ch) {
+			case '"':
+				return;
+			case '\\':
+				readEscape();
+				break;
+			case EOF:
+				throw error("Unterminated string");
+			default:
+				token.append((char) ch);
+			}
+		}
+	}
+
+	private void readEscape() throws IOException {
+		int ch = next();
+		switch (ch) {
+		case '"':
+		case '\\':
+		case '/':
+			token.append((char) ch);
+			break;
+		case 'b':
+			token.append('\b');
+			break;
+		case 'f':
+			token.append('\f');
+			break;
+		case 'n':
+			token.append('\n');
+			break;
+		case 'r':
+			token.append('\r');
+			break;
+		case 't':
+			token.append('\t');
+			break;
+		case 'u': {
+			int value = 0;
+			for (int n = 0; n < 4; n++) {
+				int digit = Character.digit(next(), 16);
+				if (digit < 0) {
+					throw error("Invalid unicode escape");
+				}
+				value = (value << 4) | digit;
+			}
+			token.append((char) value);
+			break;
+		}
+		default:
+			throw error("Invalid escape");
+		}
+	}
+
+	/**
+	 * Reads the characters of a number token into {@link #token}.
+	 */
+	private void readNumber() throws IOException {
+		token.setLength(0);
+		while (true) {
+			int ch = peek();
+			if ((ch >= '0' && ch <= '9') || ch == '-' || ch == '+' || ch == '.' || ch == 'e' || ch == 'E') {
+				token.append((char) ch);
+				pos++;
+			} else {
+				break;
+			}
+		}
+		if (token.length() == 0) {
+			throw error("Unexpected character");
+		}
+	}
+
+	/**
+	 * Reads the given literal into {@link #token}.
+	 */
+	private void readLiteral(String literal) throws IOException {
+		for (int n = 0, cnt = literal.length(); n < cnt; n++) {
+			if (next() != literal.charAt(n)) {
+				throw error("Expected '" + literal + "'");
+			}
+		}
+		token.setLength(0);
+		token.append(literal);
+	}
+
+	private boolean consumeNull() throws IOException {
+		if (skipWhitespace() == 'n') {
+			readLiteral("null");
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Skips an arbitrary JSON value.
+	 */
+	private void skipJson() throws IOException {
+		int ch = skipWhitespace();
+		switch (ch) {
+		case '{':
+			pos++;
+			if (consume('}')) {
+				return;
+			}
+			do {
+				if (skipWhitespace() != '"') {
+					throw error("Property name expected");
+				}
+				readString();
+				expect(':');
+				skipJson();
+			} while (consume(','));
+			expect('}');
+			break;
+		case '[':
+			pos++;
+			if (consume(']')) {
+				return;
+			}
+			do {
+				skipJson();
+			} while (consume(','));
+			expect(']');
+			break;
+		case '"':
+			readString();
+			break;
+		case 'n':
+			readLiteral("null");
+			break;
+		case 't':
+			readLiteral("true");
+			break;
+		case 'f':
+			readLiteral("false");
+			break;
+		default:
+			readNumber();
+			break;
+		}
+	}
+
+	private void expect(char expected) throws IOException {
+		if (skipWhitespace() != expected) {
+			throw error("Expected '" + expected + "'");
+		}
+		pos++;
+	}
+
+	private boolean consume(char expected) throws IOException {
+		if (skipWhitespace() == expected) {
+			pos++;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Skips white space and returns the next character without consuming it.
+	 */
+	private int skipWhitespace() throws IOException {
+		while (true) {
+			int ch = peek();
+			if (ch == ' ' || ch == '\n' || ch == '\r' || ch == '\t') {
+				pos++;
+			} else {
+				return ch;
+			}
+		}
+	}
+
+	private int peek() throws IOException {
+		if (pos == limit && !fill()) {
+			return EOF;
+		}
+		return buffer[pos];
+	}
+
+	private int next() throws IOException {
+		if (pos == limit && !fill()) {
+			return EOF;
+		}
+		return buffer[pos++];
+	}
+
+	private boolean fill() throws IOException {
+		offset += limit;
+		pos = 0;
+		limit = 0;
+		int cnt = in.read(buffer, 0, buffer.length);
+		if (cnt <= 0) {
+			return false;
+		}
+		limit = cnt;
+		return true;
+	}
+
+	private IOException error(String message) {
+		return new IOException(message + " at position " + (offset + pos) + ".");
+	}
+
+}
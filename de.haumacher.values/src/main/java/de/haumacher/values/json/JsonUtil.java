@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import de.haumacher.values.Kind;
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueDescriptor;
+import de.haumacher.values.ValueFactory;
+
+/**
+ * Utility methods to read/write {@link Value} types from/to JSON.
+ * 
+ * <p>
+ * A {@link Value} is represented as JSON object with one member per
+ * {@link Property}. {@link Kind#PRIMITIVE} properties are represented by the
+ * text of their {@link Property#getParser() parser}, numbers and booleans
+ * without quotes. {@link Kind#VALUE} properties are nested objects,
+ * {@link Kind#LIST} properties arrays of objects. {@link Kind#INDEX}
+ * properties are written either as arrays or as objects whose member names are
+ * the values of the {@link Property#getIndexProperty() index property}.
+ * Reading accepts both forms.
+ * </p>
+ * 
+ * <p>
+ * Input is processed as a stream without building an intermediate document
+ * tree. Unknown members are skipped.
+ * </p>
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version Since 0.3.0
+ */
+public class JsonUtil {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * Reads an instance of the given {@link Value} type from the given JSON
+	 * text.
+	 * 
+	 * @param in
+	 *        The JSON text containing a single object.
+	 * @param type
+	 *        The {@link Value} type to instantiate.
+	 * @return A new instance of the given type.
+	 * @throws IOException
+	 *         If reading fails or the input is not valid JSON.
+	 */
+	public static <T extends Value> T read(Reader in, Class<T> type) throws IOException {
+		ValueDescriptor<T> descriptor = ValueFactory.getDescriptor(type);
+		T result = descriptor.newInstance();
+		read(in, result);
+		return result;
+	}
+
+	/**
+	 * Reads an instance of the given {@link Value} type from the given UTF-8
+	 * encoded JSON stream.
+	 * 
+	 * @see #read(Reader, Class)
+	 */
+	public static <T extends Value> T read(InputStream in, Class<T> type) throws IOException {
+		return read(new InputStreamReader(in, UTF_8), type);
+	}
+
+	/**
+	 * Applies the given JSON object to the given {@link Value}.
+	 * 
+	 * <p>
+	 * Properties not mentioned in the JSON object keep their values. Lists and
+	 * indices mentioned are replaced.
+	 * </p>
+	 * 
+	 * @param in
+	 *        The JSON text containing a single object.
+	 * @param obj
+	 *        The {@link Value} to update.
+	 * @throws IOException
+	 *         If reading fails or the input is not valid JSON.
+	 */
+	public static void read(Reader in, Value obj) throws IOException {
+		JsonReader reader = new JsonReader(in);
+		reader.readValue(obj);
+		reader.readEnd();
+	}
+
+	/**
+	 * Writes the given {@link Value} as JSON object with indices written as
+	 * arrays.
+	 * 
+	 * @see #write(Writer, Value, boolean)
+	 */
+	public static void write(Writer out, Value obj) throws IOException {
+		write(out, obj, false);
+	}
+
+	/**
+	 * Writes the given {@link Value} as JSON object.
+	 * 
+	 * @param out
+	 *        The {@link Writer} to write to. It is flushed but not closed.
+	 * @param obj
+	 *        The {@link Value} to write.
+	 * @param indexAsObject
+	 *        Whether to write {@link Kind#INDEX} properties as objects keyed by
+	 *        their index property instead of arrays.
+	 * @throws IOException
+	 *         If writing fails.
+	 */
+	public static void write(Writer out, Value obj, boolean indexAsObject) throws IOException {
+		JsonWriter writer = new JsonWriter(out, indexAsObject);
+		writer.writeValue(obj);
+		writer.flush();
+	}
+
+	/**
+	 * Writes the given {@link Value} as UTF-8 encoded JSON object.
+	 * 
+	 * @see #write(Writer, Value)
+	 */
+	public static void write(OutputStream out, Value obj) throws IOException {
+		write(new OutputStreamWriter(out, UTF_8), obj);
+	}
+
+}
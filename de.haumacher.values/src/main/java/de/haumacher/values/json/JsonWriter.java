@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.json;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import de.haumacher.values.Kind;
+import de.haumacher.values.Parser;
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+import de.haumacher.values.format.UnparseUtil;
+import de.haumacher.values.internal.ValueDescriptorImpl;
+
+/**
+ * Streaming JSON serializer for {@link Value} instances.
+ * 
+ * <p>
+ * Primitive values are written with the property's {@link Parser}. The text of
+ * boolean and number properties is written unquoted, if it is a valid JSON
+ * literal.
+ * </p>
+ * 
+ * @see JsonReader
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+final class JsonWriter {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final Writer out;
+
+	private final boolean indexAsObject;
+
+	private final char[] buffer = new char[8192];
+
+	private int pos;
+
+	/**
+	 * Buffer for the text of primitive values.
+	 */
+	private final StringBuilder text = new StringBuilder();
+
+	JsonWriter(Writer out, boolean indexAsObject) {
+		this.out = out;
+		this.indexAsObject = indexAsObject;
+	}
+
+	/**
+	 * Writes the given {@link Value} as JSON object.
+	 */
+	void writeValue(Value obj) throws IOException {
+		append('{');
+		boolean first = true;
+		for (Property property : obj.descriptor().getProperties().values()) {
+			Kind kind = property.getKind();
+			if (kind == Kind.REFERENCE) {
+				continue;
+			}
+			if (kind != Kind.PRIMITIVE && !ValueDescriptorImpl.hasValue(obj, property)) {
+				// See ValueDescriptorImpl#hasValue(Value, Property).
+				continue;
+			}
+
+			if (first) {
+				first = false;
+			} else {
+				append(',');
+			}
+			writeString(property.getName());
+			append(':');
+			writeProperty(property, obj.value(property));
+		}
+		append('}');
+	}
+
+	/**
+	 * Writes buffered output to the underlying {@link Writer}.
+	 */
+	void flush() throws IOException {
+		out.write(buffer, 0, pos);
+		pos = 0;
+		out.flush();
+	}
+
+	private void writeProperty(Property property, Object value) throws IOException {
+		if (value == null) {
+			appendNull();
+			return;
+		}
+
+		switch (property.getKind()) {
+		case PRIMITIVE: {
+			writePrimitive(property, value);
+			break;
+		}
+
+		case VALUE: {
+			writeValue((Value) value);
+			break;
+		}
+
+		case LIST: {
+			append('[');
+			boolean first = true;
+			for (Object entry : (List<?>) value) {
+				if (first) {
+					first = false;
+				} else {
+					append(',');
+				}
+				writeContent((Value) entry);
+			}
+			append(']');
+			break;
+		}
+
+		case INDEX: {
+			Map<?, ?> map = (Map<?, ?>) value;
+			if (indexAsObject) {
+				append('{');
+				Parser<Object> keyParser = property.getIndexProperty().getParser();
+				boolean first = true;
+				for (Entry<?, ?> entry : map.entrySet()) {
+					if (first) {
+						first = false;
+					} else {
+						append(',');
+					}
+					text.setLength(0);
+					UnparseUtil.unparse(keyParser, entry.getKey(), text);
+					writeString(text);
+					append(':');
+					writeValue((Value) entry.getValue());
+				}
+				append('}');
+			} else {
+				append('[');
+				boolean first = true;
+				for (Object entry : map.values()) {
+					if (first) {
+						first = false;
+					} else {
+						append(',');
+					}
+					writeValue((Value) entry);
+				}
+				append(']');
+			}
+			break;
+		}
+
+		case REFERENCE: {
+			appendNull();
+			break;
+		}
+		}
+	}
+
+	private void writeContent(Value value) throws IOException {
+		if (value == null) {
+			appendNull();
+		} else {
+			writeValue(value);
+		}
+	}
+
+	private void writePrimitive(Property property, Object value) throws IOException {
+		text.setLength(0);
+		UnparseUtil.unparse(property.getParser(), value, text);
+
+		Class<?> type = property.getType();
+		if (isBoolean(type) ? isBooleanLiteral(text) : isNumber(type) && isNumberLiteral(text)) {
+			for (int n = 0, cnt = text.length(); n < cnt; n++) {
+				append(text.charAt(n));
+			}
+		} else {
+			writeString(text);
+		}
+	}
+
+	private static boolean isBoolean(Class<?> type) {
+		return type == boolean.class || type == Boolean.class;
+	}
+
+	private static boolean isNumber(Class<?> type) {
+		return (type.isPrimitive() && type != boolean.class && type != char.class) || Number.class.isAssignableFrom(type);
+	}
+
+	private static boolean isBooleanLiteral(CharSequence text) {
+		return "true".contentEquals(text) || "false".contentEquals(text);
+	}
+
+	/**
+	 * Whether the given text is a number according to the JSON grammar.
+	 */
+	private static boolean isNumberLiteral(CharSequence text) {
+		int length = text.length();
+		int n = 0;
+		if (n < length && text.charAt(n) == '-') {
+			n++;
+		}
+		if (n == length) {
+			return false;
+		}
+		if (text.charAt(n) == '0') {
+			n++;
+		} else {
+			int start = n;
+			n = skipDigits(text, n);
+			if (n == start) {
+				return false;
+			}
+		}
+		if (n < length && text.charAt(n) == '.') {
+			int start = ++n;
+			n = skipDigits(text, n);
+			if (n == start) {
+				return false;
+			}
+		}
+		if (n < length && (text.charAt(n) == 'e' || text.charAt(n) == 'E')) {
+			n++;
+			if (n < length && (text.charAt(n) == '+' || text.charAt(n) == '-')) {
+				n++;
+			}
+			int start = n;
+			n = skipDigits(text, n);
+			if (n == start) {
+				return false;
+			}
+		}
+		return n == length;
+	}
+
+	private static int skipDigits(CharSequence text, int n) {
+		while (n < text.length() && text.charAt(n) >= '0' && text.charAt(n) <= '9') {
+			n++;
+		}
+		return n;
+	}
+
+	private void writeString(CharSequence text) throws IOException {
+		append('"');
+		for (int n = 0, cnt = text.length(); n < cnt; n++) {
+			char ch = text.charAt(n);
+			switch (ch) {
+			case '"':
+			case '\\':
+				append('\\');
+				append(ch);
+				break;
+			case '\n':
+				append('\\');
+				append('n');
+				break;
+			case '\r':
+				append('\\');
+				append('r');
+				break;
+			case '\t':
+				append('\\');
+				append('t');
+				break;
+			default:
+				if (ch < ' ') {
+					append('\\');
+					append('u');
+					append('0');
+					append('0');
+					append(HEX[ch >> 4]);
+					append(HEX[ch & 0xF]);
+				} else {
+					append(ch);
+				}
+			}
+		}
+		append('"');
+	}
+
+	private void appendNull() throws IOException {
+		append('n');
+		append('u');
+		append('l');
+		append('l');
+	}
+
+	private void append(char ch) throws IOException {
+		if (pos == buffer.length) {
+			out.write(buffer, 0, pos);
+			pos = 0;
+		}
+		buffer[pos++] = ch;
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.properties;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory for the bounded thread pools used for loading many files
+ * concurrently.
+ * 
+ * <p>
+ * On Java 21 and later, the pool threads are virtual threads, so that a
+ * pool is cheap to create for a single batch. The virtual thread API is
+ * looked up reflectively, since this library must also run on older
+ * platforms. There, daemon platform threads are used instead.
+ * </p>
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+final class BulkExecutor {
+
+	private static final ThreadFactory VIRTUAL_THREADS = virtualThreadFactory();
+
+	private BulkExecutor() {
+		// Static utility.
+	}
+
+	/**
+	 * Creates a new thread pool with at most the given number of threads.
+	 * 
+	 * <p>
+	 * The pool must be shut down after use.
+	 * </p>
+	 */
+	static ExecutorService newExecutor(int parallelism) {
+		ThreadFactory threads = VIRTUAL_THREADS;
+		if (threads == null) {
+			threads = new PlatformThreads();
+		}
+		return Executors.newFixedThreadPool(parallelism, threads);
+	}
+
+	/**
+	 * The default number of files loaded concurrently.
+	 */
+	static int defaultParallelism() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	private static ThreadFactory virtualThreadFactory() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+			return (ThreadFactory) factory.invoke(builder);
+		} catch (Exception ex) {
+			// Virtual threads are not available.
+			return null;
+		}
+	}
+
+	private static final class PlatformThreads implements ThreadFactory {
+
+		private static final AtomicInteger NEXT_ID = new AtomicInteger(1);
+
+		@Override
+		public Thread newThread(Runnable task) {
+			Thread result = new Thread(task, "PropertiesLoader-" + NEXT_ID.getAndIncrement());
+			result.setDaemon(true);
+			return result;
+		}
+
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.properties;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+
+import de.haumacher.values.Value;
+
+/**
+ * Outcome of loading many {@link java.util.Properties} files at once.
+ * 
+ * <p>
+ * Each file either has a value or an error. A file that could not be
+ * loaded does not prevent loading the other files.
+ * </p>
+ * 
+ * @see ValueLoader#loadAll(java.util.Collection, int)
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version Since 0.3.0
+ */
+public final class BulkResult<T extends Value> {
+
+	private final Map<File, T> values;
+
+	private final Map<File, Exception> errors;
+
+	BulkResult(Map<File, T> values, Map<File, Exception> errors) {
+		this.values = Collections.unmodifiableMap(values);
+		this.errors = Collections.unmodifiableMap(errors);
+	}
+
+	/**
+	 * The values of all successfully loaded files in the order of the
+	 * requested files.
+	 */
+	public Map<File, T> getValues() {
+		return values;
+	}
+
+	/**
+	 * The problems of all files that could not be loaded in the order of the
+	 * requested files.
+	 */
+	public Map<File, Exception> getErrors() {
+		return errors;
+	}
+
+	/**
+	 * Whether loading failed for at least one file.
+	 */
+	public boolean hasErrors() {
+		return !errors.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "BulkResult(values: " + values.size() + ", errors: " + errors.keySet() + ")";
+	}
+
+}
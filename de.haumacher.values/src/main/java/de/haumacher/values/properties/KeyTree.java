@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.properties;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+
+/**
+ * Index of {@link Properties} keys by their dot separated segments.
+ * 
+ * <p>
+ * Each node represents a key prefix. A node has a value, if there is a key
+ * that ends at this node.
+ * </p>
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+final class KeyTree {
+
+	private static final Comparator<KeyTree> BY_INDEX = new Comparator<KeyTree>() {
+		@Override
+		public int compare(KeyTree t1, KeyTree t2) {
+			return t1.index < t2.index ? -1 : (t1.index == t2.index ? 0 : 1);
+		}
+	};
+
+	private static final int NO_INDEX = -1;
+
+	/**
+	 * Longest segment that is considered a list index.
+	 */
+	private static final int MAX_INDEX_DIGITS = 9;
+
+	private final int index;
+
+	private String value;
+
+	private Map<String, KeyTree> children;
+
+	private KeyTree(int index) {
+		this.index = index;
+	}
+
+	/**
+	 * Indexes all keys of the given {@link Properties} with the given prefix.
+	 * 
+	 * @param properties
+	 *        The {@link Properties} to index including their defaults.
+	 * @param prefix
+	 *        The prefix to strip from each key. Keys without this prefix are
+	 *        ignored.
+	 * @return The root node representing the given prefix.
+	 */
+	static KeyTree index(Properties properties, String prefix) {
+		KeyTree root = new KeyTree(NO_INDEX);
+		int start = prefix.length();
+		for (String key : properties.stringPropertyNames()) {
+			if (key.startsWith(prefix)) {
+				root.add(key, start, properties.getProperty(key));
+			}
+		}
+		return root;
+	}
+
+	private void add(String key, int start, String value) {
+		KeyTree node = this;
+		while (true) {
+			int end = key.indexOf('.', start);
+			if (end < 0) {
+				node.child(key.substring(start)).value = value;
+				return;
+			}
+			node = node.child(key.substring(start, end));
+			start = end + 1;
+		}
+	}
+
+	private KeyTree child(String segment) {
+		if (children == null) {
+			children = new HashMap<String, KeyTree>();
+		}
+		KeyTree result = children.get(segment);
+		if (result == null) {
+			result = new KeyTree(parseIndex(segment));
+			children.put(segment, result);
+		}
+		return result;
+	}
+
+	private static int parseIndex(String segment) {
+		int length = segment.length();
+		if (length == 0 || length > MAX_INDEX_DIGITS) {
+			return NO_INDEX;
+		}
+		if (length > 1 && segment.charAt(0) == '0') {
+			// Only the canonical form is an entry number, otherwise "01" and
+			// "1" would address the same entry.
+			return NO_INDEX;
+		}
+		int result = 0;
+		for (int n = 0; n < length; n++) {
+			char ch = segment.charAt(n);
+			if (ch < '0' || ch > '9') {
+				return NO_INDEX;
+			}
+			result = 10 * result + (ch - '0');
+		}
+		return result;
+	}
+
+	/**
+	 * The number of this node's segment, or {@link #NO_INDEX}, if the
+	 * segment is not a number.
+	 */
+	int getIndex() {
+		return index;
+	}
+
+	/**
+	 * The value of the key ending at this node, or <code>null</code>.
+	 */
+	String getValue() {
+		return value;
+	}
+
+	/**
+	 * The node for the given name relative to this node, or <code>null</code>,
+	 * if there is no key starting with the given name.
+	 */
+	KeyTree get(String name) {
+		KeyTree node = this;
+		int start = 0;
+		while (node.children != null) {
+			int end = name.indexOf('.', start);
+			if (end < 0) {
+				return node.children.get(start == 0 ? name : name.substring(start));
+			}
+			node = node.children.get(name.substring(start, end));
+			if (node == null) {
+				return null;
+			}
+			start = end + 1;
+		}
+		return null;
+	}
+
+	/**
+	 * The children whose segment is a number not less than the given index in
+	 * numerical order.
+	 */
+	List<KeyTree> getEntries(int firstIndex) {
+		if (children == null) {
+			return Collections.emptyList();
+		}
+		List<KeyTree> result = new ArrayList<KeyTree>();
+		for (Entry<String, KeyTree> entry : children.entrySet()) {
+			KeyTree child = entry.getValue();
+			if (child.index >= firstIndex) {
+				result.add(child);
+			}
+		}
+		Collections.sort(result, BY_INDEX);
+		return result;
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.properties;
+
+import java.util.Map;
+
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+
+/**
+ * A {@link Value} combined from the sources of a {@link PropertiesOverlay}
+ * together with the origin of each of its primitive properties.
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version Since 0.3.0
+ */
+public final class OverlayValue<T extends Value> {
+
+	private final T value;
+
+	private final Map<Value, Map<Property, String>> origins;
+
+	OverlayValue(T value, Map<Value, Map<Property, String>> origins) {
+		this.value = value;
+		this.origins = origins;
+	}
+
+	/**
+	 * The combined value.
+	 */
+	public T getValue() {
+		return value;
+	}
+
+	/**
+	 * The name of the source that defined the given primitive property.
+	 * 
+	 * @param owner
+	 *        The combined value or one of its nested values, list or index
+	 *        entries.
+	 * @param property
+	 *        A primitive property of the given owner.
+	 * @return The name of the source with the highest precedence defining
+	 *         the property, or <code>null</code>, if no source defines the
+	 *         property and it has its initial value.
+	 */
+	public String getSource(Value owner, Property property) {
+		Map<Property, String> ownerOrigins = origins.get(owner);
+		if (ownerOrigins == null) {
+			return null;
+		}
+		return ownerOrigins.get(property);
+	}
+
+	/**
+	 * The name of the source that defined the primitive property with the
+	 * given name.
+	 * 
+	 * @see #getSource(Value, Property)
+	 */
+	public String getSource(Value owner, String propertyName) {
+		Property property = owner.descriptor().getProperties().get(propertyName);
+		if (property == null) {
+			throw new IllegalArgumentException("Unknown property: " + propertyName);
+		}
+		return getSource(owner, property);
+	}
+
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.properties;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueFactory;
+import de.haumacher.values.format.ParseUtil;
+import de.haumacher.values.internal.PropertyTable;
+
+/**
+ * Applies key/value pairs one by one to a {@link Value}.
+ * 
+ * <p>
+ * Each key is resolved segment by segment against the {@link PropertyTable}
+ * of the value type reached so far. Keys that do not address a
+ * {@link de.haumacher.values.Kind#PRIMITIVE primitive} property are dropped
+ * without being retained.
+ * </p>
+ * 
+ * <p>
+ * Since list entries may occur in any order, entries of lists and indices
+ * are collected by their number and only added to their collection in
+ * {@link #complete()}. This also allows index entries to be keyed after
+ * their index property has been read.
+ * </p>
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+final class PropertiesBinder {
+
+	/**
+	 * Longest segment that is considered a list index.
+	 */
+	private static final int MAX_INDEX_DIGITS = 9;
+
+	private final Value root;
+
+	private final String prefix;
+
+	private final int firstIndex;
+
+	/**
+	 * The entries of lists and indices by their number, by property, by
+	 * owning value.
+	 */
+	private final Map<Value, Map<Property, TreeMap<Integer, Value>>> entries = new IdentityHashMap<Value, Map<Property, TreeMap<Integer, Value>>>();
+
+	private Value owner;
+
+	private Property property;
+
+	/**
+	 * Creates a {@link PropertiesBinder}.
+	 * 
+	 * @param root
+	 *        The value to update.
+	 * @param prefix
+	 *        The prefix to strip from each key. Keys without this prefix are
+	 *        ignored.
+	 * @param firstIndex
+	 *        The smallest number of a list entry.
+	 */
+	PropertiesBinder(Value root, String prefix, int firstIndex) {
+		this.root = root;
+		this.prefix = prefix;
+		this.firstIndex = firstIndex;
+	}
+
+	/**
+	 * Applies the given key/value pair.
+	 * 
+	 * @return Whether the key addresses a primitive property. In that case,
+	 *         the property and the value that received the given value are
+	 *         available from {@link #getProperty()} and {@link #getOwner()}.
+	 */
+	boolean apply(CharSequence key, CharSequence value) {
+		int end = key.length();
+		int start = prefix.length();
+		if (end < start || !startsWithPrefix(key)) {
+			return false;
+		}
+
+		Value current = root;
+		while (true) {
+			PropertyTable table = PropertyTable.getTable(current.descriptor());
+
+			// Note: A property name may itself contain dots.
+			int segmentEnd = indexOfDot(key, start, end);
+			Property property = table.lookup(key, start, segmentEnd);
+			while (property == null && segmentEnd < end) {
+				segmentEnd = indexOfDot(key, segmentEnd + 1, end);
+				property = table.lookup(key, start, segmentEnd);
+			}
+
+			if (property == null) {
+				return false;
+			}
+
+			switch (property.getKind()) {
+			case PRIMITIVE: {
+				if (segmentEnd < end) {
+					return false;
+				}
+				current.putValue(property, ParseUtil.parse(property.getParser(), value, 0, value.length()));
+				owner = current;
+				this.property = property;
+				return true;
+			}
+
+			case VALUE: {
+				if (segmentEnd == end) {
+					return false;
+				}
+				Value nested = (Value) current.value(property);
+				if (nested == null) {
+					nested = newEntry(property);
+					current.putValue(property, nested);
+				}
+				current = nested;
+				start = segmentEnd + 1;
+				break;
+			}
+
+			case LIST:
+			case INDEX: {
+				if (segmentEnd == end) {
+					return false;
+				}
+				int indexStart = segmentEnd + 1;
+				int indexEnd = indexOfDot(key, indexStart, end);
+				int index = parseIndex(key, indexStart, indexEnd);
+				if (index < firstIndex) {
+					return false;
+				}
+				current = entry(current, property, index);
+				if (indexEnd == end) {
+					return false;
+				}
+				start = indexEnd + 1;
+				break;
+			}
+
+			case REFERENCE:
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * The value that received the last pair applied successfully.
+	 */
+	Value getOwner() {
+		return owner;
+	}
+
+	/**
+	 * The primitive property set by the last pair applied successfully.
+	 */
+	Property getProperty() {
+		return property;
+	}
+
+	/**
+	 * Whether the given key starts with the prefix and a property name of the
+	 * root value, i.e. whether it is owned by values of the root's type.
+	 */
+	boolean addresses(CharSequence key) {
+		int end = key.length();
+		int start = prefix.length();
+		if (end < start || !startsWithPrefix(key)) {
+			return false;
+		}
+
+		PropertyTable table = PropertyTable.getTable(root.descriptor());
+		int segmentEnd = indexOfDot(key, start, end);
+		while (table.lookup(key, start, segmentEnd) == null) {
+			if (segmentEnd == end) {
+				return false;
+			}
+			segmentEnd = indexOfDot(key, segmentEnd + 1, end);
+		}
+		return true;
+	}
+
+	/**
+	 * Adds all list and index entries to their collections in the order of
+	 * their numbers.
+	 * 
+	 * @param renumbered
+	 *        Receives the lists whose entries were not numbered
+	 *        consecutively.
+	 */
+	void complete(Renumbering renumbered) {
+		for (Entry<Value, Map<Property, TreeMap<Integer, Value>>> ownerEntry : entries.entrySet()) {
+			Value owner = ownerEntry.getKey();
+			for (Entry<Property, TreeMap<Integer, Value>> propertyEntry : ownerEntry.getValue().entrySet()) {
+				Property property = propertyEntry.getKey();
+				switch (property.getKind()) {
+				case LIST: {
+					@SuppressWarnings("unchecked")
+					List<Value> list = (List<Value>) owner.value(property);
+					TreeMap<Integer, Value> listEntries = propertyEntry.getValue();
+					list.addAll(listEntries.values());
+					renumbered.check(owner, property, listEntries.size(), listEntries.lastKey().intValue());
+					break;
+				}
+
+				case INDEX: {
+					@SuppressWarnings("unchecked")
+					Map<Object, Value> map = (Map<Object, Value>) owner.value(property);
+					Property indexProperty = property.getIndexProperty();
+					for (Value entryValue : propertyEntry.getValue().values()) {
+						map.put(entryValue.value(indexProperty), entryValue);
+					}
+					break;
+				}
+
+				default:
+					throw new AssertionError("Not a collection: " + property);
+				}
+			}
+		}
+		entries.clear();
+	}
+
+	private Value entry(Value owner, Property property, int index) {
+		Map<Property, TreeMap<Integer, Value>> collections = this.entries.get(owner);
+		if (collections == null) {
+			collections = new HashMap<Property, TreeMap<Integer, Value>>();
+			this.entries.put(owner, collections);
+		}
+		TreeMap<Integer, Value> entries = collections.get(property);
+		if (entries == null) {
+			entries = new TreeMap<Integer, Value>();
+			collections.put(property, entries);
+		}
+		Integer number = Integer.valueOf(index);
+		Value result = entries.get(number);
+		if (result == null) {
+			result = newEntry(property);
+			entries.put(number, result);
+		}
+		return result;
+	}
+
+	private static Value newEntry(Property property) {
+		return (Value) ValueFactory.getDescriptor(property.getType()).newInstance();
+	}
+
+	private boolean startsWithPrefix(CharSequence key) {
+		for (int n = 0, cnt = prefix.length(); n < cnt; n++) {
+			if (key.charAt(n) != prefix.charAt(n)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int indexOfDot(CharSequence key, int start, int end) {
+		for (int n = start; n < end; n++) {
+			if (key.charAt(n) == '.') {
+				return n;
+			}
+		}
+		return end;
+	}
+
+	private static int parseIndex(CharSequence key, int start, int end) {
+		int length = end - start;
+		if (length == 0 || length > MAX_INDEX_DIGITS) {
+			return -1;
+		}
+		if (length > 1 && key.charAt(start) == '0') {
+			// Not an entry number, see KeyTree.
+			return -1;
+		}
+		int result = 0;
+		for (int n = start; n < end; n++) {
+			char ch = key.charAt(n);
+			if (ch < '0' || ch > '9') {
+				return -1;
+			}
+			result = 10 * result + (ch - '0');
+		}
+		return result;
+	}
+
+}
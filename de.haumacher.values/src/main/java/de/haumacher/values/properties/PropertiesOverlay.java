@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.properties;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueFactory;
+import de.haumacher.values.internal.ValueDescriptorImpl;
+
+/**
+ * Ordered stack of {@link Properties} sources that are combined into a single
+ * {@link Value}.
+ * 
+ * <p>
+ * Sources added later take precedence over sources added before, e.g.
+ * defaults, followed by a site configuration, followed by the system
+ * properties. In contrast to loading each source in turn into the same
+ * value, the winning text of each key is determined first. Afterwards, each
+ * primitive property is parsed at most once from the text of the source
+ * that defines it with the highest precedence. The winning source of each
+ * property is recorded in the resulting {@link OverlayValue}.
+ * </p>
+ * 
+ * <p>
+ * Keys of list and index entries are combined key by key. A later source
+ * can therefore override single properties of an entry defined in an
+ * earlier source by using the same entry number.
+ * </p>
+ * 
+ * @see OverlayValue#getSource(Value, Property)
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version Since 0.3.0
+ */
+public final class PropertiesOverlay {
+
+	/**
+	 * Name of the source added by {@link #addSystemProperties()}.
+	 */
+	public static final String SYSTEM_PROPERTIES = "system";
+
+	private final List<String> names = new ArrayList<String>();
+
+	private final List<Properties> sources = new ArrayList<Properties>();
+
+	/**
+	 * Adds a source with precedence over all sources added before.
+	 * 
+	 * @param name
+	 *        The name identifying the source in
+	 *        {@link OverlayValue#getSource(Value, Property)}.
+	 * @param properties
+	 *        The contents of the source. It is read each time the overlay is
+	 *        loaded.
+	 * @return This instance for call chaining.
+	 */
+	public PropertiesOverlay add(String name, Properties properties) {
+		names.add(name);
+		sources.add(properties);
+		return this;
+	}
+
+	/**
+	 * Adds the contents of the given {@link Properties} file as source named
+	 * by the file name.
+	 * 
+	 * @throws IOException
+	 *         If reading the file fails.
+	 * 
+	 * @see #add(String, Properties)
+	 */
+	public PropertiesOverlay addFile(String fileName) throws IOException {
+		return add(fileName, PropertiesUtil.loadProperties(fileName));
+	}
+
+	/**
+	 * Adds the system properties as source named {@link #SYSTEM_PROPERTIES}.
+	 * 
+	 * @see #add(String, Properties)
+	 */
+	public PropertiesOverlay addSystemProperties() {
+		return add(SYSTEM_PROPERTIES, System.getProperties());
+	}
+
+	/**
+	 * Creates an instance of the given {@link Value} type from all sources.
+	 * 
+	 * @param prefix
+	 *        The prefix to strip from each key. Properties with keys that have
+	 *        not the given prefix are ignored.
+	 * @param type
+	 *        The type defining the typed properties.
+	 * @return The new value with the sources of its properties.
+	 */
+	public <T extends Value> OverlayValue<T> load(String prefix, Class<T> type) {
+		Map<String, Winner> winners = new HashMap<String, Winner>();
+		for (int n = sources.size() - 1; n >= 0; n--) {
+			Properties source = sources.get(n);
+			for (String key : source.stringPropertyNames()) {
+				if (key.startsWith(prefix) && !winners.containsKey(key)) {
+					winners.put(key, new Winner(source.getProperty(key), names.get(n)));
+				}
+			}
+		}
+
+		T obj = ValueFactory.newInstance(type);
+		Map<Value, Map<Property, String>> origins = new IdentityHashMap<Value, Map<Property, String>>();
+		PropertiesBinder binder = new PropertiesBinder(obj, prefix, PropertiesUtil.FIRST_INDEX);
+		for (Entry<String, Winner> entry : winners.entrySet()) {
+			Winner winner = entry.getValue();
+			if (binder.apply(entry.getKey(), winner.text)) {
+				Value owner = binder.getOwner();
+				Map<Property, String> ownerOrigins = origins.get(owner);
+				if (ownerOrigins == null) {
+					ownerOrigins = new HashMap<Property, String>();
+					origins.put(owner, ownerOrigins);
+				}
+				ownerOrigins.put(binder.getProperty(), winner.source);
+			}
+		}
+		Renumbering renumbered = new Renumbering();
+		binder.complete(renumbered);
+		ValueDescriptorImpl.clearChanges(obj);
+		renumbered.markChanged();
+		return new OverlayValue<T>(obj, origins);
+	}
+
+	/**
+	 * The text of a key in the source with the highest precedence.
+	 */
+	private static final class Winner {
+
+		final String text;
+
+		final String source;
+
+		Winner(String text, String source) {
+			this.text = text;
+			this.source = source;
+		}
+
+	}
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.properties;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Properties;
+
+/**
+ * Incremental reader for the key/value pairs of a {@link Properties} file.
+ * 
+ * <p>
+ * The reader accepts the syntax of {@link Properties#load(Reader)} including
+ * comments, line continuations and escape sequences. In contrast to
+ * {@link Properties}, the pairs are reported one by one and not retained.
+ * The key and value of the current pair are decoded into buffers that are
+ * reused for all pairs.
+ * </p>
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+final class PropertiesReader {
+
+	private static final int EOF = -1;
+
+	private final Reader in;
+
+	private final char[] buffer = new char[8192];
+
+	private int pos;
+
+	private int limit;
+
+	private final StringBuilder key = new StringBuilder();
+
+	private final StringBuilder value = new StringBuilder();
+
+	/**
+	 * Creates a {@link PropertiesReader}.
+	 * 
+	 * @param in
+	 *        The {@link Reader} to read from. The reader is not buffered
+	 *        additionally.
+	 */
+	PropertiesReader(Reader in) {
+		this.in = in;
+	}
+
+	/**
+	 * The key of the current pair.
+	 * 
+	 * <p>
+	 * The returned buffer is reused by the next call to {@link #next()}.
+	 * </p>
+	 */
+	CharSequence getKey() {
+		return key;
+	}
+
+	/**
+	 * The value of the current pair.
+	 * 
+	 * <p>
+	 * The returned buffer is reused by the next call to {@link #next()}.
+	 * </p>
+	 */
+	CharSequence getValue() {
+		return value;
+	}
+
+	/**
+	 * Advances to the next key/value pair.
+	 * 
+	 * @return Whether there is another pair, <code>false</code> at the end of
+	 *         the input.
+	 * @throws IOException
+	 *         If reading fails.
+	 */
+	boolean next() throws IOException {
+		key.setLength(0);
+		value.setLength(0);
+
+		int ch;
+		while (true) {
+			ch = skipSpace();
+			if (ch == EOF) {
+				return false;
+			}
+			if (ch == '#' || ch == '!') {
+				skipLine();
+				continue;
+			}
+			if (ch == '\n' || ch == '\r') {
+				continue;
+			}
+			break;
+		}
+
+		StringBuilder buffer = key;
+		while (ch != EOF && ch != '\n' && ch != '\r') {
+			if (ch == '\\') {
+				ch = read();
+				if (ch == EOF) {
+					break;
+				}
+				if (ch == '\r' || ch == '\n') {
+					if (ch == '\r' && peek() == '\n') {
+						read();
+					}
+					ch = skipSpace();
+					continue;
+				}
+				buffer.append(unescape(ch));
+			} else if (buffer == key && (ch == '=' || ch == ':')) {
+				buffer = value;
+				ch = skipSpace();
+				continue;
+			} else if (buffer == key && isSpace(ch)) {
+				buffer = value;
+				ch = skipSpace();
+				if (ch == '=' || ch == ':') {
+					ch = skipSpace();
+				}
+				continue;
+			} else {
+				buffer.append((char) ch);
+			}
+			ch = read();
+		}
+		return true;
+	}
+
+	private char unescape(int ch) throws IOException {
+		switch (ch) {
+		case 't':
+			return '\t';
+		case 'n':
+			return '\n';
+		case 'r':
+			return '\r';
+		case 'f':
+			return '\f';
+		case 'u': {
+			int result = 0;
+			for (int n = 0; n < 4; n++) {
+				int digit = Character.digit(read(), 16);
+				if (digit < 0) {
+					throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+				}
+				result = (result << 4) | digit;
+			}
+			return (char) result;
+		}
+		default:
+			return (char) ch;
+		}
+	}
+
+	/**
+	 * Skips white space and returns the first other character.
+	 */
+	private int skipSpace() throws IOException {
+		int ch;
+		do {
+			ch = read();
+		} while (isSpace(ch));
+		return ch;
+	}
+
+	private void skipLine() throws IOException {
+		int ch;
+		do {
+			ch = read();
+		} while (ch != EOF && ch != '\n' && ch != '\r');
+	}
+
+	private static boolean isSpace(int ch) {
+		return ch == ' ' || ch == '\t' || ch == '\f';
+	}
+
+	private int peek() throws IOException {
+		if (pos == limit && !fill()) {
+			return EOF;
+		}
+		return buffer[pos];
+	}
+
+	private int read() throws IOException {
+		if (pos == limit && !fill()) {
+			return EOF;
+		}
+		return buffer[pos++];
+	}
+
+	private boolean fill() throws IOException {
+		int cnt = in.read(buffer, 0, buffer.length);
+		if (cnt <= 0) {
+			return false;
+		}
+		pos = 0;
+		limit = cnt;
+		return true;
+	}
+
+}
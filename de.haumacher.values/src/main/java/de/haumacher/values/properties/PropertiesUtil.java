@@ -19,20 +19,20 @@
  */
 package de.haumacher.values.properties;
 
+import java.io.File;
+import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Properties;
 
-import de.haumacher.values.Initializer;
-import de.haumacher.values.Parser;
-import de.haumacher.values.Property;
 import de.haumacher.values.Value;
-import de.haumacher.values.ValueDescriptor;
 import de.haumacher.values.ValueFactory;
 
 /**
@@ -44,8 +44,15 @@ import de.haumacher.values.ValueFactory;
  */
 public class PropertiesUtil {
 
+	private static final String PROPERTIES_EXTENSION = ".properties";
+
 	private static final Map<Class<?>, Class<?>> wrapperTypes = new HashMap<Class<?>, Class<?>>();
-	private static final int FIRST_INDEX = 1;
+
+	/**
+	 * The number of the first entry of a list or index.
+	 */
+	static final int FIRST_INDEX = 1;
+
 	static {
 		wrapperTypes.put(boolean.class, Boolean.class);
 		wrapperTypes.put(byte.class, Byte.class);
@@ -70,10 +77,10 @@ public class PropertiesUtil {
 	 * @throws IOException
 	 *         If accessing the file fails.
 	 * 
-	 * @see #load(Properties, Class)
+	 * @see #load(Reader, String, Class)
 	 */
 	public static <T extends Value> T load(String fileName, Class<T> type) throws IOException {
-		return load(loadProperties(fileName), type);
+		return load(fileName, "", type);
 	}
 
 	/**
@@ -109,10 +116,67 @@ public class PropertiesUtil {
 	 * @throws IOException
 	 *         If accessing the file fails.
 	 * 
-	 * @see #load(Properties, String, Class)
+	 * @see #load(Reader, String, Class)
 	 */
 	public static <T extends Value> T load(String fileName, String prefix, Class<T> type) throws IOException {
-		return load(loadProperties(fileName), prefix, type);
+		return getLoader(type, prefix).load(fileName);
+	}
+
+	/**
+	 * Reads an instance of the given {@link Value} type from the given
+	 * {@link Reader} in {@link Properties} file syntax.
+	 * 
+	 * <p>
+	 * In contrast to {@link #load(Properties, String, Class)}, the contents is
+	 * not read into an intermediate {@link Properties} table. Each key is
+	 * applied to the result as soon as it is read and keys that do not
+	 * address a property of the given type are dropped immediately.
+	 * Therefore, the memory required does not depend on the size of the
+	 * input but only on the size of the result.
+	 * </p>
+	 * 
+	 * @param in
+	 *        The {@link Reader} to read from, see
+	 *        {@link Properties#load(Reader)}.
+	 * @param prefix
+	 *        The prefix to strip from each key. Properties with keys that have
+	 *        not the given prefix are ignored.
+	 * @param type
+	 *        The type defining the typed properties.
+	 * @return An instance of the given {@link Value} type providing typed
+	 *         access to the properties read.
+	 * @throws IOException
+	 *         If reading fails.
+	 */
+	public static <T extends Value> T load(Reader in, String prefix, Class<T> type) throws IOException {
+		return getLoader(type, prefix).load(in);
+	}
+
+	/**
+	 * Applies the key/value pairs read from the given {@link Reader} to the
+	 * given {@link Value} instance.
+	 * 
+	 * <p>
+	 * In contrast to {@link #load(Properties, String, Value)}, only the
+	 * properties that are mentioned in the input are updated. Entries read
+	 * for lists and indices are added to the existing contents.
+	 * </p>
+	 * 
+	 * @param in
+	 *        The {@link Reader} to read from, see
+	 *        {@link Properties#load(Reader)}.
+	 * @param prefix
+	 *        The prefix to strip from each key. Properties with keys that have
+	 *        not the given prefix are ignored.
+	 * @param obj
+	 *        The {@link Value} instance to update.
+	 * @throws IOException
+	 *         If reading fails.
+	 * 
+	 * @see #load(Reader, String, Class)
+	 */
+	public static void load(Reader in, String prefix, Value obj) throws IOException {
+		loader(obj, prefix).load(in, obj);
 	}
 
 	/**
@@ -131,14 +195,66 @@ public class PropertiesUtil {
 	 *         access to the given untyped generic properties.
 	 */
 	public static <T extends Value> T load(Properties properties, String prefix, Class<T> type) {
-		ValueDescriptor<T> descriptor = ValueFactory.getDescriptor(type);
-		T obj = descriptor.newInstance();
-		
-		load(properties, prefix, obj);
-		
-		return obj;
+		return getLoader(type, prefix).load(properties);
 	}
 	
+	/**
+	 * Loads all {@link Properties} files in the given directory concurrently.
+	 * 
+	 * @param dir
+	 *        The directory whose files with the extension
+	 *        <code>.properties</code> should be loaded.
+	 * @param prefix
+	 *        The prefix to strip from each key. Properties with keys that have
+	 *        not the given prefix are ignored.
+	 * @param type
+	 *        The type defining the typed properties.
+	 * @return The loaded values and errors by file in the order of the file
+	 *         names.
+	 * @throws IOException
+	 *         If the given directory cannot be listed.
+	 * 
+	 * @see #loadAll(Collection, String, Class)
+	 */
+	public static <T extends Value> BulkResult<T> loadAll(File dir, String prefix, Class<T> type) throws IOException {
+		File[] files = dir.listFiles(new FileFilter() {
+			@Override
+			public boolean accept(File file) {
+				return file.isFile() && file.getName().endsWith(PROPERTIES_EXTENSION);
+			}
+		});
+		if (files == null) {
+			throw new IOException("Cannot list directory: " + dir);
+		}
+		Arrays.sort(files);
+		return loadAll(Arrays.asList(files), prefix, type);
+	}
+
+	/**
+	 * Loads the given {@link Properties} files concurrently.
+	 * 
+	 * <p>
+	 * All files are loaded with the same shared {@link ValueLoader} using one
+	 * thread per available processor. Problems with single files are
+	 * collected and do not abort loading the remaining files.
+	 * </p>
+	 * 
+	 * @param files
+	 *        The {@link Properties} files to load.
+	 * @param prefix
+	 *        The prefix to strip from each key. Properties with keys that have
+	 *        not the given prefix are ignored.
+	 * @param type
+	 *        The type defining the typed properties.
+	 * @return The loaded values and errors by file in the order of the given
+	 *         files.
+	 * 
+	 * @see ValueLoader#loadAll(Collection, int)
+	 */
+	public static <T extends Value> BulkResult<T> loadAll(Collection<File> files, String prefix, Class<T> type) {
+		return getLoader(type, prefix).loadAll(files);
+	}
+
 	/**
 	 * Applies the contents of the given {@link Properties} file to the given
 	 * {@link Value} instance.
@@ -205,9 +321,165 @@ public class PropertiesUtil {
 	 *        given {@link Properties}.
 	 */
 	public static void load(Properties properties, String prefix, Value obj) {
-		StringBuilder keyBuffer = new StringBuilder();
-		keyBuffer.append(prefix);
-		loadValue(properties, keyBuffer, obj);
+		loader(obj, prefix).load(properties, obj);
+	}
+
+	/**
+	 * Writes the given {@link Value} object to a {@link Properties} file
+	 * omitting all primitive properties with initial values.
+	 * 
+	 * @param fileName
+	 *        File name of an untyped {@link Properties} file to create.
+	 * @param prefix
+	 *        The prefix to prepend each generated properties key with.
+	 * @param obj
+	 *        {@link Value} instance to store.
+	 * @throws IOException
+	 *         If accessing the file fails.
+	 * 
+	 * @see ValueSaver#write(Writer, Value)
+	 */
+	public static void write(String fileName, String prefix, Value obj) throws IOException {
+		saver(obj, prefix).write(fileName, obj);
+	}
+
+	/**
+	 * Writes the given {@link Value} object in {@link Properties} file syntax
+	 * omitting all primitive properties with initial values.
+	 * 
+	 * <p>
+	 * In contrast to {@link #save(String, String, Value)}, the keys are written
+	 * directly in a fixed order and without time stamp. Equal values produce
+	 * identical output.
+	 * </p>
+	 * 
+	 * @param out
+	 *        The {@link Writer} to write to.
+	 * @param prefix
+	 *        The prefix to prepend each generated properties key with.
+	 * @param obj
+	 *        {@link Value} instance to store.
+	 * @throws IOException
+	 *         If writing fails.
+	 * 
+	 * @see ValueSaver#write(Writer, Value)
+	 */
+	public static void write(Writer out, String prefix, Value obj) throws IOException {
+		saver(obj, prefix).write(out, obj);
+	}
+
+	/**
+	 * Stores only the changes of the given {@link Value} object since it was
+	 * loaded from the given {@link Properties} file.
+	 * 
+	 * <p>
+	 * Keys not belonging to the given value are kept, but comments are lost,
+	 * if the file must be rewritten, see {@link ValueSaver#update(String, Value)}.
+	 * </p>
+	 * 
+	 * @param fileName
+	 *        File name of the {@link Properties} file the given value was
+	 *        loaded from.
+	 * @param prefix
+	 *        The prefix to prepend each generated properties key with.
+	 * @param obj
+	 *        {@link Value} instance whose changes should be stored.
+	 * @throws IOException
+	 *         If accessing the file fails.
+	 * 
+	 * @see ValueSaver#update(String, Value)
+	 */
+	public static void update(String fileName, String prefix, Value obj) throws IOException {
+		saver(obj, prefix).update(fileName, obj);
+	}
+
+	/**
+	 * Stores only the changes of the given {@link Value} object since it was
+	 * loaded from the given {@link Properties}.
+	 * 
+	 * @param properties
+	 *        The {@link Properties} the given value was loaded from.
+	 * @param prefix
+	 *        The prefix to prepend each generated properties key with.
+	 * @param obj
+	 *        {@link Value} instance whose changes should be stored.
+	 * @return The given {@link Properties}.
+	 * 
+	 * @see ValueSaver#update(Properties, Value)
+	 */
+	public static Properties update(Properties properties, String prefix, Value obj) {
+		return saver(obj, prefix).update(properties, obj);
+	}
+
+	/**
+	 * Loads the given {@link Properties} file and reloads it whenever it
+	 * changes.
+	 * 
+	 * @param fileName
+	 *        The name of the {@link Properties} file to observe.
+	 * @param prefix
+	 *        The prefix to strip from each key. Properties with keys that have
+	 *        not the given prefix are ignored.
+	 * @param type
+	 *        The type defining the typed properties.
+	 * @param listener
+	 *        Observer of the reloads, or <code>null</code>.
+	 * @return The {@link PropertiesWatcher} providing the current snapshot.
+	 *         It must be closed to stop observing the file.
+	 * @throws IOException
+	 *         If the initial load fails, or the file cannot be observed.
+	 */
+	public static <T extends Value> PropertiesWatcher<T> watch(String fileName, String prefix, Class<T> type, PropertiesWatcher.Listener<? super T> listener) throws IOException {
+		return new PropertiesWatcher<T>(new File(fileName), getLoader(type, prefix), listener);
+	}
+
+	/**
+	 * The {@link ValueLoader} for the given {@link Value} type and key prefix.
+	 * 
+	 * <p>
+	 * The loader is compiled on first request and shared afterwards. Using the
+	 * loader directly saves the lookup, if many sources are loaded with the
+	 * same type and prefix.
+	 * </p>
+	 * 
+	 * @param type
+	 *        The type defining the typed properties.
+	 * @param prefix
+	 *        The prefix to strip from each key. Properties with keys that have
+	 *        not the given prefix are ignored.
+	 * @return The shared {@link ValueLoader}.
+	 */
+	public static <T extends Value> ValueLoader<T> getLoader(Class<T> type, String prefix) {
+		@SuppressWarnings("unchecked")
+		ValueLoader<T> result = (ValueLoader<T>) ValueLoader.getLoader(ValueFactory.getDescriptor(type), prefix);
+		return result;
+	}
+
+	/**
+	 * The {@link ValueSaver} for the given {@link Value} type and key prefix.
+	 * 
+	 * @param type
+	 *        The type defining the typed properties.
+	 * @param prefix
+	 *        The prefix to prepend each generated properties key with.
+	 * @return The shared {@link ValueSaver}.
+	 * 
+	 * @see #getLoader(Class, String)
+	 */
+	public static <T extends Value> ValueSaver<T> getSaver(Class<T> type, String prefix) {
+		@SuppressWarnings("unchecked")
+		ValueSaver<T> result = (ValueSaver<T>) ValueSaver.getSaver(ValueFactory.getDescriptor(type), prefix);
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ValueLoader<Value> loader(Value obj, String prefix) {
+		return (ValueLoader<Value>) ValueLoader.getLoader(obj.descriptor(), prefix);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ValueSaver<Value> saver(Value obj, String prefix) {
+		return (ValueSaver<Value>) ValueSaver.getSaver(obj.descriptor(), prefix);
 	}
 	
 	/**
@@ -264,186 +536,7 @@ public class PropertiesUtil {
 	 *        {@link Value} instance to store.
 	 */
 	public static Properties save(Properties properties, String prefix, Value obj) {
-		StringBuilder keyBuffer = new StringBuilder();
-		keyBuffer.append(prefix);
-		saveValue(properties, keyBuffer, obj);
-		return properties;
-	}
-
-	private static void saveValue(Properties properties, StringBuilder keyBuffer, Value obj) {
-		ValueDescriptor<?> descriptor = obj.descriptor();
-		int len1 = keyBuffer.length();
-		for (Property property : descriptor.getProperties().values()) {
-			Object value = obj.value(property);
-			String propertyName = property.getName();
-			
-			switch (property.getKind()) {
-			case PRIMITIVE: {
-				keyBuffer.append(propertyName);
-				
-				savePrimitive(properties, keyBuffer, property, value);
-				break;
-			}
-			
-			case VALUE: {
-				keyBuffer.append(propertyName);
-				keyBuffer.append('.');
-				
-				saveValue(properties, keyBuffer, (Value) value);
-				break;
-			}
-			
-			case LIST: {
-				keyBuffer.append(propertyName);
-				keyBuffer.append('.');
-				
-				List<?> list = (List<?>) value;
-				int len2 = keyBuffer.length();
-				int n = FIRST_INDEX;
-				for (Object entry : list) {
-					keyBuffer.append(n++);
-					keyBuffer.append('.');
-					
-					saveValue(properties, keyBuffer, (Value) entry);
-					keyBuffer.setLength(len2);
-				}
-				break;
-			}
-			
-			case INDEX: {
-				keyBuffer.append(propertyName);
-				keyBuffer.append('.');
-
-				Map<?, ?> map = (Map<?, ?>) value;
-				int len2 = keyBuffer.length();
-				int n = FIRST_INDEX;
-				for (Entry<?, ?> entry : map.entrySet()) {
-					keyBuffer.append(n++);
-					keyBuffer.append('.');
-					
-					saveValue(properties, keyBuffer, (Value) entry.getValue());
-					keyBuffer.setLength(len2);
-				}
-				break;
-			}
-			
-			case REFERENCE: {
-				break;
-			}
-			}
-			
-			keyBuffer.setLength(len1);
-		}
-	}
-
-	private static void savePrimitive(Properties properties, StringBuilder keyBuffer, Property property, Object value) {
-		if (value == null) {
-			properties.remove(keyBuffer.toString());
-		} else {
-			properties.setProperty(keyBuffer.toString(), property.getParser().unparse(value));
-		}
-	}
-	
-	private static void loadValue(Properties properties, StringBuilder keyBuffer, Value obj) {
-		ValueDescriptor<?> descriptor = obj.descriptor();
-		int len1 = keyBuffer.length();
-		for (Property property : descriptor.getProperties().values()) {
-			String propertyName = property.getName();
-			
-			switch (property.getKind()) {
-			case PRIMITIVE: {
-				keyBuffer.append(propertyName);
-				
-				Object value = loadPrimitive(properties, keyBuffer, property);
-				obj.putValue(property, value);
-				break;
-			}
-			
-			case VALUE: {
-				keyBuffer.append(propertyName);
-				keyBuffer.append('.');
-				
-				loadValue(properties, keyBuffer, (Value) obj.value(property));
-				break;
-			}
-			
-			case LIST: {
-				keyBuffer.append(propertyName);
-				keyBuffer.append('.');
-				
-				@SuppressWarnings("unchecked")
-				List<Value> list = (List<Value>) obj.value(property);
-				
-				Value nullValue = (Value) ValueFactory.getDescriptor(property.getType()).newInstance();
-
-				int len2 = keyBuffer.length();
-				int n = FIRST_INDEX;
-				while (true) {
-					keyBuffer.append(n++);
-					keyBuffer.append('.');
-					
-					Value entryValue = (Value) ValueFactory.getDescriptor(property.getType()).newInstance();
-					loadValue(properties, keyBuffer, entryValue);
-					
-					if (entryValue.equals(nullValue)) {
-						break;
-					}
-					
-					list.add(entryValue);
-					
-					keyBuffer.setLength(len2);
-				}
-				break;
-			}
-			
-			case INDEX: {
-				keyBuffer.append(propertyName);
-				keyBuffer.append('.');
-				
-				@SuppressWarnings("unchecked")
-				Map<Object, Value> map = (Map<Object, Value>) obj.value(property);
-
-				Value nullValue = (Value) ValueFactory.getDescriptor(property.getType()).newInstance();
-
-				int len2 = keyBuffer.length();
-				int n = FIRST_INDEX;
-				while (true) {
-					keyBuffer.append(n++);
-					keyBuffer.append('.');
-					
-					Value entryValue = (Value) ValueFactory.getDescriptor(property.getType()).newInstance();
-					loadValue(properties, keyBuffer, entryValue);
-					
-					if (nullValue.equals(entryValue)) {
-						break;
-					}
-					
-					Object key = entryValue.value(property.getIndexProperty());
-					map.put(key, entryValue);
-					
-					keyBuffer.setLength(len2);
-				}
-				break;
-			}
-			
-			case REFERENCE:
-				continue;
-			}
-			
-			keyBuffer.setLength(len1);
-		}
-	}
-	
-	private static Object loadPrimitive(Properties properties, StringBuilder keyBuffer, Property property) {
-		String valueSource = properties.getProperty(keyBuffer.toString());
-		
-		if (valueSource == null) {
-			Initializer<Object> initializer = property.getInitializer();
-			return initializer.init();
-		} else {
-			Parser<Object> parser = property.getParser();
-			return parser.parse(valueSource);
-		}
+		return saver(obj, prefix).save(properties, obj);
 	}
 
 	/**
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.properties;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+
+import de.haumacher.values.Value;
+
+/**
+ * Holder of a {@link Value} loaded from a {@link java.util.Properties} file
+ * that is reloaded whenever the file changes.
+ * 
+ * <p>
+ * The file is observed with a {@link WatchService} by a background thread.
+ * On a change, the file is loaded into a new instance, which is frozen and
+ * then published as a whole. Readers calling {@link #get()} never block and
+ * never observe a partially loaded value. A snapshot once retrieved never
+ * changes. If reloading fails, e.g. because the file is incomplete, the
+ * previous snapshot is kept.
+ * </p>
+ * 
+ * <p>
+ * This class requires Java 7 or later.
+ * </p>
+ * 
+ * @see PropertiesUtil#watch(String, String, Class, Listener)
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version Since 0.3.0
+ */
+public final class PropertiesWatcher<T extends Value> implements Closeable {
+
+	/**
+	 * Observer of the reloads of a {@link PropertiesWatcher}.
+	 * 
+	 * <p>
+	 * Notifications are delivered in the thread that reloads the file.
+	 * </p>
+	 */
+	public interface Listener<T extends Value> {
+
+		/**
+		 * Called after a changed snapshot has been published.
+		 * 
+		 * @param oldValue
+		 *        The previous snapshot.
+		 * @param newValue
+		 *        The new snapshot.
+		 * @param changes
+		 *        The keys of the properties whose values have changed,
+		 *        relative to the prefix of the watcher.
+		 */
+		void reloaded(T oldValue, T newValue, List<String> changes);
+
+		/**
+		 * Called, if reloading in the background fails.
+		 * 
+		 * @param ex
+		 *        The problem.
+		 */
+		void failed(Exception ex);
+
+	}
+
+	private final File file;
+
+	private final ValueLoader<T> loader;
+
+	private final Listener<? super T> listener;
+
+	private final WatchService watchService;
+
+	private final Path fileName;
+
+	private final Thread thread;
+
+	private volatile T value;
+
+	/**
+	 * Creates a {@link PropertiesWatcher} and loads the initial snapshot.
+	 */
+	PropertiesWatcher(File file, ValueLoader<T> loader, Listener<? super T> listener) throws IOException {
+		this.file = file.getAbsoluteFile();
+		this.loader = loader;
+		this.listener = listener;
+		value = load();
+
+		Path path = this.file.toPath();
+		Path dir = path.getParent();
+		fileName = path.getFileName();
+		watchService = dir.getFileSystem().newWatchService();
+		dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				watch();
+			}
+		}, "PropertiesWatcher: " + this.file.getPath());
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * The current snapshot.
+	 * 
+	 * <p>
+	 * The result is frozen and can be shared between threads.
+	 * </p>
+	 */
+	public T get() {
+		return value;
+	}
+
+	/**
+	 * The observed file.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Loads the file immediately and publishes the result, if it differs
+	 * from the current snapshot.
+	 * 
+	 * @return The keys of the properties whose values have changed.
+	 * @throws IOException
+	 *         If loading fails. The current snapshot is kept then.
+	 */
+	public synchronized List<String> reload() throws IOException {
+		T newValue = load();
+		T oldValue = value;
+		List<String> changes = ValueDiff.diff(oldValue, newValue);
+		if (!changes.isEmpty()) {
+			value = newValue;
+			if (listener != null) {
+				listener.reloaded(oldValue, newValue, changes);
+			}
+		}
+		return changes;
+	}
+
+	/**
+	 * Stops observing the file.
+	 * 
+	 * <p>
+	 * The last snapshot remains available.
+	 * </p>
+	 */
+	@Override
+	public void close() throws IOException {
+		watchService.close();
+		thread.interrupt();
+	}
+
+	private T load() throws IOException {
+		T result = loader.load(file.getPath());
+		result.freeze();
+		return result;
+	}
+
+	private void watch() {
+		while (true) {
+			WatchKey key;
+			try {
+				key = watchService.take();
+			} catch (InterruptedException ex) {
+				return;
+			} catch (ClosedWatchServiceException ex) {
+				return;
+			}
+
+			boolean affected = false;
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (event.kind() == OVERFLOW || fileName.equals(event.context())) {
+					affected = true;
+				}
+			}
+			boolean valid = key.reset();
+
+			if (affected) {
+				try {
+					reload();
+				} catch (Exception ex) {
+					if (listener != null) {
+						listener.failed(ex);
+					}
+				}
+			}
+
+			if (!valid) {
+				// The directory is no longer accessible.
+				return;
+			}
+		}
+	}
+
+}
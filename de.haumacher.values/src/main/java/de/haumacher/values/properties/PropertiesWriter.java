@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.properties;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Properties;
+
+import de.haumacher.values.Parser;
+import de.haumacher.values.format.UnparseUtil;
+
+/**
+ * Streaming writer for key/value pairs in {@link Properties} file syntax.
+ * 
+ * <p>
+ * Keys and values are escaped like in {@link Properties#store(Writer, String)}.
+ * All characters outside the printable ASCII range are written as unicode
+ * escapes, lines are separated by a single line feed, and no header comment
+ * is written. Therefore, the output only depends on the pairs written and is
+ * the same with any character encoding.
+ * </p>
+ * 
+ * @see PropertiesReader
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+final class PropertiesWriter {
+
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+	private final Writer out;
+
+	private final char[] buffer = new char[8192];
+
+	private int pos;
+
+	/**
+	 * Buffer for the text of values.
+	 */
+	private final StringBuilder text = new StringBuilder();
+
+	PropertiesWriter(Writer out) {
+		this.out = out;
+	}
+
+	/**
+	 * Writes a pair whose value is the given value formatted with the given
+	 * {@link Parser}.
+	 */
+	void write(CharSequence key, Parser<Object> parser, Object value) throws IOException {
+		text.setLength(0);
+		UnparseUtil.unparse(parser, value, text);
+		write(key, key.length(), text);
+	}
+
+	/**
+	 * Writes a pair with the given range of the given key.
+	 */
+	void write(CharSequence key, int keyLength, CharSequence value) throws IOException {
+		writeEscaped(key, 0, keyLength, true);
+		append('=');
+		writeEscaped(value, 0, value.length(), false);
+		append('\n');
+	}
+
+	/**
+	 * Writes buffered output to the underlying {@link Writer}.
+	 */
+	void flush() throws IOException {
+		out.write(buffer, 0, pos);
+		pos = 0;
+		out.flush();
+	}
+
+	private void writeEscaped(CharSequence text, int start, int end, boolean key) throws IOException {
+		for (int n = start; n < end; n++) {
+			char ch = text.charAt(n);
+			switch (ch) {
+			case ' ':
+				if (key || n == start) {
+					append('\\');
+				}
+				append(' ');
+				break;
+			case '\t':
+				append('\\');
+				append('t');
+				break;
+			case '\n':
+				append('\\');
+				append('n');
+				break;
+			case '\r':
+				append('\\');
+				append('r');
+				break;
+			case '\f':
+				append('\\');
+				append('f');
+				break;
+			case '=':
+			case ':':
+			case '#':
+			case '!':
+			case '\\':
+				append('\\');
+				append(ch);
+				break;
+			default:
+				if (ch < 0x20 || ch > 0x7e) {
+					append('\\');
+					append('u');
+					append(HEX[(ch >> 12) & 0xF]);
+					append(HEX[(ch >> 8) & 0xF]);
+					append(HEX[(ch >> 4) & 0xF]);
+					append(HEX[ch & 0xF]);
+				} else {
+					append(ch);
+				}
+			}
+		}
+	}
+
+	private void append(char ch) throws IOException {
+		if (pos == buffer.length) {
+			out.write(buffer, 0, pos);
+			pos = 0;
+		}
+		buffer[pos++] = ch;
+	}
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.properties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+import de.haumacher.values.internal.ValueDescriptorImpl;
+
+/**
+ * The {@link de.haumacher.values.Kind#LIST} properties whose entries were
+ * loaded from keys that are not numbered consecutively starting with
+ * {@link PropertiesUtil#FIRST_INDEX}.
+ * 
+ * <p>
+ * A {@link ValueSaver} addresses list entries by their position. The keys
+ * of such a list must therefore be replaced as a whole by the next update,
+ * which is ensured by marking the list changed after loading has completed.
+ * </p>
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+final class Renumbering {
+
+	private final List<Value> owners = new ArrayList<Value>();
+
+	private final List<Property> properties = new ArrayList<Property>();
+
+	/**
+	 * Records the given list, if its entries were not numbered
+	 * consecutively.
+	 * 
+	 * @param owner
+	 *        The value holding the list.
+	 * @param property
+	 *        The list property.
+	 * @param count
+	 *        The number of loaded entries.
+	 * @param lastNumber
+	 *        The largest number of a loaded entry.
+	 */
+	void check(Value owner, Property property, int count, int lastNumber) {
+		if (count > 0 && lastNumber != PropertiesUtil.FIRST_INDEX + count - 1) {
+			owners.add(owner);
+			properties.add(property);
+		}
+	}
+
+	/**
+	 * Marks all recorded lists changed.
+	 * 
+	 * <p>
+	 * Must be called after the changes of the loaded value have been
+	 * cleared.
+	 * </p>
+	 */
+	void markChanged() {
+		for (int n = 0, cnt = owners.size(); n < cnt; n++) {
+			ValueDescriptorImpl.markChanged(owners.get(n), properties.get(n));
+		}
+	}
+
+}
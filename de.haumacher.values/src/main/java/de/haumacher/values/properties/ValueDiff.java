@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.properties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import de.haumacher.values.Parser;
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+import de.haumacher.values.internal.ValueDescriptorImpl;
+
+/**
+ * Computation of the {@link java.util.Properties} keys in which two values of the same
+ * type differ.
+ * 
+ * <p>
+ * Keys are reported relative to the compared values in the order in which
+ * they are written by a {@link ValueSaver}. A list or index entry that
+ * exists in only one of the values is reported by the key of the entry
+ * itself, e.g. <code>nodes.3</code>. List entries are matched by their
+ * position, index entries by their index key.
+ * </p>
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+final class ValueDiff {
+
+	private final List<String> result = new ArrayList<String>();
+
+	private final StringBuilder key = new StringBuilder();
+
+	private ValueDiff() {
+		// Use diff().
+	}
+
+	/**
+	 * The keys of all primitive properties with different values and all
+	 * list entries that exist in only one of the given values.
+	 */
+	static List<String> diff(Value v1, Value v2) {
+		ValueDiff diff = new ValueDiff();
+		diff.diffValue(v1, v2);
+		return diff.result;
+	}
+
+	private void diffValue(Value v1, Value v2) {
+		Collection<Property> properties = v1.descriptor().getProperties().values();
+		Property[] sorted = properties.toArray(new Property[properties.size()]);
+		Arrays.sort(sorted, ValueSaver.BY_NAME);
+
+		int length = key.length();
+		for (Property property : sorted) {
+			key.append(property.getName());
+			switch (property.getKind()) {
+			case PRIMITIVE: {
+				if (!property.getParser().equals(v1.value(property), v2.value(property))) {
+					report();
+				}
+				break;
+			}
+
+			case VALUE: {
+				if (!ValueDescriptorImpl.hasValue(v1, property) && !ValueDescriptorImpl.hasValue(v2, property)) {
+					break;
+				}
+				Value nested1 = (Value) v1.value(property);
+				Value nested2 = (Value) v2.value(property);
+				if (nested1 == null || nested2 == null) {
+					if (nested1 != nested2) {
+						report();
+					}
+				} else {
+					key.append('.');
+					diffValue(nested1, nested2);
+				}
+				break;
+			}
+
+			case LIST: {
+				if (!ValueDescriptorImpl.hasValue(v1, property) && !ValueDescriptorImpl.hasValue(v2, property)) {
+					break;
+				}
+				key.append('.');
+				diffEntries(entries(v1.value(property)), entries(v2.value(property)));
+				break;
+			}
+
+			case INDEX: {
+				if (!ValueDescriptorImpl.hasValue(v1, property) && !ValueDescriptorImpl.hasValue(v2, property)) {
+					break;
+				}
+				Parser<Object> keyParser = property.getIndexProperty().getParser();
+				key.append('.');
+				diffIndex(sorted(keyParser, v1.value(property)), sorted(keyParser, v2.value(property)));
+				break;
+			}
+
+			case REFERENCE:
+				break;
+			}
+			key.setLength(length);
+		}
+	}
+
+	private void diffEntries(Collection<?> entries1, Collection<?> entries2) {
+		int length = key.length();
+		Iterator<?> it1 = entries1.iterator();
+		Iterator<?> it2 = entries2.iterator();
+		int n = PropertiesUtil.FIRST_INDEX;
+		while (it1.hasNext() || it2.hasNext()) {
+			key.append(n++);
+			if (it1.hasNext() && it2.hasNext()) {
+				key.append('.');
+				diffValue((Value) it1.next(), (Value) it2.next());
+			} else {
+				if (it1.hasNext()) {
+					it1.next();
+				} else {
+					it2.next();
+				}
+				report();
+			}
+			key.setLength(length);
+		}
+	}
+
+	/**
+	 * Compares index entries with the same index key.
+	 * 
+	 * <p>
+	 * An entry is reported by its number in the value that contains it, the
+	 * second value, if both contain it.
+	 * </p>
+	 */
+	private void diffIndex(SortedMap<String, Object> index1, SortedMap<String, Object> index2) {
+		int length = key.length();
+		Iterator<Entry<String, Object>> it1 = index1.entrySet().iterator();
+		Iterator<Entry<String, Object>> it2 = index2.entrySet().iterator();
+		Entry<String, Object> entry1 = next(it1);
+		Entry<String, Object> entry2 = next(it2);
+		int n1 = PropertiesUtil.FIRST_INDEX;
+		int n2 = PropertiesUtil.FIRST_INDEX;
+		while (entry1 != null || entry2 != null) {
+			int direction;
+			if (entry1 == null) {
+				direction = 1;
+			} else if (entry2 == null) {
+				direction = -1;
+			} else {
+				direction = entry1.getKey().compareTo(entry2.getKey());
+			}
+
+			if (direction == 0) {
+				key.append(n2).append('.');
+				diffValue((Value) entry1.getValue(), (Value) entry2.getValue());
+			} else {
+				key.append(direction < 0 ? n1 : n2);
+				report();
+			}
+			key.setLength(length);
+
+			if (direction <= 0) {
+				entry1 = next(it1);
+				n1++;
+			}
+			if (direction >= 0) {
+				entry2 = next(it2);
+				n2++;
+			}
+		}
+	}
+
+	private static <E> E next(Iterator<E> it) {
+		return it.hasNext() ? it.next() : null;
+	}
+
+	private static Collection<?> entries(Object list) {
+		if (list == null) {
+			return Collections.emptyList();
+		}
+		return (List<?>) list;
+	}
+
+	/**
+	 * The entries of the given index by their unparsed keys in the order in
+	 * which they are numbered by a {@link ValueSaver}.
+	 */
+	private static SortedMap<String, Object> sorted(Parser<Object> keyParser, Object index) {
+		SortedMap<String, Object> result = new TreeMap<String, Object>();
+		if (index != null) {
+			for (Entry<?, ?> entry : ((Map<?, ?>) index).entrySet()) {
+				Object indexKey = entry.getKey();
+				result.put(indexKey == null ? "" : keyParser.unparse(indexKey), entry.getValue());
+			}
+		}
+		return result;
+	}
+
+	private void report() {
+		result.add(key.toString());
+	}
+
+}
@@ -0,0 +1,448 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.properties;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import de.haumacher.values.Initializer;
+import de.haumacher.values.Parser;
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueDescriptor;
+import de.haumacher.values.ValueFactory;
+import de.haumacher.values.internal.ValueDescriptorImpl;
+
+/**
+ * Plan for loading instances of a {@link Value} type from {@link Properties}
+ * with a fixed key prefix.
+ * 
+ * <p>
+ * A {@link ValueLoader} is compiled once for each combination of
+ * {@link ValueDescriptor} and prefix. It holds a flat list of instructions,
+ * one for each property, so that loading a value does not inspect the
+ * descriptor again. Loaders are immutable and can be used concurrently.
+ * </p>
+ * 
+ * <p>
+ * A loaded value is marked unchanged, so that its updates can later be
+ * stored incrementally, see {@link ValueSaver#update(Properties, Value)}.
+ * </p>
+ * 
+ * @see PropertiesUtil#getLoader(Class, String)
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version Since 0.3.0
+ */
+public final class ValueLoader<T extends Value> {
+
+	private static final ConcurrentMap<ValueDescriptor<?>, ConcurrentMap<String, ValueLoader<?>>> LOADERS = new ConcurrentHashMap<ValueDescriptor<?>, ConcurrentMap<String, ValueLoader<?>>>();
+
+	private final ValueDescriptor<?> descriptor;
+
+	private final String prefix;
+
+	private final Step[] steps;
+
+	private ValueLoader(ValueDescriptor<?> descriptor, String prefix) {
+		this.descriptor = descriptor;
+		this.prefix = prefix;
+
+		Collection<Property> properties = descriptor.getProperties().values();
+		Step[] steps = new Step[properties.size()];
+		int cnt = 0;
+		for (Property property : properties) {
+			switch (property.getKind()) {
+			case PRIMITIVE:
+				steps[cnt++] = new PrimitiveStep(property);
+				break;
+			case VALUE:
+				steps[cnt++] = new ValueStep(property);
+				break;
+			case LIST:
+				steps[cnt++] = new ListStep(property);
+				break;
+			case INDEX:
+				steps[cnt++] = new IndexStep(property);
+				break;
+			case REFERENCE:
+				break;
+			}
+		}
+		if (cnt < steps.length) {
+			Step[] copy = new Step[cnt];
+			System.arraycopy(steps, 0, copy, 0, cnt);
+			steps = copy;
+		}
+		this.steps = steps;
+	}
+
+	/**
+	 * The {@link ValueLoader} for the given type and key prefix.
+	 * 
+	 * <p>
+	 * There is a single loader per type and prefix. A plan looks up the plans
+	 * of nested types on first use, since the plans of recursive types
+	 * reference each other. Threads racing for the same lookup end up with
+	 * the same plan.
+	 * </p>
+	 */
+	static ValueLoader<?> getLoader(ValueDescriptor<?> descriptor, String prefix) {
+		ConcurrentMap<String, ValueLoader<?>> byPrefix = LOADERS.get(descriptor);
+		if (byPrefix == null) {
+			ConcurrentMap<String, ValueLoader<?>> newMap = new ConcurrentHashMap<String, ValueLoader<?>>();
+			byPrefix = LOADERS.putIfAbsent(descriptor, newMap);
+			if (byPrefix == null) {
+				byPrefix = newMap;
+			}
+		}
+		ValueLoader<?> loader = byPrefix.get(prefix);
+		if (loader == null) {
+			ValueLoader<?> newLoader = new ValueLoader<Value>(descriptor, prefix);
+			loader = byPrefix.putIfAbsent(prefix, newLoader);
+			if (loader == null) {
+				loader = newLoader;
+			}
+		}
+		return loader;
+	}
+
+	/**
+	 * The prefix of all keys interpreted by this {@link ValueLoader}.
+	 */
+	public String getPrefix() {
+		return prefix;
+	}
+
+	/**
+	 * Creates a new value from the given {@link Properties}.
+	 * 
+	 * @see PropertiesUtil#load(Properties, String, Class)
+	 */
+	public T load(Properties properties) {
+		T obj = newInstance();
+		load(properties, obj);
+		return obj;
+	}
+
+	/**
+	 * Applies the given {@link Properties} to the given value.
+	 * 
+	 * <p>
+	 * All primitive properties without key are reset to their initial values.
+	 * </p>
+	 * 
+	 * @see PropertiesUtil#load(Properties, String, Value)
+	 */
+	public void load(Properties properties, T obj) {
+		Renumbering renumbered = new Renumbering();
+		loadValue(KeyTree.index(properties, prefix), obj, renumbered);
+		ValueDescriptorImpl.clearChanges(obj);
+		renumbered.markChanged();
+	}
+
+	/**
+	 * Creates a new value from the given properties file.
+	 * 
+	 * @see #load(Reader)
+	 */
+	public T load(String fileName) throws IOException {
+		Reader in = new InputStreamReader(new FileInputStream(fileName), "ISO-8859-1");
+		try {
+			return load(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Creates a new value from the given {@link Reader} in {@link Properties}
+	 * file syntax.
+	 * 
+	 * @see PropertiesUtil#load(Reader, String, Class)
+	 */
+	public T load(Reader in) throws IOException {
+		T obj = newInstance();
+		load(in, obj);
+		return obj;
+	}
+
+	/**
+	 * Applies the key/value pairs read from the given {@link Reader} to the
+	 * given value.
+	 * 
+	 * @see PropertiesUtil#load(Reader, String, Value)
+	 */
+	public void load(Reader in, T obj) throws IOException {
+		PropertiesReader reader = new PropertiesReader(in);
+		PropertiesBinder binder = new PropertiesBinder(obj, prefix, PropertiesUtil.FIRST_INDEX);
+		while (reader.next()) {
+			binder.apply(reader.getKey(), reader.getValue());
+		}
+		Renumbering renumbered = new Renumbering();
+		binder.complete(renumbered);
+		ValueDescriptorImpl.clearChanges(obj);
+		renumbered.markChanged();
+	}
+
+	/**
+	 * Loads the given properties files concurrently with one thread per
+	 * available processor.
+	 * 
+	 * @see #loadAll(Collection, int)
+	 */
+	public BulkResult<T> loadAll(Collection<File> files) {
+		return loadAll(files, BulkExecutor.defaultParallelism());
+	}
+
+	/**
+	 * Loads the given properties files concurrently.
+	 * 
+	 * <p>
+	 * All files are loaded with this {@link ValueLoader}. A file that cannot
+	 * be read or parsed is reported in {@link BulkResult#getErrors()} and
+	 * does not abort loading the other files. If the calling thread is
+	 * interrupted, the files not yet loaded are reported with an
+	 * {@link InterruptedException}.
+	 * </p>
+	 * 
+	 * @param files
+	 *        The files to load.
+	 * @param parallelism
+	 *        The maximum number of files loaded at the same time.
+	 * @return The loaded values and errors by file.
+	 * 
+	 * @see PropertiesUtil#loadAll(File, String, Class)
+	 */
+	public BulkResult<T> loadAll(Collection<File> files, int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+		}
+
+		Map<File, Future<T>> futures = new LinkedHashMap<File, Future<T>>();
+		ExecutorService executor = BulkExecutor.newExecutor(Math.max(1, Math.min(parallelism, files.size())));
+		try {
+			for (final File file : files) {
+				futures.put(file, executor.submit(new Callable<T>() {
+					@Override
+					public T call() throws Exception {
+						return load(file.getPath());
+					}
+				}));
+			}
+
+			Map<File, T> values = new LinkedHashMap<File, T>();
+			Map<File, Exception> errors = new LinkedHashMap<File, Exception>();
+			for (Entry<File, Future<T>> entry : futures.entrySet()) {
+				File file = entry.getKey();
+				try {
+					values.put(file, entry.getValue().get());
+				} catch (ExecutionException ex) {
+					Throwable cause = ex.getCause();
+					if (cause instanceof Exception) {
+						errors.put(file, (Exception) cause);
+					} else if (cause instanceof Error) {
+						throw (Error) cause;
+					} else {
+						errors.put(file, ex);
+					}
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					errors.put(file, ex);
+				}
+			}
+			return new BulkResult<T>(values, errors);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private T newInstance() {
+		return (T) descriptor.newInstance();
+	}
+
+	void loadValue(KeyTree keys, Value obj, Renumbering renumbered) {
+		for (Step step : steps) {
+			step.load(keys == null ? null : keys.get(step.name), obj, renumbered);
+		}
+	}
+
+	/**
+	 * Instruction loading a single property from the key tree node with the
+	 * property's name.
+	 */
+	private static abstract class Step {
+
+		final Property property;
+
+		final String name;
+
+		Step(Property property) {
+			this.property = property;
+			name = property.getName();
+		}
+
+		abstract void load(KeyTree node, Value obj, Renumbering renumbered);
+
+	}
+
+	private static final class PrimitiveStep extends Step {
+
+		private final Parser<Object> parser;
+
+		private final Initializer<Object> initializer;
+
+		PrimitiveStep(Property property) {
+			super(property);
+			parser = property.getParser();
+			initializer = property.getInitializer();
+		}
+
+		@Override
+		void load(KeyTree node, Value obj, Renumbering renumbered) {
+			String valueSource = node == null ? null : node.getValue();
+			obj.putValue(property, valueSource == null ? initializer.init() : parser.parse(valueSource));
+		}
+
+	}
+
+	/**
+	 * Base class for steps that delegate to the loader of another type.
+	 */
+	private static abstract class NestedStep extends Step {
+
+		private ValueLoader<?> loader;
+
+		NestedStep(Property property) {
+			super(property);
+		}
+
+		final ValueLoader<?> loader() {
+			// See getLoader(ValueDescriptor, String).
+			ValueLoader<?> result = loader;
+			if (result == null) {
+				result = getLoader(ValueFactory.getDescriptor(property.getType()), "");
+				loader = result;
+			}
+			return result;
+		}
+
+		final Value newEntry() {
+			return (Value) loader().descriptor.newInstance();
+		}
+
+	}
+
+	private static final class ValueStep extends NestedStep {
+
+		ValueStep(Property property) {
+			super(property);
+		}
+
+		@Override
+		void load(KeyTree node, Value obj, Renumbering renumbered) {
+			if (node == null && !ValueDescriptorImpl.hasValue(obj, property)) {
+				// Nothing to load, see ValueDescriptorImpl#hasValue(Value, Property).
+				return;
+			}
+
+			Value value = (Value) obj.value(property);
+			if (value == null) {
+				if (node == null) {
+					return;
+				}
+				value = newEntry();
+				obj.putValue(property, value);
+			}
+			loader().loadValue(node, value, renumbered);
+		}
+
+	}
+
+	private static final class ListStep extends NestedStep {
+
+		ListStep(Property property) {
+			super(property);
+		}
+
+		@Override
+		void load(KeyTree node, Value obj, Renumbering renumbered) {
+			if (node == null) {
+				return;
+			}
+
+			@SuppressWarnings("unchecked")
+			List<Value> list = (List<Value>) obj.value(property);
+			List<KeyTree> entries = node.getEntries(PropertiesUtil.FIRST_INDEX);
+			for (KeyTree entry : entries) {
+				Value entryValue = newEntry();
+				loader().loadValue(entry, entryValue, renumbered);
+				list.add(entryValue);
+			}
+			if (!entries.isEmpty()) {
+				renumbered.check(obj, property, entries.size(), entries.get(entries.size() - 1).getIndex());
+			}
+		}
+
+	}
+
+	private static final class IndexStep extends NestedStep {
+
+		private final Property indexProperty;
+
+		IndexStep(Property property) {
+			super(property);
+			indexProperty = property.getIndexProperty();
+		}
+
+		@Override
+		void load(KeyTree node, Value obj, Renumbering renumbered) {
+			if (node == null) {
+				return;
+			}
+
+			@SuppressWarnings("unchecked")
+			Map<Object, Value> map = (Map<Object, Value>) obj.value(property);
+			for (KeyTree entry : node.getEntries(PropertiesUtil.FIRST_INDEX)) {
+				Value entryValue = newEntry();
+				loader().loadValue(entry, entryValue, renumbered);
+				map.put(entryValue.value(indexProperty), entryValue);
+			}
+		}
+
+	}
+
+}
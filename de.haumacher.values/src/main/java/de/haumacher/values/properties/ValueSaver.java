@@ -0,0 +1,913 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.properties;
+
+import java.io.CharArrayWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import de.haumacher.values.Kind;
+import de.haumacher.values.Parser;
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueDescriptor;
+import de.haumacher.values.ValueFactory;
+import de.haumacher.values.internal.ValueDescriptorImpl;
+
+/**
+ * Plan for storing instances of a {@link Value} type into {@link Properties}
+ * with a fixed key prefix.
+ * 
+ * <p>
+ * A {@link ValueSaver} is compiled once for each combination of
+ * {@link ValueDescriptor} and prefix. It holds a flat list of instructions,
+ * one for each property, so that storing a value does not inspect the
+ * descriptor again. The instructions do not depend on the prefix and are
+ * shared by all savers of the same type. Keys are built in a reused buffer
+ * while storing. Savers are immutable and can be used concurrently.
+ * </p>
+ * 
+ * <p>
+ * Properties are stored in the order of their names, list entries in the
+ * order of the list, and index entries in the order of their unparsed keys.
+ * </p>
+ * 
+ * <p>
+ * A value that was loaded by a {@link ValueLoader} can be stored
+ * incrementally with {@link #update(Properties, Value)} or
+ * {@link #update(String, Value)}. Only keys of properties that were updated
+ * since loading or the last incremental update are stored then.
+ * </p>
+ * 
+ * @see PropertiesUtil#getSaver(Class, String)
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version Since 0.3.0
+ */
+public final class ValueSaver<T extends Value> {
+
+	static final Comparator<Property> BY_NAME = new Comparator<Property>() {
+		@Override
+		public int compare(Property p1, Property p2) {
+			return p1.getName().compareTo(p2.getName());
+		}
+	};
+
+	/**
+	 * The minimum size of outdated keys in a file, before
+	 * {@link #update(String, Value)} rewrites it.
+	 */
+	private static final int MIN_OUTDATED = 4096;
+
+	private static final ConcurrentMap<ValueDescriptor<?>, ConcurrentMap<String, ValueSaver<?>>> SAVERS = new ConcurrentHashMap<ValueDescriptor<?>, ConcurrentMap<String, ValueSaver<?>>>();
+
+	private final String prefix;
+
+	private final Step[] steps;
+
+	private ValueSaver(ValueDescriptor<?> descriptor, String prefix) {
+		this.prefix = prefix;
+
+		if (prefix.length() > 0) {
+			// The steps do not depend on the prefix.
+			this.steps = getSaver(descriptor, "").steps;
+			return;
+		}
+
+		Collection<Property> properties = descriptor.getProperties().values();
+		Property[] sorted = properties.toArray(new Property[properties.size()]);
+		Arrays.sort(sorted, BY_NAME);
+
+		Step[] steps = new Step[sorted.length];
+		int cnt = 0;
+		for (Property property : sorted) {
+			switch (property.getKind()) {
+			case PRIMITIVE:
+				steps[cnt++] = new PrimitiveStep(property);
+				break;
+			case VALUE:
+				steps[cnt++] = new ValueStep(property);
+				break;
+			case LIST:
+			case INDEX:
+				steps[cnt++] = new EntriesStep(property);
+				break;
+			case REFERENCE:
+				break;
+			}
+		}
+		if (cnt < steps.length) {
+			Step[] copy = new Step[cnt];
+			System.arraycopy(steps, 0, copy, 0, cnt);
+			steps = copy;
+		}
+		this.steps = steps;
+	}
+
+	/**
+	 * The {@link ValueSaver} for the given type and key prefix.
+	 */
+	static ValueSaver<?> getSaver(ValueDescriptor<?> descriptor, String prefix) {
+		ConcurrentMap<String, ValueSaver<?>> byPrefix = SAVERS.get(descriptor);
+		if (byPrefix == null) {
+			ConcurrentMap<String, ValueSaver<?>> newMap = new ConcurrentHashMap<String, ValueSaver<?>>();
+			byPrefix = SAVERS.putIfAbsent(descriptor, newMap);
+			if (byPrefix == null) {
+				byPrefix = newMap;
+			}
+		}
+		ValueSaver<?> saver = byPrefix.get(prefix);
+		if (saver == null) {
+			ValueSaver<?> newSaver = new ValueSaver<Value>(descriptor, prefix);
+			saver = byPrefix.putIfAbsent(prefix, newSaver);
+			if (saver == null) {
+				saver = newSaver;
+			}
+		}
+		return saver;
+	}
+
+	/**
+	 * The prefix of all keys stored by this {@link ValueSaver}.
+	 */
+	public String getPrefix() {
+		return prefix;
+	}
+
+	/**
+	 * Stores the given value into the given {@link Properties}.
+	 * 
+	 * <p>
+	 * Keys of properties with <code>null</code> values are removed.
+	 * </p>
+	 * 
+	 * @param properties
+	 *        The {@link Properties} to modify.
+	 * @param obj
+	 *        The value to store.
+	 * @return The given {@link Properties}.
+	 */
+	public Properties save(Properties properties, T obj) {
+		saveValue(properties, new StringBuilder(prefix), obj);
+		return properties;
+	}
+
+	/**
+	 * Writes the given value in {@link Properties} file syntax to the given
+	 * file.
+	 * 
+	 * @see #write(Writer, Value)
+	 */
+	public void write(String fileName, T obj) throws IOException {
+		Writer out = new OutputStreamWriter(new FileOutputStream(fileName), "ISO-8859-1");
+		try {
+			write(out, obj);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the given value in {@link Properties} file syntax to the given
+	 * {@link Writer}.
+	 * 
+	 * <p>
+	 * In contrast to {@link #save(Properties, Value)}, primitive properties
+	 * that have their constant initial value are not written, since they are
+	 * initialized when loading anyway. The keys are written directly in a
+	 * fixed order without a header comment. Therefore, equal values produce
+	 * identical output.
+	 * </p>
+	 * 
+	 * @param out
+	 *        The {@link Writer} to write to. The output is buffered
+	 *        internally.
+	 * @param obj
+	 *        The value to write.
+	 * @throws IOException
+	 *         If writing fails.
+	 */
+	public void write(Writer out, T obj) throws IOException {
+		PropertiesWriter writer = new PropertiesWriter(out);
+		writeValue(writer, new StringBuilder(prefix), obj);
+		writer.flush();
+	}
+
+	/**
+	 * Stores only the changes of the given value into the given
+	 * {@link Properties}.
+	 * 
+	 * <p>
+	 * The given {@link Properties} must contain the state of the given value
+	 * at the time when it was loaded or last updated. Keys of changed
+	 * primitive properties are set or removed. If a nested value was replaced
+	 * or the entries of a list or index were changed, all keys below that
+	 * property are replaced. Afterwards, the given value is marked unchanged.
+	 * </p>
+	 * 
+	 * @param properties
+	 *        The {@link Properties} to modify.
+	 * @param obj
+	 *        The value whose changes should be stored.
+	 * @return The given {@link Properties}.
+	 */
+	public Properties update(Properties properties, T obj) {
+		updateValue(properties, new StringBuilder(prefix), obj);
+		ValueDescriptorImpl.clearChanges(obj);
+		return properties;
+	}
+
+	/**
+	 * Stores only the changes of the given value into the given
+	 * {@link Properties} file.
+	 * 
+	 * <p>
+	 * The given file must contain the state of the given value at the time
+	 * when it was loaded or last updated. If only primitive properties
+	 * were changed, their keys are appended to the file. Since the last
+	 * occurrence of a key wins when loading, this has the same effect as
+	 * rewriting the file. Afterwards, the given value is marked unchanged.
+	 * </p>
+	 * 
+	 * <p>
+	 * If keys must be removed, e.g. because list entries were removed or were
+	 * loaded from keys not numbered consecutively, the file is rewritten. All keys that do not address a property of the given
+	 * value, e.g. keys with another prefix, are kept in their original order
+	 * and followed by the keys of the value as written by
+	 * {@link #write(Writer, Value)}. <b>Comments and formatting of the file
+	 * are lost in this case.</b>
+	 * </p>
+	 * 
+	 * <p>
+	 * The file is also rewritten, if the outdated keys of the value in the
+	 * file would exceed the size of the value's own keys, but at least 4096
+	 * characters. Otherwise, repeated updates would let
+	 * the file grow without bound.
+	 * </p>
+	 * 
+	 * @param fileName
+	 *        The {@link Properties} file to update.
+	 * @param obj
+	 *        The value whose changes should be stored.
+	 * @throws IOException
+	 *         If accessing the file fails.
+	 */
+	public void update(String fileName, T obj) throws IOException {
+		CharArrayWriter buffer = new CharArrayWriter();
+		PropertiesWriter changes = new PropertiesWriter(buffer);
+		if (appendValue(changes, new StringBuilder(prefix), obj)) {
+			changes.flush();
+			if (buffer.size() > 0) {
+				if (needsCompaction(fileName, obj, buffer.size())) {
+					merge(fileName, obj);
+				} else {
+					append(fileName, buffer);
+				}
+			}
+		} else {
+			merge(fileName, obj);
+		}
+		ValueDescriptorImpl.clearChanges(obj);
+	}
+
+	private static void append(String fileName, CharArrayWriter buffer) throws IOException {
+		// Note: Otherwise, the first key would continue the last line.
+		boolean lineBreak = !endsWithLineBreak(fileName);
+		Writer out = new OutputStreamWriter(new FileOutputStream(fileName, true), "ISO-8859-1");
+		try {
+			if (lineBreak) {
+				out.write('\n');
+			}
+			buffer.writeTo(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Whether appending the given number of characters to the given file
+	 * would let the outdated keys of the given value in the file grow beyond
+	 * the size of the value's own keys, but at least {@link #MIN_OUTDATED}.
+	 */
+	private boolean needsCompaction(String fileName, T obj, int appendSize) throws IOException {
+		CharArrayWriter current = new CharArrayWriter();
+		write(current, obj);
+		long limit = current.size() + Math.max(current.size(), MIN_OUTDATED);
+		if (new File(fileName).length() + appendSize <= limit) {
+			// Even if all keys in the file belong to the value.
+			return false;
+		}
+
+		long size = appendSize;
+		PropertiesBinder owner = new PropertiesBinder(obj, prefix, PropertiesUtil.FIRST_INDEX);
+		Reader in = new InputStreamReader(new FileInputStream(fileName), "ISO-8859-1");
+		try {
+			PropertiesReader reader = new PropertiesReader(in);
+			while (reader.next()) {
+				if (owner.addresses(reader.getKey())) {
+					// Note: Escapes are not counted, which is precise enough
+					// for a threshold.
+					size += reader.getKey().length() + reader.getValue().length() + 2;
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return size > limit;
+	}
+
+	private static boolean endsWithLineBreak(String fileName) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(fileName, "r");
+		try {
+			long length = in.length();
+			if (length == 0) {
+				return true;
+			}
+			in.seek(length - 1);
+			int last = in.read();
+			return last == '\n' || last == '\r';
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Rewrites the given file with the given value keeping all keys that do
+	 * not belong to the value.
+	 */
+	private void merge(String fileName, T obj) throws IOException {
+		List<String> foreign = new ArrayList<String>();
+		if (new File(fileName).exists()) {
+			PropertiesBinder owner = new PropertiesBinder(obj, prefix, PropertiesUtil.FIRST_INDEX);
+			Reader in = new InputStreamReader(new FileInputStream(fileName), "ISO-8859-1");
+			try {
+				PropertiesReader reader = new PropertiesReader(in);
+				while (reader.next()) {
+					if (!owner.addresses(reader.getKey())) {
+						foreign.add(reader.getKey().toString());
+						foreign.add(reader.getValue().toString());
+					}
+				}
+			} finally {
+				in.close();
+			}
+		}
+
+		Writer out = new OutputStreamWriter(new FileOutputStream(fileName), "ISO-8859-1");
+		try {
+			PropertiesWriter writer = new PropertiesWriter(out);
+			for (int n = 0, cnt = foreign.size(); n < cnt; n += 2) {
+				String key = foreign.get(n);
+				writer.write(key, key.length(), foreign.get(n + 1));
+			}
+			writeValue(writer, new StringBuilder(prefix), obj);
+			writer.flush();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Stores the given value with keys starting with the given prefix.
+	 * 
+	 * <p>
+	 * The given key buffer is used for building the keys of all properties.
+	 * Its contents is restored before returning.
+	 * </p>
+	 */
+	void saveValue(Properties properties, StringBuilder key, Value obj) {
+		for (Step step : steps) {
+			step.save(properties, key, obj);
+		}
+	}
+
+	void updateValue(Properties properties, StringBuilder key, Value obj) {
+		for (Step step : steps) {
+			step.update(properties, key, obj);
+		}
+	}
+
+	/**
+	 * Writes the keys of all changed primitive properties of the given value.
+	 * 
+	 * @return Whether the changes could be written, <code>false</code>, if
+	 *         keys would have to be removed.
+	 */
+	boolean appendValue(PropertiesWriter out, StringBuilder key, Value obj) throws IOException {
+		for (Step step : steps) {
+			if (!step.append(out, key, obj)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Whether the given value or any value reachable from it has changes.
+	 */
+	boolean hasChanges(Value obj) {
+		for (Step step : steps) {
+			if (step.hasChanges(obj)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes all keys starting with the given prefix.
+	 */
+	static void removeKeys(Properties properties, String prefix) {
+		for (Iterator<Object> it = properties.keySet().iterator(); it.hasNext();) {
+			Object key = it.next();
+			if (key instanceof String && ((String) key).startsWith(prefix)) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Writes the given value and reports the number of keys written.
+	 */
+	int writeValue(PropertiesWriter out, StringBuilder key, Value obj) throws IOException {
+		int result = 0;
+		for (Step step : steps) {
+			result += step.write(out, key, obj);
+		}
+		return result;
+	}
+
+	/**
+	 * Instruction storing a single property.
+	 * 
+	 * <p>
+	 * All methods receive a buffer with the prefix of the keys to store. A
+	 * step appends its part of the keys and restores the prefix before
+	 * returning. This way, a single plan is used for a value type at all
+	 * positions, e.g. for all entries of a list, without building key strings
+	 * that are not actually stored.
+	 * </p>
+	 */
+	private static abstract class Step {
+
+		final Property property;
+
+		final String name;
+
+		Step(Property property) {
+			this.property = property;
+			name = property.getName();
+		}
+
+		abstract void save(Properties properties, StringBuilder key, Value obj);
+
+		/**
+		 * Stores the property of the given value, if it has changed.
+		 * 
+		 * @see ValueSaver#update(Properties, Value)
+		 */
+		abstract void update(Properties properties, StringBuilder key, Value obj);
+
+		/**
+		 * Writes the property of the given value, if it has changed.
+		 * 
+		 * @return Whether the change could be written.
+		 * 
+		 * @see ValueSaver#appendValue(PropertiesWriter, StringBuilder, Value)
+		 */
+		abstract boolean append(PropertiesWriter out, StringBuilder key, Value obj) throws IOException;
+
+		/**
+		 * Writes the property of the given value and reports the number of
+		 * keys written.
+		 */
+		abstract int write(PropertiesWriter out, StringBuilder key, Value obj) throws IOException;
+
+		/**
+		 * Whether the property of the given value or any value reachable
+		 * through it has changed.
+		 */
+		abstract boolean hasChanges(Value obj);
+
+	}
+
+	private static final class PrimitiveStep extends Step {
+
+		private final Parser<Object> parser;
+
+		/**
+		 * Whether the property has a constant initial value that must not be
+		 * written.
+		 */
+		private final boolean elideDefault;
+
+		private final Object defaultValue;
+
+		PrimitiveStep(Property property) {
+			super(property);
+			parser = property.getParser();
+			elideDefault = ValueDescriptorImpl.hasConstantInitializer(property);
+			defaultValue = elideDefault ? property.getInitializer().init() : null;
+		}
+
+		@Override
+		void save(Properties properties, StringBuilder key, Value obj) {
+			int length = key.length();
+			key.append(name);
+			Object value = obj.value(property);
+			if (value == null) {
+				properties.remove(key.toString());
+			} else {
+				properties.setProperty(key.toString(), parser.unparse(value));
+			}
+			key.setLength(length);
+		}
+
+		@Override
+		int write(PropertiesWriter out, StringBuilder key, Value obj) throws IOException {
+			Object value = obj.value(property);
+			if (value == null || (elideDefault && parser.equals(defaultValue, value))) {
+				return 0;
+			}
+			int length = key.length();
+			key.append(name);
+			out.write(key, parser, value);
+			key.setLength(length);
+			return 1;
+		}
+
+		@Override
+		void update(Properties properties, StringBuilder key, Value obj) {
+			if (ValueDescriptorImpl.isChanged(obj, property)) {
+				save(properties, key, obj);
+			}
+		}
+
+		@Override
+		boolean append(PropertiesWriter out, StringBuilder key, Value obj) throws IOException {
+			if (!ValueDescriptorImpl.isChanged(obj, property)) {
+				return true;
+			}
+			Object value = obj.value(property);
+			if (value == null) {
+				return false;
+			}
+			// Note: An initial value must be written explicitly to replace a
+			// previous value.
+			int length = key.length();
+			key.append(name);
+			out.write(key, parser, value);
+			key.setLength(length);
+			return true;
+		}
+
+		@Override
+		boolean hasChanges(Value obj) {
+			return ValueDescriptorImpl.isChanged(obj, property);
+		}
+
+	}
+
+	/**
+	 * Base class for steps that delegate to the plan of another type.
+	 */
+	private static abstract class NestedStep extends Step {
+
+		private ValueSaver<?> saver;
+
+		NestedStep(Property property) {
+			super(property);
+		}
+
+		final ValueSaver<?> saver() {
+			// Resolved on first use like in ValueLoader#getLoader(ValueDescriptor, String).
+			ValueSaver<?> result = saver;
+			if (result == null) {
+				result = getSaver(ValueFactory.getDescriptor(property.getType()), "");
+				saver = result;
+			}
+			return result;
+		}
+
+	}
+
+	private static final class ValueStep extends NestedStep {
+
+		ValueStep(Property property) {
+			super(property);
+		}
+
+		@Override
+		void save(Properties properties, StringBuilder key, Value obj) {
+			if (!ValueDescriptorImpl.hasValue(obj, property)) {
+				// See ValueDescriptorImpl#hasValue(Value, Property).
+				return;
+			}
+
+			Value value = (Value) obj.value(property);
+			if (value == null) {
+				return;
+			}
+			int length = key.length();
+			key.append(name).append('.');
+			saver().saveValue(properties, key, value);
+			key.setLength(length);
+		}
+
+		@Override
+		int write(PropertiesWriter out, StringBuilder key, Value obj) throws IOException {
+			if (!ValueDescriptorImpl.hasValue(obj, property)) {
+				return 0;
+			}
+
+			Value value = (Value) obj.value(property);
+			if (value == null) {
+				return 0;
+			}
+			int length = key.length();
+			key.append(name).append('.');
+			int result = saver().writeValue(out, key, value);
+			key.setLength(length);
+			return result;
+		}
+
+		@Override
+		void update(Properties properties, StringBuilder key, Value obj) {
+			if (!ValueDescriptorImpl.hasValue(obj, property)) {
+				return;
+			}
+
+			Value value = (Value) obj.value(property);
+			int length = key.length();
+			key.append(name).append('.');
+			if (ValueDescriptorImpl.isChanged(obj, property)) {
+				removeKeys(properties, key.toString());
+				if (value != null) {
+					saver().saveValue(properties, key, value);
+				}
+			} else if (value != null) {
+				saver().updateValue(properties, key, value);
+			}
+			key.setLength(length);
+		}
+
+		@Override
+		boolean append(PropertiesWriter out, StringBuilder key, Value obj) throws IOException {
+			if (!ValueDescriptorImpl.hasValue(obj, property)) {
+				return true;
+			}
+			if (ValueDescriptorImpl.isChanged(obj, property)) {
+				return false;
+			}
+
+			Value value = (Value) obj.value(property);
+			if (value == null) {
+				return true;
+			}
+			int length = key.length();
+			key.append(name).append('.');
+			boolean result = saver().appendValue(out, key, value);
+			key.setLength(length);
+			return result;
+		}
+
+		@Override
+		boolean hasChanges(Value obj) {
+			if (!ValueDescriptorImpl.hasValue(obj, property)) {
+				return false;
+			}
+			if (ValueDescriptorImpl.isChanged(obj, property)) {
+				return true;
+			}
+
+			Value value = (Value) obj.value(property);
+			return value != null && saver().hasChanges(value);
+		}
+
+	}
+
+	/**
+	 * Step storing the entries of a list or index.
+	 * 
+	 * <p>
+	 * Index entries are numbered in the order of their unparsed index keys.
+	 * Therefore, equal indices are stored identically, independently of the
+	 * iteration order of their maps. Since loading numbers index entries in
+	 * the order of the stored keys, an incremental update cannot rely on an
+	 * entry having the same number as before. A change of an index entry
+	 * therefore replaces all keys of the index.
+	 * </p>
+	 */
+	private static final class EntriesStep extends NestedStep {
+
+		private final Parser<Object> indexParser;
+
+		EntriesStep(Property property) {
+			super(property);
+			indexParser = property.getKind() == Kind.INDEX ? property.getIndexProperty().getParser() : null;
+		}
+
+		@Override
+		void save(Properties properties, StringBuilder key, Value obj) {
+			if (!ValueDescriptorImpl.hasValue(obj, property)) {
+				return;
+			}
+
+			int length = key.length();
+			int n = PropertiesUtil.FIRST_INDEX;
+			for (Object entry : entries(obj)) {
+				entryKey(key, length, n++);
+				saver().saveValue(properties, key, (Value) entry);
+			}
+			key.setLength(length);
+		}
+
+		@Override
+		int write(PropertiesWriter out, StringBuilder key, Value obj) throws IOException {
+			if (!ValueDescriptorImpl.hasValue(obj, property)) {
+				return 0;
+			}
+
+			int length = key.length();
+			int result = 0;
+			int n = PropertiesUtil.FIRST_INDEX;
+			for (Object entry : entries(obj)) {
+				entryKey(key, length, n++);
+				int cnt = saver().writeValue(out, key, (Value) entry);
+				if (cnt == 0) {
+					// An entry with only initial values must still be
+					// represented by a key to be created when loading.
+					out.write(key, key.length() - 1, "");
+					cnt = 1;
+				}
+				result += cnt;
+			}
+			key.setLength(length);
+			return result;
+		}
+
+		@Override
+		void update(Properties properties, StringBuilder key, Value obj) {
+			if (!ValueDescriptorImpl.hasValue(obj, property)) {
+				return;
+			}
+
+			int length = key.length();
+			if (ValueDescriptorImpl.isChanged(obj, property) || (isIndex() && hasEntryChanges(obj))) {
+				key.append(name).append('.');
+				removeKeys(properties, key.toString());
+				key.setLength(length);
+				save(properties, key, obj);
+			} else {
+				int n = PropertiesUtil.FIRST_INDEX;
+				for (Object entry : entries(obj)) {
+					entryKey(key, length, n++);
+					saver().updateValue(properties, key, (Value) entry);
+				}
+				key.setLength(length);
+			}
+		}
+
+		@Override
+		boolean append(PropertiesWriter out, StringBuilder key, Value obj) throws IOException {
+			if (!ValueDescriptorImpl.hasValue(obj, property)) {
+				return true;
+			}
+			if (ValueDescriptorImpl.isChanged(obj, property)) {
+				return false;
+			}
+			if (isIndex()) {
+				return !hasEntryChanges(obj);
+			}
+
+			int length = key.length();
+			boolean result = true;
+			int n = PropertiesUtil.FIRST_INDEX;
+			for (Object entry : entries(obj)) {
+				entryKey(key, length, n++);
+				if (!saver().appendValue(out, key, (Value) entry)) {
+					result = false;
+					break;
+				}
+			}
+			key.setLength(length);
+			return result;
+		}
+
+		/**
+		 * Replaces the contents of the given key buffer after the given
+		 * length with the prefix of the entry with the given number.
+		 */
+		private void entryKey(StringBuilder key, int length, int number) {
+			key.setLength(length);
+			key.append(name).append('.').append(number).append('.');
+		}
+
+		@Override
+		boolean hasChanges(Value obj) {
+			if (!ValueDescriptorImpl.hasValue(obj, property)) {
+				return false;
+			}
+			return ValueDescriptorImpl.isChanged(obj, property) || hasEntryChanges(obj);
+		}
+
+		private boolean hasEntryChanges(Value obj) {
+			Object value = obj.value(property);
+			Collection<?> entries = isIndex() ? ((Map<?, ?>) value).values() : (List<?>) value;
+			for (Object entry : entries) {
+				if (saver().hasChanges((Value) entry)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private boolean isIndex() {
+			return indexParser != null;
+		}
+
+		/**
+		 * The entries of the given value's list, or the entries of its index
+		 * in the order of their unparsed keys.
+		 */
+		private Collection<?> entries(Value obj) {
+			Object value = obj.value(property);
+			if (!isIndex()) {
+				return (List<?>) value;
+			}
+
+			Map<?, ?> index = (Map<?, ?>) value;
+			IndexEntry[] sorted = new IndexEntry[index.size()];
+			int cnt = 0;
+			for (Entry<?, ?> entry : index.entrySet()) {
+				Object indexKey = entry.getKey();
+				sorted[cnt++] = new IndexEntry(indexKey == null ? "" : indexParser.unparse(indexKey), entry.getValue());
+			}
+			Arrays.sort(sorted);
+
+			List<Object> result = new ArrayList<Object>(cnt);
+			for (IndexEntry entry : sorted) {
+				result.add(entry.value);
+			}
+			return result;
+		}
+
+	}
+
+	/**
+	 * Entry of an index with its unparsed key.
+	 */
+	private static final class IndexEntry implements Comparable<IndexEntry> {
+
+		final String key;
+
+		final Object value;
+
+		IndexEntry(String key, Object value) {
+			this.key = key;
+			this.value = value;
+		}
+
+		@Override
+		public int compareTo(IndexEntry other) {
+			return key.compareTo(other.key);
+		}
+
+	}
+
+}
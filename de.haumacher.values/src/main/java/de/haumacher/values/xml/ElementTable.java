@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.xml;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import de.haumacher.values.Kind;
+import de.haumacher.values.Property;
+import de.haumacher.values.ValueDescriptor;
+import de.haumacher.values.ValueFactory;
+
+/**
+ * Precomputed resolution of XML names to the {@link Property properties} of a
+ * {@link ValueDescriptor}.
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+final class ElementTable {
+
+	private static final ConcurrentMap<ValueDescriptor<?>, ElementTable> TABLES = new ConcurrentHashMap<ValueDescriptor<?>, ElementTable>();
+
+	private final Map<String, Property> attributes = new HashMap<String, Property>();
+
+	private final Map<String, Property> elements = new HashMap<String, Property>();
+
+	private final Property[] primitives;
+
+	private final Property[] structured;
+
+	private ElementTable(ValueDescriptor<?> descriptor) {
+		int primitiveCnt = 0;
+		for (Property property : descriptor.getProperties().values()) {
+			if (property.getKind() == Kind.PRIMITIVE) {
+				attributes.put(property.getName(), property);
+				primitiveCnt++;
+			}
+			if (property.getKind() != Kind.REFERENCE) {
+				elements.put(property.getName(), property);
+			}
+		}
+
+		primitives = new Property[primitiveCnt];
+		structured = new Property[elements.size() - primitiveCnt];
+		int primitiveIndex = 0;
+		int structuredIndex = 0;
+		for (Property property : descriptor.getProperties().values()) {
+			switch (property.getKind()) {
+			case PRIMITIVE:
+				primitives[primitiveIndex++] = property;
+				break;
+			case VALUE:
+			case LIST:
+			case INDEX:
+				structured[structuredIndex++] = property;
+				break;
+			case REFERENCE:
+				break;
+			}
+		}
+	}
+
+	/**
+	 * The {@link ElementTable} for the given {@link ValueDescriptor}.
+	 */
+	static ElementTable getTable(ValueDescriptor<?> descriptor) {
+		ElementTable table = TABLES.get(descriptor);
+		if (table == null) {
+			ElementTable newTable = new ElementTable(descriptor);
+			table = TABLES.putIfAbsent(descriptor, newTable);
+			if (table == null) {
+				table = newTable;
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * The {@link Kind#PRIMITIVE} property with the given attribute name, or
+	 * <code>null</code>.
+	 */
+	Property getAttribute(String localName) {
+		return attributes.get(localName);
+	}
+
+	/**
+	 * The property with the given element name, or <code>null</code>.
+	 */
+	Property getElement(String localName) {
+		return elements.get(localName);
+	}
+
+	/**
+	 * All {@link Kind#PRIMITIVE} properties, written as attributes.
+	 */
+	Property[] getPrimitives() {
+		return primitives;
+	}
+
+	/**
+	 * All properties written as child elements.
+	 */
+	Property[] getStructured() {
+		return structured;
+	}
+
+	/**
+	 * The descriptor of the content values of the given structured property.
+	 */
+	static ValueDescriptor<?> getContentDescriptor(Property property) {
+		return ValueFactory.getDescriptor(property.getType());
+	}
+
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.xml;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+import de.haumacher.values.format.ParseUtil;
+
+/**
+ * Fills {@link Value} instances from the events of an
+ * {@link XMLStreamReader}.
+ * 
+ * @see XmlWriter
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+final class XmlReader {
+
+	/**
+	 * Conventional prefix of the {@link XMLConstants#W3C_XML_SCHEMA_INSTANCE_NS_URI}.
+	 */
+	static final String XSI_PREFIX = "xsi";
+
+	/**
+	 * Name of the attribute marking an element that represents
+	 * <code>null</code>.
+	 */
+	static final String NIL = "nil";
+
+	private final XMLStreamReader in;
+
+	/**
+	 * Buffer for the text content of primitive elements.
+	 */
+	private final StringBuilder text = new StringBuilder();
+
+	XmlReader(XMLStreamReader in) {
+		this.in = in;
+	}
+
+	/**
+	 * Advances to the next start element.
+	 */
+	void nextElement() throws XMLStreamException {
+		while (!in.isStartElement()) {
+			if (!in.hasNext()) {
+				throw new XMLStreamException("Element expected.", in.getLocation());
+			}
+			in.next();
+		}
+	}
+
+	/**
+	 * Reads the attributes and contents of the current element into the given
+	 * {@link Value}.
+	 * 
+	 * <p>
+	 * When this method returns, the reader is positioned at the end element
+	 * of the current element.
+	 * </p>
+	 */
+	void readValue(Value obj) throws XMLStreamException {
+		ElementTable table = ElementTable.getTable(obj.descriptor());
+		for (int n = 0, cnt = in.getAttributeCount(); n < cnt; n++) {
+			Property property = table.getAttribute(in.getAttributeLocalName(n));
+			if (property != null) {
+				String text = in.getAttributeValue(n);
+				obj.putValue(property, parse(property, text, 0, text.length()));
+			}
+		}
+
+		while (true) {
+			switch (in.next()) {
+			case XMLStreamConstants.START_ELEMENT: {
+				Property property = table.getElement(in.getLocalName());
+				if (property == null) {
+					skipElement();
+				} else {
+					readProperty(obj, property);
+				}
+				break;
+			}
+			case XMLStreamConstants.END_ELEMENT:
+				return;
+			}
+		}
+	}
+
+	private void readProperty(Value obj, Property property) throws XMLStreamException {
+		switch (property.getKind()) {
+		case PRIMITIVE: {
+			readText();
+			obj.putValue(property, parse(property, text, 0, text.length()));
+			break;
+		}
+
+		case VALUE: {
+			if (isNil()) {
+				skipElement();
+				obj.putValue(property, null);
+				break;
+			}
+			Value value = (Value) obj.value(property);
+			if (value == null) {
+				value = newContent(property);
+				obj.putValue(property, value);
+			}
+			readValue(value);
+			break;
+		}
+
+		case LIST: {
+			@SuppressWarnings("unchecked")
+			List<Value> list = (List<Value>) obj.value(property);
+			if (isNil()) {
+				skipElement();
+				list.add(null);
+				break;
+			}
+			Value entry = newContent(property);
+			readValue(entry);
+			list.add(entry);
+			break;
+		}
+
+		case INDEX: {
+			@SuppressWarnings("unchecked")
+			Map<Object, Value> map = (Map<Object, Value>) obj.value(property);
+			if (isNil()) {
+				throw new XMLStreamException("Missing entry in index '" + property.getName() + "'.", in.getLocation());
+			}
+			Value entry = newContent(property);
+			readValue(entry);
+			map.put(entry.value(property.getIndexProperty()), entry);
+			break;
+		}
+
+		case REFERENCE: {
+			skipElement();
+			break;
+		}
+		}
+	}
+
+	/**
+	 * Whether the current element represents <code>null</code>.
+	 */
+	private boolean isNil() {
+		return "true".equals(in.getAttributeValue(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, NIL));
+	}
+
+	private static Value newContent(Property property) {
+		return (Value) ElementTable.getContentDescriptor(property).newInstance();
+	}
+
+	private Object parse(Property property, CharSequence text, int start, int end) throws XMLStreamException {
+		try {
+			return ParseUtil.parse(property.getParser(), text, start, end);
+		} catch (IllegalArgumentException ex) {
+			XMLStreamException problem = new XMLStreamException("Invalid value of '" + property.getName() + "': " + ex.getMessage(), in.getLocation());
+			problem.initCause(ex);
+			throw problem;
+		}
+	}
+
+	/**
+	 * Reads the text content of the current element into {@link #text}.
+	 */
+	private void readText() throws XMLStreamException {
+		text.setLength(0);
+		while (true) {
+			switch (in.next()) {
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+			case XMLStreamConstants.ENTITY_REFERENCE:
+				text.append(in.getTextCharacters(), in.getTextStart(), in.getTextLength());
+				break;
+			case XMLStreamConstants.START_ELEMENT:
+				throw new XMLStreamException("Unexpected element '" + in.getLocalName() + "' in primitive value.", in.getLocation());
+			case XMLStreamConstants.END_ELEMENT:
+				return;
+			}
+		}
+	}
+
+	private void skipElement() throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			switch (in.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				depth++;
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				depth--;
+				break;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.xml;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import de.haumacher.values.Kind;
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueDescriptor;
+import de.haumacher.values.ValueFactory;
+
+/**
+ * Utility methods to read/write {@link Value} types from/to XML using
+ * <code>javax.xml.stream</code>.
+ * 
+ * <p>
+ * A {@link Value} is represented as element. {@link Kind#PRIMITIVE}
+ * properties are written as attributes with the text of their
+ * {@link Property#getParser() parser}. A text containing line breaks or tabs
+ * is written as child element with text content instead, since attribute
+ * values are normalized by the parser. When reading, any primitive property
+ * may be given as child element. {@link Kind#VALUE}
+ * properties are child elements named after the property. Each entry of a
+ * {@link Kind#LIST} or {@link Kind#INDEX} property is a child element named
+ * after the property. Reading such an element adds an entry. A
+ * <code>null</code> value or list entry is an empty element with the
+ * attribute <code>xsi:nil="true"</code>. Unknown attributes and elements are
+ * skipped.
+ * </p>
+ * 
+ * <p>
+ * Documents are processed as stream of events, the memory used besides the
+ * result does not depend on the size of the document.
+ * </p>
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ * @version Since 0.3.0
+ */
+public class XmlUtil {
+
+	private static final XMLInputFactory INPUT_FACTORY;
+
+	private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+	static {
+		INPUT_FACTORY = XMLInputFactory.newInstance();
+		INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+	}
+
+	/**
+	 * Reads an instance of the given {@link Value} type from the root element
+	 * of the given XML stream.
+	 * 
+	 * @param in
+	 *        The XML document.
+	 * @param type
+	 *        The {@link Value} type to instantiate.
+	 * @return A new instance of the given type.
+	 * @throws XMLStreamException
+	 *         If reading fails or the input is invalid.
+	 */
+	public static <T extends Value> T read(InputStream in, Class<T> type) throws XMLStreamException {
+		XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(in);
+		try {
+			return read(reader, type);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Reads an instance of the given {@link Value} type from the root element
+	 * of the given XML text.
+	 * 
+	 * @see #read(InputStream, Class)
+	 */
+	public static <T extends Value> T read(Reader in, Class<T> type) throws XMLStreamException {
+		XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(in);
+		try {
+			return read(reader, type);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Reads an instance of the given {@link Value} type from the next element
+	 * of the given {@link XMLStreamReader}.
+	 * 
+	 * <p>
+	 * Afterwards, the reader is positioned at the end element of the element
+	 * read. This allows reading many values from a single document one by one.
+	 * </p>
+	 * 
+	 * @param in
+	 *        The reader positioned before or at the element to read.
+	 * @param type
+	 *        The {@link Value} type to instantiate.
+	 * @return A new instance of the given type.
+	 * @throws XMLStreamException
+	 *         If reading fails or the input is invalid.
+	 */
+	public static <T extends Value> T read(XMLStreamReader in, Class<T> type) throws XMLStreamException {
+		ValueDescriptor<T> descriptor = ValueFactory.getDescriptor(type);
+		T result = descriptor.newInstance();
+		read(in, result);
+		return result;
+	}
+
+	/**
+	 * Applies the next element of the given {@link XMLStreamReader} to the
+	 * given {@link Value}.
+	 * 
+	 * @param in
+	 *        The reader positioned before or at the element to read.
+	 * @param obj
+	 *        The {@link Value} to update.
+	 * @throws XMLStreamException
+	 *         If reading fails or the input is invalid.
+	 * 
+	 * @see #read(XMLStreamReader, Class)
+	 */
+	public static void read(XMLStreamReader in, Value obj) throws XMLStreamException {
+		XmlReader reader = new XmlReader(in);
+		reader.nextElement();
+		reader.readValue(obj);
+	}
+
+	/**
+	 * Writes the given {@link Value} as UTF-8 encoded XML document.
+	 * 
+	 * @see #write(XMLStreamWriter, String, Value)
+	 */
+	public static void write(OutputStream out, Value obj) throws XMLStreamException {
+		XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+		writer.writeStartDocument("UTF-8", "1.0");
+		writeDocument(writer, obj);
+	}
+
+	/**
+	 * Writes the given {@link Value} as XML document.
+	 * 
+	 * @see #write(XMLStreamWriter, String, Value)
+	 */
+	public static void write(Writer out, Value obj) throws XMLStreamException {
+		XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(out);
+		writer.writeStartDocument();
+		writeDocument(writer, obj);
+	}
+
+	private static void writeDocument(XMLStreamWriter writer, Value obj) throws XMLStreamException {
+		try {
+			write(writer, obj.descriptor().getValueInterface().getSimpleName(), obj);
+			writer.writeEndDocument();
+			writer.flush();
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Writes the given {@link Value} as element.
+	 * 
+	 * @param out
+	 *        The {@link XMLStreamWriter} to write to.
+	 * @param elementName
+	 *        The name of the element to write.
+	 * @param obj
+	 *        The {@link Value} to write.
+	 * @throws XMLStreamException
+	 *         If writing fails.
+	 */
+	public static void write(XMLStreamWriter out, String elementName, Value obj) throws XMLStreamException {
+		new XmlWriter(out).writeValue(elementName, obj);
+	}
+
+}
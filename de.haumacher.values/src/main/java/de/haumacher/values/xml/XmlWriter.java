@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package de.haumacher.values.xml;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import de.haumacher.values.Kind;
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+import de.haumacher.values.internal.ValueDescriptorImpl;
+
+/**
+ * Writes {@link Value} instances to an {@link XMLStreamWriter}.
+ * 
+ * @see XmlReader
+ * 
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+final class XmlWriter {
+
+	private final XMLStreamWriter out;
+
+	XmlWriter(XMLStreamWriter out) {
+		this.out = out;
+	}
+
+	/**
+	 * Writes the given {@link Value} as element with the given name.
+	 */
+	void writeValue(String elementName, Value obj) throws XMLStreamException {
+		ElementTable table = ElementTable.getTable(obj.descriptor());
+		out.writeStartElement(elementName);
+		Property[] primitives = table.getPrimitives();
+		String[] elementTexts = null;
+		for (int n = 0, cnt = primitives.length; n < cnt; n++) {
+			Property property = primitives[n];
+			Object value = obj.value(property);
+			if (value == null) {
+				continue;
+			}
+
+			String text = property.getParser().unparse(value);
+			if (hasNormalizedWhitespace(text)) {
+				// Would be normalized to spaces in an attribute value.
+				if (elementTexts == null) {
+					elementTexts = new String[cnt];
+				}
+				elementTexts[n] = text;
+			} else {
+				out.writeAttribute(property.getName(), text);
+			}
+		}
+		if (elementTexts != null) {
+			for (int n = 0, cnt = primitives.length; n < cnt; n++) {
+				if (elementTexts[n] != null) {
+					writeText(primitives[n].getName(), elementTexts[n]);
+				}
+			}
+		}
+
+		for (Property property : table.getStructured()) {
+			if (!ValueDescriptorImpl.hasValue(obj, property)) {
+				// See ValueDescriptorImpl#hasValue(Value, Property).
+				continue;
+			}
+
+			Object value = obj.value(property);
+			if (value == null) {
+				if (property.getKind() == Kind.VALUE) {
+					writeNil(property.getName());
+				}
+				continue;
+			}
+
+			switch (property.getKind()) {
+			case VALUE:
+				writeValue(property.getName(), (Value) value);
+				break;
+			case LIST:
+				writeEntries(property, (List<?>) value);
+				break;
+			case INDEX:
+				writeEntries(property, ((Map<?, ?>) value).values());
+				break;
+			default:
+				throw new AssertionError("Not a structured property: " + property);
+			}
+		}
+		out.writeEndElement();
+	}
+
+	private void writeEntries(Property property, Iterable<?> entries) throws XMLStreamException {
+		String elementName = property.getName();
+		for (Object entry : entries) {
+			if (entry == null) {
+				writeNil(elementName);
+			} else {
+				writeValue(elementName, (Value) entry);
+			}
+		}
+	}
+
+	private static boolean hasNormalizedWhitespace(String text) {
+		for (int n = 0, cnt = text.length(); n < cnt; n++) {
+			switch (text.charAt(n)) {
+			case '\n':
+			case '\r':
+			case '\t':
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Writes an element with the given text as content.
+	 * 
+	 * <p>
+	 * A carriage return is written as character reference, since a parser
+	 * converts it to a line feed otherwise.
+	 * </p>
+	 */
+	private void writeText(String elementName, String text) throws XMLStreamException {
+		out.writeStartElement(elementName);
+		int start = 0;
+		for (int n = 0, cnt = text.length(); n < cnt; n++) {
+			if (text.charAt(n) == '\r') {
+				out.writeCharacters(text.substring(start, n));
+				out.writeEntityRef("#13");
+				start = n + 1;
+			}
+		}
+		out.writeCharacters(text.substring(start));
+		out.writeEndElement();
+	}
+
+	/**
+	 * Writes an empty element with the given name representing
+	 * <code>null</code>.
+	 * 
+	 * @see XmlReader#NIL
+	 */
+	private void writeNil(String elementName) throws XMLStreamException {
+		out.writeEmptyElement(elementName);
+		out.writeNamespace(XmlReader.XSI_PREFIX, XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI);
+		out.writeAttribute(XmlReader.XSI_PREFIX, XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, XmlReader.NIL, "true");
+	}
+
+}
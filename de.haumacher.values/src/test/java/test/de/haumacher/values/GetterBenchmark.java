@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package test.de.haumacher.values;
+
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueFactory;
+import de.haumacher.values.annotate.Compiled;
+
+/**
+ * Micro benchmark measuring the cost of getter and setter calls on
+ * {@link Value} instances.
+ * 
+ * <p>
+ * Not part of the test suite, run {@link #main(String[])} with the test class
+ * path.
+ * </p>
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@SuppressWarnings("javadoc")
+public class GetterBenchmark {
+
+	private static final int WARMUP_ROUNDS = 5;
+
+	private static final int ROUNDS = 10;
+
+	private static final int CALLS = 10000000;
+
+	public interface Proxied extends Value {
+		int getX();
+		void setX(int value);
+
+		String getName();
+		void setName(String value);
+	}
+
+	@Compiled
+	public interface Generated extends Value {
+		int getX();
+		void setX(int value);
+
+		String getName();
+		void setName(String value);
+	}
+
+	static int sink;
+
+	public static void main(String[] args) {
+		Proxied proxied = ValueFactory.newInstance(Proxied.class);
+		proxied.setName("foo");
+		Generated generated = ValueFactory.newInstance(Generated.class);
+		generated.setName("foo");
+
+		for (int n = 0; n < WARMUP_ROUNDS; n++) {
+			runProxied(proxied);
+			runGenerated(generated);
+		}
+
+		long proxiedTime = 0;
+		long generatedTime = 0;
+		for (int n = 0; n < ROUNDS; n++) {
+			proxiedTime += runProxied(proxied);
+			generatedTime += runGenerated(generated);
+		}
+
+		report("proxy", proxiedTime);
+		report("generated", generatedTime);
+	}
+
+	private static long runProxied(Proxied value) {
+		long start = System.nanoTime();
+		int result = 0;
+		for (int n = 0; n < CALLS; n++) {
+			value.setX(n);
+			result += value.getX() + value.getName().length();
+		}
+		sink += result;
+		return System.nanoTime() - start;
+	}
+
+	private static long runGenerated(Generated value) {
+		long start = System.nanoTime();
+		int result = 0;
+		for (int n = 0; n < CALLS; n++) {
+			value.setX(n);
+			result += value.getX() + value.getName().length();
+		}
+		sink += result;
+		return System.nanoTime() - start;
+	}
+
+	private static void report(String engine, long time) {
+		double perCall = ((double) time) / ROUNDS / CALLS / 3;
+		System.out.println(engine + ": " + String.format("%.2f", perCall) + " ns/call");
+	}
+
+}
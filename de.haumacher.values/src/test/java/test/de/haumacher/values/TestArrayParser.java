@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package test.de.haumacher.values;
+
+import java.io.File;
+import java.util.Arrays;
+
+import de.haumacher.values.Parser;
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueDescriptor;
+import de.haumacher.values.ValueFactory;
+import junit.framework.TestCase;
+
+/**
+ * Test case for the built-in array {@link Parser}s.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@SuppressWarnings("javadoc")
+public class TestArrayParser extends TestCase {
+
+	private static final String[] TEXTS = {
+		"", " ", "1", " 1 ", "1,2", "1, 2", "1 ,2", " 1 , 2 , 3 ", "1,2,", "1, 2 , ,", ",1", "1,,2",
+		"1\t,\n2", "1;2", "1:2", "-7, 0, 2147483647", "1.5, 2", "a, b", "x", ",", ",,", " , "
+	};
+
+	public interface Arrays1 extends Value {
+
+		int[] getInts();
+
+		Integer[] getIntegers();
+
+		double[] getDoubles();
+
+		char[] getChars();
+
+		String[] getStrings();
+
+		File[] getFiles();
+
+	}
+
+	private ValueDescriptor<Arrays1> descriptor;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		descriptor = ValueFactory.getDescriptor(Arrays1.class);
+	}
+
+	public void testInts() {
+		Parser<Object> parser = parser("ints");
+		for (String text : TEXTS) {
+			Object expected;
+			try {
+				String[] tokens = split(text, "\\s*,\\s*");
+				int[] array = new int[tokens.length];
+				for (int n = 0; n < tokens.length; n++) {
+					array[n] = Integer.parseInt(tokens[n]);
+				}
+				expected = array;
+			} catch (NumberFormatException ex) {
+				expected = ex.getClass();
+			}
+			Object actual;
+			try {
+				actual = parser.parse(text);
+			} catch (NumberFormatException ex) {
+				actual = ex.getClass();
+			}
+			assertEquals(text, toString(expected), toString(actual));
+			if (actual instanceof int[]) {
+				assertTrue(text, parser.equals(actual, parser.parse(parser.unparse(actual))));
+				assertEquals(text, Arrays.hashCode((int[]) actual), parser.hashCode(actual));
+			}
+		}
+	}
+
+	public void testIntegers() {
+		Parser<Object> parser = parser("integers");
+		Integer[] value = (Integer[]) parser.parse(" 1, -2 ,3");
+		assertEquals(Arrays.asList(1, -2, 3), Arrays.asList(value));
+		assertEquals("1, -2, 3", parser.unparse(value));
+		assertEquals(Arrays.hashCode(value), parser.hashCode(value));
+		assertTrue(parser.equals(value, new Integer[] { 1, -2, 3 }));
+		assertFalse(parser.equals(value, new Integer[] { 1, -2 }));
+		assertEquals("1, null", parser.unparse(new Integer[] { 1, null }));
+	}
+
+	public void testDoubles() {
+		Parser<Object> parser = parser("doubles");
+		double[] value = (double[]) parser.parse("1.5, -0.25,1e10, NaN");
+		assertTrue(Arrays.equals(new double[] { 1.5, -0.25, 1e10, Double.NaN }, value));
+		assertTrue(parser.equals(value, parser.parse(parser.unparse(value))));
+		assertEquals(Arrays.hashCode(value), parser.hashCode(value));
+	}
+
+	public void testChars() {
+		Parser<Object> parser = parser("chars");
+		assertTrue(Arrays.equals(new char[] { 'a', 'b', 'c' }, (char[]) parser.parse("a, b,c")));
+		assertEquals("a, b, c", parser.unparse(new char[] { 'a', 'b', 'c' }));
+		try {
+			parser.parse("a,,b");
+			fail("Empty character must not be accepted.");
+		} catch (IllegalArgumentException ex) {
+			// Expected.
+		}
+	}
+
+	public void testStrings() {
+		Parser<Object> parser = parser("strings");
+		for (String text : TEXTS) {
+			assertEquals(text, Arrays.asList(split(text, "\\s*,\\s*")), Arrays.asList((String[]) parser.parse(text)));
+		}
+	}
+
+	public void testFiles() {
+		Parser<Object> parser = parser("files");
+		String separator = File.pathSeparator;
+		for (String text : TEXTS) {
+			String pathText = text.replace(",", separator);
+			String[] tokens = split(pathText, separator);
+			File[] expected = new File[tokens.length];
+			for (int n = 0; n < tokens.length; n++) {
+				expected[n] = new File(tokens[n]);
+			}
+			File[] actual = (File[]) parser.parse(pathText);
+			assertEquals(pathText, Arrays.asList(expected), Arrays.asList(actual));
+		}
+
+		File[] value = { new File("a"), new File("b c") };
+		assertEquals("a" + separator + "b c", parser.unparse(value));
+		assertTrue(parser.equals(value, parser.parse(parser.unparse(value))));
+	}
+
+	public void testLarge() {
+		Parser<Object> parser = parser("ints");
+		int[] value = new int[10000];
+		for (int n = 0; n < value.length; n++) {
+			value[n] = n * 31 - 5000;
+		}
+		String text = parser.unparse(value);
+		assertTrue(parser.equals(value, parser.parse(text)));
+		assertTrue(Arrays.equals(value, (int[]) parser.parse(text)));
+	}
+
+	private Parser<Object> parser(String name) {
+		return descriptor.getProperties().get(name).getParser();
+	}
+
+	private static String[] split(String text, String separator) {
+		String trimmedText = text.trim();
+		if (trimmedText.isEmpty()) {
+			return new String[0];
+		}
+		return trimmedText.split(separator);
+	}
+
+	private static String toString(Object value) {
+		if (value instanceof int[]) {
+			return Arrays.toString((int[]) value);
+		}
+		return String.valueOf(value);
+	}
+
+}
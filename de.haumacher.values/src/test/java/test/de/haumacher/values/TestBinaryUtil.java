@@ -0,0 +1,428 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package test.de.haumacher.values;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import de.haumacher.values.Initializer;
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueFactory;
+import de.haumacher.values.annotate.DefaultValue;
+import de.haumacher.values.annotate.IndexProperty;
+import de.haumacher.values.annotate.Lazy;
+import de.haumacher.values.annotate.ValueParser;
+import de.haumacher.values.binary.BinaryUtil;
+import de.haumacher.values.format.ObjectParser;
+import junit.framework.TestCase;
+
+/**
+ * Test case for {@link BinaryUtil}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@SuppressWarnings("javadoc")
+public class TestBinaryUtil extends TestCase {
+
+	public interface Sample extends Value {
+
+		boolean getBooleanValue();
+		void setBooleanValue(boolean value);
+
+		byte getByteValue();
+		void setByteValue(byte value);
+
+		short getShortValue();
+		void setShortValue(short value);
+
+		char getCharValue();
+		void setCharValue(char value);
+
+		int getIntValue();
+		void setIntValue(int value);
+
+		long getLongValue();
+		void setLongValue(long value);
+
+		float getFloatValue();
+		void setFloatValue(float value);
+
+		double getDoubleValue();
+		void setDoubleValue(double value);
+
+		@DefaultValue(intValue = 42)
+		int getIntDefault();
+		void setIntDefault(int value);
+
+		Boolean getBooleanObject();
+		void setBooleanObject(Boolean value);
+
+		Byte getByteObject();
+		void setByteObject(Byte value);
+
+		Short getShortObject();
+		void setShortObject(Short value);
+
+		Character getCharObject();
+		void setCharObject(Character value);
+
+		Integer getIntObject();
+		void setIntObject(Integer value);
+
+		Long getLongObject();
+		void setLongObject(Long value);
+
+		Float getFloatObject();
+		void setFloatObject(Float value);
+
+		Double getDoubleObject();
+		void setDoubleObject(Double value);
+
+		boolean[] getBooleanArray();
+		void setBooleanArray(boolean[] value);
+
+		byte[] getByteArray();
+		void setByteArray(byte[] value);
+
+		short[] getShortArray();
+		void setShortArray(short[] value);
+
+		char[] getCharArray();
+		void setCharArray(char[] value);
+
+		int[] getIntArray();
+		void setIntArray(int[] value);
+
+		long[] getLongArray();
+		void setLongArray(long[] value);
+
+		float[] getFloatArray();
+		void setFloatArray(float[] value);
+
+		double[] getDoubleArray();
+		void setDoubleArray(double[] value);
+
+		Integer[] getIntObjectArray();
+		void setIntObjectArray(Integer[] value);
+
+		Double[] getDoubleObjectArray();
+		void setDoubleObjectArray(Double[] value);
+
+		String getString();
+		void setString(String value);
+
+		String[] getStringArray();
+		void setStringArray(String[] value);
+
+		File getFile();
+		void setFile(File value);
+
+		File[] getFileArray();
+		void setFileArray(File[] value);
+
+		Date getDate();
+		void setDate(Date value);
+
+		Date[] getDateArray();
+		void setDateArray(Date[] value);
+
+		Instant getInstant();
+		void setInstant(Instant value);
+
+		LocalDateTime getLocalDateTime();
+		void setLocalDateTime(LocalDateTime value);
+
+		Duration getDuration();
+		void setDuration(Duration value);
+
+		@ValueParser(PointParser.class)
+		Point getPoint();
+		void setPoint(Point value);
+
+		Node getNode();
+
+		List<Node> getNodes();
+
+		@IndexProperty("name")
+		Map<String, Node> getNodesByName();
+
+	}
+
+	public interface Node extends Value {
+
+		String getName();
+		void setName(String value);
+
+		int getWeight();
+		void setWeight(int value);
+
+		@Lazy
+		Node getNext();
+
+		List<Node> getChildren();
+
+	}
+
+	public interface Ticket extends Value {
+
+		@DefaultValue(initializer = Serial.class)
+		int getSerial();
+		void setSerial(int value);
+
+	}
+
+	public static class Serial implements Initializer<Integer> {
+		private static int next;
+
+		@Override
+		public Integer init() {
+			return Integer.valueOf(next++);
+		}
+	}
+
+	public interface Other extends Value {
+
+		String getName();
+		void setName(String value);
+
+		long getWeight();
+		void setWeight(long value);
+
+	}
+
+	public static final class Point {
+		final int x;
+		final int y;
+
+		public Point(int x, int y) {
+			this.x = x;
+			this.y = y;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Point && ((Point) obj).x == x && ((Point) obj).y == y;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * x + y;
+		}
+	}
+
+	public static class PointParser extends ObjectParser<Point> {
+		@Override
+		public Point parse(String text) {
+			if (text.isEmpty()) {
+				return null;
+			}
+			int separator = text.indexOf('/');
+			return new Point(Integer.parseInt(text.substring(0, separator)), Integer.parseInt(text.substring(separator + 1)));
+		}
+
+		@Override
+		public String unparse(Point value) {
+			if (value == null) {
+				return "";
+			}
+			return value.x + "/" + value.y;
+		}
+	}
+
+	public void testDefaults() throws IOException {
+		Sample sample = ValueFactory.newInstance(Sample.class);
+		byte[] data = write(sample);
+
+		// Fingerprint, the always written nested node with its end tag, the
+		// point with the initializer of its custom parser, and the end tag.
+		assertEquals(8 + 3 + 2 + 1, data.length);
+		assertEquals(sample, BinaryUtil.read(in(data), Sample.class));
+	}
+
+	public void testVaryingDefault() throws IOException {
+		Ticket ticket = ValueFactory.newInstance(Ticket.class);
+		assertEquals(ticket, BinaryUtil.read(in(write(ticket)), Ticket.class));
+
+		// None of the values the initializer has produced so far must be
+		// taken for a default.
+		int last = ValueFactory.newInstance(Ticket.class).getSerial();
+		for (int n = 0; n <= last; n++) {
+			ticket.setSerial(n);
+			assertEquals(ticket, BinaryUtil.read(in(write(ticket)), Ticket.class));
+		}
+	}
+
+	public void testPrimitives() throws IOException {
+		Sample sample = ValueFactory.newInstance(Sample.class);
+		sample.setBooleanValue(true);
+		sample.setByteValue(Byte.MIN_VALUE);
+		sample.setShortValue(Short.MAX_VALUE);
+		sample.setCharValue('€');
+		sample.setIntValue(-1);
+		sample.setLongValue(Long.MIN_VALUE);
+		sample.setFloatValue(Float.NaN);
+		sample.setDoubleValue(-0.0);
+		sample.setIntDefault(0);
+
+		sample.setBooleanObject(false);
+		sample.setByteObject((byte) 7);
+		sample.setShortObject((short) -7);
+		sample.setCharObject('x');
+		sample.setIntObject(Integer.MAX_VALUE);
+		sample.setLongObject(Long.MAX_VALUE);
+		sample.setFloatObject(1.5F);
+		sample.setDoubleObject(Double.NEGATIVE_INFINITY);
+
+		sample.setString("Hello äöü 😀!");
+		sample.setFile(new File("/tmp/foo.txt"));
+		sample.setDate(new Date(-123456789L));
+		sample.setInstant(Instant.ofEpochSecond(1234567890L, 123456789));
+		sample.setLocalDateTime(LocalDateTime.of(2015, 3, 1, 12, 0, 0, 1));
+		sample.setDuration(Duration.ofMillis(-1500));
+		sample.setPoint(new Point(-3, 4));
+
+		assertRoundTrip(sample);
+	}
+
+	public void testArrays() throws IOException {
+		Sample sample = ValueFactory.newInstance(Sample.class);
+		sample.setBooleanArray(new boolean[] { true, false, true });
+		sample.setByteArray(new byte[] { -128, 0, 127 });
+		sample.setShortArray(new short[] { -1, 1000 });
+		sample.setCharArray(new char[] { 'a', '\0', '￿' });
+		sample.setIntArray(new int[] { Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE });
+		sample.setLongArray(new long[] { Long.MIN_VALUE, 0, Long.MAX_VALUE });
+		sample.setFloatArray(new float[] { 1.5F, Float.NaN });
+		sample.setDoubleArray(new double[] { Math.PI, Double.MIN_VALUE });
+		sample.setIntObjectArray(new Integer[] { 1, null, -1 });
+		sample.setDoubleObjectArray(new Double[] { null, 2.5 });
+		sample.setStringArray(new String[] { "", null, "x" });
+		sample.setFileArray(new File[] { new File("a"), new File("b/c") });
+		sample.setDateArray(new Date[] { new Date(0), null, new Date(Long.MAX_VALUE) });
+
+		assertRoundTrip(sample);
+
+		sample.setIntArray(null);
+		sample.setStringArray(null);
+		assertRoundTrip(sample);
+	}
+
+	public void testNulls() throws IOException {
+		Sample sample = ValueFactory.newInstance(Sample.class);
+		sample.setString(null);
+		sample.setFile(null);
+		sample.setIntObject(null);
+		assertRoundTrip(sample);
+	}
+
+	public void testStructure() throws IOException {
+		Sample sample = ValueFactory.newInstance(Sample.class);
+		sample.getNode().setName("root");
+		sample.getNode().getNext().setName("next");
+		sample.getNode().getNext().getNext().setWeight(3);
+		sample.getNode().getChildren().add(node("child", 1));
+		sample.getNodes().add(node("a", 1));
+		sample.getNodes().add(node("b", 2));
+		sample.getNodes().get(1).getChildren().add(node("c", 3));
+		sample.getNodesByName().put("x", node("x", 4));
+		sample.getNodesByName().put("y", node("y", 5));
+
+		Sample copy = assertRoundTrip(sample);
+		assertEquals("next", copy.getNode().getNext().getName());
+		assertEquals(Arrays.asList("x", "y"), new ArrayList<String>(copy.getNodesByName().keySet()));
+	}
+
+	public void testLargeArray() throws IOException {
+		Sample sample = ValueFactory.newInstance(Sample.class);
+		int[] values = new int[10000];
+		for (int n = 0; n < values.length; n++) {
+			values[n] = n % 1000 - 100;
+		}
+		sample.setIntArray(values);
+		byte[] data = assertRoundTripData(sample);
+
+		// Small numbers are written with at most two bytes each.
+		assertTrue(data.length < 2 * values.length + 100);
+	}
+
+	public void testWriteAll() throws IOException {
+		List<Node> nodes = new ArrayList<Node>();
+		for (int n = 0; n < 100; n++) {
+			nodes.add(node("node" + n, n));
+		}
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		BinaryUtil.writeAll(new DataOutputStream(buffer), Node.class, nodes);
+
+		assertEquals(nodes, BinaryUtil.readAll(in(buffer.toByteArray()), Node.class));
+	}
+
+	public void testIncompatibleType() throws IOException {
+		byte[] data = write(node("foo", 42));
+		try {
+			BinaryUtil.read(in(data), Other.class);
+			fail("Type mismatch must be detected.");
+		} catch (IOException ex) {
+			// Expected.
+		}
+	}
+
+	private static Node node(String name, int weight) {
+		Node result = ValueFactory.newInstance(Node.class);
+		result.setName(name);
+		result.setWeight(weight);
+		return result;
+	}
+
+	private static Sample assertRoundTrip(Sample sample) throws IOException {
+		Sample copy = BinaryUtil.read(in(write(sample)), Sample.class);
+		assertEquals(sample, copy);
+		return copy;
+	}
+
+	private static byte[] assertRoundTripData(Sample sample) throws IOException {
+		byte[] data = write(sample);
+		assertEquals(sample, BinaryUtil.read(in(data), Sample.class));
+		return data;
+	}
+
+	private static byte[] write(Value value) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		BinaryUtil.write(new DataOutputStream(buffer), value);
+		return buffer.toByteArray();
+	}
+
+	private static DataInputStream in(byte[] data) {
+		return new DataInputStream(new ByteArrayInputStream(data));
+	}
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package test.de.haumacher.values;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueDescriptor;
+import de.haumacher.values.ValueFactory;
+import de.haumacher.values.annotate.IndexProperty;
+import de.haumacher.values.annotate.Lazy;
+import de.haumacher.values.internal.ValueDescriptorImpl;
+import junit.framework.TestCase;
+
+/**
+ * Test case for recording changes of values with
+ * {@link ValueDescriptorImpl#isChanged(Value, Property)}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@SuppressWarnings("javadoc")
+public class TestChangeTracking extends TestCase {
+
+	public interface Item extends Value {
+
+		String getName();
+		void setName(String value);
+
+		int getCount();
+		void setCount(int value);
+
+		@Lazy
+		Item getNested();
+
+		List<Item> getItems();
+
+		@IndexProperty("name")
+		Map<String, Item> getIndex();
+
+	}
+
+	private ValueDescriptor<Item> descriptor;
+
+	private Item item;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		descriptor = ValueFactory.getDescriptor(Item.class);
+		item = descriptor.newInstance();
+	}
+
+	public void testPrimitive() {
+		assertUnchanged();
+
+		item.setCount(3);
+		assertChanged("count");
+		assertFalse(isChanged("name"));
+
+		ValueDescriptorImpl.clearChanges(item);
+		assertUnchanged();
+
+		item.putValue(property("name"), "x");
+		assertChanged("name");
+	}
+
+	public void testNested() {
+		item.getNested().setCount(1);
+		assertUnchanged();
+		assertTrue(ValueDescriptorImpl.isChanged(item.getNested(), property("count")));
+
+		ValueDescriptorImpl.clearChanges(item);
+		assertFalse(ValueDescriptorImpl.isChanged(item.getNested(), property("count")));
+	}
+
+	public void testList() {
+		Item entry = item("a");
+		item.getItems().add(entry);
+		assertChanged("items");
+
+		ValueDescriptorImpl.clearChanges(item);
+		assertUnchanged();
+		assertFalse(ValueDescriptorImpl.isChanged(entry, property("name")));
+
+		entry.setCount(2);
+		assertUnchanged();
+
+		item.getItems().set(0, item("b"));
+		assertChanged("items");
+
+		ValueDescriptorImpl.clearChanges(item);
+		item.getItems().remove(0);
+		assertChanged("items");
+	}
+
+	public void testListIteratorSet() {
+		item.getItems().add(item("a"));
+		item.getItems().add(item("b"));
+		ValueDescriptorImpl.clearChanges(item);
+
+		// Replacing is no structural modification that invalidates the
+		// iterator.
+		for (ListIterator<Item> it = item.getItems().listIterator(); it.hasNext();) {
+			it.next();
+			it.set(item("c"));
+		}
+		assertChanged("items");
+		assertEquals(Arrays.asList(item("c"), item("c")), item.getItems());
+	}
+
+	public void testIndex() {
+		Map<String, Item> index = item.getIndex();
+		index.put("a", item("a"));
+		index.put("b", item("b"));
+		assertChanged("index");
+
+		ValueDescriptorImpl.clearChanges(item);
+		assertEquals(item("a"), index.get("a"));
+		assertEquals(2, index.values().size());
+		index.remove("c");
+		assertUnchanged();
+
+		index.keySet().remove("a");
+		assertChanged("index");
+		assertEquals(1, index.size());
+
+		ValueDescriptorImpl.clearChanges(item);
+		Iterator<Item> it = index.values().iterator();
+		it.next();
+		it.remove();
+		assertChanged("index");
+		assertTrue(index.isEmpty());
+
+		ValueDescriptorImpl.clearChanges(item);
+		index.put("c", item("c"));
+		ValueDescriptorImpl.clearChanges(item);
+		index.entrySet().iterator().next().setValue(item("d"));
+		assertChanged("index");
+	}
+
+	public void testFreeze() {
+		item.getItems().add(item("a"));
+		item.freeze();
+		assertChanged("items");
+
+		ValueDescriptorImpl.clearChanges(item);
+		assertUnchanged();
+	}
+
+	private void assertUnchanged() {
+		for (Property property : descriptor.getProperties().values()) {
+			assertFalse(property.getName(), isChanged(property.getName()));
+		}
+	}
+
+	private void assertChanged(String name) {
+		assertTrue(name, isChanged(name));
+	}
+
+	private boolean isChanged(String name) {
+		return ValueDescriptorImpl.isChanged(item, property(name));
+	}
+
+	private Property property(String name) {
+		return descriptor.getProperties().get(name);
+	}
+
+	private static Item item(String name) {
+		Item result = ValueFactory.newInstance(Item.class);
+		result.setName(name);
+		return result;
+	}
+
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package test.de.haumacher.values;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueFactory;
+import de.haumacher.values.annotate.Compiled;
+import de.haumacher.values.annotate.DefaultValue;
+import de.haumacher.values.annotate.IndexProperty;
+import junit.framework.TestCase;
+
+/**
+ * Test case for {@link Value} interfaces with {@link Compiled} implementations.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@SuppressWarnings("javadoc")
+public class TestCompiled extends TestCase {
+
+	@Compiled
+	public interface A extends Value {
+
+		boolean getBoolean();
+		void setBoolean(boolean value);
+
+		byte getByte();
+		void setByte(byte value);
+
+		char getChar();
+		void setChar(char value);
+
+		short getShort();
+		void setShort(short value);
+
+		int getInt();
+		void setInt(int value);
+
+		long getLong();
+		void setLong(long value);
+
+		float getFloat();
+		void setFloat(float value);
+
+		double getDouble();
+		void setDouble(double value);
+
+		Integer getIntObject();
+		void setIntObject(Integer value);
+
+		@DefaultValue(longValue = 42)
+		Long getLongDefault();
+		void setLongDefault(Long value);
+
+		@DefaultValue(stringValue = "foo")
+		String getString();
+		void setString(String value);
+
+		int[] getInts();
+		void setInts(int[] value);
+
+		File[] getFiles();
+		void setFiles(File[] value);
+
+		Date getDate();
+		void setDate(Date value);
+
+		B getB();
+		void setB(B value);
+
+		List<B> getList();
+
+		@IndexProperty("name")
+		Map<String, B> getIndex();
+
+	}
+
+	@Compiled
+	public interface B extends Value {
+
+		String getName();
+		void setName(String value);
+
+		@DefaultValue(intValue = 99)
+		int getX();
+		void setX(int value);
+
+	}
+
+	public interface Base extends Value {
+
+		Object getContent();
+
+		void setContent(Object value);
+
+	}
+
+	@Compiled
+	public interface Derived extends Base {
+
+		@Override
+		String getContent();
+
+	}
+
+	@Compiled
+	interface NonPublic extends Value {
+
+		int getX();
+		void setX(int value);
+
+	}
+
+	public void testGenerated() {
+		A a = ValueFactory.newInstance(A.class);
+		assertFalse(Proxy.isProxyClass(a.getClass()));
+		assertFalse(Proxy.isProxyClass(a.getB().getClass()));
+	}
+
+	public void testDefaults() {
+		A a = ValueFactory.newInstance(A.class);
+		assertEquals(false, a.getBoolean());
+		assertEquals((byte) 0, a.getByte());
+		assertEquals((char) 0, a.getChar());
+		assertEquals((short) 0, a.getShort());
+		assertEquals(0, a.getInt());
+		assertEquals(0L, a.getLong());
+		assertEquals(0F, a.getFloat());
+		assertEquals(0D, a.getDouble());
+		assertNull(a.getIntObject());
+		assertEquals(Long.valueOf(42), a.getLongDefault());
+		assertEquals("foo", a.getString());
+		assertEquals(0, a.getInts().length);
+		assertEquals(0, a.getFiles().length);
+		assertNull(a.getDate());
+		assertEquals(99, a.getB().getX());
+		assertEquals(Collections.emptyList(), a.getList());
+		assertEquals(Collections.emptyMap(), a.getIndex());
+	}
+
+	public void testIndependentInstances() {
+		A a1 = ValueFactory.newInstance(A.class);
+		a1.setInt(42);
+		a1.getB().setX(1);
+		a1.getList().add(newB("l1"));
+		a1.getIndex().put("i1", newB("i1"));
+
+		A a2 = ValueFactory.newInstance(A.class);
+		assertEquals(0, a2.getInt());
+		assertNotSame(a1.getB(), a2.getB());
+		assertEquals(99, a2.getB().getX());
+		assertNotSame(a1.getList(), a2.getList());
+		assertEquals(0, a2.getList().size());
+		assertNotSame(a1.getIndex(), a2.getIndex());
+		assertEquals(0, a2.getIndex().size());
+		assertEquals("foo", a2.getString());
+	}
+
+	public void testSetters() {
+		A a = newFilled();
+		assertFilled(a);
+	}
+
+	public void testNullReplacement() {
+		A a = newFilled();
+		a.setLongDefault(null);
+		a.setString(null);
+		a.setInts(null);
+		a.setB(null);
+		a.setIntObject(null);
+
+		assertEquals(Long.valueOf(42), a.getLongDefault());
+		assertEquals("foo", a.getString());
+		assertEquals(0, a.getInts().length);
+		assertEquals(99, a.getB().getX());
+		assertNull(a.getIntObject());
+	}
+
+	public void testGenericAccess() {
+		A a = newFilled();
+		Map<String, Property> properties = a.descriptor().getProperties();
+		assertEquals(Integer.valueOf(4), a.value(properties.get("int")));
+		assertEquals(Double.valueOf(7), a.value(properties.get("double")));
+		assertEquals("bar", a.value(properties.get("string")));
+
+		a.putValue(properties.get("int"), 13);
+		assertEquals(13, a.getInt());
+
+		a.putValue(properties.get("long"), null);
+		assertEquals(0L, a.getLong());
+
+		a.putValue(properties.get("string"), null);
+		assertEquals("foo", a.getString());
+	}
+
+	public void testUnboxedAccess() {
+		A a = newFilled();
+		TestPrimitives.checkUnboxedAccess(a);
+		assertEquals(8, a.getInt());
+		assertEquals(-9D, a.getDouble());
+
+		Property shortProperty = a.descriptor().getProperties().get("short");
+		assertEquals((short) 10, a.getShort(shortProperty));
+		a.putShort(shortProperty, Short.MIN_VALUE);
+		assertEquals(Short.MIN_VALUE, a.getShort());
+
+		try {
+			a.getInt(a.descriptor().getProperties().get("intObject"));
+			fail("Wrapper type must not be accessed unboxed.");
+		} catch (IllegalArgumentException ex) {
+			// Expected.
+		}
+	}
+
+	public void testEquals() {
+		A a1 = newFilled();
+		A a2 = newFilled();
+		assertEquals(a1, a2);
+		assertEquals(a1.hashCode(), a2.hashCode());
+
+		a2.getB().setX(1);
+		assertFalse(a1.equals(a2));
+
+		a1.getB().setX(1);
+		assertEquals(a1, a2);
+
+		a1.getIndex().get("i1").setX(2);
+		assertFalse(a1.equals(a2));
+
+		assertFalse(a1.equals(null));
+		assertFalse(a1.equals("other"));
+	}
+
+	public void testToString() {
+		B b = ValueFactory.newInstance(B.class);
+		b.setName("foo");
+		String result = b.toString();
+		assertTrue(result, result.startsWith(B.class.getName() + "{"));
+		assertTrue(result, result.contains("name: foo"));
+		assertTrue(result, result.contains("x: 99"));
+	}
+
+	public void testStoreLoad() {
+		A a = newFilled();
+		assertFilled(TestPrimitives.storeLoad(A.class, a));
+	}
+
+	public void testCovariantGetter() {
+		Derived d = ValueFactory.newInstance(Derived.class);
+		assertFalse(Proxy.isProxyClass(d.getClass()));
+		d.setContent("foo");
+		assertEquals("foo", d.getContent());
+		assertEquals("foo", ((Base) d).getContent());
+	}
+
+	public void testNonPublicFallback() {
+		NonPublic v = ValueFactory.newInstance(NonPublic.class);
+		assertTrue(Proxy.isProxyClass(v.getClass()));
+		v.setX(42);
+		assertEquals(42, v.getX());
+	}
+
+	private A newFilled() {
+		A a = ValueFactory.newInstance(A.class);
+		a.setBoolean(true);
+		a.setByte((byte) 2);
+		a.setChar((char) 3);
+		a.setShort((short) 10);
+		a.setInt(4);
+		a.setLong(5L);
+		a.setFloat(6F);
+		a.setDouble(7D);
+		a.setIntObject(8);
+		a.setLongDefault(9L);
+		a.setString("bar");
+		a.setInts(new int[] { 1, 2, 3 });
+		a.setFiles(new File[] { new File("."), new File("..") });
+		a.setDate(new Date(1000));
+		a.getB().setName("b");
+		a.getList().add(newB("l1"));
+		a.getIndex().put("i1", newB("i1"));
+		return a;
+	}
+
+	private void assertFilled(A a) {
+		assertEquals(true, a.getBoolean());
+		assertEquals((byte) 2, a.getByte());
+		assertEquals((char) 3, a.getChar());
+		assertEquals((short) 10, a.getShort());
+		assertEquals(4, a.getInt());
+		assertEquals(5L, a.getLong());
+		assertEquals(6F, a.getFloat());
+		assertEquals(7D, a.getDouble());
+		assertEquals(Integer.valueOf(8), a.getIntObject());
+		assertEquals(Long.valueOf(9), a.getLongDefault());
+		assertEquals("bar", a.getString());
+		assertTrue(Arrays.equals(new int[] { 1, 2, 3 }, a.getInts()));
+		assertEquals(Arrays.asList(new File("."), new File("..")), Arrays.asList(a.getFiles()));
+		assertEquals(new Date(1000), a.getDate());
+		assertEquals("b", a.getB().getName());
+		assertEquals(Arrays.asList(newB("l1")), a.getList());
+		assertEquals(Collections.singletonMap("i1", newB("i1")), a.getIndex());
+	}
+
+	private static B newB(String name) {
+		B result = ValueFactory.newInstance(B.class);
+		result.setName(name);
+		return result;
+	}
+
+}
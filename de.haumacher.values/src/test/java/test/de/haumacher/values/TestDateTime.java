@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package test.de.haumacher.values;
+
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+import de.haumacher.values.Kind;
+import de.haumacher.values.Parser;
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueDescriptor;
+import de.haumacher.values.ValueFactory;
+import junit.framework.TestCase;
+
+/**
+ * Test case for the built-in date and time {@link Parser}s.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@SuppressWarnings("javadoc")
+public class TestDateTime extends TestCase {
+
+	private static final String PATTERN = "yyyy-MM-dd HH:mm:ss.SSS";
+
+	private static final String[] DATES = {
+		"2015-03-01 12:30:45.123", "1970-01-01 00:00:00.000", "0001-01-01 00:00:00.000", "0000-06-15 00:00:00.000", 
+		"9999-12-31 23:59:59.999", "2016-02-29 10:00:00.000", "2015-02-29 10:00:00.000", "2015-13-01 10:00:00.000", 
+		"2015-03-29 02:30:00.000", "2015-10-25 02:30:00.000", "2015-01-01 24:00:00.000", "2015-1-1 1:2:3.4", 
+		"12015-01-01 00:00:00.000", "2015-01-01 00:00:00.000x", "2015-01-01 00:00:00"
+	};
+
+	public interface Times extends Value {
+
+		Date getDate();
+
+		void setDate(Date value);
+
+		Instant getInstant();
+
+		void setInstant(Instant value);
+
+		LocalDateTime getLocalDateTime();
+
+		void setLocalDateTime(LocalDateTime value);
+
+		Duration getDuration();
+
+		void setDuration(Duration value);
+
+		Instant[] getInstants();
+
+	}
+
+	private ValueDescriptor<Times> descriptor;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		descriptor = ValueFactory.getDescriptor(Times.class);
+	}
+
+	public void testDate() throws Exception {
+		Parser<Object> parser = parser("date");
+		SimpleDateFormat format = new SimpleDateFormat(PATTERN);
+		for (String text : DATES) {
+			Object expected;
+			try {
+				expected = format.parse(text);
+			} catch (java.text.ParseException ex) {
+				expected = IllegalArgumentException.class;
+			}
+			Object actual;
+			try {
+				actual = parser.parse(text);
+			} catch (IllegalArgumentException ex) {
+				actual = ex.getClass();
+			}
+			assertEquals(text, expected, actual);
+			if (actual instanceof Date) {
+				assertEquals(text, format.format(actual), parser.unparse(actual));
+			}
+		}
+		assertNull(parser.parse(""));
+		assertEquals("", parser.unparse(null));
+	}
+
+	public void testDefaultTimeZone() {
+		Parser<Object> parser = parser("date");
+		TimeZone before = TimeZone.getDefault();
+		try {
+			TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+			assertEquals("1970-01-01 00:00:00.000", parser.unparse(new Date(0)));
+			assertEquals(new Date(0), parser.parse("1970-01-01 00:00:00.000"));
+
+			TimeZone.setDefault(TimeZone.getTimeZone("GMT+02:00"));
+			assertEquals("1970-01-01 02:00:00.000", parser.unparse(new Date(0)));
+			assertEquals(new Date(0), parser.parse("1970-01-01 02:00:00.000"));
+		} finally {
+			TimeZone.setDefault(before);
+		}
+	}
+
+	public void testRandomDates() throws Exception {
+		Parser<Object> parser = parser("date");
+		SimpleDateFormat format = new SimpleDateFormat(PATTERN);
+		Random rnd = new Random(42);
+		for (int n = 0; n < 10000; n++) {
+			Date date = new Date(rnd.nextLong() % 400000000000000L);
+			String text = format.format(date);
+			assertEquals(text, parser.unparse(date));
+			assertEquals(text, format.parse(text), parser.parse(text));
+		}
+	}
+
+	public void testConcurrentDates() throws Exception {
+		final Parser<Object> parser = parser("date");
+		final List<Throwable> problems = new ArrayList<Throwable>();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final long seed = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					Random rnd = new Random(seed);
+					SimpleDateFormat format = new SimpleDateFormat(PATTERN);
+					try {
+						for (int n = 0; n < 10000; n++) {
+							Date date = new Date(rnd.nextLong() % 4000000000000L);
+							String text = format.format(date);
+							assertEquals(text, parser.unparse(date));
+							assertEquals(format.parse(text), parser.parse(text));
+						}
+					} catch (Throwable ex) {
+						synchronized (problems) {
+							problems.add(ex);
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(new ArrayList<Throwable>(), problems);
+	}
+
+	public void testLocalDateTime() {
+		Parser<Object> parser = parser("localDateTime");
+		assertEquals(LocalDateTime.of(2015, 3, 1, 12, 30, 45, 123000000), parser.parse("2015-03-01 12:30:45.123"));
+		assertEquals("2015-03-01 12:30:45.123", parser.unparse(LocalDateTime.of(2015, 3, 1, 12, 30, 45, 123000000)));
+		assertEquals("0007-01-02 03:04:05.000", parser.unparse(LocalDateTime.of(7, 1, 2, 3, 4, 5)));
+
+		LocalDateTime precise = LocalDateTime.of(2015, 3, 1, 12, 30, 45, 123456789);
+		assertEquals("2015-03-01 12:30:45.123456789", parser.unparse(precise));
+		assertEquals(precise, parser.parse(parser.unparse(precise)));
+
+		LocalDateTime future = LocalDateTime.of(12015, 3, 1, 12, 30, 45);
+		assertEquals(future, parser.parse(parser.unparse(future)));
+
+		try {
+			parser.parse("2015-02-30 00:00:00.000x");
+			fail("Invalid date must not be accepted.");
+		} catch (IllegalArgumentException ex) {
+			// Expected.
+		}
+		assertNull(parser.parse(""));
+	}
+
+	public void testInstantAndDuration() {
+		Times times = ValueFactory.newInstance(Times.class);
+		assertEquals(Kind.PRIMITIVE, descriptor.getProperties().get("instant").getKind());
+		assertEquals(Kind.PRIMITIVE, descriptor.getProperties().get("duration").getKind());
+
+		Instant instant = Instant.parse("2015-03-01T12:00:00.5Z");
+		times.setInstant(instant);
+		assertEquals(instant, times.getInstant());
+		Parser<Object> instantParser = parser("instant");
+		assertEquals("2015-03-01T12:00:00.500Z", instantParser.unparse(instant));
+		assertEquals(instant, instantParser.parse("2015-03-01T12:00:00.500Z"));
+
+		Parser<Object> durationParser = parser("duration");
+		assertEquals(Duration.ofMinutes(90), durationParser.parse("PT1H30M"));
+		assertEquals("PT1H30M", durationParser.unparse(Duration.ofMinutes(90)));
+		try {
+			durationParser.parse("90 minutes");
+			fail("Invalid duration must not be accepted.");
+		} catch (IllegalArgumentException ex) {
+			// Expected.
+		}
+
+		Parser<Object> instantsParser = parser("instants");
+		Instant[] instants = (Instant[]) instantsParser.parse("2015-03-01T12:00:00Z, 1970-01-01T00:00:00Z");
+		assertEquals(Arrays.asList(Instant.parse("2015-03-01T12:00:00Z"), Instant.EPOCH), Arrays.asList(instants));
+	}
+
+	private Parser<Object> parser(String name) {
+		return descriptor.getProperties().get(name).getParser();
+	}
+
+}
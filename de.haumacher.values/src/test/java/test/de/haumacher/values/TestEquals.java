@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package test.de.haumacher.values;
+
+import java.util.Map;
+
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueDescriptor;
+import de.haumacher.values.ValueFactory;
+import de.haumacher.values.annotate.Compiled;
+import de.haumacher.values.annotate.IncrementalHash;
+import junit.framework.TestCase;
+
+/**
+ * Test case for {@link Object#equals(Object)} of {@link Value} instances.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@SuppressWarnings("javadoc")
+public class TestEquals extends TestCase {
+
+	public interface A extends Value {
+
+		String getName();
+		void setName(String value);
+
+		int getX();
+		void setX(int value);
+
+		double getD();
+		void setD(double value);
+
+		float getF();
+		void setF(float value);
+
+	}
+
+	@Compiled
+	public interface C extends Value {
+
+		String getName();
+		void setName(String value);
+
+		int getX();
+		void setX(int value);
+
+		double getD();
+		void setD(double value);
+
+		float getF();
+		void setF(float value);
+
+	}
+
+	@IncrementalHash
+	public interface H extends Value {
+
+		String getName();
+		void setName(String value);
+
+		int getX();
+		void setX(int value);
+
+		double getD();
+		void setD(double value);
+
+		float getF();
+		void setF(float value);
+
+	}
+
+	public void testDefaultImplementation() {
+		checkEquals(A.class);
+	}
+
+	public void testCompiled() {
+		checkEquals(C.class);
+	}
+
+	public void testIncrementalHash() {
+		checkEquals(H.class);
+	}
+
+	private <T extends Value> void checkEquals(Class<T> type) {
+		Map<String, Property> properties = ValueFactory.getDescriptor(type).getProperties();
+		Property name = properties.get("name");
+		Property x = properties.get("x");
+		Property d = properties.get("d");
+		Property f = properties.get("f");
+		
+		T v1 = ValueFactory.newInstance(type);
+		T v2 = ValueFactory.newInstance(type);
+		assertEquals(v1, v2);
+		
+		v1.putValue(name, "foo");
+		assertFalse(v1.equals(v2));
+		v2.putValue(name, new String("foo"));
+		assertEquals(v1, v2);
+		
+		v1.putInt(x, 42);
+		assertFalse(v1.equals(v2));
+		assertFalse(v2.equals(v1));
+		v2.putInt(x, 42);
+		assertEquals(v1, v2);
+		
+		// Equality is consistent with the wrapper types.
+		v1.putDouble(d, Double.NaN);
+		v2.putDouble(d, Double.longBitsToDouble(0x7ff8000000000001L));
+		assertEquals(Double.valueOf(v1.getDouble(d)), Double.valueOf(v2.getDouble(d)));
+		assertEquals(v1, v2);
+		assertEquals(v1.hashCode(), v2.hashCode());
+		
+		v1.putFloat(f, 0.0F);
+		v2.putFloat(f, -0.0F);
+		assertFalse(Float.valueOf(0.0F).equals(Float.valueOf(-0.0F)));
+		assertFalse(v1.equals(v2));
+		v2.putFloat(f, 0.0F);
+		assertEquals(v1, v2);
+		assertEquals(v1.hashCode(), v2.hashCode());
+		
+		v1.freeze();
+		v2.freeze();
+		assertEquals(v1, v2);
+	}
+
+	public void testForeignImplementation() {
+		A value = ValueFactory.newInstance(A.class);
+		value.setName("foo");
+		value.setX(42);
+		
+		ForeignA foreign = new ForeignA();
+		foreign.name = "foo";
+		foreign.x = 42;
+		assertEquals(value, foreign);
+		
+		foreign.x = 13;
+		assertFalse(value.equals(foreign));
+		
+		C compiled = ValueFactory.newInstance(C.class);
+		assertFalse(compiled.equals(ValueFactory.newInstance(A.class)));
+	}
+
+	static class ForeignA implements A {
+
+		String name;
+
+		int x;
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public void setName(String value) {
+			name = value;
+		}
+
+		@Override
+		public int getX() {
+			return x;
+		}
+
+		@Override
+		public void setX(int value) {
+			x = value;
+		}
+
+		@Override
+		public double getD() {
+			return 0;
+		}
+
+		@Override
+		public void setD(double value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public float getF() {
+			return 0;
+		}
+
+		@Override
+		public void setF(float value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ValueDescriptor<?> descriptor() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void freeze() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean isFrozen() {
+			return false;
+		}
+
+		@Override
+		public Object value(Property property) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void putValue(Property property, Object value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean getBoolean(Property property) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void putBoolean(Property property, boolean value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public byte getByte(Property property) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void putByte(Property property, byte value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public char getChar(Property property) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void putChar(Property property, char value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public short getShort(Property property) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void putShort(Property property, short value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public int getInt(Property property) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void putInt(Property property, int value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public long getLong(Property property) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void putLong(Property property, long value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public float getFloat(Property property) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void putFloat(Property property, float value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public double getDouble(Property property) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void putDouble(Property property, double value) {
+			throw new UnsupportedOperationException();
+		}
+
+	}
+
+}
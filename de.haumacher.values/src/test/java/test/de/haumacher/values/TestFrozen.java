@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package test.de.haumacher.values;
+
+import java.util.List;
+import java.util.Map;
+
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueFactory;
+import de.haumacher.values.annotate.Compiled;
+import de.haumacher.values.annotate.IndexProperty;
+import de.haumacher.values.annotate.Lazy;
+import de.haumacher.values.annotate.Reference;
+import de.haumacher.values.internal.ValueDescriptorImpl;
+import junit.framework.TestCase;
+
+/**
+ * Test case for {@link Value#freeze()}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@SuppressWarnings("javadoc")
+public class TestFrozen extends TestCase {
+
+	public interface Item extends Value {
+
+		String getName();
+		void setName(String value);
+
+		int getX();
+		void setX(int value);
+
+		@Lazy
+		Item getNested();
+		void setNested(Item value);
+
+		List<Item> getChildren();
+
+		@IndexProperty("name")
+		Map<String, Item> getIndex();
+
+		@Reference
+		Item getOther();
+		void setOther(Item value);
+
+		@Lazy
+		List<Item> getLazyChildren();
+
+	}
+
+	@Compiled
+	public interface CompiledItem extends Value {
+
+		String getName();
+		void setName(String value);
+
+		int getX();
+		void setX(int value);
+
+		@Lazy
+		CompiledItem getNested();
+		void setNested(CompiledItem value);
+
+		List<CompiledItem> getChildren();
+
+		@IndexProperty("name")
+		Map<String, CompiledItem> getIndex();
+
+		@Reference
+		CompiledItem getOther();
+		void setOther(CompiledItem value);
+
+		@Lazy
+		List<CompiledItem> getLazyChildren();
+
+	}
+
+	public void testDefaultImplementation() {
+		checkFreeze(Item.class);
+	}
+
+	public void testCompiled() {
+		checkFreeze(CompiledItem.class);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T extends Value> void checkFreeze(Class<T> type) {
+		Map<String, Property> properties = ValueFactory.getDescriptor(type).getProperties();
+		T value = create(type, "value", 1);
+		T copy = create(type, "value", 1);
+		T other = ValueFactory.newInstance(type);
+		value.putValue(properties.get("other"), other);
+		copy.putValue(properties.get("other"), other);
+		int hashCode = value.hashCode();
+		
+		assertFalse(value.isFrozen());
+		value.freeze();
+		assertTrue(value.isFrozen());
+		value.freeze();
+		
+		assertEquals(copy, value);
+		assertEquals(value, copy);
+		assertEquals(hashCode, value.hashCode());
+		assertEquals(copy.hashCode(), value.hashCode());
+		
+		Value nested = (Value) value.value(properties.get("nested"));
+		assertTrue(nested.isFrozen());
+		assertTrue(((List<Value>) value.value(properties.get("children"))).get(0).isFrozen());
+		assertTrue(((Map<String, Value>) value.value(properties.get("index"))).get("child").isFrozen());
+		assertFalse(other.isFrozen());
+		
+		try {
+			value.putValue(properties.get("name"), "changed");
+			fail("Frozen value must not be modified.");
+		} catch (UnsupportedOperationException ex) {
+			// Expected.
+		}
+		try {
+			value.putInt(properties.get("x"), 2);
+			fail("Frozen value must not be modified.");
+		} catch (UnsupportedOperationException ex) {
+			// Expected.
+		}
+		try {
+			type.getMethod("setName", String.class).invoke(value, "changed");
+			fail("Frozen value must not be modified.");
+		} catch (java.lang.reflect.InvocationTargetException ex) {
+			assertTrue(ex.getCause() instanceof UnsupportedOperationException);
+		} catch (Exception ex) {
+			throw new AssertionError(ex);
+		}
+		try {
+			nested.putInt(properties.get("x"), 2);
+			fail("Nested value must be frozen.");
+		} catch (UnsupportedOperationException ex) {
+			// Expected.
+		}
+		try {
+			((List<Value>) value.value(properties.get("children"))).clear();
+			fail("List must be frozen.");
+		} catch (UnsupportedOperationException ex) {
+			// Expected.
+		}
+		try {
+			((Map<String, Value>) value.value(properties.get("index"))).clear();
+			fail("Index must be frozen.");
+		} catch (UnsupportedOperationException ex) {
+			// Expected.
+		}
+		try {
+			((List<Value>) value.value(properties.get("lazyChildren"))).add(other);
+			fail("Lazy list must be frozen.");
+		} catch (UnsupportedOperationException ex) {
+			// Expected.
+		}
+		
+		assertEquals(copy, value);
+		assertEquals(hashCode, value.hashCode());
+		
+		// A modification of a referenced value is not reflected in the cached
+		// hash code, but the reference itself is not frozen.
+		other.putInt(properties.get("x"), 42);
+		assertEquals(42, other.getInt(properties.get("x")));
+	}
+
+	private static <T extends Value> T create(Class<T> type, String name, int x) {
+		Map<String, Property> properties = ValueFactory.getDescriptor(type).getProperties();
+		T result = ValueFactory.newInstance(type);
+		result.putValue(properties.get("name"), name);
+		result.putInt(properties.get("x"), x);
+		((Value) result.value(properties.get("nested"))).putInt(properties.get("x"), x + 1);
+		
+		T child = ValueFactory.newInstance(type);
+		child.putValue(properties.get("name"), "child");
+		addTo(result.value(properties.get("children")), child);
+		putTo(result.value(properties.get("index")), "child", child);
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void addTo(Object list, Object element) {
+		((List<Object>) list).add(element);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void putTo(Object index, Object key, Object element) {
+		((Map<Object, Object>) index).put(key, element);
+	}
+
+	public void testLazyDefaultImplementation() throws InterruptedException {
+		checkFrozenLazy(Item.class);
+	}
+
+	public void testLazyCompiled() throws InterruptedException {
+		checkFrozenLazy(CompiledItem.class);
+	}
+
+	private <T extends Value> void checkFrozenLazy(Class<T> type) throws InterruptedException {
+		final Property nestedProperty = ValueFactory.getDescriptor(type).getProperties().get("nested");
+		final T value = ValueFactory.newInstance(type);
+		value.freeze();
+
+		final Object[] fromOtherThread = new Object[1];
+		Thread reader = new Thread() {
+			@Override
+			public void run() {
+				fromOtherThread[0] = value.value(nestedProperty);
+			}
+		};
+		reader.start();
+		reader.join();
+
+		// Reading does not modify the frozen value.
+		Value nested = (Value) value.value(nestedProperty);
+		assertFalse(ValueDescriptorImpl.hasValue(value, nestedProperty));
+		assertSame(nested, fromOtherThread[0]);
+		assertSame(nested, value.value(nestedProperty));
+		assertTrue(nested.isFrozen());
+		assertSame(nested, nested.value(nestedProperty));
+
+		assertEquals(ValueFactory.newInstance(type), nested);
+		assertEquals(ValueFactory.newInstance(type), value);
+		assertEquals(ValueFactory.newInstance(type).hashCode(), value.hashCode());
+	}
+
+	public void testFrozenKeys() {
+		Map<Item, String> cache = new java.util.HashMap<Item, String>();
+		Item key = create(Item.class, "key", 1);
+		key.freeze();
+		cache.put(key, "hit");
+		
+		Item lookup = create(Item.class, "key", 1);
+		assertEquals("hit", cache.get(lookup));
+		lookup.freeze();
+		assertEquals("hit", cache.get(lookup));
+		
+		Item miss = create(Item.class, "key", 2);
+		miss.freeze();
+		assertFalse(key.equals(miss));
+		assertNull(cache.get(miss));
+	}
+
+}
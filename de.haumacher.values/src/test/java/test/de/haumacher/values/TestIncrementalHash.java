@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package test.de.haumacher.values;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueFactory;
+import de.haumacher.values.annotate.Compiled;
+import de.haumacher.values.annotate.DefaultValue;
+import de.haumacher.values.annotate.IncrementalHash;
+import junit.framework.TestCase;
+
+/**
+ * Test case for {@link IncrementalHash}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@SuppressWarnings("javadoc")
+public class TestIncrementalHash extends TestCase {
+
+	@IncrementalHash
+	public interface Hashed extends Value {
+
+		@DefaultValue(stringValue = "foo")
+		String getName();
+		void setName(String value);
+
+		int getX();
+		void setX(int value);
+
+		double getScale();
+		void setScale(double value);
+
+		List<Hashed> getChildren();
+
+	}
+
+	@IncrementalHash
+	@Compiled
+	public interface CompiledHashed extends Value {
+
+		@DefaultValue(stringValue = "foo")
+		String getName();
+		void setName(String value);
+
+		int getX();
+		void setX(int value);
+
+		double getScale();
+		void setScale(double value);
+
+		List<CompiledHashed> getChildren();
+
+	}
+
+	@IncrementalHash
+	public interface HashedArray extends Value {
+
+		int getX();
+		void setX(int value);
+
+		int[] getArr();
+		void setArr(int[] value);
+
+		Date getDate();
+		void setDate(Date value);
+
+	}
+
+	@IncrementalHash
+	@Compiled
+	public interface CompiledHashedArray extends Value {
+
+		String getName();
+		void setName(String value);
+
+		String[] getNames();
+		void setNames(String[] value);
+
+	}
+
+	public interface Plain extends Value {
+
+		@DefaultValue(stringValue = "foo")
+		String getName();
+		void setName(String value);
+
+		int getX();
+		void setX(int value);
+
+		double getScale();
+		void setScale(double value);
+
+		List<Plain> getChildren();
+
+	}
+
+	public void testDefaultImplementation() {
+		Hashed value = ValueFactory.newInstance(Hashed.class);
+		Plain plain = ValueFactory.newInstance(Plain.class);
+		assertEquals(plain.hashCode(), value.hashCode());
+		
+		value.setName("bar");
+		plain.setName("bar");
+		value.setX(42);
+		plain.setX(42);
+		value.setScale(1.5);
+		plain.setScale(1.5);
+		assertEquals(plain.hashCode(), value.hashCode());
+		
+		value.setName(null);
+		plain.setName(null);
+		assertEquals(plain.hashCode(), value.hashCode());
+		
+		checkGenericUpdate(value, plain);
+		
+		value.getChildren().add(ValueFactory.newInstance(Hashed.class));
+		assertFalse(plain.hashCode() == value.hashCode());
+		plain.getChildren().add(ValueFactory.newInstance(Plain.class));
+		assertEquals(plain.hashCode(), value.hashCode());
+		
+		value.getChildren().get(0).setX(13);
+		plain.getChildren().get(0).setX(13);
+		assertEquals(plain.hashCode(), value.hashCode());
+		
+		value.freeze();
+		assertEquals(plain.hashCode(), value.hashCode());
+	}
+
+	public void testCompiled() {
+		CompiledHashed value = ValueFactory.newInstance(CompiledHashed.class);
+		Plain plain = ValueFactory.newInstance(Plain.class);
+		assertEquals(plain.hashCode(), value.hashCode());
+		
+		value.setName("bar");
+		plain.setName("bar");
+		value.setX(42);
+		plain.setX(42);
+		value.setScale(1.5);
+		plain.setScale(1.5);
+		assertEquals(plain.hashCode(), value.hashCode());
+		
+		checkGenericUpdate(value, plain);
+		
+		CompiledHashed child = ValueFactory.newInstance(CompiledHashed.class);
+		value.getChildren().add(child);
+		plain.getChildren().add(ValueFactory.newInstance(Plain.class));
+		child.setX(13);
+		plain.getChildren().get(0).setX(13);
+		assertEquals(plain.hashCode(), value.hashCode());
+		
+		value.freeze();
+		assertEquals(plain.hashCode(), value.hashCode());
+		
+		CompiledHashed other = ValueFactory.newInstance(CompiledHashed.class);
+		assertEquals(ValueFactory.newInstance(Plain.class).hashCode(), other.hashCode());
+	}
+
+	public void testModifiedInPlace() {
+		HashedArray value = ValueFactory.newInstance(HashedArray.class);
+		value.setX(1);
+		value.setArr(new int[] { 1, 2, 3 });
+		value.setDate(new Date(1000));
+		
+		HashedArray other = ValueFactory.newInstance(HashedArray.class);
+		other.setX(1);
+		other.setArr(new int[] { 42, 2, 3 });
+		other.setDate(new Date(2000));
+		assertFalse(value.equals(other));
+		
+		value.getArr()[0] = 42;
+		value.getDate().setTime(2000);
+		assertEquals(other, value);
+		assertEquals(other.hashCode(), value.hashCode());
+		
+		HashedArray copy = ValueFactory.newInstance(HashedArray.class);
+		copy.setX(1);
+		copy.setArr(new int[] { 42, 2, 3 });
+		copy.setDate(new Date(2000));
+		assertEquals(copy, value);
+		assertEquals(copy.hashCode(), value.hashCode());
+	}
+
+	public void testEqualsModifiedInPlace() {
+		CompiledHashedArray value = ValueFactory.newInstance(CompiledHashedArray.class);
+		value.setName("a");
+		value.setNames(new String[] { "x", "y" });
+		
+		CompiledHashedArray other = ValueFactory.newInstance(CompiledHashedArray.class);
+		other.setName("a");
+		other.setNames(new String[] { "x", "z" });
+		assertFalse(value.equals(other));
+		
+		value.getNames()[1] = "z";
+		assertTrue(value.equals(other));
+		assertTrue(other.equals(value));
+		assertEquals(other.hashCode(), value.hashCode());
+		
+		other.setName("b");
+		assertFalse(value.equals(other));
+	}
+
+	private void checkGenericUpdate(Value value, Value plain) {
+		Map<String, Property> properties = value.descriptor().getProperties();
+		Map<String, Property> plainProperties = plain.descriptor().getProperties();
+		
+		value.putInt(properties.get("x"), 7);
+		plain.putInt(plainProperties.get("x"), 7);
+		assertEquals(plain.hashCode(), value.hashCode());
+		
+		value.putValue(properties.get("scale"), 2.5);
+		plain.putValue(plainProperties.get("scale"), 2.5);
+		assertEquals(plain.hashCode(), value.hashCode());
+		
+		value.putValue(properties.get("name"), "baz");
+		plain.putValue(plainProperties.get("name"), "baz");
+		assertEquals(plain.hashCode(), value.hashCode());
+	}
+
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package test.de.haumacher.values;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueFactory;
+import de.haumacher.values.annotate.IndexProperty;
+import de.haumacher.values.annotate.Lazy;
+import de.haumacher.values.json.JsonUtil;
+import junit.framework.TestCase;
+
+/**
+ * Test case for {@link JsonUtil}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@SuppressWarnings("javadoc")
+public class TestJsonUtil extends TestCase {
+
+	public interface Config extends Value {
+
+		String getName();
+		void setName(String value);
+
+		int getCount();
+		void setCount(int value);
+
+		Double getRatio();
+		void setRatio(Double value);
+
+		boolean isEnabled();
+		void setEnabled(boolean value);
+
+		int[] getSizes();
+		void setSizes(int[] value);
+
+		Date getCreated();
+		void setCreated(Date value);
+
+		Item getMain();
+
+		@Lazy
+		Item getExtra();
+
+		List<Item> getItems();
+
+		@IndexProperty("key")
+		Map<String, Item> getItemsByKey();
+
+	}
+
+	public interface Item extends Value {
+
+		String getKey();
+		void setKey(String value);
+
+		long getAmount();
+		void setAmount(long value);
+
+	}
+
+	public void testRoundTrip() throws IOException {
+		Config config = newConfig();
+
+		String json = write(config, false);
+		assertEquals(config, JsonUtil.read(new StringReader(json), Config.class));
+
+		String objectJson = write(config, true);
+		assertTrue(objectJson, objectJson.contains("\"itemsByKey\":{\"x\":{"));
+		assertEquals(config, JsonUtil.read(new StringReader(objectJson), Config.class));
+	}
+
+	public void testStreams() throws IOException {
+		Config config = newConfig();
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		JsonUtil.write(buffer, config);
+		assertEquals(config, JsonUtil.read(new ByteArrayInputStream(buffer.toByteArray()), Config.class));
+	}
+
+	public void testFormat() throws IOException {
+		Config config = ValueFactory.newInstance(Config.class);
+		config.setName("a\"b\\c\n\u0001");
+		config.setCount(-42);
+		config.setRatio(Double.NaN);
+		config.setEnabled(true);
+
+		String json = write(config, false);
+		assertTrue(json, json.contains("\"name\":\"a\\\"b\\\\c\\n\\u0001\""));
+		assertTrue(json, json.contains("\"count\":-42"));
+		assertTrue(json, json.contains("\"ratio\":\"NaN\""));
+		assertTrue(json, json.contains("\"enabled\":true"));
+		assertTrue(json, json.contains("\"sizes\":\"\""));
+		assertFalse("Lazy value not created.", json.contains("extra"));
+		assertEquals(config, JsonUtil.read(new StringReader(json), Config.class));
+	}
+
+	public void testRead() throws IOException {
+		String json = 
+			"{ \"unknown\": {\"a\": [1, 2.5e3, {\"b\": null}], \"c\": \"\\u00e4\"},\n" +
+			"  \"name\" : \"caf\\u00e9\",\n" +
+			"  \"count\": \"13\",\n" +
+			"  \"ratio\": 1.5E2,\n" +
+			"  \"sizes\": \"1, 2, 3\",\n" +
+			"  \"main\": {\"key\": \"m\", \"amount\": 9007199254740993},\n" +
+			"  \"items\": [{\"key\": \"i\"}, null],\n" +
+			"  \"itemsByKey\": {\"x\": {\"amount\": 1}, \"y\": {\"key\": \"z\"}}\n" +
+			"}";
+		Config config = JsonUtil.read(new StringReader(json), Config.class);
+		assertEquals("café", config.getName());
+		assertEquals(13, config.getCount());
+		assertEquals(Double.valueOf(150), config.getRatio());
+		assertTrue(Arrays.equals(new int[] { 1, 2, 3 }, config.getSizes()));
+		assertEquals(9007199254740993L, config.getMain().getAmount());
+		assertEquals(2, config.getItems().size());
+		assertEquals("i", config.getItems().get(0).getKey());
+		assertNull(config.getItems().get(1));
+		assertEquals(1, config.getItemsByKey().get("x").getAmount());
+		assertEquals("x", config.getItemsByKey().get("x").getKey());
+		assertEquals("z", config.getItemsByKey().get("z").getKey());
+	}
+
+	public void testSmallChunks() throws IOException {
+		final String json = write(newConfig(), false);
+		Reader slowReader = new Reader() {
+			private int pos;
+
+			@Override
+			public int read(char[] cbuf, int off, int len) {
+				if (pos == json.length()) {
+					return -1;
+				}
+				cbuf[off] = json.charAt(pos++);
+				return 1;
+			}
+
+			@Override
+			public void close() {
+				// Ignore.
+			}
+		};
+		assertEquals(newConfig(), JsonUtil.read(slowReader, Config.class));
+	}
+
+	public void testErrors() {
+		assertInvalid("");
+		assertInvalid("[]");
+		assertInvalid("{\"name\": \"unterminated}");
+		assertInvalid("{\"count\": \"x\"}");
+		assertInvalid("{\"count\": {}}");
+		assertInvalid("{\"name\": \"a\",}");
+		assertInvalid("{} {}");
+	}
+
+	private void assertInvalid(String json) {
+		try {
+			JsonUtil.read(new StringReader(json), Config.class);
+			fail("Invalid JSON accepted: " + json);
+		} catch (IOException ex) {
+			// Expected.
+		}
+	}
+
+	private static Config newConfig() {
+		Config config = ValueFactory.newInstance(Config.class);
+		config.setName("test");
+		config.setCount(7);
+		config.setRatio(0.25);
+		config.setSizes(new int[] { 1, 2, 3 });
+		config.setCreated(new Date(1000000000000L));
+		config.getMain().setKey("main");
+		config.getExtra().setAmount(-1);
+		config.getItems().add(item("a", 1));
+		config.getItems().add(item("b", 2));
+		config.getItemsByKey().put("x", item("x", 3));
+		config.getItemsByKey().put("y", item("y", 4));
+		return config;
+	}
+
+	private static Item item(String key, long amount) {
+		Item result = ValueFactory.newInstance(Item.class);
+		result.setKey(key);
+		result.setAmount(amount);
+		return result;
+	}
+
+	private static String write(Config config, boolean indexAsObject) throws IOException {
+		StringWriter out = new StringWriter();
+		JsonUtil.write(out, config, indexAsObject);
+		return out.toString();
+	}
+
+}
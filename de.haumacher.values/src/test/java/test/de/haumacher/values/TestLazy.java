@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package test.de.haumacher.values;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueFactory;
+import de.haumacher.values.annotate.Compiled;
+import de.haumacher.values.annotate.IndexProperty;
+import de.haumacher.values.annotate.Lazy;
+import junit.framework.TestCase;
+
+/**
+ * Test case for {@link Lazy} properties.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@SuppressWarnings("javadoc")
+public class TestLazy extends TestCase {
+
+	@Lazy
+	public interface Node extends Value {
+
+		String getName();
+		void setName(String value);
+
+		int getX();
+		void setX(int value);
+
+		Node getNext();
+		void setNext(Node value);
+
+		List<Node> getChildren();
+
+		@IndexProperty("name")
+		Map<String, Node> getIndex();
+
+	}
+
+	@Lazy
+	@Compiled
+	public interface CompiledNode extends Value {
+
+		String getName();
+		void setName(String value);
+
+		int getX();
+		void setX(int value);
+
+		CompiledNode getNext();
+		void setNext(CompiledNode value);
+
+		List<CompiledNode> getChildren();
+
+		@IndexProperty("name")
+		Map<String, CompiledNode> getIndex();
+
+	}
+
+	public interface Partial extends Value {
+
+		@Lazy
+		List<String> getLazyList();
+
+		List<String> getEagerList();
+
+	}
+
+	public void testDefaultImplementation() {
+		Node node = ValueFactory.newInstance(Node.class);
+		checkLazy(node, ValueFactory.newInstance(Node.class));
+	}
+
+	public void testCompiled() {
+		CompiledNode node = ValueFactory.newInstance(CompiledNode.class);
+		assertFalse(Proxy.isProxyClass(node.getClass()));
+		
+		checkLazy(node, ValueFactory.newInstance(CompiledNode.class));
+	}
+
+	private void checkLazy(Value node, Value other) {
+		assertEquals(node, other);
+		assertEquals(node.hashCode(), other.hashCode());
+		assertTrue(node.toString().contains("{...}"));
+		
+		for (String name : new String[] { "next", "children", "index" }) {
+			// Materializing a property must not change equality.
+			Object value = other.value(other.descriptor().getProperties().get(name));
+			assertNotNull(value);
+			assertSame(value, other.value(other.descriptor().getProperties().get(name)));
+			assertEquals(node, other);
+			assertEquals(other, node);
+			assertEquals(node.hashCode(), other.hashCode());
+		}
+		
+		Value next = (Value) other.value(other.descriptor().getProperties().get("next"));
+		next.putInt(next.descriptor().getProperties().get("x"), 42);
+		assertFalse(node.equals(other));
+		assertFalse(other.equals(node));
+		
+		next.putInt(next.descriptor().getProperties().get("x"), 0);
+		assertEquals(node, other);
+		assertEquals(node.hashCode(), other.hashCode());
+	}
+
+	@SuppressWarnings("unchecked")
+	public void testLazyCollections() {
+		Node node = ValueFactory.newInstance(Node.class);
+		Node other = ValueFactory.newInstance(Node.class);
+		
+		Node child = ValueFactory.newInstance(Node.class);
+		child.setName("child");
+		node.getChildren().add(child);
+		node.getIndex().put("child", child);
+		assertFalse(node.equals(other));
+		
+		other.getChildren().add(child);
+		assertFalse(node.equals(other));
+		
+		((Map<String, Node>) other.value(other.descriptor().getProperties().get("index"))).put("child", child);
+		assertEquals(node, other);
+		assertEquals(node.hashCode(), other.hashCode());
+	}
+
+	public void testIndependentInstances() {
+		Node node = ValueFactory.newInstance(Node.class);
+		Node other = ValueFactory.newInstance(Node.class);
+		assertNotSame(node.getNext(), other.getNext());
+		assertNotSame(node.getChildren(), other.getChildren());
+		
+		CompiledNode compiled = ValueFactory.newInstance(CompiledNode.class);
+		CompiledNode otherCompiled = ValueFactory.newInstance(CompiledNode.class);
+		assertNotSame(compiled.getNext(), otherCompiled.getNext());
+		assertNotSame(compiled.getIndex(), otherCompiled.getIndex());
+	}
+
+	public void testLazyAnnotatedGetter() {
+		Partial partial = ValueFactory.newInstance(Partial.class);
+		assertEquals(ValueFactory.newInstance(Partial.class), partial);
+		
+		partial.getLazyList().add("foo");
+		partial.getEagerList().add("bar");
+		
+		Partial other = ValueFactory.newInstance(Partial.class);
+		other.getLazyList().add("foo");
+		other.getEagerList().add("bar");
+		assertEquals(partial, other);
+		assertEquals(partial.hashCode(), other.hashCode());
+	}
+
+}
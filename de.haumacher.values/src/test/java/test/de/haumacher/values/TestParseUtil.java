@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package test.de.haumacher.values;
+
+import java.util.Random;
+
+import de.haumacher.values.Property;
+import de.haumacher.values.RangeParser;
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueFactory;
+import de.haumacher.values.annotate.ValueParser;
+import de.haumacher.values.format.ObjectParser;
+import de.haumacher.values.format.ParseUtil;
+import junit.framework.TestCase;
+
+/**
+ * Test case for {@link ParseUtil} and {@link RangeParser}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@SuppressWarnings("javadoc")
+public class TestParseUtil extends TestCase {
+
+	private static final String[] INTEGERS = {
+		"0", "1", "-1", "+1", "42", "-0", "007", "127", "128", "-128", "-129", 
+		"32767", "32768", "-32769", "2147483647", "2147483648", "-2147483648", "-2147483649",
+		"9223372036854775807", "9223372036854775808", "-9223372036854775808", "-9223372036854775809",
+		"99999999999999999999", "", "-", "+", "1a", " 1", "1 ", "--1", "1.0", "١٢" 
+	};
+
+	private static final String[] DECIMALS = {
+		"0", "-0", "0.0", "-0.0", "1", "1.", ".5", "+.5", "-.5", "1.5", "-3.25e2", "1e10", "1E-10",
+		"1e22", "1e23", "1e-22", "1e-23", "123456789012345", "1234567890123456", "12345678901234567890",
+		"0.1", "0.2", "0.3", "3.141592653589793", "2.718281828459045", "1.7976931348623157e308",
+		"4.9e-324", "1e400", "1e-400", "NaN", "-Infinity", "Infinity", "0x1p3", "1.5d", "1.5f", " 1.5", "1.5 ",
+		"", ".", "e5", "1e", "1e+", "1.2.3", "0.000001", "100000000", "1234567", "12345678", "16777217",
+		"3.4028235e38", "1.4e-45", "1e39", "1e-46", "0.30000000000000004"
+	};
+
+	public interface Custom extends Value {
+
+		@ValueParser(UpperCaseParser.class)
+		String getName();
+
+	}
+
+	public static class UpperCaseParser extends ObjectParser<String> {
+		@Override
+		public String parse(String text) {
+			return text.toUpperCase();
+		}
+
+		@Override
+		public String unparse(String value) {
+			return value;
+		}
+	}
+
+	public void testIntegers() {
+		for (String text : INTEGERS) {
+			String buffer = "1" + text + "1";
+			int start = 1;
+			int end = start + text.length();
+			
+			Object expected;
+			try {
+				expected = Long.parseLong(text);
+			} catch (NumberFormatException ex) {
+				expected = ex.getClass();
+			}
+			Object actual;
+			try {
+				actual = ParseUtil.parseLong(buffer, start, end);
+			} catch (NumberFormatException ex) {
+				actual = ex.getClass();
+			}
+			assertEquals(text, expected, actual);
+			
+			try {
+				expected = Integer.parseInt(text);
+			} catch (NumberFormatException ex) {
+				expected = ex.getClass();
+			}
+			try {
+				actual = ParseUtil.parseInt(buffer, start, end);
+			} catch (NumberFormatException ex) {
+				actual = ex.getClass();
+			}
+			assertEquals(text, expected, actual);
+			
+			try {
+				expected = Short.parseShort(text);
+			} catch (NumberFormatException ex) {
+				expected = ex.getClass();
+			}
+			try {
+				actual = ParseUtil.parseShort(buffer, start, end);
+			} catch (NumberFormatException ex) {
+				actual = ex.getClass();
+			}
+			assertEquals(text, expected, actual);
+			
+			try {
+				expected = Byte.parseByte(text);
+			} catch (NumberFormatException ex) {
+				expected = ex.getClass();
+			}
+			try {
+				actual = ParseUtil.parseByte(buffer, start, end);
+			} catch (NumberFormatException ex) {
+				actual = ex.getClass();
+			}
+			assertEquals(text, expected, actual);
+		}
+	}
+
+	public void testDecimals() {
+		for (String text : DECIMALS) {
+			checkDecimal(text);
+		}
+	}
+
+	public void testRandomDecimals() {
+		Random rnd = new Random(42);
+		for (int n = 0; n < 20000; n++) {
+			checkDecimal(Double.toString(Double.longBitsToDouble(rnd.nextLong())));
+			checkDecimal(Float.toString(Float.intBitsToFloat(rnd.nextInt())));
+			
+			StringBuilder buffer = new StringBuilder();
+			if (rnd.nextBoolean()) {
+				buffer.append('-');
+			}
+			buffer.append(rnd.nextInt(100000));
+			buffer.append('.');
+			for (int digits = rnd.nextInt(12); digits > 0; digits--) {
+				buffer.append(rnd.nextInt(10));
+			}
+			if (rnd.nextBoolean()) {
+				buffer.append('e');
+				buffer.append(rnd.nextInt(40) - 20);
+			}
+			checkDecimal(buffer.toString());
+		}
+	}
+
+	private void checkDecimal(String text) {
+		String buffer = "[" + text + "]";
+		int start = 1;
+		int end = start + text.length();
+		
+		Object expected;
+		try {
+			expected = Double.parseDouble(text);
+		} catch (NumberFormatException ex) {
+			expected = ex.getClass();
+		}
+		Object actual;
+		try {
+			actual = ParseUtil.parseDouble(buffer, start, end);
+		} catch (NumberFormatException ex) {
+			actual = ex.getClass();
+		}
+		assertEquals(text, expected, actual);
+		
+		try {
+			expected = Float.parseFloat(text);
+		} catch (NumberFormatException ex) {
+			expected = ex.getClass();
+		}
+		try {
+			actual = ParseUtil.parseFloat(buffer, start, end);
+		} catch (NumberFormatException ex) {
+			actual = ex.getClass();
+		}
+		assertEquals(text, expected, actual);
+	}
+
+	public void testBoolean() {
+		for (String text : new String[] { "true", "TRUE", "True", "false", "", "yes", "truee", "tru" }) {
+			assertEquals(text, Boolean.parseBoolean(text), ParseUtil.parseBoolean("[" + text + "]", 1, 1 + text.length()));
+		}
+	}
+
+	public void testBuiltInParsers() {
+		for (Property property : ValueFactory.getDescriptor(TestPrimitives.AllPrimitives.class).getProperties().values()) {
+			assertTrue(property.getParser() instanceof RangeParser<?>);
+			String text = property.getType() == boolean.class ? "true" : property.getType() == char.class ? "c" : "12";
+			assertEquals(property.getParser().parse(text), ParseUtil.parse(property.getParser(), "<" + text + ">", 1, 1 + text.length()));
+			assertEquals(property.getParser().parse(""), ParseUtil.parse(property.getParser(), "<>", 1, 1));
+		}
+	}
+
+	public void testCustomParser() {
+		Property name = ValueFactory.getDescriptor(Custom.class).getProperties().get("name");
+		assertEquals("FOO", ParseUtil.parse(name.getParser(), "xfooy", 1, 4));
+	}
+
+}
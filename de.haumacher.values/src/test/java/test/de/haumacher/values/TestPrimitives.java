@@ -20,8 +20,10 @@
 package test.de.haumacher.values;
 
 
+import java.util.Map;
 import java.util.Properties;
 
+import de.haumacher.values.Property;
 import de.haumacher.values.Value;
 import de.haumacher.values.ValueFactory;
 import de.haumacher.values.properties.PropertiesUtil;
@@ -208,6 +210,66 @@ public class TestPrimitives extends TestCase {
 		assertEquals(7D, p.getDouble());
 	}
 
+	public void testUnboxedAccess() {
+		AllPrimitives v = ValueFactory.newInstance(AllPrimitives.class);
+		fill(v);
+		checkUnboxedAccess((Value) v);
+		assertEquals(8, v.getInt());
+		assertEquals(-9D, v.getDouble());
+	}
+
+	public static void checkUnboxedAccess(Value v) {
+		Map<String, Property> properties = v.descriptor().getProperties();
+		assertEquals(true, v.getBoolean(properties.get("boolean")));
+		assertEquals((byte) 2, v.getByte(properties.get("byte")));
+		assertEquals((char) 3, v.getChar(properties.get("char")));
+		assertEquals(4, v.getInt(properties.get("int")));
+		assertEquals(5L, v.getLong(properties.get("long")));
+		assertEquals(6F, v.getFloat(properties.get("float")));
+		assertEquals(7D, v.getDouble(properties.get("double")));
+
+		v.putBoolean(properties.get("boolean"), false);
+		v.putByte(properties.get("byte"), (byte) -1);
+		v.putChar(properties.get("char"), '\uffff');
+		v.putInt(properties.get("int"), 8);
+		v.putLong(properties.get("long"), Long.MIN_VALUE);
+		v.putFloat(properties.get("float"), -0F);
+		v.putDouble(properties.get("double"), -9D);
+
+		assertEquals(false, v.getBoolean(properties.get("boolean")));
+		assertEquals((byte) -1, v.getByte(properties.get("byte")));
+		assertEquals('\uffff', v.getChar(properties.get("char")));
+		assertEquals(8, v.getInt(properties.get("int")));
+		assertEquals(Long.MIN_VALUE, v.getLong(properties.get("long")));
+		assertEquals(Float.floatToRawIntBits(-0F), Float.floatToRawIntBits(v.getFloat(properties.get("float"))));
+		assertEquals(-9D, v.getDouble(properties.get("double")));
+		assertEquals(Byte.valueOf((byte) -1), v.value(properties.get("byte")));
+		assertEquals(Character.valueOf('\uffff'), v.value(properties.get("char")));
+
+		try {
+			v.getLong(properties.get("int"));
+			fail("Type mismatch not detected.");
+		} catch (IllegalArgumentException ex) {
+			// Expected.
+		}
+		try {
+			v.putInt(properties.get("long"), 1);
+			fail("Type mismatch not detected.");
+		} catch (IllegalArgumentException ex) {
+			// Expected.
+		}
+	}
+
+	public void testUnboxedAccessToWrapper() {
+		AllPrimitiveWrappers v = ValueFactory.newInstance(AllPrimitiveWrappers.class);
+		try {
+			((Value) v).getInt(((Value) v).descriptor().getProperties().get("int"));
+			fail("Wrapper type must not be accessed unboxed.");
+		} catch (IllegalArgumentException ex) {
+			// Expected.
+		}
+	}
+
 	public void testNested() {
 		A v = ValueFactory.newInstance(A.class);
 		
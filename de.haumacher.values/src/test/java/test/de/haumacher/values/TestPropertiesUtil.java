@@ -0,0 +1,670 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package test.de.haumacher.values;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+
+import de.haumacher.values.Initializer;
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueFactory;
+import de.haumacher.values.annotate.DefaultValue;
+import de.haumacher.values.annotate.IndexProperty;
+import de.haumacher.values.annotate.Lazy;
+import de.haumacher.values.properties.BulkResult;
+import de.haumacher.values.properties.OverlayValue;
+import de.haumacher.values.properties.PropertiesOverlay;
+import de.haumacher.values.properties.PropertiesUtil;
+import de.haumacher.values.properties.ValueLoader;
+import de.haumacher.values.properties.ValueSaver;
+import junit.framework.TestCase;
+
+/**
+ * Test case for {@link PropertiesUtil}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@SuppressWarnings("javadoc")
+public class TestPropertiesUtil extends TestCase {
+
+	public interface Config extends Value {
+
+		String getName();
+		void setName(String value);
+
+		Host getMain();
+
+		List<Host> getHosts();
+
+		@IndexProperty("name")
+		Map<String, Host> getHostsByName();
+
+	}
+
+	public interface Host extends Value {
+
+		String getName();
+		void setName(String value);
+
+		int getPort();
+		void setPort(int value);
+
+		@Lazy
+		Host getFallback();
+
+		List<Host> getReplicas();
+
+	}
+
+	public interface Instance extends Value {
+
+		@DefaultValue(initializer = InstanceIds.class)
+		String getInstanceId();
+		void setInstanceId(String value);
+
+	}
+
+	public static class InstanceIds implements Initializer<String> {
+		private static int next;
+
+		@Override
+		public String init() {
+			return "i" + next++;
+		}
+	}
+
+	public void testRecursiveType() {
+		Config config = ValueFactory.newInstance(Config.class);
+		config.getMain().setName("a");
+		config.getMain().getFallback().setName("b");
+		config.getMain().getFallback().getFallback().setPort(3);
+
+		Properties properties = PropertiesUtil.save(new Properties(), config);
+		assertEquals("3", properties.getProperty("main.fallback.fallback.port"));
+
+		Config copy = PropertiesUtil.load(properties, Config.class);
+		assertEquals(config, copy);
+		assertEquals(3, copy.getMain().getFallback().getFallback().getPort());
+	}
+
+	public void testListEntries() {
+		Properties properties = new Properties();
+		properties.setProperty("hosts.2.name", "second");
+		properties.setProperty("hosts.10.name", "third");
+		properties.setProperty("hosts.1.port", "0");
+		properties.setProperty("hosts.x.name", "ignored");
+		properties.setProperty("hosts.2.replicas.1.port", "5");
+
+		Config config = PropertiesUtil.load(properties, Config.class);
+		List<Host> hosts = config.getHosts();
+		assertEquals(3, hosts.size());
+		assertEquals(ValueFactory.newInstance(Host.class), hosts.get(0));
+		assertEquals("second", hosts.get(1).getName());
+		assertEquals(5, hosts.get(1).getReplicas().get(0).getPort());
+		assertEquals("third", hosts.get(2).getName());
+	}
+
+	public void testLeadingZeros() throws IOException {
+		String text = 
+			"hosts.1.name=first\n" + 
+			"hosts.01.name=ignored\n" + 
+			"hosts.01.port=1\n" + 
+			"hosts.002.name=ignored\n";
+
+		Config streamed = PropertiesUtil.load(new StringReader(text), "", Config.class);
+		assertEquals(1, streamed.getHosts().size());
+		assertEquals("first", streamed.getHosts().get(0).getName());
+		assertEquals(0, streamed.getHosts().get(0).getPort());
+
+		Properties properties = new Properties();
+		properties.load(new StringReader(text));
+		assertEquals(streamed, PropertiesUtil.load(properties, Config.class));
+	}
+
+	public void testIndexEntries() {
+		Properties properties = new Properties();
+		properties.setProperty("hostsByName.1.name", "x");
+		properties.setProperty("hostsByName.2.name", "y");
+		properties.setProperty("hostsByName.2.port", "2");
+
+		Config config = PropertiesUtil.load(properties, Config.class);
+		assertEquals(Arrays.asList("x", "y"), Arrays.asList(config.getHostsByName().keySet().toArray()));
+		assertEquals(2, config.getHostsByName().get("y").getPort());
+	}
+
+	public void testPrefix() {
+		Config config = ValueFactory.newInstance(Config.class);
+		config.setName("c");
+		config.getHosts().add(host("n", 1));
+
+		Properties properties = new Properties();
+		properties.setProperty("other.name", "ignored");
+		PropertiesUtil.save(properties, "app.", config);
+		assertEquals("c", properties.getProperty("app.name"));
+
+		assertEquals(config, PropertiesUtil.load(properties, "app.", Config.class));
+	}
+
+	public void testDefaults() {
+		Properties defaults = new Properties();
+		defaults.setProperty("name", "default");
+		defaults.setProperty("main.port", "7");
+		Properties properties = new Properties(defaults);
+		properties.setProperty("name", "explicit");
+
+		Config config = PropertiesUtil.load(properties, Config.class);
+		assertEquals("explicit", config.getName());
+		assertEquals(7, config.getMain().getPort());
+	}
+
+	public void testStreamingSyntax() throws IOException {
+		String text = 
+			"# comment\n" + 
+			"  ! another comment\n" + 
+			"\n" + 
+			"name = first \\\n" + 
+			"       second\\\\\r\n" + 
+			"main.name:\\u00e4\\t\\=x\r" + 
+			"main.port 42\n" + 
+			"hosts.1.na\\\n  me  =  \\ a:b\n" + 
+			"hosts.1.port\t\f= 3\n" + 
+			"hosts.2.name\n" + 
+			"hosts.2.port=1\\\n" + 
+			"\n" + 
+			"unknown.key=ignored\\\n" + 
+			"  continued";
+
+		Properties properties = new Properties();
+		properties.load(new StringReader(text));
+		Config expected = PropertiesUtil.load(properties, Config.class);
+		assertEquals("first second\\", expected.getName());
+		assertEquals("\u00e4\t=x", expected.getMain().getName());
+		assertEquals(" a:b", expected.getHosts().get(0).getName());
+
+		Config config = PropertiesUtil.load(new StringReader(text), "", Config.class);
+		assertEquals(expected, config);
+	}
+
+	public void testStreamingEntries() throws IOException {
+		String text = 
+			"app.hosts.10.name=third\n" + 
+			"app.hostsByName.2.port=2\n" + 
+			"app.hosts.2.name=second\n" + 
+			"app.hosts.x.name=ignored\n" + 
+			"app.hosts.2.replicas.1.port=5\n" + 
+			"app.hostsByName.1.name=x\n" + 
+			"app.hostsByName.2.name=y\n" + 
+			"app.hosts.0.name=ignored\n" + 
+			"app.main.fallback.fallback.port=3\n" + 
+			"app.main.name.length=ignored\n" + 
+			"other.name=ignored\n";
+
+		Config config = PropertiesUtil.load(new StringReader(text), "app.", Config.class);
+		List<Host> hosts = config.getHosts();
+		assertEquals(2, hosts.size());
+		assertEquals("second", hosts.get(0).getName());
+		assertEquals(5, hosts.get(0).getReplicas().get(0).getPort());
+		assertEquals("third", hosts.get(1).getName());
+		assertEquals(Arrays.asList("x", "y"), Arrays.asList(config.getHostsByName().keySet().toArray()));
+		assertEquals(2, config.getHostsByName().get("y").getPort());
+		assertEquals(3, config.getMain().getFallback().getFallback().getPort());
+		assertNull(config.getName());
+	}
+
+	public void testStreamingFile() throws IOException {
+		Config config = ValueFactory.newInstance(Config.class);
+		config.setName("caf\u00e9 \u20ac");
+		config.getMain().setPort(13);
+		config.getHosts().add(host("a", 1));
+		config.getHosts().add(host("b", 2));
+		config.getHostsByName().put("c", host("c", 3));
+
+		File file = File.createTempFile("config", ".properties");
+		try {
+			PropertiesUtil.save(file.getPath(), config);
+			assertEquals(config, PropertiesUtil.load(file.getPath(), Config.class));
+
+			OutputStream out = new FileOutputStream(file);
+			try {
+				out.write("name=caf\u00e9".getBytes("ISO-8859-1"));
+			} finally {
+				out.close();
+			}
+			assertEquals("caf\u00e9", PropertiesUtil.load(file.getPath(), Config.class).getName());
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testCompiledPlans() throws IOException {
+		ValueLoader<Config> loader = PropertiesUtil.getLoader(Config.class, "app.");
+		assertSame(loader, PropertiesUtil.getLoader(Config.class, "app."));
+		assertNotSame(loader, PropertiesUtil.getLoader(Config.class, ""));
+		ValueSaver<Config> saver = PropertiesUtil.getSaver(Config.class, "app.");
+		assertSame(saver, PropertiesUtil.getSaver(Config.class, "app."));
+		assertEquals("app.", saver.getPrefix());
+
+		for (int n = 0; n < 3; n++) {
+			Config config = ValueFactory.newInstance(Config.class);
+			config.setName("tenant" + n);
+			config.getMain().getFallback().setPort(n);
+			for (int i = 0; i <= n; i++) {
+				config.getHosts().add(host("n" + i, i));
+				config.getHostsByName().put("m" + i, host("m" + i, i));
+			}
+
+			Properties properties = saver.save(new Properties(), config);
+			assertEquals("n" + n, properties.getProperty("app.hosts." + (n + 1) + ".name"));
+			assertEquals(config, loader.load(properties));
+
+			StringWriter buffer = new StringWriter();
+			properties.store(buffer, null);
+			assertEquals(config, loader.load(new StringReader(buffer.toString())));
+		}
+	}
+
+	public void testWriteElidesDefaults() throws IOException {
+		Config config = ValueFactory.newInstance(Config.class);
+		config.getMain().setPort(4);
+		config.getHosts().add(ValueFactory.newInstance(Host.class));
+		config.getHosts().add(host("b", 0));
+
+		StringWriter out = new StringWriter();
+		PropertiesUtil.write(out, "", config);
+		assertEquals(
+			"hosts.1=\n" + 
+			"hosts.2.name=b\n" + 
+			"main.port=4\n", out.toString());
+
+		assertEquals(config, PropertiesUtil.load(new StringReader(out.toString()), "", Config.class));
+		Properties properties = new Properties();
+		properties.load(new StringReader(out.toString()));
+		assertEquals(config, PropertiesUtil.load(properties, Config.class));
+	}
+
+	public void testWriteVaryingDefault() throws IOException {
+		Instance instance = ValueFactory.newInstance(Instance.class);
+
+		StringWriter out = new StringWriter();
+		PropertiesUtil.write(out, "", instance);
+		assertEquals("instanceId=" + instance.getInstanceId() + "\n", out.toString());
+		assertEquals(instance, PropertiesUtil.load(new StringReader(out.toString()), "", Instance.class));
+
+		// None of the values the initializer has produced so far must be
+		// taken for a default.
+		String last = ValueFactory.newInstance(Instance.class).getInstanceId();
+		for (int n = 0, cnt = Integer.parseInt(last.substring(1)); n <= cnt; n++) {
+			instance.setInstanceId("i" + n);
+			out = new StringWriter();
+			PropertiesUtil.write(out, "", instance);
+			assertEquals("instanceId=i" + n + "\n", out.toString());
+		}
+	}
+
+	public void testWriteDeterministic() throws IOException {
+		Config config = ValueFactory.newInstance(Config.class);
+		config.setName(" lead = a:b #!\\ \t\n\u00e4\u20ac");
+		for (int n = 0; n < 12; n++) {
+			config.getHostsByName().put("k " + n, host("k " + n, n));
+		}
+		config.getMain().getFallback().setName("x");
+
+		StringWriter out = new StringWriter();
+		PropertiesUtil.write(out, "app.", config);
+		String text = out.toString();
+		assertFalse(text.startsWith("#"));
+		assertTrue(text.startsWith("app.hostsByName.1.name=k 0\n"));
+		assertTrue(text.contains("\napp.main.fallback.name=x\n"));
+
+		Config copy = PropertiesUtil.load(new StringReader(text), "app.", Config.class);
+		assertEquals(config, copy);
+
+		StringWriter copyOut = new StringWriter();
+		PropertiesUtil.write(copyOut, "app.", copy);
+		assertEquals(text, copyOut.toString());
+
+		Properties properties = new Properties();
+		properties.load(new StringReader(text));
+		assertEquals(config.getName(), properties.getProperty("app.name"));
+		assertEquals("k 0", properties.getProperty("app.hostsByName.1.name"));
+		assertEquals("k 10", properties.getProperty("app.hostsByName.3.name"));
+		assertEquals("k 9", properties.getProperty("app.hostsByName.12.name"));
+
+		// Same index with a different map history.
+		Config other = ValueFactory.newInstance(Config.class);
+		other.setName(config.getName());
+		for (int n = 0; n < 1000; n++) {
+			other.getHostsByName().put("tmp" + n, host("tmp" + n, n));
+		}
+		for (int n = 11; n >= 0; n--) {
+			other.getHostsByName().put("k " + n, host("k " + n, n));
+		}
+		for (int n = 0; n < 1000; n++) {
+			other.getHostsByName().remove("tmp" + n);
+		}
+		other.getMain().getFallback().setName("x");
+		StringWriter otherOut = new StringWriter();
+		PropertiesUtil.write(otherOut, "app.", other);
+		assertEquals(text, otherOut.toString());
+	}
+
+	public void testUpdateIndexEntry() throws IOException {
+		String text = 
+			"hostsByName.1.name=b\n" + 
+			"hostsByName.1.port=2\n" + 
+			"hostsByName.2.name=a\n" + 
+			"hostsByName.2.port=1\n";
+		Properties properties = new Properties();
+		properties.load(new StringReader(text));
+		Config config = PropertiesUtil.load(properties, "", Config.class);
+
+		config.getHostsByName().get("a").setPort(5);
+		PropertiesUtil.update(properties, "", config);
+		assertEquals(config, PropertiesUtil.load(properties, "", Config.class));
+		assertEquals(5, PropertiesUtil.load(properties, "", Config.class).getHostsByName().get("a").getPort());
+
+		File file = File.createTempFile("config", ".properties");
+		try {
+			Writer out = new OutputStreamWriter(new FileOutputStream(file), "ISO-8859-1");
+			try {
+				out.write(text);
+			} finally {
+				out.close();
+			}
+			Config loaded = PropertiesUtil.load(file.getPath(), "", Config.class);
+			loaded.getHostsByName().get("b").setPort(7);
+			PropertiesUtil.update(file.getPath(), "", loaded);
+			Config reloaded = PropertiesUtil.load(file.getPath(), "", Config.class);
+			assertEquals(loaded, reloaded);
+			assertEquals(7, reloaded.getHostsByName().get("b").getPort());
+			assertEquals(1, reloaded.getHostsByName().get("a").getPort());
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testUpdateProperties() {
+		Config config = ValueFactory.newInstance(Config.class);
+		config.setName("c");
+		config.getHosts().add(host("a", 1));
+		config.getHosts().add(host("b", 2));
+		Properties properties = PropertiesUtil.save(new Properties(), config);
+
+		Config loaded = PropertiesUtil.load(properties, Config.class);
+		loaded.getHosts().get(1).setPort(5);
+		loaded.setName(null);
+
+		Properties updated = new Properties();
+		updated.putAll(properties);
+		PropertiesUtil.update(updated, "", loaded);
+		assertEquals("5", updated.getProperty("hosts.2.port"));
+		assertNull(updated.getProperty("name"));
+		assertEquals(properties.size() - 1, updated.size());
+		assertEquals(loaded, PropertiesUtil.load(updated, Config.class));
+
+		loaded.getHosts().remove(0);
+		PropertiesUtil.update(updated, "", loaded);
+		assertNull(updated.getProperty("hosts.2.port"));
+		assertEquals("b", updated.getProperty("hosts.1.name"));
+		assertEquals(loaded, PropertiesUtil.load(updated, Config.class));
+
+		Properties unchanged = new Properties();
+		unchanged.putAll(updated);
+		PropertiesUtil.update(unchanged, "", loaded);
+		assertEquals(updated, unchanged);
+	}
+
+	public void testUpdateFile() throws IOException {
+		Config config = ValueFactory.newInstance(Config.class);
+		config.setName("c");
+		config.getMain().setPort(3);
+		config.getHosts().add(host("a", 1));
+
+		File file = File.createTempFile("config", ".properties");
+		try {
+			PropertiesUtil.write(file.getPath(), "", config);
+			long length = file.length();
+
+			Config loaded = PropertiesUtil.load(file.getPath(), Config.class);
+			PropertiesUtil.update(file.getPath(), "", loaded);
+			assertEquals(length, file.length());
+
+			loaded.getMain().setPort(0);
+			loaded.getHosts().get(0).setName("x");
+			PropertiesUtil.update(file.getPath(), "", loaded);
+			assertEquals(length + "main.port=0\nhosts.1.name=x\n".length(), file.length());
+			assertEquals(loaded, PropertiesUtil.load(file.getPath(), Config.class));
+
+			loaded.getHosts().clear();
+			PropertiesUtil.update(file.getPath(), "", loaded);
+			assertEquals("name=c\n".length(), file.length());
+			assertEquals(loaded, PropertiesUtil.load(file.getPath(), Config.class));
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testUpdateCompacts() throws IOException {
+		Config config = ValueFactory.newInstance(Config.class);
+		config.setName("c");
+		config.getHosts().add(host("a", 1));
+
+		File file = File.createTempFile("config", ".properties");
+		try {
+			Writer out = new OutputStreamWriter(new FileOutputStream(file), "ISO-8859-1");
+			try {
+				out.write("# Settings\n");
+				PropertiesUtil.write(out, "", config);
+			} finally {
+				out.close();
+			}
+
+			long length = file.length();
+			Config loaded = PropertiesUtil.load(file.getPath(), Config.class);
+			loaded.getMain().setPort(1);
+			PropertiesUtil.update(file.getPath(), "", loaded);
+			assertEquals(length + "main.port=1\n".length(), file.length());
+
+			long maxLength = 0;
+			for (int n = 0; n < 1000; n++) {
+				loaded.getMain().setPort(n);
+				PropertiesUtil.update(file.getPath(), "", loaded);
+				maxLength = Math.max(maxLength, file.length());
+			}
+			assertTrue("Compacted: " + maxLength, maxLength < 2 * 4096);
+			assertEquals(loaded, PropertiesUtil.load(file.getPath(), Config.class));
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testUpdateNumberingGaps() throws IOException {
+		File file = File.createTempFile("config", ".properties");
+		try {
+			Writer out = new OutputStreamWriter(new FileOutputStream(file), "ISO-8859-1");
+			try {
+				out.write("hosts.1.name=a\nhosts.3.name=b\n");
+			} finally {
+				out.close();
+			}
+
+			// Entries are stored by their position, which differs from the
+			// numbers in the file.
+			Config loaded = PropertiesUtil.load(file.getPath(), Config.class);
+			loaded.getHosts().get(1).setName("c");
+			PropertiesUtil.update(file.getPath(), "", loaded);
+			Config reloaded = PropertiesUtil.load(file.getPath(), Config.class);
+			assertEquals(loaded, reloaded);
+			assertEquals(2, reloaded.getHosts().size());
+
+			Properties properties = new Properties();
+			properties.setProperty("hosts.1.name", "a");
+			properties.setProperty("hosts.3.name", "b");
+			loaded = PropertiesUtil.load(properties, Config.class);
+			loaded.getHosts().get(1).setName("c");
+			PropertiesUtil.update(properties, "", loaded);
+			assertEquals(loaded, PropertiesUtil.load(properties, Config.class));
+			assertNull(properties.getProperty("hosts.3.name"));
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testUpdateHandEditedFile() throws IOException {
+		File file = File.createTempFile("config", ".properties");
+		try {
+			Writer out = new OutputStreamWriter(new FileOutputStream(file), "ISO-8859-1");
+			try {
+				out.write("# Settings\nother.key=kept\napp.name=c\napp.hosts.1.name=a\napp.unknown=kept too");
+			} finally {
+				out.close();
+			}
+
+			Config loaded = PropertiesUtil.load(file.getPath(), "app.", Config.class);
+			loaded.getMain().setPort(4);
+			PropertiesUtil.update(file.getPath(), "app.", loaded);
+			Properties properties = PropertiesUtil.loadProperties(file.getPath());
+			assertEquals("kept too", properties.getProperty("app.unknown"));
+			assertEquals("4", properties.getProperty("app.main.port"));
+			assertEquals(loaded, PropertiesUtil.load(file.getPath(), "app.", Config.class));
+
+			loaded.getHosts().clear();
+			PropertiesUtil.update(file.getPath(), "app.", loaded);
+			properties = PropertiesUtil.loadProperties(file.getPath());
+			assertEquals("kept", properties.getProperty("other.key"));
+			assertEquals("kept too", properties.getProperty("app.unknown"));
+			assertNull(properties.getProperty("app.hosts.1.name"));
+			assertEquals(loaded, PropertiesUtil.load(file.getPath(), "app.", Config.class));
+		} finally {
+			file.delete();
+		}
+	}
+
+	public void testLoadAll() throws IOException {
+		File dir = File.createTempFile("tenants", "");
+		dir.delete();
+		dir.mkdir();
+		try {
+			for (int n = 0; n < 20; n++) {
+				Config config = ValueFactory.newInstance(Config.class);
+				config.setName("tenant" + n);
+				config.getHosts().add(host("n" + n, n));
+				PropertiesUtil.write(new File(dir, "tenant" + (100 + n) + ".properties").getPath(), "app.", config);
+			}
+			Writer broken = new OutputStreamWriter(new FileOutputStream(new File(dir, "tenant105.properties")), "ISO-8859-1");
+			try {
+				broken.write("app.main.port=heavy\n");
+			} finally {
+				broken.close();
+			}
+			new File(dir, "readme.txt").createNewFile();
+
+			BulkResult<Config> result = PropertiesUtil.loadAll(dir, "app.", Config.class);
+			assertTrue(result.hasErrors());
+			assertEquals(Arrays.asList(new File(dir, "tenant105.properties")), new ArrayList<File>(result.getErrors().keySet()));
+			assertEquals(19, result.getValues().size());
+			int n = 0;
+			for (Entry<File, Config> entry : result.getValues().entrySet()) {
+				if (n == 5) {
+					n++;
+				}
+				assertEquals("tenant" + (100 + n) + ".properties", entry.getKey().getName());
+				assertEquals("tenant" + n, entry.getValue().getName());
+				assertEquals(n, entry.getValue().getHosts().get(0).getPort());
+				n++;
+			}
+
+			List<File> files = Arrays.asList(new File(dir, "tenant101.properties"), new File(dir, "missing.properties"));
+			BulkResult<Config> single = PropertiesUtil.getLoader(Config.class, "app.").loadAll(files, 1);
+			assertEquals("tenant1", single.getValues().get(files.get(0)).getName());
+			assertTrue(single.getErrors().get(files.get(1)) instanceof IOException);
+		} finally {
+			for (File file : dir.listFiles()) {
+				file.delete();
+			}
+			dir.delete();
+		}
+	}
+
+	public void testOverlay() {
+		Properties defaults = new Properties();
+		defaults.setProperty("app.name", "default");
+		defaults.setProperty("app.main.port", "1");
+		defaults.setProperty("app.hosts.1.name", "a");
+		defaults.setProperty("app.hosts.1.port", "invalid, but overridden");
+		Properties site = new Properties();
+		site.setProperty("app.main.port", "2");
+		site.setProperty("app.hosts.1.port", "3");
+		site.setProperty("app.hosts.2.name", "b");
+		site.setProperty("other.name", "ignored");
+		Properties tenant = new Properties();
+		tenant.setProperty("app.main.port", "4");
+
+		OverlayValue<Config> overlay = new PropertiesOverlay()
+			.add("defaults", defaults)
+			.add("site", site)
+			.add("tenant", tenant)
+			.load("app.", Config.class);
+		Config config = overlay.getValue();
+		assertEquals("default", config.getName());
+		assertEquals(4, config.getMain().getPort());
+		assertEquals(Arrays.asList(host("a", 3), host("b", 0)), config.getHosts());
+
+		assertEquals("defaults", overlay.getSource(config, "name"));
+		assertEquals("tenant", overlay.getSource(config.getMain(), "port"));
+		assertNull(overlay.getSource(config.getMain(), "name"));
+		assertEquals("defaults", overlay.getSource(config.getHosts().get(0), "name"));
+		assertEquals("site", overlay.getSource(config.getHosts().get(0), "port"));
+		assertNull(overlay.getSource(config.getHosts().get(1), "port"));
+
+		String key = "test.overlay.name";
+		System.setProperty(key, "system");
+		try {
+			OverlayValue<Config> system = new PropertiesOverlay()
+				.add("defaults", defaults)
+				.addSystemProperties()
+				.load("test.overlay.", Config.class);
+			assertEquals("system", system.getValue().getName());
+			assertEquals(PropertiesOverlay.SYSTEM_PROPERTIES, system.getSource(system.getValue(), "name"));
+		} finally {
+			System.clearProperty(key);
+		}
+	}
+
+	private static Host host(String name, int port) {
+		Host result = ValueFactory.newInstance(Host.class);
+		result.setName(name);
+		result.setPort(port);
+		return result;
+	}
+
+}
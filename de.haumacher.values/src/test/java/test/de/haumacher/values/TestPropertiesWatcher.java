@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package test.de.haumacher.values;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import de.haumacher.values.Value;
+import de.haumacher.values.annotate.IndexProperty;
+import de.haumacher.values.properties.PropertiesUtil;
+import de.haumacher.values.properties.PropertiesWatcher;
+import junit.framework.TestCase;
+
+/**
+ * Test case for {@link PropertiesWatcher}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@SuppressWarnings("javadoc")
+public class TestPropertiesWatcher extends TestCase {
+
+	public interface Settings extends Value {
+
+		String getName();
+
+		int getPort();
+
+		List<Settings> getChildren();
+
+		@IndexProperty("name")
+		Map<String, Endpoint> getByName();
+
+	}
+
+	public interface Endpoint extends Value {
+
+		String getName();
+
+		int getPort();
+
+	}
+
+	private File dir;
+
+	private File file;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		dir = File.createTempFile("watch", "");
+		dir.delete();
+		dir.mkdir();
+		file = new File(dir, "settings.properties");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+		dir.delete();
+		super.tearDown();
+	}
+
+	public void testReload() throws IOException, InterruptedException {
+		write("app.name=a\napp.port=1\napp.children.1.name=x\n");
+		BlockingQueue<List<String>> reloads = new LinkedBlockingQueue<List<String>>();
+		PropertiesWatcher<Settings> watcher = PropertiesUtil.watch(file.getPath(), "app.", Settings.class, listener(reloads));
+		try {
+			Settings first = watcher.get();
+			assertTrue(first.isFrozen());
+			assertEquals("a", first.getName());
+
+			assertEquals(Collections.emptyList(), watcher.reload());
+			assertSame(first, watcher.get());
+
+			write("app.name=a\napp.port=2\napp.children.1.name=y\napp.children.2.port=3\n");
+			// Note: The change may have been detected in the background
+			// already.
+			watcher.reload();
+			assertEquals(Arrays.asList("children.1.name", "children.2", "port"), reloads.poll(30, TimeUnit.SECONDS));
+			Settings second = watcher.get();
+			assertEquals(2, second.getPort());
+			assertEquals(1, first.getPort());
+
+			write("app.port=invalid\n");
+			try {
+				watcher.reload();
+				fail("Invalid number expected.");
+			} catch (NumberFormatException ex) {
+				// Expected.
+			}
+			assertSame(second, watcher.get());
+			assertTrue(reloads.isEmpty());
+		} finally {
+			watcher.close();
+		}
+	}
+
+	public void testReloadIndex() throws IOException, InterruptedException {
+		write("byName.1.name=a\nbyName.1.port=1\nbyName.2.name=c\n");
+		BlockingQueue<List<String>> reloads = new LinkedBlockingQueue<List<String>>();
+		PropertiesWatcher<Settings> watcher = PropertiesUtil.watch(file.getPath(), "", Settings.class, listener(reloads));
+		try {
+			// Entries are matched by their index key, not by their position.
+			write("byName.1.name=a\nbyName.1.port=2\nbyName.2.name=b\nbyName.3.name=c\n");
+			watcher.reload();
+			assertEquals(Arrays.asList("byName.1.port", "byName.2"), reloads.poll(30, TimeUnit.SECONDS));
+
+			write("byName.1.name=c\n");
+			watcher.reload();
+			assertEquals(Arrays.asList("byName.1", "byName.2"), reloads.poll(30, TimeUnit.SECONDS));
+			assertEquals(Collections.singleton("c"), watcher.get().getByName().keySet());
+		} finally {
+			watcher.close();
+		}
+	}
+
+	public void testWatch() throws IOException, InterruptedException {
+		write("port=1\n");
+		BlockingQueue<List<String>> reloads = new LinkedBlockingQueue<List<String>>();
+		PropertiesWatcher<Settings> watcher = PropertiesUtil.watch(file.getPath(), "", Settings.class, listener(reloads));
+		try {
+			write("port=2\n");
+			List<String> changes = reloads.poll(30, TimeUnit.SECONDS);
+			assertEquals(Collections.singletonList("port"), changes);
+			assertEquals(2, watcher.get().getPort());
+		} finally {
+			watcher.close();
+		}
+	}
+
+	private static PropertiesWatcher.Listener<Settings> listener(final BlockingQueue<List<String>> reloads) {
+		return new PropertiesWatcher.Listener<Settings>() {
+			@Override
+			public void reloaded(Settings oldValue, Settings newValue, List<String> changes) {
+				reloads.add(changes);
+			}
+
+			@Override
+			public void failed(Exception ex) {
+				// Ignore incomplete files.
+			}
+		};
+	}
+
+	/**
+	 * Replaces the observed file atomically.
+	 */
+	private void write(String contents) throws IOException {
+		File tmp = new File(dir, "settings.tmp");
+		OutputStream out = new FileOutputStream(tmp);
+		try {
+			out.write(contents.getBytes("ISO-8859-1"));
+		} finally {
+			out.close();
+		}
+		assertTrue(tmp.renameTo(file));
+	}
+
+}
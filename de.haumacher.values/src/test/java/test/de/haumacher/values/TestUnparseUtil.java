@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package test.de.haumacher.values;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import de.haumacher.values.AppendingParser;
+import de.haumacher.values.Parser;
+import de.haumacher.values.Property;
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueFactory;
+import de.haumacher.values.annotate.IndexProperty;
+import de.haumacher.values.format.UnparseUtil;
+import junit.framework.TestCase;
+
+/**
+ * Test case for {@link UnparseUtil} and {@link AppendingParser}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@SuppressWarnings("javadoc")
+public class TestUnparseUtil extends TestCase {
+
+	public interface Formats {
+
+		String getString();
+		void setString(String value);
+
+		Integer getInteger();
+		void setInteger(Integer value);
+
+		int[] getInts();
+		void setInts(int[] value);
+
+		double[] getDoubles();
+		void setDoubles(double[] value);
+
+		Character[] getChars();
+		void setChars(Character[] value);
+
+		String[] getStrings();
+		void setStrings(String[] value);
+
+		File getFile();
+		void setFile(File value);
+
+		File[] getFiles();
+		void setFiles(File[] value);
+
+		Date getDate();
+		void setDate(Date value);
+
+	}
+
+	public interface Graph {
+
+		String getName();
+		void setName(String value);
+
+		long getX();
+		void setX(long value);
+
+		List<Graph> getChildren();
+
+		@IndexProperty("name")
+		Map<String, Graph> getIndex();
+
+	}
+
+	public void testNumbers() throws IOException {
+		long[] values = { 0, 1, -1, 9, 10, -10, 42, 1234567890, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE };
+		for (long value : values) {
+			StringWriter out = new StringWriter();
+			UnparseUtil.appendLong(out, value);
+			assertEquals(Long.toString(value), out.toString());
+			
+			StringBuilder buffer = new StringBuilder();
+			UnparseUtil.appendLong(buffer, value);
+			assertEquals(Long.toString(value), buffer.toString());
+			
+			out = new StringWriter();
+			UnparseUtil.appendInt(out, (int) value);
+			assertEquals(Integer.toString((int) value), out.toString());
+		}
+		
+		StringWriter out = new StringWriter();
+		UnparseUtil.appendDouble(out, 1.5);
+		UnparseUtil.appendFloat(out, 0.1F);
+		UnparseUtil.appendBoolean(out, true);
+		assertEquals("1.50.1true", out.toString());
+	}
+
+	public void testFloatingPoint() throws IOException {
+		double[] values = { 0, -0.0, 1, -1.5, 0.1, 1e7, 1.0E-3, 123456789.125, Math.PI, Double.MAX_VALUE, Double.MIN_VALUE, Double.NaN, Double.NEGATIVE_INFINITY };
+		for (double value : values) {
+			StringWriter out = new StringWriter();
+			UnparseUtil.appendDouble(out, value);
+			UnparseUtil.appendDouble(out, value);
+			assertEquals(Double.toString(value) + Double.toString(value), out.toString());
+
+			out = new StringWriter();
+			UnparseUtil.appendFloat(out, (float) value);
+			assertEquals(Float.toString((float) value), out.toString());
+		}
+	}
+
+	public void testBuiltInParsers() throws IOException {
+		Formats formats = ValueFactory.newInstance(Formats.class);
+		checkParsers(formats);
+		
+		formats.setString("foo");
+		formats.setInteger(-42);
+		formats.setInts(new int[] { 1, -2, 3 });
+		formats.setDoubles(new double[] { 1.5, -0.0, Double.NaN });
+		formats.setChars(new Character[] { 'a', null, 'c' });
+		formats.setStrings(new String[] { "x", "y" });
+		formats.setFile(new File("foo/bar"));
+		formats.setFiles(new File[] { new File("a"), new File("b") });
+		formats.setDate(new Date(0));
+		checkParsers(formats);
+	}
+
+	private void checkParsers(Formats formats) throws IOException {
+		for (Property property : ValueFactory.getDescriptor(Formats.class).getProperties().values()) {
+			Parser<Object> parser = property.getParser();
+			assertTrue(parser instanceof AppendingParser<?>);
+			
+			Object value = ((Value) formats).value(property);
+			StringWriter out = new StringWriter();
+			out.append('<');
+			UnparseUtil.unparse(parser, value, out);
+			out.append('>');
+			assertEquals(property.getName(), "<" + parser.unparse(value) + ">", out.toString());
+		}
+	}
+
+	public void testAppendTo() throws IOException {
+		Graph root = ValueFactory.newInstance(Graph.class);
+		root.setName("root");
+		root.setX(Long.MIN_VALUE);
+		for (int n = 0; n < 3; n++) {
+			Graph child = ValueFactory.newInstance(Graph.class);
+			child.setName("child" + n);
+			child.setX(n);
+			root.getChildren().add(child);
+			root.getIndex().put(child.getName(), child);
+		}
+		
+		StringWriter out = new StringWriter();
+		ValueFactory.appendTo(out, root);
+		assertEquals(root.toString(), out.toString());
+		assertTrue(out.toString().contains("child2"));
+		assertTrue(out.toString().contains("" + Long.MIN_VALUE));
+	}
+
+}
@@ -597,6 +597,69 @@ public class TestValueFactory extends TestCase {
 		assertEquals(TestValueFactory.class.getName() + "$B{z: 255; y: 42; x: 13}", b.toString());
 	}
 	
+	public interface Tree extends Value {
+		String getName();
+		void setName(String value);
+		
+		List<Tree> getChildren();
+		
+		@IndexProperty("name")
+		Map<String, Tree> getChildrenByName();
+	}
+	
+	public void testRecursiveType() {
+		Tree root = ValueFactory.newInstance(Tree.class);
+		Tree child = ValueFactory.newInstance(Tree.class);
+		child.setName("child");
+		root.getChildren().add(child);
+		root.getChildrenByName().put("child", child);
+		
+		assertSame(root.descriptor(), child.descriptor());
+		assertEquals(1, root.getChildren().size());
+	}
+	
+	public interface Concurrent1 extends Value {
+		Concurrent2 getOther();
+		List<Concurrent1> getList();
+	}
+	
+	public interface Concurrent2 extends Value {
+		List<Concurrent1> getList();
+	}
+	
+	public void testConcurrentDescriptorLookup() throws InterruptedException {
+		final int threadCount = 8;
+		final Object[] descriptors = new Object[2 * threadCount];
+		Thread[] threads = new Thread[threadCount];
+		for (int n = 0; n < threadCount; n++) {
+			final int id = n;
+			threads[n] = new Thread() {
+				@Override
+				public void run() {
+					if (id % 2 == 0) {
+						descriptors[2 * id] = ValueFactory.getDescriptor(Concurrent1.class);
+						descriptors[2 * id + 1] = ValueFactory.getDescriptor(Concurrent2.class);
+					} else {
+						descriptors[2 * id + 1] = ValueFactory.getDescriptor(Concurrent2.class);
+						descriptors[2 * id] = ValueFactory.getDescriptor(Concurrent1.class);
+					}
+				}
+			};
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		for (int n = 0; n < threadCount; n++) {
+			assertSame(ValueFactory.getDescriptor(Concurrent1.class), descriptors[2 * n]);
+			assertSame(ValueFactory.getDescriptor(Concurrent2.class), descriptors[2 * n + 1]);
+		}
+		Concurrent1 value = ValueFactory.newInstance(Concurrent1.class);
+		assertEquals(0, value.getOther().getList().size());
+	}
+	
 	public interface BooleanGetters {
 		boolean getBoolean();
 		boolean isValueSet();
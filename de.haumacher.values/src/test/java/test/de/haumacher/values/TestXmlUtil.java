@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2012-2015, Bernhard Haumacher. 
+ * All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+package test.de.haumacher.values;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import de.haumacher.values.Value;
+import de.haumacher.values.ValueFactory;
+import de.haumacher.values.annotate.IndexProperty;
+import de.haumacher.values.annotate.Lazy;
+import de.haumacher.values.xml.XmlUtil;
+import junit.framework.TestCase;
+
+/**
+ * Test case for {@link XmlUtil}.
+ *
+ * @author <a href="mailto:haui@haumacher.de">Bernhard Haumacher</a>
+ */
+@SuppressWarnings("javadoc")
+public class TestXmlUtil extends TestCase {
+
+	public interface Page extends Value {
+
+		String getTitle();
+		void setTitle(String value);
+
+		int getRevision();
+		void setRevision(int value);
+
+		double[] getMargins();
+		void setMargins(double[] value);
+
+		Style getStyle();
+
+		@Lazy
+		Section getFooter();
+
+		List<Section> getSections();
+
+		@IndexProperty("id")
+		Map<String, Anchor> getAnchors();
+
+	}
+
+	public interface Style extends Value {
+
+		String getFont();
+		void setFont(String value);
+
+		int getSize();
+		void setSize(int value);
+
+	}
+
+	public interface Section extends Value {
+
+		String getHeading();
+		void setHeading(String value);
+
+		List<Section> getSubsections();
+
+	}
+
+	public interface Anchor extends Value {
+
+		String getId();
+		void setId(String value);
+
+		int getOffset();
+		void setOffset(int value);
+
+	}
+
+	public void testWrite() throws XMLStreamException {
+		Page page = ValueFactory.newInstance(Page.class);
+		page.setTitle("<b> & \"c\"");
+		page.setRevision(3);
+		page.getStyle().setFont("serif");
+		page.getSections().add(section("Intro"));
+		page.getSections().get(0).getSubsections().add(section("Scope"));
+		page.getAnchors().put("top", anchor("top", 0));
+
+		StringWriter out = new StringWriter();
+		XmlUtil.write(out, page);
+		String xml = out.toString();
+		assertTrue(xml, xml.contains("<Page "));
+		assertTrue(xml, xml.contains(" title=\"&lt;b&gt; &amp; &quot;c&quot;\""));
+		assertTrue(xml, xml.contains(" revision=\"3\""));
+		assertTrue(xml, xml.contains(" font=\"serif\""));
+		assertTrue(xml, xml.contains("<sections heading=\"Intro\"><subsections heading=\"Scope\"></subsections></sections>"));
+		assertTrue(xml, xml.contains("<anchors "));
+		assertFalse("Lazy value not created.", xml.contains("footer"));
+
+		assertEquals(page, XmlUtil.read(new StringReader(xml), Page.class));
+	}
+
+	public void testStreams() throws XMLStreamException {
+		Page page = newPage();
+		page.setTitle("\u00dcbersicht \u2013 \u20ac 5");
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		XmlUtil.write(buffer, page);
+		Page copy = XmlUtil.read(new ByteArrayInputStream(buffer.toByteArray()), Page.class);
+		assertEquals(page.getTitle(), copy.getTitle());
+		assertEquals(page, copy);
+	}
+
+	public void testLineBreaks() throws XMLStreamException {
+		Page page = newPage();
+		page.setTitle("a\nb\r\nc\td\r");
+
+		StringWriter out = new StringWriter();
+		XmlUtil.write(out, page);
+		String xml = out.toString();
+		assertTrue(xml, xml.contains("<title>a\nb&#13;\nc\td&#13;</title>"));
+		assertTrue(xml, xml.contains(" revision=\"7\""));
+
+		Page copy = XmlUtil.read(new StringReader(xml), Page.class);
+		assertEquals(page.getTitle(), copy.getTitle());
+		assertEquals(page, copy);
+	}
+
+	public void testRead() throws XMLStreamException {
+		String xml = 
+			"<?xml version='1.0'?>\n" +
+			"<!-- Hand-written page. -->\n" +
+			"<page title='legacy' unknown='x' xmlns:doc='urn:doc'>\n" +
+			"  <revision>4<!-- comment -->2</revision>\n" +
+			"  <margins><![CDATA[1.5, 2]]></margins>\n" +
+			"  <doc:unknown><sections heading='ignored'/></doc:unknown>\n" +
+			"  <style font='mono'><size>12</size></style>\n" +
+			"  <sections heading='a'><subsections heading='a1'/><subsections heading='a2'/></sections>\n" +
+			"  <sections><heading>b &amp; c</heading></sections>\n" +
+			"  <anchors id='x' offset='1'/>\n" +
+			"  <anchors id='y'><offset>2</offset></anchors>\n" +
+			"</page>";
+		Page page = XmlUtil.read(new StringReader(xml), Page.class);
+		assertEquals("legacy", page.getTitle());
+		assertEquals(42, page.getRevision());
+		assertTrue(Arrays.equals(new double[] { 1.5, 2 }, page.getMargins()));
+		assertEquals("mono", page.getStyle().getFont());
+		assertEquals(12, page.getStyle().getSize());
+		assertEquals(2, page.getSections().size());
+		assertEquals(2, page.getSections().get(0).getSubsections().size());
+		assertEquals("a2", page.getSections().get(0).getSubsections().get(1).getHeading());
+		assertEquals("b & c", page.getSections().get(1).getHeading());
+		assertEquals(2, page.getAnchors().get("y").getOffset());
+	}
+
+	public void testEmbedded() throws XMLStreamException {
+		StringWriter out = new StringWriter();
+		XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out);
+		writer.writeStartElement("book");
+		for (int n = 0; n < 1000; n++) {
+			writer.writeComment("Page " + n);
+			Page page = ValueFactory.newInstance(Page.class);
+			page.setTitle("p" + n);
+			page.setRevision(n);
+			XmlUtil.write(writer, "page", page);
+		}
+		writer.writeEndElement();
+		writer.close();
+
+		XMLStreamReader in = XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(out.toString()));
+		in.nextTag();
+
+		List<Page> pages = new ArrayList<Page>();
+		while (in.nextTag() == XMLStreamReader.START_ELEMENT) {
+			pages.add(XmlUtil.read(in, Page.class));
+		}
+		assertEquals(1000, pages.size());
+		assertEquals("p999", pages.get(999).getTitle());
+		assertEquals(999, pages.get(999).getRevision());
+	}
+
+	public void testNull() throws XMLStreamException {
+		Page page = newPage();
+		page.getSections().add(0, null);
+
+		StringWriter out = new StringWriter();
+		XmlUtil.write(out, page);
+		String xml = out.toString();
+		assertTrue(xml, xml.contains("<sections xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xsi:nil=\"true\"/>"));
+
+		Page copy = XmlUtil.read(new StringReader(xml), Page.class);
+		assertNull(copy.getSections().get(0));
+		assertEquals(3, copy.getSections().size());
+		assertEquals(page, copy);
+
+		// Like setting null, a nil element resets a nested value.
+		copy = XmlUtil.read(new StringReader("<page xmlns:xsi='http://www.w3.org/2001/XMLSchema-instance'><style font='x'/><style xsi:nil='true'/></page>"), Page.class);
+		assertEquals(ValueFactory.newInstance(Style.class), copy.getStyle());
+
+		try {
+			XmlUtil.read(new StringReader("<page xmlns:xsi='http://www.w3.org/2001/XMLSchema-instance'><anchors xsi:nil='true'/></page>"), Page.class);
+			fail("Index entry without key accepted.");
+		} catch (XMLStreamException ex) {
+			// Expected.
+		}
+	}
+
+	public void testInvalid() {
+		try {
+			XmlUtil.read(new StringReader("<page revision='x'/>"), Page.class);
+			fail("Invalid number accepted.");
+		} catch (XMLStreamException ex) {
+			// Expected.
+		}
+		try {
+			XmlUtil.read(new StringReader("<page><title>a<b/></title></page>"), Page.class);
+			fail("Structured primitive accepted.");
+		} catch (XMLStreamException ex) {
+			// Expected.
+		}
+		try {
+			XmlUtil.read(new StringReader("<page><sections></page>"), Page.class);
+			fail("Malformed document accepted.");
+		} catch (XMLStreamException ex) {
+			// Expected.
+		}
+	}
+
+	private static Page newPage() {
+		Page page = ValueFactory.newInstance(Page.class);
+		page.setTitle("Contents");
+		page.setRevision(7);
+		page.setMargins(new double[] { 0.5, -1 });
+		page.getStyle().setFont("serif");
+		page.getSections().add(section("a"));
+		page.getSections().add(section("b"));
+		page.getSections().get(1).getSubsections().add(section("b1"));
+		page.getAnchors().put("x", anchor("x", 3));
+		page.getAnchors().put("y", anchor("y", 4));
+		return page;
+	}
+
+	private static Section section(String heading) {
+		Section result = ValueFactory.newInstance(Section.class);
+		result.setHeading(heading);
+		return result;
+	}
+
+	private static Anchor anchor(String id, int offset) {
+		Anchor result = ValueFactory.newInstance(Anchor.class);
+		result.setId(id);
+		result.setOffset(offset);
+		return result;
+	}
+
+}